@@ -0,0 +1,133 @@
+package sg.edu.nus.comp.cs4218;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+class ShellContextTest {
+    private String originalDirectory;
+
+    /**
+     * Saves the global working directory before each test.
+     */
+    @BeforeEach
+    void setUp() {
+        originalDirectory = Environment.currentDirectory;
+    }
+
+    /**
+     * Restores the global working directory after each test.
+     */
+    @AfterEach
+    void tearDown() {
+        Environment.currentDirectory = originalDirectory;
+    }
+
+    /**
+     * Tests that the global context reads and writes Environment.currentDirectory.
+     */
+    @Test
+    void global_SetCurrentDirectory_UpdatesEnvironment() {
+        ShellContext.global().setCurrentDirectory("/tmp");
+
+        assertEquals("/tmp", Environment.currentDirectory);
+        assertEquals("/tmp", ShellContext.current().getCurrentDirectory());
+    }
+
+    /**
+     * Tests that an activated context is current only until its scope is closed.
+     */
+    @Test
+    void activate_ScopeClosed_RestoresPreviousContext() {
+        ShellContext outer = new ShellContext("/outer");
+        ShellContext inner = new ShellContext("/inner");
+
+        try (ShellContext.Scope outerScope = outer.activate()) {
+            try (ShellContext.Scope innerScope = inner.activate()) {
+                assertSame(inner, ShellContext.current());
+            }
+            assertSame(outer, ShellContext.current());
+        }
+        assertSame(ShellContext.global(), ShellContext.current());
+    }
+
+    /**
+     * Tests that each session compiles its patterns into a cache of its own, so that one session's patterns neither
+     * count towards nor evict those of another.
+     *
+     * @param tempDir Temporary directory holding the file grepped
+     * @throws Exception If grep fails
+     */
+    @Test
+    void getPatternCache_SeparateSessions_CachePatternsSeparately(@TempDir Path tempDir) throws Exception {
+        Files.writeString(tempDir.resolve("lines.txt"), "abc" + STRING_NEWLINE);
+        ShellContext first = new ShellContext(tempDir.toString());
+        ShellContext second = new ShellContext(tempDir.toString());
+        long globalLookups = ShellContext.global().getPatternCache().getMissCount()
+                + ShellContext.global().getPatternCache().getHitCount();
+
+        new ShellImpl(first).parseAndEvaluate("grep a.c lines.txt", new ByteArrayOutputStream());
+        new ShellImpl(first).parseAndEvaluate("grep a.c lines.txt", new ByteArrayOutputStream());
+        new ShellImpl(second).parseAndEvaluate("grep a.c lines.txt", new ByteArrayOutputStream());
+
+        assertNotSame(first.getPatternCache(), second.getPatternCache());
+        assertEquals(1, first.getPatternCache().getMissCount());
+        assertEquals(1, first.getPatternCache().getHitCount());
+        assertEquals(1, second.getPatternCache().getMissCount());
+        assertEquals(0, second.getPatternCache().getHitCount());
+        assertEquals(globalLookups, ShellContext.global().getPatternCache().getMissCount()
+                + ShellContext.global().getPatternCache().getHitCount());
+    }
+
+    /**
+     * Tests that sessions changing into different directories at the same time, including inside pipelines, each
+     * only see the files of their own directory, and leave the global directory untouched.
+     *
+     * @param tempDir Temporary directory holding one directory per session
+     * @throws Exception If a session fails
+     */
+    @Test
+    void evaluate_ParallelSessions_DoNotInterfere(@TempDir Path tempDir) throws Exception {
+        int sessionCount = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(sessionCount);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < sessionCount; i++) {
+                Path sessionDir = Files.createDirectory(tempDir.resolve("session" + i));
+                Files.writeString(sessionDir.resolve("name.txt"), "session" + i);
+                results.add(executor.submit(() -> {
+                    ShellImpl shell = new ShellImpl(new ShellContext(originalDirectory));
+                    ByteArrayOutputStream output = new ByteArrayOutputStream();
+                    shell.parseAndEvaluate("cd " + sessionDir, output);
+                    for (int j = 0; j < 20; j++) {
+                        shell.parseAndEvaluate("cat name.txt | cat", output);
+                    }
+                    return output.toString(StandardCharsets.UTF_8);
+                }));
+            }
+
+            for (int i = 0; i < sessionCount; i++) {
+                String expected = ("session" + i + STRING_NEWLINE).repeat(20);
+                assertEquals(expected, results.get(i).get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(originalDirectory, Environment.currentDirectory);
+    }
+}
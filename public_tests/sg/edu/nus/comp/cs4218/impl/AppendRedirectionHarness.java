@@ -0,0 +1,62 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.ShellContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Measures the cost of appending a line to files of growing size, once with {@code >>} and once by
+ * rewriting the whole file through {@code cat} into a copy, as scripts had to before {@code >>}
+ * existed. It is not run as part of the test suite; run its main method to print the results.
+ */
+public final class AppendRedirectionHarness {
+    private static final int[] FILE_SIZES_MIB = {1, 16, 64};
+    private static final int APPENDS_PER_RUN = 200;
+
+    private AppendRedirectionHarness() {
+    }
+
+    public static void main(String... args) throws Exception {
+        Path directory = Files.createTempDirectory("append-harness");
+        ShellImpl shell = new ShellImpl(new ShellContext(directory.toString()));
+        // redirecting the output closes the original stdout, so it must survive being closed
+        OutputStream stdout = new ByteArrayOutputStream();
+        Files.writeString(directory.resolve("line.txt"), "appended line\n");
+
+        for (int sizeMib : FILE_SIZES_MIB) {
+            byte[] contents = new byte[sizeMib * 1024 * 1024];
+            Arrays.fill(contents, (byte) 'x');
+            Files.write(directory.resolve("log.txt"), contents);
+
+            // warm up the JIT and the page cache before measuring
+            runAppends(shell, stdout, "echo appended line >> log.txt", APPENDS_PER_RUN);
+            double appendMicros = runAppends(shell, stdout, "echo appended line >> log.txt", APPENDS_PER_RUN);
+            double rewriteMicros = runAppends(shell, stdout,
+                    "cat log.txt line.txt > copy.txt; mv copy.txt log.txt", APPENDS_PER_RUN / 20);
+            System.out.println(String.format(Locale.ROOT, "%3d MiB file: >> %,8.1f us/append, rewrite %,10.1f us/append",
+                    sizeMib, appendMicros, rewriteMicros));
+        }
+
+        for (String name : new String[]{"log.txt", "line.txt"}) {
+            Files.deleteIfExists(directory.resolve(name));
+        }
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Runs the command the given number of times and returns the average time it took.
+     */
+    private static double runAppends(ShellImpl shell, OutputStream stdout, String command, int count)
+            throws Exception {
+        long startTime = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            shell.parseAndEvaluate(command, stdout);
+        }
+        return (System.nanoTime() - startTime) / 1000.0 / count;
+    }
+}
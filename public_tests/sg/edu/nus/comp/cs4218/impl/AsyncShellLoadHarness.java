@@ -0,0 +1,62 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Measures the throughput of {@link AsyncShell} with 1, 8 and 64 callers submitting commands at
+ * the same time. It is not run as part of the test suite; run its main method to print the results.
+ */
+public final class AsyncShellLoadHarness {
+    private static final int[] CALLER_COUNTS = {1, 8, 64};
+    private static final int COMMANDS_PER_RUN = 20_000;
+    private static final String COMMAND = "echo load test | wc -c";
+
+    private AsyncShellLoadHarness() {
+    }
+
+    public static void main(String... args) throws Exception {
+        try (AsyncShell shell = new AsyncShell(Runtime.getRuntime().availableProcessors() * 2, 4096)) {
+            // warm up the JIT and the caches before measuring
+            runCallers(shell, 8, COMMANDS_PER_RUN);
+            for (int callerCount : CALLER_COUNTS) {
+                long startTime = System.nanoTime();
+                runCallers(shell, callerCount, COMMANDS_PER_RUN);
+                double seconds = (System.nanoTime() - startTime) / 1_000_000_000.0;
+                System.out.println(String.format(Locale.ROOT, "%2d callers: %,.0f commands/s",
+                        callerCount, COMMANDS_PER_RUN / seconds));
+            }
+        }
+    }
+
+    /**
+     * Has each caller submit its share of the commands one at a time, waiting for each result.
+     */
+    private static void runCallers(AsyncShell shell, int callerCount, int commandCount) throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(callerCount);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < callerCount; i++) {
+                results.add(callers.submit(() -> {
+                    for (int j = 0; j < commandCount / callerCount; j++) {
+                        CompletableFuture<CommandResult> future = shell.submit(COMMAND);
+                        if (future.join().getExitStatus() != CommandResult.STATUS_SUCCESS) {
+                            throw new IllegalStateException("Command failed");
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            callers.shutdown();
+        }
+    }
+}
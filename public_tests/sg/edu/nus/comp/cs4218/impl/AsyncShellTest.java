@@ -0,0 +1,181 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+class AsyncShellTest {
+    private static final long TIMEOUT_SECONDS = 10;
+
+    /**
+     * Tests submitting a valid command. Verifies that its output and a success status are returned.
+     *
+     * @throws Exception If the command does not complete
+     */
+    @Test
+    void submit_ValidCommand_ReturnsOutputAndSuccess() throws Exception {
+        try (AsyncShell shell = new AsyncShell()) {
+            CommandResult result = shell.submit("echo hello").get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals(CommandResult.STATUS_SUCCESS, result.getExitStatus());
+            assertEquals("hello" + STRING_NEWLINE, result.getStdoutAsString());
+            assertEquals("", result.getStderrAsString());
+            assertTrue(result.getElapsedNanos() > 0);
+        }
+    }
+
+    /**
+     * Tests submitting an invalid command. Verifies that its error message is returned on stderr.
+     *
+     * @throws Exception If the command does not complete
+     */
+    @Test
+    void submit_InvalidCommand_ReturnsErrorOnStderr() throws Exception {
+        try (AsyncShell shell = new AsyncShell()) {
+            CommandResult result = shell.submit("unknown").get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals(CommandResult.STATUS_ERROR, result.getExitStatus());
+            assertEquals("", result.getStdoutAsString());
+            assertTrue(result.getStderrAsString().startsWith("shell: unknown: "));
+        }
+    }
+
+    /**
+     * Tests submitting a command with a caller-supplied stdin. Verifies that the command reads from it.
+     *
+     * @throws Exception If the command does not complete
+     */
+    @Test
+    void submit_WithStdin_CommandReadsStdin() throws Exception {
+        InputStream stdin = new ByteArrayInputStream(("b" + STRING_NEWLINE + "a" + STRING_NEWLINE)
+                .getBytes(StandardCharsets.UTF_8));
+        try (AsyncShell shell = new AsyncShell()) {
+            CommandResult result = shell.submit("sort", new ShellContext(Environment.currentDirectory), stdin)
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals("a" + STRING_NEWLINE + "b" + STRING_NEWLINE, result.getStdoutAsString());
+        }
+    }
+
+    /**
+     * Tests a command substitution in a submitted command. Verifies that the substituted command reads
+     * the caller-supplied stdin rather than the stdin of the JVM.
+     *
+     * @throws Exception If the command does not complete
+     */
+    @Test
+    void submit_SubstitutionReadsStdin_ReadsCallerStdin() throws Exception {
+        InputStream stdin = new ByteArrayInputStream("from caller".getBytes(StandardCharsets.UTF_8));
+        try (AsyncShell shell = new AsyncShell()) {
+            CommandResult result = shell.submit("echo `cat`", new ShellContext(Environment.currentDirectory), stdin)
+                    .get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            assertEquals("from caller" + STRING_NEWLINE, result.getStdoutAsString());
+        }
+    }
+
+    /**
+     * Tests submitting many commands from many threads at once. Verifies that every command gets its own output.
+     *
+     * @throws Exception If a command does not complete
+     */
+    @Test
+    void submit_ManyConcurrentCommands_EachGetsOwnOutput() throws Exception {
+        try (AsyncShell shell = new AsyncShell(8, 256)) {
+            List<CompletableFuture<CommandResult>> futures = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                futures.add(shell.submit("echo command" + i + " | cat"));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                CommandResult result = futures.get(i).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                assertEquals("command" + i + STRING_NEWLINE, result.getStdoutAsString());
+            }
+        }
+    }
+
+    /**
+     * Tests submitting more commands than can run or wait at once. Verifies that the extra command is rejected
+     * and the others still complete.
+     *
+     * @throws Exception If a command does not complete
+     */
+    @Test
+    void submit_LimitsExceeded_RejectsCommand() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        InputStream blockingStdin = new InputStream() {
+            @Override
+            public int read() throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+                return -1;
+            }
+        };
+
+        try (AsyncShell shell = new AsyncShell(1, 1)) {
+            ShellContext context = new ShellContext(Environment.currentDirectory);
+            CompletableFuture<CommandResult> running = shell.submit("cat", context, blockingStdin);
+            CompletableFuture<CommandResult> queued = shell.submit("echo queued");
+            CompletableFuture<CommandResult> rejected = shell.submit("echo rejected");
+
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> rejected.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof RejectedExecutionException);
+
+            release.countDown();
+            assertEquals(CommandResult.STATUS_SUCCESS, running.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getExitStatus());
+            assertEquals("queued" + STRING_NEWLINE, queued.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getStdoutAsString());
+        }
+    }
+
+    /**
+     * Tests that an error thrown by a command, such as a stack overflow in a regular expression,
+     * completes its future exceptionally rather than leaving it pending forever.
+     */
+    @Test
+    void submit_CommandThrowsError_CompletesExceptionally() throws Exception {
+        InputStream failingStdin = new InputStream() {
+            @Override
+            public int read() {
+                throw new StackOverflowError();
+            }
+        };
+
+        try (AsyncShell shell = new AsyncShell(1, 1)) {
+            CompletableFuture<CommandResult> future = shell.submit("cat",
+                    new ShellContext(Environment.currentDirectory), failingStdin);
+
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                    () -> future.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof StackOverflowError);
+            assertEquals("still up" + STRING_NEWLINE,
+                    shell.submit("echo still up").get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getStdoutAsString());
+        }
+    }
+
+    /**
+     * Tests that non-positive concurrency limits are rejected.
+     */
+    @Test
+    void constructor_ZeroConcurrency_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new AsyncShell(0, 1));
+    }
+}
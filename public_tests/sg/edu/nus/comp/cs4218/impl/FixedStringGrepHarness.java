@@ -0,0 +1,90 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.ShellContext;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures the throughput of grep over a generated log file, matching the same literal strings once
+ * as regular expressions and once with {@code -F}, for one string and for several strings at once.
+ * It is not run as part of the test suite; run its main method to print the results, optionally
+ * giving the size of the log file in MiB.
+ */
+public final class FixedStringGrepHarness {
+    private static final int DEFAULT_SIZE_MIB = 256;
+    private static final int RUNS = 3;
+    private static final String[] WORDS = {"request", "served", "user", "session", "cache", "login", "upload",
+        "timeout", "retry", "queue", "worker", "socket", "page", "index", "static", "api"};
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+    private static final String[] CASES = {
+        "grep -c deadlock log.txt",
+        "grep -F -c deadlock log.txt",
+        "grep -c -e deadlock -e segfault -e OutOfMemory -e corrupted -e refused log.txt",
+        "grep -F -c -e deadlock -e segfault -e OutOfMemory -e corrupted -e refused log.txt",
+        "grep -i -c DEADLOCK log.txt",
+        "grep -F -i -c DEADLOCK log.txt",
+    };
+
+    private FixedStringGrepHarness() {
+    }
+
+    public static void main(String... args) throws Exception {
+        int sizeMib = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE_MIB;
+        Path directory = Files.createTempDirectory("grep-harness");
+        Path log = directory.resolve("log.txt");
+        writeLog(log, (long) sizeMib * 1024 * 1024);
+        ShellImpl shell = new ShellImpl(new ShellContext(directory.toString()));
+
+        for (String command : CASES) {
+            ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+            shell.parseAndEvaluate(command, stdout); // warm up the JIT and the page cache
+            long best = Long.MAX_VALUE;
+            for (int i = 0; i < RUNS; i++) {
+                stdout.reset();
+                long startTime = System.nanoTime();
+                shell.parseAndEvaluate(command, stdout);
+                best = Math.min(best, System.nanoTime() - startTime);
+            }
+            System.out.println(String.format(Locale.ROOT, "%-80s %8.1f MiB/s (%s matches)", command,
+                    sizeMib / (best / 1e9), stdout.toString(StandardCharsets.UTF_8).trim()));
+        }
+
+        Files.deleteIfExists(log);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Writes log lines of random words until the file reaches the given size, with a rare line
+     * containing one of the strings searched for.
+     */
+    private static void writeLog(Path log, long size) throws Exception {
+        Random random = new Random(1);
+        long written = 0;
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(log), 1 << 16)) {
+            StringBuilder line = new StringBuilder();
+            while (written < size) {
+                line.setLength(0);
+                line.append("2024-03-").append(10 + random.nextInt(20)).append(" 12:")
+                        .append(10 + random.nextInt(50)).append(' ').append(LEVELS[random.nextInt(LEVELS.length)]);
+                int wordCount = 6 + random.nextInt(10);
+                for (int i = 0; i < wordCount; i++) {
+                    line.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                if (random.nextInt(10_000) == 0) {
+                    line.append(" deadlock detected");
+                }
+                line.append('\n');
+                byte[] bytes = line.toString().getBytes(StandardCharsets.UTF_8);
+                output.write(bytes);
+                written += bytes.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.impl.app.GrepApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Measures how grep over many small files scales with the number of files grepped at once. It is
+ * not run as part of the test suite; run its main method to print the results, optionally giving
+ * the number of files and the highest parallelism to try.
+ */
+public final class ParallelGrepHarness {
+    private static final int DEFAULT_FILE_COUNT = 2000;
+    private static final int FILE_SIZE = 64 * 1024;
+    private static final int RUNS = 3;
+
+    private ParallelGrepHarness() {
+    }
+
+    public static void main(String... args) throws Exception {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_FILE_COUNT;
+        int maxParallelism = args.length > 1 ? Integer.parseInt(args[1]) : GrepApplication.DEFAULT_PARALLELISM;
+        Path directory = Files.createTempDirectory("grep-harness");
+        List<String> grepArgs = new ArrayList<>(List.of("-c", "deadlock"));
+        Random random = new Random(1);
+        for (int i = 0; i < fileCount; i++) {
+            StringBuilder content = new StringBuilder();
+            while (content.length() < FILE_SIZE) {
+                content.append("2024-03-10 12:00 INFO request ").append(random.nextInt())
+                        .append(random.nextInt(500) == 0 ? " deadlock" : "").append('\n');
+            }
+            Files.writeString(directory.resolve("file" + i + ".log"), content);
+            grepArgs.add("file" + i + ".log");
+        }
+        String[] argsArray = grepArgs.toArray(new String[0]);
+        ShellContext context = new ShellContext(directory.toString());
+
+        double sequentialSeconds = 0;
+        for (int parallelism = 1; parallelism <= maxParallelism; parallelism *= 2) {
+            GrepApplication grep = new GrepApplication(parallelism);
+            long best = Long.MAX_VALUE;
+            try (ShellContext.Scope scope = context.activate()) {
+                grep.run(argsArray, null, new ByteArrayOutputStream()); // warm up the JIT and the page cache
+                for (int i = 0; i < RUNS; i++) {
+                    long startTime = System.nanoTime();
+                    grep.run(argsArray, null, new ByteArrayOutputStream());
+                    best = Math.min(best, System.nanoTime() - startTime);
+                }
+            }
+            double seconds = best / 1e9;
+            if (parallelism == 1) {
+                sequentialSeconds = seconds;
+            }
+            System.out.println(String.format(Locale.ROOT, "parallelism %2d: %8.1f ms, %5.2fx", parallelism,
+                    seconds * 1000, sequentialSeconds / seconds));
+        }
+
+        for (int i = 0; i < fileCount; i++) {
+            Files.deleteIfExists(directory.resolve("file" + i + ".log"));
+        }
+        Files.deleteIfExists(directory);
+    }
+}
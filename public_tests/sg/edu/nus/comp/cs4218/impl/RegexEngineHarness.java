@@ -0,0 +1,133 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.ShellContext;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Compares grep matching by backtracking with grep matching with the lazily built automaton of
+ * {@code -D}. Adversarial patterns, which backtracking takes polynomial time over or runs out of
+ * stack on, are run over a single line of growing length until backtracking takes longer than
+ * {@link #TIME_LIMIT_NANOS}; ordinary patterns are run over a generated log file to compare throughput. It is not run as part
+ * of the test suite; run its main method to print the results, optionally giving the size of the log
+ * file in MiB.
+ */
+public final class RegexEngineHarness {
+    private static final int DEFAULT_SIZE_MIB = 64;
+    private static final int RUNS = 3;
+    private static final long TIME_LIMIT_NANOS = 2_000_000_000L;
+    private static final int[] LENGTHS = {64, 256, 1 << 10, 1 << 12, 1 << 14, 1 << 16, 1 << 20};
+    private static final String[][] ADVERSARIAL = {
+        // pattern, the string repeated, the string ending the line
+        {"'a*a*a*b'", "a", "c"},
+        {"'.*.*=.*x'", "a", "y"},
+        {"'(a+)+b'", "a", "c"},
+        {"'(\\w+\\s?)+!'", "w", "?"},
+        {"'\\s+$'", " ", "x"},
+        {"'(a|aa)*c'", "a", "b"},
+    };
+    private static final String[] WORDS = {"request", "served", "user", "session", "cache", "login", "upload",
+        "timeout", "retry", "queue", "worker", "socket", "page", "index", "static", "api", "logout", "refused"};
+    private static final String[] LEVELS = {"INFO", "INFO", "INFO", "DEBUG", "WARN", "ERROR"};
+    private static final String[] CASES = {
+        "grep -c deadlock log.txt",
+        "grep -c 'ERROR.*(timeout|refused)' log.txt",
+        "grep -c '^2024-03-1[0-9] 12:[0-9]+ WARN' log.txt",
+        "grep -i -c 'user (login|logout)' log.txt",
+    };
+
+    private RegexEngineHarness() {
+    }
+
+    public static void main(String... args) throws Exception {
+        int sizeMib = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_SIZE_MIB;
+        Path directory = Files.createTempDirectory("regex-harness");
+        ShellImpl shell = new ShellImpl(new ShellContext(directory.toString()));
+        Path line = directory.resolve("line.txt");
+
+        for (String[] adversarial : ADVERSARIAL) {
+            boolean isBacktrackingDone = false;
+            for (int length : LENGTHS) {
+                Files.writeString(line, adversarial[1].repeat(length) + adversarial[2] + "\n");
+                String command = "grep -c " + adversarial[0] + " line.txt";
+                String backtracking = "-";
+                if (!isBacktrackingDone) {
+                    try {
+                        long nanos = time(shell, command, 1);
+                        backtracking = String.format(Locale.ROOT, "%10.3f ms", nanos / 1e6);
+                        isBacktrackingDone = nanos > TIME_LIMIT_NANOS;
+                    } catch (StackOverflowError error) {
+                        backtracking = "stack overflow";
+                        isBacktrackingDone = true;
+                    }
+                }
+                long dfaNanos = time(shell, command.replace("grep -c", "grep -D -c"), RUNS);
+                System.out.println(String.format(Locale.ROOT, "%-20s n=%-8d backtracking %13s   -D %10.3f ms",
+                        adversarial[0], length, backtracking, dfaNanos / 1e6));
+            }
+        }
+
+        Path log = directory.resolve("log.txt");
+        writeLog(log, (long) sizeMib * 1024 * 1024);
+        for (String command : CASES) {
+            for (String variant : new String[]{command, command.replace("grep ", "grep -D ")}) {
+                ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+                shell.parseAndEvaluate(variant, stdout); // warm up the JIT and the page cache
+                long best = time(shell, variant, RUNS);
+                shell.parseAndEvaluate(variant, stdout);
+                System.out.println(String.format(Locale.ROOT, "%-60s %8.1f MiB/s (%s matches)", variant,
+                        sizeMib / (best / 1e9), stdout.toString(StandardCharsets.UTF_8).trim().split("\n")[0]));
+            }
+        }
+
+        Files.deleteIfExists(line);
+        Files.deleteIfExists(log);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Returns the fastest of some runs of the command, in nanoseconds.
+     */
+    private static long time(ShellImpl shell, String command, int runs) throws Exception {
+        long best = Long.MAX_VALUE;
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        for (int i = 0; i < runs; i++) {
+            stdout.reset();
+            long startTime = System.nanoTime();
+            shell.parseAndEvaluate(command, stdout);
+            best = Math.min(best, System.nanoTime() - startTime);
+        }
+        return best;
+    }
+
+    /**
+     * Writes log lines of random words until the file reaches the given size.
+     */
+    private static void writeLog(Path log, long size) throws Exception {
+        Random random = new Random(1);
+        long written = 0;
+        try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(log), 1 << 16)) {
+            StringBuilder builder = new StringBuilder();
+            while (written < size) {
+                builder.setLength(0);
+                builder.append("2024-03-").append(10 + random.nextInt(20)).append(" 12:")
+                        .append(10 + random.nextInt(50)).append(' ').append(LEVELS[random.nextInt(LEVELS.length)]);
+                int wordCount = 6 + random.nextInt(10);
+                for (int i = 0; i < wordCount; i++) {
+                    builder.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                builder.append('\n');
+                byte[] bytes = builder.toString().getBytes(StandardCharsets.UTF_8);
+                output.write(bytes);
+                written += bytes.length;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.exception.ExitException;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+class ScriptRunnerTest {
+    private ScriptRunner scriptRunner;
+    private ByteArrayOutputStream outputStream;
+
+    /**
+     * Sets up a ScriptRunner on a new shell and a ByteArrayOutputStream to capture its output.
+     */
+    @BeforeEach
+    void setUp() {
+        scriptRunner = new ScriptRunner(new ShellImpl());
+        outputStream = new ByteArrayOutputStream();
+    }
+
+    private static BufferedReader scriptOf(String... lines) {
+        return new BufferedReader(new StringReader(String.join(STRING_NEWLINE, lines)));
+    }
+
+    /**
+     * Tests running a script with commands, a blank line and a comment. Verifies that only the commands are run
+     * and counted, and that their output is written in order.
+     *
+     * @throws Exception If running the script fails
+     */
+    @Test
+    void run_CommandsWithBlankAndComment_RunsOnlyCommands() throws Exception {
+        scriptRunner.run(scriptOf("# greeting", "echo hello", "", "echo world"), InputStream.nullInputStream(),
+                outputStream);
+
+        assertEquals("hello" + STRING_NEWLINE + "world" + STRING_NEWLINE, outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals(4, scriptRunner.getLineCount());
+        assertEquals(2, scriptRunner.getCommandCount());
+    }
+
+    /**
+     * Tests running a script with an invalid command. Verifies that its error is written and the script carries on.
+     *
+     * @throws Exception If running the script fails
+     */
+    @Test
+    void run_InvalidCommand_WritesErrorAndContinues() throws Exception {
+        scriptRunner.run(scriptOf("unknown", "echo after"), InputStream.nullInputStream(), outputStream);
+
+        String output = outputStream.toString(StandardCharsets.UTF_8);
+        assertTrue(output.startsWith("shell: unknown: "));
+        assertTrue(output.endsWith("after" + STRING_NEWLINE));
+    }
+
+    /**
+     * Tests running a script with the exit command. Verifies that the output before it is written and the
+     * commands after it are not run.
+     */
+    @Test
+    void run_ExitCommand_StopsScript() {
+        assertThrows(ExitException.class, () -> scriptRunner.run(scriptOf("echo before", "exit", "echo after"),
+                InputStream.nullInputStream(), outputStream));
+
+        assertEquals("before" + STRING_NEWLINE, outputStream.toString(StandardCharsets.UTF_8));
+        assertEquals(2, scriptRunner.getCommandCount());
+    }
+
+    /**
+     * Tests that output is written to the underlying stream once per command, however often the command flushes.
+     *
+     * @throws Exception If running the script fails
+     */
+    @Test
+    void run_SequenceCommand_WritesOncePerCommand() throws Exception {
+        List<Integer> writeSizes = new ArrayList<>();
+        OutputStream recordingStream = new OutputStream() {
+            @Override
+            public void write(int value) {
+                writeSizes.add(1);
+            }
+
+            @Override
+            public void write(byte[] bytes, int off, int len) {
+                writeSizes.add(len);
+            }
+        };
+
+        scriptRunner.run(scriptOf("echo a; echo b; echo c", "echo d"), InputStream.nullInputStream(), recordingStream);
+
+        assertEquals(2, writeSizes.size());
+    }
+
+    /**
+     * Tests that the throughput report states the number of commands and lines run.
+     *
+     * @throws IOException If running the script fails
+     * @throws ExitException If the script exits
+     */
+    @Test
+    void getThroughputReport_AfterRun_ReportsCounts() throws IOException, ExitException {
+        scriptRunner.run(scriptOf("echo a", "", "echo b"), InputStream.nullInputStream(), outputStream);
+
+        String report = scriptRunner.getThroughputReport();
+        assertTrue(report.startsWith("2 commands, 3 lines in "));
+        assertTrue(report.contains("commands/s"));
+        assertTrue(report.contains("lines/s"));
+    }
+}
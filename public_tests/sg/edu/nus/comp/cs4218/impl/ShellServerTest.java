@@ -0,0 +1,265 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.comp.cs4218.Environment;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+class ShellServerTest {
+    private ShellServer server;
+    private Thread serverThread;
+    private String originalDirectory;
+    private String originalHome;
+
+    /**
+     * Starts a server on a free port in the background, with its token file in a temporary home directory.
+     *
+     * @param home Temporary home directory
+     * @throws IOException If the server cannot be started
+     */
+    @BeforeEach
+    void setUp(@TempDir Path home) throws IOException {
+        originalDirectory = Environment.currentDirectory;
+        originalHome = System.getProperty("user.home");
+        System.setProperty("user.home", home.toString());
+        server = new ShellServer(0);
+        serverThread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        serverThread.start();
+    }
+
+    /**
+     * Stops the server and restores the working directory.
+     *
+     * @throws Exception If the server cannot be stopped
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        server.close();
+        serverThread.join();
+        Environment.currentDirectory = originalDirectory;
+        System.setProperty("user.home", originalHome);
+    }
+
+    /**
+     * Opens a connection to the server without the handshake of the client.
+     */
+    private Socket connect() throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort());
+        socket.setSoTimeout(5000);
+        return socket;
+    }
+
+    /**
+     * Tests running a command through a client. Verifies that its output is returned with a success status.
+     *
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void run_EchoCommand_ReturnsOutputAndSuccess() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ShellClient client = new ShellClient(server.getPort(), originalDirectory)) {
+            assertEquals(CommandResult.STATUS_SUCCESS, client.run("echo hello | wc -c", output));
+            assertEquals(CommandResult.STATUS_SUCCESS, client.run("echo again", output));
+        }
+
+        assertEquals("\t6" + STRING_NEWLINE + "again" + STRING_NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that changing directory in one session affects neither other sessions nor the server.
+     *
+     * @param tempDir Temporary directory to change into
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void run_CdInOneSession_OtherSessionUnaffected(@TempDir Path tempDir) throws IOException {
+        Files.createFile(tempDir.resolve("only-here.txt"));
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+
+        try (ShellClient firstClient = new ShellClient(server.getPort(), originalDirectory);
+             ShellClient secondClient = new ShellClient(server.getPort(), originalDirectory)) {
+            firstClient.run("cd " + tempDir, first);
+            firstClient.run("ls", first);
+            secondClient.run("ls", second);
+        }
+
+        assertTrue(first.toString(StandardCharsets.UTF_8).contains("only-here.txt"));
+        assertFalse(second.toString(StandardCharsets.UTF_8).contains("only-here.txt"));
+        assertEquals(originalDirectory, Environment.currentDirectory);
+    }
+
+    /**
+     * Tests running an invalid command. Verifies that the error is returned with an error status.
+     *
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void run_InvalidCommand_ReturnsErrorStatus() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ShellClient client = new ShellClient(server.getPort(), originalDirectory)) {
+            assertEquals(CommandResult.STATUS_ERROR, client.run("unknown", output));
+        }
+
+        assertTrue(output.toString(StandardCharsets.UTF_8).startsWith("shell: unknown: "));
+    }
+
+    /**
+     * Tests a command substitution that reads stdin in a session. Verifies that it reads the empty
+     * stdin of the session, not the stdin of the server.
+     *
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void run_SubstitutionReadsStdin_ReadsEmptyStdin() throws IOException {
+        InputStream originalIn = System.in;
+        System.setIn(new ByteArrayInputStream("server input".getBytes(StandardCharsets.UTF_8)));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ShellClient client = new ShellClient(server.getPort(), originalDirectory)) {
+            assertEquals(CommandResult.STATUS_SUCCESS, client.run("echo `cat`", output));
+        } finally {
+            System.setIn(originalIn);
+        }
+
+        assertEquals(STRING_NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests a command that throws a runtime exception. Verifies that it is reported with an error
+     * status and the session keeps running.
+     *
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void run_CommandThrowsRuntimeException_ReturnsErrorStatus() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ShellClient client = new ShellClient(server.getPort(), originalDirectory)) {
+            // ls throws StringIndexOutOfBoundsException for an empty path
+            assertEquals(CommandResult.STATUS_ERROR, client.run("ls ''", output));
+            output.reset();
+            assertEquals(CommandResult.STATUS_SUCCESS, client.run("echo still up", output));
+        }
+
+        assertEquals("still up" + STRING_NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests running the exit command. Verifies that it ends the session but not the server.
+     *
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void run_ExitCommand_EndsSessionOnly() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ShellClient client = new ShellClient(server.getPort(), originalDirectory)) {
+            assertEquals(CommandResult.STATUS_EXIT, client.run("exit", output));
+        }
+        try (ShellClient client = new ShellClient(server.getPort(), originalDirectory)) {
+            assertEquals(CommandResult.STATUS_SUCCESS, client.run("echo still up", output));
+        }
+
+        assertEquals("still up" + STRING_NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that the token file can only be read by the user running the server.
+     *
+     * @throws IOException If the token file cannot be read
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void serve_TokenFile_OnlyOwnerCanRead() throws IOException {
+        Path tokenFile = ShellServer.getTokenFile(server.getPort());
+
+        assertEquals("rw-------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile)));
+        assertEquals("rwx------", PosixFilePermissions.toString(Files.getPosixFilePermissions(tokenFile.getParent())));
+    }
+
+    /**
+     * Tests connections that do not start with the token of the server. Verifies that they are
+     * closed before any other frame is read.
+     *
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void serve_WrongToken_ClosesConnection() throws IOException {
+        assertClosedAfterFrame(ShellServer.FRAME_TOKEN, "not the token".getBytes(StandardCharsets.UTF_8));
+        assertClosedAfterFrame(ShellServer.FRAME_DIRECTORY, originalDirectory.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void assertClosedAfterFrame(byte type, byte[] payload) throws IOException {
+        try (Socket socket = connect()) {
+            DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            ShellServer.writeFrame(output, type, payload, payload.length);
+            output.flush();
+
+            assertEquals(-1, socket.getInputStream().read());
+        }
+    }
+
+    /**
+     * Tests a frame whose length is above the limit. Verifies that the connection is closed and
+     * the server keeps serving.
+     *
+     * @throws IOException If the connection fails
+     */
+    @Test
+    void serve_OversizedFrame_ClosesConnection() throws IOException {
+        byte[] token = Files.readAllBytes(ShellServer.getTokenFile(server.getPort()));
+        for (int length : new int[]{Integer.MAX_VALUE, -1}) {
+            try (Socket socket = connect()) {
+                DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                ShellServer.writeFrame(output, ShellServer.FRAME_TOKEN, token, token.length);
+                output.writeByte(ShellServer.FRAME_COMMAND);
+                output.writeInt(length);
+                output.flush();
+
+                assertEquals(-1, socket.getInputStream().read());
+            }
+        }
+
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (ShellClient client = new ShellClient(server.getPort(), originalDirectory)) {
+            assertEquals(CommandResult.STATUS_SUCCESS, client.run("echo still up", output));
+        }
+        assertEquals("still up" + STRING_NEWLINE, output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests parsing the port given on the command line. Verifies that only numbers from 0 to 65535
+     * are accepted.
+     */
+    @Test
+    void parsePort_InvalidPorts_ReturnsMinusOne() {
+        assertEquals(0, ShellServer.parsePort("0"));
+        assertEquals(65_535, ShellServer.parsePort("65535"));
+        for (String port : new String[]{"abc", "", "-1", "65536", "99999999999"}) {
+            assertEquals(-1, ShellServer.parsePort(port), port);
+        }
+    }
+}
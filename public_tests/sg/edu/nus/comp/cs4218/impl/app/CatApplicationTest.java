@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
 
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
@@ -502,4 +503,31 @@ public class CatApplicationTest {
 
         assertDoesNotThrow(() -> catApplication.run(fileNames, stdin, outputStream));
     }
+
+    /**
+     * Test case for the `cat` command writing large files into an output file.
+     * <p>
+     * This test verifies that files copied straight into the output file end up with the same contents as when
+     * written to a stream, with carriage returns rewritten and a missing final newline added.
+     */
+    @Test
+    void run_LargeFilesIntoFile_MatchesStreamOutput() throws Exception {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            content.append("line ").append(i).append(i % 3 == 0 ? "\r\n" : (i % 3 == 1 ? "\r" : "\n"));
+        }
+        content.append("no newline");
+        Files.write(tempFile1.toPath(), content.toString().getBytes(StandardCharsets.UTF_8));
+        File outputFile = File.createTempFile("testCatOutput", ".txt");
+        String[] args = new String[]{tempFile1.getPath(), tempFile2.getPath(), tempFile1.getPath()};
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        catApplication.run(args, null, expected);
+        try (OutputStream output = new FileOutputStream(outputFile)) {
+            catApplication.run(args, null, output);
+        }
+
+        assertArrayEquals(expected.toByteArray(), Files.readAllBytes(outputFile.toPath()));
+        Files.deleteIfExists(outputFile.toPath());
+    }
 }
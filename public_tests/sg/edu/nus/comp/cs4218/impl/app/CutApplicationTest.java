@@ -19,6 +19,7 @@ import java.nio.file.Files;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
@@ -471,4 +472,21 @@ class CutApplicationTest {
         ByteArrayInputStream stdin = new ByteArrayInputStream("".getBytes(StandardCharsets.UTF_8));
         assertThrows(CutException.class, () -> cutApp.run(args, stdin, null));
     }
+
+    /**
+     * Test case to verify that cutting by byte position copies the selected bytes unchanged, even when they
+     * split a multi-byte character.
+     */
+    @Test
+    void run_ByteRangeSplittingCharacter_WritesSelectedBytes() throws Exception {
+        byte[] line = "aé€b".getBytes(StandardCharsets.UTF_8);
+        ByteArrayInputStream stdin = new ByteArrayInputStream(line);
+
+        cutApp.run(new String[]{"-b", "2-4"}, stdin, outputStream);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(line, 1, 3);
+        expected.write(StringUtils.STRING_NEWLINE.getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(expected.toByteArray(), outputStream.toByteArray());
+    }
 }
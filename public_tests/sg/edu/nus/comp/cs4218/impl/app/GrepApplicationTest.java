@@ -5,14 +5,23 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.condition.OS;
 import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.GrepException;
+import sg.edu.nus.comp.cs4218.impl.util.MappedFile;
+import sg.edu.nus.comp.cs4218.impl.util.PatternCache;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -419,4 +428,344 @@ class GrepApplicationTest {
             inputStream.close();
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that matching lines are written out byte for byte, including bytes that are not valid UTF-8.
+     */
+    @Test
+    void run_InvalidUtf8Line_WritesLineBytesUnchanged() throws Exception {
+        byte[] line = {'a', (byte) 0xFF, 'b', ' ', 'p', 'a', 't', 't', 'e', 'r', 'n', (byte) 0xC3};
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        input.write("no match\n".getBytes(StandardCharsets.UTF_8));
+        input.write(line);
+        input.write('\n');
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new GrepApplication().run(new String[]{MATCH_STRING}, new ByteArrayInputStream(input.toByteArray()), output);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        expected.write(line);
+        expected.write(StringUtils.STRING_NEWLINE.getBytes(StandardCharsets.UTF_8));
+        assertArrayEquals(expected.toByteArray(), output.toByteArray());
+    }
+
+    /**
+     * Tests that grepping stdin together with several files looks the pattern up once, and that a
+     * later command with the same pattern reuses the compiled pattern.
+     */
+    @Test
+    void grepFromFileAndStdin_SeveralFiles_CompilesPatternOnce() throws Exception {
+        String pattern = "compile-once-" + System.nanoTime();
+        PatternCache cache = ShellContext.current().getPatternCache();
+        long missesBefore = cache.getMissCount();
+        long hitsBefore = cache.getHitCount();
+        GrepApplication grepApplication = new GrepApplication();
+        InputStream stdin = new ByteArrayInputStream(pattern.getBytes(StandardCharsets.UTF_8));
+
+        grepApplication.grepFromFileAndStdin(pattern, false, true, false, stdin, "-", "missing1.txt", "missing2.txt");
+        grepApplication.grepFromStdin(pattern, false, true, false, new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(1, cache.getMissCount() - missesBefore);
+        assertEquals(1, cache.getHitCount() - hitsBefore);
+    }
+
+    /**
+     * Tests that -F matches the pattern literally rather than as a regular expression.
+     */
+    @Test
+    void run_FixedStringsFlag_MatchesMetacharactersLiterally() throws Exception {
+        InputStream stdin = new ByteArrayInputStream("a.c\nabc\nx a.C\n".getBytes(StandardCharsets.UTF_8));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new GrepApplication().run(new String[]{"-Fi", "a.c"}, stdin, output);
+
+        assertEquals("a.c" + StringUtils.STRING_NEWLINE + "x a.C" + StringUtils.STRING_NEWLINE, output.toString());
+    }
+
+    /**
+     * Tests that patterns given with repeated -e flags match lines containing any of them, and that
+     * the first argument after them is a file.
+     */
+    @Test
+    void run_SeveralPatternFlags_MatchesAnyPattern() throws Exception {
+        createTestFile(TEST_FILE_NAME_1, true, true);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new GrepApplication().run(new String[]{"-c", "-e", "line1", "-eline2", TEST_FILE_NAME_1}, null, output);
+        new GrepApplication().run(new String[]{"-F", "-e", "line1", "-e", "line3", TEST_FILE_NAME_1}, null, output);
+
+        assertEquals("2" + StringUtils.STRING_NEWLINE + "line1" + StringUtils.STRING_NEWLINE + LINE_WITH_MATCH,
+                output.toString());
+    }
+
+    /**
+     * Tests that -f reads the patterns one per line from a file.
+     */
+    @Test
+    void run_PatternFile_MatchesPatternsOfFile() throws Exception {
+        createTestFile(TEST_FILE_NAME_1, true, true);
+        Files.writeString(Paths.get(Environment.currentDirectory).resolve(TEST_FILE_NAME_2),
+                "PATTERN" + StringUtils.STRING_NEWLINE + "line1" + StringUtils.STRING_NEWLINE);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new GrepApplication().run(new String[]{"-Ff", TEST_FILE_NAME_2, TEST_FILE_NAME_1}, null, output);
+
+        assertEquals("line1" + StringUtils.STRING_NEWLINE + LINE_WITH_MATCH_UPPER, output.toString());
+    }
+
+    /**
+     * Tests that a missing pattern file and a missing -e argument are reported.
+     */
+    @Test
+    void run_MissingPatternFileOrArgument_ThrowsException() {
+        InputStream stdin = new ByteArrayInputStream(new byte[0]);
+
+        assertThrows(GrepException.class, () -> new GrepApplication().run(new String[]{"-f", "missing.txt"}, stdin,
+                new ByteArrayOutputStream()));
+        assertThrows(GrepException.class, () -> new GrepApplication().run(new String[]{"-e"}, stdin,
+                new ByteArrayOutputStream()));
+    }
+
+    /**
+     * Tests that grepping many files at once writes the same output, in the same order, as grepping
+     * them one after another, including missing files, directories and the -c and -H flags.
+     */
+    @Test
+    void run_ManyFilesInParallel_SameOutputAsSequential() throws Exception {
+        Path directory = Paths.get(Environment.currentDirectory).resolve("test-dir");
+        Files.createDirectory(directory);
+        List<String> fileNames = new ArrayList<>();
+        try {
+            for (int i = 0; i < 40; i++) {
+                String fileName = "test-dir/file" + i;
+                StringBuilder content = new StringBuilder();
+                for (int line = 0; line < i * 50; line++) {
+                    content.append(line % 7 == 0 ? LINE_WITH_MATCH : "line" + line + StringUtils.STRING_NEWLINE);
+                }
+                Files.writeString(Paths.get(Environment.currentDirectory).resolve(fileName), content);
+                fileNames.add(fileName);
+            }
+            fileNames.add(5, "test-dir/missing");
+            fileNames.add(20, "test-dir");
+
+            for (String[] flags : new String[][]{{}, {"-c"}, {"-H"}, {"-F", "-c"}}) {
+                List<String> args = new ArrayList<>(Arrays.asList(flags));
+                args.add(MATCH_STRING);
+                args.addAll(fileNames);
+                ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+                ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+
+                new GrepApplication(1).run(args.toArray(new String[0]), null, sequential);
+                new GrepApplication(4).run(args.toArray(new String[0]), null, parallel);
+
+                assertEquals(sequential.toString(), parallel.toString());
+            }
+        } finally {
+            // the directory itself is deleted in tearDown
+            for (String fileName : fileNames) {
+                if (!Files.isDirectory(Paths.get(Environment.currentDirectory).resolve(fileName))) {
+                    Files.deleteIfExists(Paths.get(Environment.currentDirectory).resolve(fileName));
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that many greps of several files at once, each asking for more threads than there are
+     * processors, share the fixed pool of grep workers and still give the sequential output.
+     *
+     * @throws Exception If a grep fails
+     */
+    @Test
+    void run_ManyParallelGreps_UseBoundedWorkers() throws Exception {
+        List<String> args = new ArrayList<>(List.of(MATCH_STRING));
+        for (int i = 0; i < 8; i++) {
+            String fileName = "bounded-" + i + ".txt";
+            Files.write(Paths.get(Environment.currentDirectory).resolve(fileName), manyLines(10_000));
+            args.add(fileName);
+        }
+        String[] argArray = args.toArray(new String[0]);
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        new GrepApplication(1).run(argArray, null, sequential);
+
+        List<Thread> callers = new ArrayList<>();
+        List<String> outputs = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 8; i++) {
+            Thread caller = new Thread(() -> {
+                ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+                try {
+                    new GrepApplication(GrepApplication.WORKER_COUNT * 4).run(argArray, null, parallel);
+                } catch (AbstractApplicationException e) {
+                    fail(e);
+                }
+                outputs.add(parallel.toString());
+            });
+            callers.add(caller);
+            caller.start();
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        for (int i = 0; i < 8; i++) {
+            Files.delete(Paths.get(Environment.currentDirectory).resolve("bounded-" + i + ".txt"));
+        }
+
+        long workers = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> "grep-worker".equals(thread.getName())).count();
+        assertTrue(workers <= GrepApplication.WORKER_COUNT, workers + " workers");
+        assertEquals(8, outputs.size());
+        for (String output : outputs) {
+            assertEquals(sequential.toString(), output);
+        }
+    }
+
+    /**
+     * Tests that an invalid pattern fails when grepping files at once, with the same output as
+     * grepping them one after another.
+     */
+    @Test
+    void run_InvalidPatternInParallel_FailsAsSequential() {
+        createTestFile(TEST_FILE_NAME_1, true, false);
+        String[] args = {"[", "missing.txt", TEST_FILE_NAME_1};
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+
+        GrepException sequentialError = assertThrows(GrepException.class,
+                () -> new GrepApplication(1).run(args, null, sequential));
+        GrepException parallelError = assertThrows(GrepException.class,
+                () -> new GrepApplication(4).run(args, null, parallel));
+        assertEquals(sequentialError.getMessage(), parallelError.getMessage());
+        assertEquals(sequential.toString(), parallel.toString());
+    }
+
+    /**
+     * Returns lines of mixed terminators, with a match on every 97th line, until at least the given
+     * number of bytes.
+     */
+    private static byte[] manyLines(int size) {
+        StringBuilder builder = new StringBuilder();
+        for (int line = 0; builder.length() < size; line++) {
+            builder.append(line % 97 == 0 ? "line " + line + " " + MATCH_STRING : "line " + line)
+                    .append(line % 3 == 0 ? "\r\n" : line % 3 == 1 ? "\n" : "\r");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tests that a file large enough to be grepped in ranges at once gives the same lines and count
+     * as grepping it on one thread.
+     */
+    @Test
+    void run_LargeFileInRanges_SameOutputAsSequential() throws Exception {
+        Path file = Paths.get(Environment.currentDirectory).resolve(TEST_FILE_NAME_1);
+        Files.write(file, manyLines((int) MappedFile.MAPPING_THRESHOLD + GrepApplication.CHUNK_SIZE / 2));
+
+        for (String[] args : new String[][]{{MATCH_STRING, TEST_FILE_NAME_1}, {"-c", "-H", MATCH_STRING, TEST_FILE_NAME_1}}) {
+            ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+            ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+
+            new GrepApplication(1).run(args, null, sequential);
+            new GrepApplication(4).run(args, null, parallel);
+
+            assertEquals(sequential.toString(), parallel.toString());
+        }
+    }
+
+    /**
+     * Tests that stdin grepped in blocks at once gives the same lines and count as grepping it on
+     * one thread, both when all of it is ready and when it trickles in a few bytes at a time.
+     */
+    @Test
+    void run_StdinInBlocks_SameOutputAsSequential() throws Exception {
+        byte[] input = manyLines(GrepApplication.CHUNK_SIZE * 2 + 12_345);
+        byte[] trickle = manyLines(20_000);
+
+        for (String[] args : new String[][]{{MATCH_STRING}, {"-c", MATCH_STRING}}) {
+            ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+            ByteArrayOutputStream parallel = new ByteArrayOutputStream();
+            new GrepApplication(1).run(args, new ByteArrayInputStream(input), sequential);
+            new GrepApplication(4).run(args, new ByteArrayInputStream(input), parallel);
+            assertEquals(sequential.toString(), parallel.toString());
+
+            sequential.reset();
+            parallel.reset();
+            new GrepApplication(1).run(args, new ByteArrayInputStream(trickle), sequential);
+            new GrepApplication(4).run(args, new TrickleInputStream(trickle), parallel);
+            assertEquals(sequential.toString(), parallel.toString());
+        }
+    }
+
+    /**
+     * Tests that stdin trickling in a few bytes at a time is grepped without allocating a block per
+     * read, which would take gigabytes for this input.
+     */
+    @Test
+    void run_StdinTrickles_AllocatesFewBlocks() throws Exception {
+        byte[] trickle = manyLines(200_000);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        new GrepApplication(4).run(new String[]{MATCH_STRING}, new TrickleInputStream(trickle), output);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+
+        assertTrue(allocated < 4L * GrepApplication.CHUNK_SIZE, allocated + " bytes allocated");
+        ByteArrayOutputStream sequential = new ByteArrayOutputStream();
+        new GrepApplication(1).run(new String[]{MATCH_STRING}, new ByteArrayInputStream(trickle), sequential);
+        assertEquals(sequential.toString(), output.toString());
+    }
+
+    /**
+     * Tests that -D gives the same lines and counts as matching by backtracking, both for patterns
+     * the automaton supports and for a backreference, which falls back to backtracking.
+     */
+    @Test
+    void run_DfaFlag_SameOutputAsBacktracking() throws Exception {
+        Path file = Paths.get(Environment.currentDirectory).resolve(TEST_FILE_NAME_1);
+        Files.write(file, manyLines(50_000));
+
+        for (String pattern : new String[]{MATCH_STRING, "^[a-z]+ [0-9]*7$", "(in|fo)+.?e", "(.)\\1"}) {
+            for (String flags : new String[]{"-H", "-ci"}) {
+                ByteArrayOutputStream backtracking = new ByteArrayOutputStream();
+                ByteArrayOutputStream dfa = new ByteArrayOutputStream();
+
+                new GrepApplication().run(new String[]{flags, pattern, TEST_FILE_NAME_1}, null, backtracking);
+                new GrepApplication().run(new String[]{flags + "D", pattern, TEST_FILE_NAME_1}, null, dfa);
+
+                assertEquals(backtracking.toString(), dfa.toString(), pattern);
+            }
+        }
+    }
+
+    /**
+     * Tests that -D still reports an invalid pattern as such.
+     */
+    @Test
+    void run_DfaFlagInvalidPattern_ThrowsException() {
+        InputStream stdin = new ByteArrayInputStream("abc\n".getBytes(StandardCharsets.UTF_8));
+
+        GrepException exception = assertThrows(GrepException.class, () -> new GrepApplication()
+                .run(new String[]{"-D", "a(b"}, stdin, new ByteArrayOutputStream()));
+        assertTrue(exception.getMessage().contains(GrepApplication.INVALID_PATTERN));
+    }
+
+    /**
+     * A stream that returns a few bytes per read and never has bytes ready, like a slow pipe.
+     */
+    private static final class TrickleInputStream extends ByteArrayInputStream {
+        TrickleInputStream(byte[] bytes) {
+            super(bytes);
+        }
+
+        @Override
+        public synchronized int read(byte[] bytes, int off, int len) {
+            return super.read(bytes, off, Math.min(len, 7));
+        }
+
+        @Override
+        public synchronized int available() {
+            return 0;
+        }
+    }
+}
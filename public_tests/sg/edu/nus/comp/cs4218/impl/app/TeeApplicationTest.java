@@ -420,4 +420,23 @@ class TeeApplicationTest {
             teeApp.teeFromStdin(true, null, tempFile1.getAbsolutePath());
         });
     }
-}
\ No newline at end of file
+
+    /**
+     * Test case to verify that lines which are not valid UTF-8 are copied to stdout and to the file unchanged.
+     */
+    @Test
+    public void run_InvalidUtf8Input_CopiesBytesUnchanged() throws Exception {
+        byte[] input = {'x', (byte) 0xC3, '\n', (byte) 0xFF, 'y'};
+
+        teeApp.run(new String[]{tempFile1.getAbsolutePath()}, new ByteArrayInputStream(input), stdoutMock);
+
+        byte[] newline = StringUtils.STRING_NEWLINE.getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream expectedFile = new ByteArrayOutputStream();
+        expectedFile.write(new byte[]{'x', (byte) 0xC3});
+        expectedFile.write(newline);
+        expectedFile.write(new byte[]{(byte) 0xFF, 'y'});
+        assertArrayEquals(expectedFile.toByteArray(), Files.readAllBytes(tempFile1.toPath()));
+        expectedFile.write(newline);
+        assertArrayEquals(expectedFile.toByteArray(), stdoutMock.toByteArray());
+    }
+}
@@ -15,6 +15,7 @@ import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertLinesMatch;
 
@@ -768,4 +769,24 @@ public class UniqApplicationTest {
 
         assertEquals(joinedContent, result);
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that adjacent lines are compared as bytes, so lines that differ only in bytes that are not valid
+     * UTF-8 are kept apart and written out unchanged.
+     */
+    @Test
+    public void run_InvalidUtf8Lines_ComparesAndWritesBytes() throws Exception {
+        byte[] input = {'a', (byte) 0xFE, '\n', 'a', (byte) 0xFE, '\n', 'a', (byte) 0xFF, '\n'};
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        uniqApp.run(new String[]{"-c"}, new ByteArrayInputStream(input), output);
+
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        byte[] newline = StringUtils.STRING_NEWLINE.getBytes(StandardCharsets.UTF_8);
+        expected.write(new byte[]{'2', ' ', 'a', (byte) 0xFE});
+        expected.write(newline);
+        expected.write(new byte[]{'1', ' ', 'a', (byte) 0xFF});
+        expected.write(newline);
+        assertArrayEquals(expected.toByteArray(), output.toByteArray());
+    }
+}
@@ -104,4 +104,16 @@ class CallCommandTest {
         CallCommand command = new CallCommand(null, appRunner, argumentResolver);
         assertDoesNotThrow(() -> command.terminate());
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests that a command terminated before it is evaluated does not run its application.
+     */
+    @Test
+    void evaluate_terminatedBeforeEvaluation_shouldProduceNoOutput() throws Exception {
+        command = new CallCommand(Arrays.asList("echo", "hello world"), appRunner, argumentResolver);
+        command.terminate();
+        command.evaluate(inputStream, outputStream);
+        assertTrue(command.isTerminated());
+        assertEquals("", outputStream.toString());
+    }
+}
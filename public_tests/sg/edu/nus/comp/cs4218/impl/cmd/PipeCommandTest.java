@@ -17,6 +17,7 @@ import java.util.*;
 
 import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.Shell;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
@@ -356,4 +357,144 @@ public class PipeCommandTest {
             pipeCommand.evaluate(stdin, stdout);
         }, "Expected ShellException to be thrown due to invalid command");
     }
-}
\ No newline at end of file
+
+    /**
+     * Test case for a pipeline whose intermediate data is much larger than the bounded channel
+     * between stages. The stages run concurrently, so the pipeline must complete without
+     * deadlocking and every line must reach the last stage.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void evaluate_OutputLargerThanChannel_AllLinesDelivered() throws Exception {
+        Path currPath = Paths.get(Environment.currentDirectory);
+        Path subFolderPath = currPath.resolve(FOLDERNAME);
+        Files.createDirectories(subFolderPath);
+
+        StringBuilder content = new StringBuilder();
+        int numLines = 20_000;
+        for (int i = 0; i < numLines; i++) {
+            content.append(generateRandomContent(10)).append(StringUtils.STRING_NEWLINE);
+        }
+        Files.writeString(subFolderPath.resolve("large.txt"), content.toString());
+
+        List<CallCommand> callCommands = Arrays.asList(
+                new CallCommand(Arrays.asList("cat", FOLDERNAME + File.separator + "large.txt"), appRunner, argumentResolver),
+                new CallCommand(Arrays.asList("cat"), appRunner, argumentResolver),
+                new CallCommand(Arrays.asList("wc", "-l"), appRunner, argumentResolver));
+        PipeCommand pipeCommand = new PipeCommand(callCommands);
+        InputStream stdin = new ByteArrayInputStream("".getBytes());
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        pipeCommand.evaluate(stdin, stdout);
+
+        assertEquals("\t" + numLines + StringUtils.STRING_NEWLINE, stdout.toString());
+    }
+
+    /**
+     * Test case for a pipeline in a session with a small pipe memory budget and a spill limit. The
+     * output that does not fit in memory is spilled to disk, and every line still reaches the last
+     * stage in order.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void evaluate_OutputLargerThanMemoryBudget_SpilledAndDelivered() throws Exception {
+        Path currPath = Paths.get(Environment.currentDirectory);
+        Path subFolderPath = currPath.resolve(FOLDERNAME);
+        Files.createDirectories(subFolderPath);
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            content.append(i).append(StringUtils.STRING_NEWLINE);
+        }
+        Files.writeString(subFolderPath.resolve("large.txt"), content.toString());
+
+        ShellContext context = new ShellContext(Environment.currentDirectory);
+        context.setPipeMemoryBudget(1024);
+        context.setPipeSpillLimit(1024 * 1024);
+        List<CallCommand> callCommands = Arrays.asList(
+                new CallCommand(Arrays.asList("cat", FOLDERNAME + File.separator + "large.txt"), appRunner, argumentResolver),
+                new CallCommand(Arrays.asList("cat"), appRunner, argumentResolver));
+        PipeCommand pipeCommand = new PipeCommand(callCommands);
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        pipeCommand.evaluate(context, new ByteArrayInputStream("".getBytes()), stdout);
+
+        assertEquals(content.toString(), stdout.toString());
+        assertTrue(pipeCommand.getStatistics().getPeakMemory() <= 1024);
+    }
+
+    /**
+     * Test case for a downstream stage that stops without reading its input while the upstream
+     * stage still has far more output than fits in the channel. The upstream stage must be
+     * terminated instead of blocking forever, and its broken-pipe failure must not be reported.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void evaluate_DownstreamStopsReading_UpstreamTerminated() throws Exception {
+        Path currPath = Paths.get(Environment.currentDirectory);
+        Path subFolderPath = currPath.resolve(FOLDERNAME);
+        Files.createDirectories(subFolderPath);
+
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            content.append(generateRandomContent(10)).append(StringUtils.STRING_NEWLINE);
+        }
+        Files.writeString(subFolderPath.resolve("large.txt"), content.toString());
+
+        List<CallCommand> callCommands = Arrays.asList(
+                new CallCommand(Arrays.asList("cat", FOLDERNAME + File.separator + "large.txt"), appRunner, argumentResolver),
+                new CallCommand(Arrays.asList("echo", "done"), appRunner, argumentResolver));
+        PipeCommand pipeCommand = new PipeCommand(callCommands);
+        InputStream stdin = new ByteArrayInputStream("".getBytes());
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        pipeCommand.evaluate(stdin, stdout);
+
+        assertEquals("done" + StringUtils.STRING_NEWLINE, stdout.toString());
+        assertTrue(callCommands.get(0).isTerminated());
+    }
+
+    /**
+     * Test case to verify that a terminated pipe command does not run any of its stages.
+     *
+     * @throws Exception if an error occurs during the test
+     */
+    @Test
+    public void evaluate_TerminatedBeforeEvaluation_NoOutput() throws Exception {
+        List<CallCommand> callCommands = Arrays.asList(
+                new CallCommand(Arrays.asList("echo", "hello"), appRunner, argumentResolver),
+                new CallCommand(Arrays.asList("grep", "hello"), appRunner, argumentResolver));
+        PipeCommand pipeCommand = new PipeCommand(callCommands);
+        InputStream stdin = new ByteArrayInputStream("".getBytes());
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        pipeCommand.terminate();
+        pipeCommand.evaluate(stdin, stdout);
+
+        assertEquals("", stdout.toString());
+    }
+
+    /**
+     * Test case to verify that an error thrown by an upstream stage is rethrown as is, rather than
+     * turned into a shell exception without a message.
+     */
+    @Test
+    public void evaluate_UpstreamThrowsError_RethrowsError() {
+        CallCommand failing = new CallCommand(Arrays.asList("echo", "hello"), appRunner, argumentResolver) {
+            @Override
+            public void evaluate(ShellContext context, InputStream stdin, OutputStream stdout) {
+                throw new StackOverflowError();
+            }
+        };
+        List<CallCommand> callCommands = Arrays.asList(failing,
+                new CallCommand(Arrays.asList("grep", "hello"), appRunner, argumentResolver));
+        PipeCommand pipeCommand = new PipeCommand(callCommands);
+        InputStream stdin = new ByteArrayInputStream("".getBytes());
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+
+        assertThrows(StackOverflowError.class, () -> pipeCommand.evaluate(stdin, stdout));
+    }
+}
@@ -4,6 +4,7 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
 import sg.edu.nus.comp.cs4218.impl.util.ArgumentResolver;
 import sg.edu.nus.comp.cs4218.impl.util.ErrorConstants;
@@ -96,4 +97,94 @@ class SequenceCommandTest {
 
         assertDoesNotThrow(() -> sequenceCommand.terminate());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEvaluate_afterTerminate_shouldNotRunCommands() {
+        List<Command> commandList = new ArrayList<>();
+        commandList.add(command1);
+        commandList.add(command2);
+        SequenceCommand sequenceCommand = new SequenceCommand(commandList);
+
+        sequenceCommand.terminate();
+
+        assertDoesNotThrow(() -> sequenceCommand.evaluate(inputStream, outputStream));
+        assertEquals("", outputStream.toString());
+    }
+
+    @Test
+    public void testEvaluate_withValidCommands_shouldWriteOutputBeforeNextCommandRuns() {
+        List<String> outputSeenByNextCommand = new ArrayList<>();
+        Command inspectingCommand = new Command() {
+            @Override
+            public void evaluate(InputStream stdin, OutputStream stdout) {
+                outputSeenByNextCommand.add(outputStream.toString());
+            }
+
+            @Override
+            public void terminate() {
+                // Nothing to terminate
+            }
+        };
+        List<Command> commandList = new ArrayList<>();
+        commandList.add(command1);
+        commandList.add(inspectingCommand);
+        SequenceCommand sequenceCommand = new SequenceCommand(commandList);
+
+        assertDoesNotThrow(() -> sequenceCommand.evaluate(inputStream, outputStream));
+        assertEquals(List.of("hello" + StringUtils.STRING_NEWLINE), outputSeenByNextCommand);
+    }
+
+    @Test
+    public void testEvaluate_withOutputWithoutNewline_shouldAppendNewline() {
+        Command noNewlineCommand = new Command() {
+            @Override
+            public void evaluate(InputStream stdin, OutputStream stdout) throws ShellException {
+                try {
+                    stdout.write("no newline".getBytes());
+                } catch (IOException e) {
+                    throw new ShellException(e.getMessage());
+                }
+            }
+
+            @Override
+            public void terminate() {
+                // Nothing to terminate
+            }
+        };
+        List<Command> commandList = new ArrayList<>();
+        commandList.add(noNewlineCommand);
+        commandList.add(command2);
+        SequenceCommand sequenceCommand = new SequenceCommand(commandList);
+
+        assertDoesNotThrow(() -> sequenceCommand.evaluate(inputStream, outputStream));
+        assertEquals("no newline" + StringUtils.STRING_NEWLINE + "world" + StringUtils.STRING_NEWLINE, outputStream.toString());
+    }
+
+    @Test
+    public void testEvaluate_withPartialOutputBeforeError_shouldKeepOutputBeforeErrorMessage() {
+        Command failingCommand = new Command() {
+            @Override
+            public void evaluate(InputStream stdin, OutputStream stdout) throws ShellException {
+                try {
+                    stdout.write("partial".getBytes());
+                } catch (IOException e) {
+                    throw new ShellException(e.getMessage());
+                }
+                throw new ShellException("failed");
+            }
+
+            @Override
+            public void terminate() {
+                // Nothing to terminate
+            }
+        };
+        List<Command> commandList = new ArrayList<>();
+        commandList.add(failingCommand);
+        commandList.add(command2);
+        SequenceCommand sequenceCommand = new SequenceCommand(commandList);
+
+        assertDoesNotThrow(() -> sequenceCommand.evaluate(inputStream, outputStream));
+        assertEquals("partial" + StringUtils.STRING_NEWLINE + "shell: failed" + StringUtils.STRING_NEWLINE
+                + "world" + StringUtils.STRING_NEWLINE, outputStream.toString());
+    }
+}
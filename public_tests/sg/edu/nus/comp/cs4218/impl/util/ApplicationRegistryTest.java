@@ -0,0 +1,102 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.app.EchoApplication;
+import sg.edu.nus.comp.cs4218.impl.app.MkdirApplication;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_ECHO;
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.APP_MKDIR;
+
+class ApplicationRegistryTest {
+
+    /**
+     * Tests that a stateless built-in application is created once and reused on every lookup.
+     *
+     * @throws ShellException If the application is not registered
+     */
+    @Test
+    void getApplication_SharedBuiltin_ReturnsSameInstance() throws ShellException {
+        ApplicationRegistry registry = ApplicationRegistry.withBuiltins();
+
+        Application first = registry.getApplication(APP_ECHO);
+
+        assertTrue(first instanceof EchoApplication);
+        assertSame(first, registry.getApplication(APP_ECHO));
+    }
+
+    /**
+     * Tests that a stateful built-in application is created anew on every lookup.
+     *
+     * @throws ShellException If the application is not registered
+     */
+    @Test
+    void getApplication_StatefulBuiltin_ReturnsNewInstance() throws ShellException {
+        ApplicationRegistry registry = ApplicationRegistry.withBuiltins();
+
+        Application first = registry.getApplication(APP_MKDIR);
+
+        assertTrue(first instanceof MkdirApplication);
+        assertNotSame(first, registry.getApplication(APP_MKDIR));
+    }
+
+    /**
+     * Tests that a registered factory is not called until the application is first looked up.
+     *
+     * @throws ShellException If the application is not registered
+     */
+    @Test
+    void registerShared_BeforeLookup_DoesNotCreateApplication() throws ShellException {
+        ApplicationRegistry registry = new ApplicationRegistry();
+        AtomicInteger created = new AtomicInteger();
+        registry.registerShared("hello", () -> {
+            created.incrementAndGet();
+            return (args, stdin, stdout) -> { };
+        });
+
+        assertEquals(0, created.get());
+        registry.getApplication("hello");
+        registry.getApplication("hello");
+        assertEquals(1, created.get());
+    }
+
+    /**
+     * Tests that an application registered under the name of a built-in replaces the built-in when run.
+     *
+     * @throws Exception If running the application fails
+     */
+    @Test
+    void runApp_BuiltinReplaced_RunsRegisteredApplication() throws Exception {
+        ApplicationRegistry registry = ApplicationRegistry.withBuiltins();
+        registry.registerShared(APP_ECHO, () -> (args, stdin, stdout) -> {
+            try {
+                stdout.write("custom".getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        new ApplicationRunner(registry).runApp(APP_ECHO, new String[]{"hello"}, System.in, output);
+
+        assertEquals("custom", output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that looking up an unknown application throws a ShellException.
+     */
+    @Test
+    void getApplication_UnknownName_ThrowsShellException() {
+        ApplicationRegistry registry = ApplicationRegistry.withBuiltins();
+
+        ShellException exception = assertThrows(ShellException.class, () -> registry.getApplication("unknown"));
+        assertEquals("shell: unknown: " + ErrorConstants.ERR_INVALID_APP, exception.getMessage());
+    }
+}
@@ -126,6 +126,21 @@ class CommandBuilderTest {
         assertEquals(List.of("echo", "testing1", ">", "testing1.txt"), finalCommand.getArgsList());
     }
 
+    /**
+     * Tests parsing a command string with append redirection and a here-string. Verifies that >> and <<< are kept as
+     * single tokens, with or without whitespace around them.
+     *
+     * @throws ShellException If an error occurs during command parsing
+     */
+    @Test
+    void parseCommand_AppendAndHereString_ShouldKeepOperatorsAsSingleTokens() throws ShellException {
+        CallCommand appendCommand = (CallCommand) CommandBuilder.parseCommand("echo a>>out.txt", appRunner);
+        CallCommand hereStringCommand = (CallCommand) CommandBuilder.parseCommand("cat <<< 'a b' >> out.txt", appRunner);
+
+        assertEquals(List.of("echo", "a", ">>", "out.txt"), appendCommand.getArgsList());
+        assertEquals(List.of("cat", "<<<", "'a b'", ">>", "out.txt"), hereStringCommand.getArgsList());
+    }
+
     /**
      * Tests parsing a command string with unmatched quotes. Verifies that a ShellException is thrown.
      */
@@ -158,4 +173,90 @@ class CommandBuilderTest {
         assertEquals(List.of("echo", "testing2", ">", "testing2.txt"), ((CallCommand) commandList.get(1)).getArgsList());
 
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests parsing a command string with adjacent quoted and unquoted segments. Verifies that they form a single
+     * argument and that redirection operators without surrounding spaces are separate tokens.
+     *
+     * @throws ShellException If an error occurs during command parsing
+     */
+    @Test
+    void parseCommand_AdjacentQuotedSegments_ShouldRetrieveSingleArgument() throws ShellException {
+        CallCommand finalCommand = (CallCommand) CommandBuilder.parseCommand("echo a\"b c\"d'e f'`g h`>out.txt", appRunner);
+
+        assertEquals(List.of("echo", "a\"b c\"d'e f'`g h`", ">", "out.txt"), finalCommand.getArgsList());
+    }
+
+    /**
+     * Tests parsing a double-quoted argument containing back quotes with a double quote between them. Verifies that
+     * the double quote inside the back quotes does not end the argument.
+     *
+     * @throws ShellException If an error occurs during command parsing
+     */
+    @Test
+    void parseCommand_DoubleQuoteInsideBackQuotes_ShouldRetrieveWholeArgument() throws ShellException {
+        CallCommand finalCommand = (CallCommand) CommandBuilder.parseCommand("echo \"a `echo \"b\"` c\" d", appRunner);
+
+        assertEquals(List.of("echo", "\"a `echo \"b\"` c\"", "d"), finalCommand.getArgsList());
+    }
+
+    /**
+     * Tests parsing a command string that ends with a pipe. Verifies that a ShellException is thrown.
+     */
+    @Test
+    void parseCommand_EndsWithPipe_ShouldThrowException() {
+        assertThrows(ShellException.class, () -> CommandBuilder.parseCommand("echo testing1 | ", appRunner));
+    }
+
+    /**
+     * Tests parsing a command string with ten thousand arguments. Verifies that every argument is retrieved in order.
+     *
+     * @throws ShellException If an error occurs during command parsing
+     */
+    @Test
+    void parseCommand_TenThousandArguments_ShouldRetrieveAllArguments() throws ShellException {
+        StringBuilder commandString = new StringBuilder("cat");
+        for (int i = 0; i < 10_000; i++) {
+            commandString.append(" \"file ").append(i).append(".txt\"");
+        }
+        commandString.append(" | wc");
+
+        PipeCommand finalCommand = (PipeCommand) CommandBuilder.parseCommand(commandString.toString(), appRunner);
+        List<String> args = finalCommand.getCallCommands().get(0).getArgsList();
+
+        assertEquals(10_001, args.size());
+        assertEquals("\"file 9999.txt\"", args.get(10_000));
+    }
+
+    /**
+     * Tests parsing the same command string twice. Verifies that the second parse is served from the cache and
+     * still returns a separate command tree with its own argument list.
+     *
+     * @throws ShellException If an error occurs during command parsing
+     */
+    @Test
+    void parseCommand_RepeatedCommandString_ShouldHitCacheAndReturnNewCommand() throws ShellException {
+        String commandString = "echo cached `echo *.txt` | wc -l";
+        CommandCache cache = CommandBuilder.getCache();
+
+        PipeCommand firstCommand = (PipeCommand) CommandBuilder.parseCommand(commandString, appRunner);
+        long hitCount = cache.getHitCount();
+        PipeCommand secondCommand = (PipeCommand) CommandBuilder.parseCommand(commandString, appRunner);
+
+        assertEquals(hitCount + 1, cache.getHitCount());
+        assertNotSame(firstCommand, secondCommand);
+        assertNotSame(firstCommand.getCallCommands().get(0), secondCommand.getCallCommands().get(0));
+        assertEquals(firstCommand.getCallCommands().get(0).getArgsList(),
+                secondCommand.getCallCommands().get(0).getArgsList());
+        assertEquals(List.of("echo", "cached", "`echo *.txt`"), secondCommand.getCallCommands().get(0).getArgsList());
+    }
+
+    /**
+     * Tests parsing an invalid command string twice. Verifies that the syntax error is reported both times.
+     */
+    @Test
+    void parseCommand_RepeatedInvalidCommandString_ShouldThrowEachTime() {
+        assertThrows(ShellException.class, () -> CommandBuilder.parseCommand("echo cached |", appRunner));
+        assertThrows(ShellException.class, () -> CommandBuilder.parseCommand("echo cached |", appRunner));
+    }
+}
@@ -0,0 +1,81 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandCacheTest {
+    private static CommandTemplate templateOf(String... tokens) {
+        return new CommandTemplate(List.of(List.of(List.of(tokens))));
+    }
+
+    /**
+     * Tests that a lookup of a missing command string counts as a miss and a lookup of a cached one as a hit.
+     */
+    @Test
+    void get_MissThenHit_CountsBoth() {
+        CommandCache cache = new CommandCache();
+        CommandTemplate template = templateOf("echo", "hello");
+
+        assertNull(cache.get("echo hello"));
+        cache.put("echo hello", template);
+
+        assertSame(template, cache.get("echo hello"));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    /**
+     * Tests that once the cache is full, the least recently used template is evicted.
+     */
+    @Test
+    void put_CapacityExceeded_EvictsLeastRecentlyUsed() {
+        CommandCache cache = new CommandCache(2);
+        cache.put("echo a", templateOf("echo", "a"));
+        cache.put("echo b", templateOf("echo", "b"));
+        cache.get("echo a");
+        cache.put("echo c", templateOf("echo", "c"));
+
+        assertEquals(2, cache.size());
+        assertNotNull(cache.get("echo a"));
+        assertNull(cache.get("echo b"));
+        assertNotNull(cache.get("echo c"));
+    }
+
+    /**
+     * Tests that clearing the cache removes all templates and resets the counters.
+     */
+    @Test
+    void clear_AfterLookups_ResetsTemplatesAndCounters() {
+        CommandCache cache = new CommandCache();
+        cache.put("echo a", templateOf("echo", "a"));
+        cache.get("echo a");
+        cache.get("echo b");
+        cache.clear();
+
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getHitCount());
+        assertEquals(0, cache.getMissCount());
+    }
+
+    /**
+     * Tests that instantiating a template twice builds separate commands, so that state set on one command during
+     * evaluation does not leak into the next.
+     */
+    @Test
+    void instantiate_CalledTwice_ReturnsSeparateCommands() {
+        CommandTemplate template = templateOf("echo", "a");
+
+        assertNotSame(template.instantiate(new ApplicationRunner()), template.instantiate(new ApplicationRunner()));
+    }
+
+    /**
+     * Tests that a non-positive capacity is rejected.
+     */
+    @Test
+    void constructor_ZeroCapacity_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandCache(0));
+    }
+}
@@ -0,0 +1,170 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DfaLineMatcherTest {
+    private static final String[] PATTERNS = {
+        "abc", "a.c", "a*b", "(ab|ba)+", "^a", "c$", "^$", "^(a|b)*$", "a?b?c?$", "[a-c]x", "[^ab]",
+        "\\d+\\s\\w", "\\D\\W\\S", "(a|)b", "(?:a|bc)*?c", "x|^y|z$", "é+", ".é.", "[^x]$", "\\.\\*",
+        "(a*)*b", "^(\\w+\\s?)*$", "a\\tb", "$^", "^.?$", "[a-]", "[\\]b]",
+    };
+    private static final String[] PIECES = {"a", "b", "c", "x", "y", "z", "A", "C", "1", " ", "\t", ".", "*",
+        "é", "É", "€", "\r", "\n", "\u0085", " ", " ", "😀", "-", "]"};
+
+    private static boolean matches(LineMatcher matcher, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return matcher.matches(bytes, 0, bytes.length);
+    }
+
+    private static DfaLineMatcher compile(String regex, int flags) {
+        return DfaLineMatcher.compile(Pattern.compile(regex, flags));
+    }
+
+    /**
+     * Tests that literals, classes, repetition, alternation and anchors match as in java.util.regex.
+     */
+    @Test
+    void matches_CommonConstructs_MatchesLikeRegex() {
+        assertTrue(matches(compile("b.d", 0), "abcde"));
+        assertFalse(matches(compile("b.d", 0), "abde"));
+        assertTrue(matches(compile("^ab+c?$", 0), "abbb"));
+        assertFalse(matches(compile("^ab+c?$", 0), "xabbb"));
+        assertTrue(matches(compile("cat|dog", 0), "hotdog"));
+        assertTrue(matches(compile("[0-9]+ items?", 0), "3 item"));
+        assertFalse(matches(compile("[^a-z]", 0), "abc"));
+        assertTrue(matches(compile("ERROR", Pattern.CASE_INSENSITIVE), "an error"));
+    }
+
+    /**
+     * Tests that the matcher agrees with java.util.regex on random lines, including lines with
+     * multibyte characters and lines ending in a line terminator, for every supported construct.
+     */
+    @Test
+    void matches_RandomLines_AgreesWithRegex() {
+        Random random = new Random(7);
+        for (String regex : PATTERNS) {
+            for (int flags : new int[]{0, Pattern.CASE_INSENSITIVE}) {
+                Pattern pattern = Pattern.compile(regex, flags);
+                LineMatcher matcher = DfaLineMatcher.compile(pattern);
+                assertNotNull(matcher, regex);
+                for (int i = 0; i < 500; i++) {
+                    StringBuilder line = new StringBuilder();
+                    int length = random.nextInt(8);
+                    for (int j = 0; j < length; j++) {
+                        line.append(PIECES[random.nextInt(PIECES.length)]);
+                    }
+                    String text = line.toString();
+                    assertEquals(pattern.matcher(text).find(), matches(matcher, text), regex + " on " + text);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that patterns which take exponential time to backtrack through are matched in one pass.
+     */
+    @Test
+    void matches_AdversarialPattern_MatchesWithoutBacktracking() {
+        String line = "a".repeat(10_000);
+
+        assertFalse(matches(compile("(a+)+b", 0), line));
+        assertFalse(matches(compile("(a|aa)*c", 0), line));
+        assertTrue(matches(compile("^(a|aa)*$", 0), line));
+    }
+
+    /**
+     * Tests that patterns growing more states than are cached still match correctly.
+     */
+    @Test
+    void matches_MoreStatesThanCached_MatchesLikeRegex() {
+        // remembering which of the last 13 bytes were an a takes 2^13 states
+        Pattern pattern = Pattern.compile("a" + "[ab]".repeat(13) + "c");
+        DfaLineMatcher matcher = DfaLineMatcher.compile(pattern);
+        Random random = new Random(3);
+        for (int i = 0; i < 200; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = 0; j < 400; j++) {
+                line.append("abc".charAt(random.nextInt(j % 50 == 49 ? 3 : 2)));
+            }
+            String text = line.toString();
+            assertEquals(pattern.matcher(text).find(), matches(matcher, text), text);
+        }
+        assertTrue(matcher.getCachedStateCount() <= DfaLineMatcher.MAX_CACHED_STATES);
+    }
+
+    /**
+     * Tests that the state tables growing while the $ anchors are taken at the end of a line do not
+     * lose the state just added, whichever line makes them grow.
+     */
+    @Test
+    void matches_TablesGrowAtEndOfLine_MatchesLikeRegex() {
+        Pattern pattern = Pattern.compile("^\\W?\\W*?[^a](\\D|é)$");
+        String[] lines = "x éc\n.x\n\n\n\nba日é\u0085c\n日_\u0085x 1\n -  日\n-.-\nc ".split("\n");
+        for (int first = 0; first < lines.length; first++) {
+            LineMatcher matcher = DfaLineMatcher.compile(pattern);
+            for (int i = first; i < first + lines.length; i++) {
+                String line = lines[i % lines.length];
+                assertEquals(pattern.matcher(line).find(), matches(matcher, line), line);
+            }
+        }
+    }
+
+    /**
+     * Tests that a line that is not valid UTF-8 is matched as java.util.regex matches it.
+     */
+    @Test
+    void matches_InvalidUtf8_MatchesLikeRegex() {
+        byte[] line = {'a', (byte) 0xFF, 'b'};
+        LineMatcher matcher = compile("a.b", 0);
+        LineMatcher regex = new RegexLineMatcher(Pattern.compile("a.b"));
+
+        assertEquals(regex.matches(line, 0, line.length), matcher.matches(line, 0, line.length));
+        assertFalse(compile("^x", 0).matches(line, 0, line.length));
+    }
+
+    /**
+     * Tests that an offset and length into a larger array restrict matching to that line.
+     */
+    @Test
+    void matches_OffsetIntoArray_OnlySearchesLine() {
+        byte[] bytes = "abc|xyz|abc".getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(compile("^x.z$", 0).matches(bytes, 0, 3));
+        assertTrue(compile("^x.z$", 0).matches(bytes, 4, 3));
+        assertFalse(compile("c\\|", 0).matches(bytes, 8, 3));
+    }
+
+    /**
+     * Tests that constructs the automaton cannot match, and flags it does not follow, are not
+     * compiled.
+     */
+    @Test
+    void compile_UnsupportedConstructs_ReturnsNull() {
+        for (String regex : List.of("(a)\\1", "a{2}", "a++", "(?=a)", "\\bword", "[a&&b]", "[é]", "[]a]", "\\p{L}",
+                "\\x41", "x|(a|(?=b))c", "(a\\b)*", "[\\x41-Z]", "a|[0-\\u0039]")) {
+            assertNull(compile(regex, 0), regex);
+        }
+        assertNull(compile("a", Pattern.MULTILINE));
+        assertNull(compile("a", Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE));
+    }
+
+    /**
+     * Tests that a copy of a matcher matches the same lines as the original.
+     */
+    @Test
+    void copy_Matcher_MatchesSameLines() {
+        LineMatcher original = compile("ne+dle", Pattern.CASE_INSENSITIVE);
+        LineMatcher copy = original.copy();
+
+        assertNotSame(original, copy);
+        assertTrue(matches(copy, "a NEEEDLE"));
+        assertFalse(matches(copy, "a needl"));
+    }
+}
@@ -0,0 +1,84 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.comp.cs4218.ShellContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileAttributeCacheTest {
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Tests that repeated lookups of the same file through an active cache read its attributes only once.
+     */
+    @Test
+    void exists_RepeatedLookups_SavesStatCalls() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("a.txt"), "hello");
+        FileAttributeCache cache = new FileAttributeCache();
+        long statCalls = FileAttributeCache.getStatCallCount();
+        long saved = FileAttributeCache.getSavedStatCallCount();
+
+        assertTrue(cache.exists(file));
+        assertFalse(cache.isDirectory(file));
+        assertTrue(cache.isRegularFile(file));
+        assertEquals(5, cache.size(file));
+
+        assertEquals(statCalls + 1, FileAttributeCache.getStatCallCount());
+        assertEquals(saved + 3, FileAttributeCache.getSavedStatCallCount());
+    }
+
+    /**
+     * Tests that invalidating a directory forgets the attributes of the files below it.
+     */
+    @Test
+    void invalidate_ParentDirectory_RemovesChildren() throws IOException {
+        Path dir = Files.createDirectory(tempDir.resolve("dir"));
+        Path file = dir.resolve("a.txt");
+        FileAttributeCache cache = new FileAttributeCache();
+        assertFalse(cache.exists(file));
+
+        Files.writeString(file, "hello");
+        assertFalse(cache.exists(file));
+
+        cache.invalidate(dir);
+        assertTrue(cache.exists(file));
+        assertEquals(5, cache.size(file));
+    }
+
+    /**
+     * Tests that the cache is only current while its scope is open, and that lookups made outside of
+     * any command always read the attributes afresh.
+     */
+    @Test
+    void current_OutsideActiveScope_DoesNotCache() throws IOException {
+        Path file = tempDir.resolve("a.txt");
+        FileAttributeCache cache = new FileAttributeCache();
+        try (ShellContext.Scope scope = cache.activate()) { //NOPMD - suppressed UnusedLocalVariable - The scope only restores the previous cache when closed
+            assertSame(cache, FileAttributeCache.current());
+        }
+
+        FileAttributeCache uncached = FileAttributeCache.current();
+        assertNotSame(cache, uncached);
+        assertFalse(uncached.exists(file));
+        Files.writeString(file, "hello");
+        assertTrue(uncached.exists(file));
+    }
+
+    /**
+     * Tests that a missing file is reported as neither readable nor sized.
+     */
+    @Test
+    void canRead_MissingFile_ReturnsFalse() {
+        FileAttributeCache cache = new FileAttributeCache();
+        Path missing = tempDir.resolve("missing.txt");
+
+        assertFalse(cache.canRead(missing));
+        assertEquals(0, cache.size(missing));
+    }
+}
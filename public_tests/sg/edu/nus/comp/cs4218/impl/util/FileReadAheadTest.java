@@ -0,0 +1,102 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileReadAheadTest {
+    @TempDir
+    Path tempDir;
+
+    private List<Path> createFiles(int count) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(Files.writeString(tempDir.resolve("file" + i + ".txt"), "content " + i + "\n"));
+        }
+        return files;
+    }
+
+    private byte[] readAll(InputStream input) throws IOException {
+        try (input) {
+            return input.readAllBytes();
+        }
+    }
+
+    /**
+     * Tests that files opened in order through the read-ahead have the same contents as the files.
+     */
+    @Test
+    void open_ManyFilesInOrder_ReturnsEachFile() throws IOException {
+        List<Path> files = createFiles(10);
+        try (FileReadAhead readAhead = new FileReadAhead(files, 8)) {
+            for (Path file : files) {
+                assertArrayEquals(Files.readAllBytes(file), readAll(readAhead.open(file)));
+            }
+        }
+    }
+
+    /**
+     * Tests that a file larger than the prefetched block is returned whole.
+     */
+    @Test
+    void open_FileLargerThanBlock_ReturnsWholeFile() throws IOException {
+        byte[] data = new byte[FileReadAhead.BLOCK_SIZE * 3 + 17];
+        Arrays.fill(data, (byte) 'x');
+        Path large = Files.write(tempDir.resolve("large.txt"), data);
+        List<Path> files = new ArrayList<>(createFiles(1));
+        files.add(large);
+
+        try (FileReadAhead readAhead = new FileReadAhead(files, 2)) {
+            assertArrayEquals(Files.readAllBytes(files.get(0)), readAll(readAhead.open(files.get(0))));
+            assertArrayEquals(data, readAll(readAhead.open(large)));
+        }
+    }
+
+    /**
+     * Tests that skipping some of the files, or opening one that was never read ahead, still returns
+     * the right contents.
+     */
+    @Test
+    void open_SkippedAndUnknownFiles_ReturnsRequestedFile() throws IOException {
+        List<Path> files = createFiles(6);
+        Path other = Files.writeString(tempDir.resolve("other.txt"), "other");
+        try (FileReadAhead readAhead = new FileReadAhead(files, 2)) {
+            assertArrayEquals(Files.readAllBytes(files.get(1)), readAll(readAhead.open(files.get(1))));
+            assertArrayEquals("other".getBytes(), readAll(readAhead.open(other)));
+            assertArrayEquals(Files.readAllBytes(files.get(5)), readAll(readAhead.open(files.get(5))));
+        }
+    }
+
+    /**
+     * Tests that a missing file is reported when it is opened, as it would be without read-ahead.
+     */
+    @Test
+    void open_MissingFile_ThrowsFileNotFoundException() throws IOException {
+        List<Path> files = createFiles(2);
+        Path missing = tempDir.resolve("missing.txt");
+        files.add(1, missing);
+        try (FileReadAhead readAhead = new FileReadAhead(files, 8)) {
+            assertArrayEquals(Files.readAllBytes(files.get(0)), readAll(readAhead.open(files.get(0))));
+            assertThrows(FileNotFoundException.class, () -> readAhead.open(missing));
+            assertArrayEquals(Files.readAllBytes(files.get(2)), readAll(readAhead.open(files.get(2))));
+        }
+    }
+
+    /**
+     * Tests that a negative depth is rejected.
+     */
+    @Test
+    void constructor_NegativeDepth_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new FileReadAhead(new ArrayList<>(), -1));
+    }
+}
@@ -0,0 +1,191 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FixedStringMatcherTest {
+
+    private static boolean matches(LineMatcher matcher, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        return matcher.matches(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Tests that a single string is found at the start, middle and end of a line, and not found in
+     * a line holding only part of it.
+     */
+    @Test
+    void matches_SingleString_FindsStringAnywhereInLine() {
+        LineMatcher matcher = FixedStringMatcher.compile(List.of("needle"), false);
+
+        assertTrue(matches(matcher, "needle in a haystack"));
+        assertTrue(matches(matcher, "a haystack with a needle in it"));
+        assertTrue(matches(matcher, "a haystack ends with needle"));
+        assertFalse(matches(matcher, "a haystack with needl and eedle"));
+        assertFalse(matches(matcher, "need"));
+        assertFalse(matches(matcher, ""));
+    }
+
+    /**
+     * Tests that regular expression metacharacters in a string are matched literally.
+     */
+    @Test
+    void matches_StringWithMetacharacters_MatchedLiterally() {
+        LineMatcher matcher = FixedStringMatcher.compile(List.of("a.b*"), false);
+
+        assertTrue(matches(matcher, "x a.b* y"));
+        assertFalse(matches(matcher, "aXbbb"));
+    }
+
+    /**
+     * Tests that case-insensitive matching ignores the case of ASCII letters on both sides.
+     */
+    @Test
+    void matches_CaseInsensitive_IgnoresAsciiCase() {
+        LineMatcher single = FixedStringMatcher.compile(List.of("NeEdLe"), true);
+        LineMatcher several = FixedStringMatcher.compile(List.of("NeEdLe", "HAY"), true);
+
+        assertTrue(matches(single, "a NEEDLE here"));
+        assertTrue(matches(several, "a needle here"));
+        assertTrue(matches(several, "some hay"));
+        assertFalse(matches(FixedStringMatcher.compile(List.of("NeEdLe"), false), "a needle here"));
+    }
+
+    /**
+     * Tests that a one-byte string and a string of non-ASCII characters are matched by their bytes.
+     */
+    @Test
+    void matches_ShortAndNonAsciiStrings_MatchedByBytes() {
+        assertTrue(matches(FixedStringMatcher.compile(List.of("x"), false), "abcx"));
+        assertFalse(matches(FixedStringMatcher.compile(List.of("x"), false), "abc"));
+        assertTrue(matches(FixedStringMatcher.compile(List.of("héllo"), true), "say HéLLO"));
+        assertFalse(matches(FixedStringMatcher.compile(List.of("héllo"), false), "say hello"));
+    }
+
+    /**
+     * Tests that several strings are found whichever of them a line contains, including strings that
+     * overlap or end inside another.
+     */
+    @Test
+    void matches_SeveralStrings_FindsAnyOfThem() {
+        LineMatcher matcher = FixedStringMatcher.compile(List.of("he", "she", "his", "hers"), false);
+
+        assertTrue(matches(matcher, "ushers"));
+        assertTrue(matches(matcher, "this"));
+        assertTrue(matches(matcher, "xxshx he"));
+        assertFalse(matches(matcher, "sh hi s"));
+        assertTrue(matches(FixedStringMatcher.compile(List.of("abcd", "bc"), false), "xabcx"));
+    }
+
+    /**
+     * Tests that the matchers agree with a quoted regular expression on random lines.
+     */
+    @Test
+    void matches_RandomLines_AgreesWithRegex() {
+        Random random = new Random(42);
+        List<String> strings = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            strings.add(randomString(random, 1 + random.nextInt(4)));
+        }
+        LineMatcher single = FixedStringMatcher.compile(strings.subList(0, 1), false);
+        LineMatcher several = FixedStringMatcher.compile(strings, false);
+        Pattern singleRegex = Pattern.compile(Pattern.quote(strings.get(0)));
+        StringBuilder alternatives = new StringBuilder();
+        for (String string : strings) {
+            alternatives.append(alternatives.length() == 0 ? "" : "|").append(Pattern.quote(string));
+        }
+        Pattern severalRegex = Pattern.compile(alternatives.toString());
+
+        for (int i = 0; i < 2000; i++) {
+            String line = randomString(random, random.nextInt(30));
+            assertEquals(singleRegex.matcher(line).find(), matches(single, line), line);
+            assertEquals(severalRegex.matcher(line).find(), matches(several, line), line);
+        }
+    }
+
+    /**
+     * Tests that an offset and length into a larger array restrict matching to that line.
+     */
+    @Test
+    void matches_OffsetIntoArray_OnlySearchesLine() {
+        byte[] bytes = "needle|hay|needle".getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(FixedStringMatcher.compile(List.of("needle"), false).matches(bytes, 7, 3));
+        assertFalse(FixedStringMatcher.compile(List.of("needle", "x"), false).matches(bytes, 7, 3));
+        assertTrue(FixedStringMatcher.compile(List.of("needle"), false).matches(bytes, 11, 6));
+    }
+
+    /**
+     * Tests that the lines of a mapped file are matched in place, both where a line lies within one
+     * chunk of the mapping and where it spans two, and that matching leaves the cursor able to read
+     * the lines after it.
+     *
+     * @param tempDir Temporary directory holding the mapped file
+     * @throws IOException If the file cannot be written or mapped
+     */
+    @Test
+    void matches_MappedLines_MatchesSameLinesAsArray(@TempDir Path tempDir) throws IOException {
+        List<String> lines = List.of("needle", "hay", "a haystack with a needle in it", "NEEDLE", "", "hayneedle",
+                "neede", "x");
+        Path file = tempDir.resolve("lines.txt");
+        Files.writeString(file, String.join("\n", lines) + "\n");
+
+        for (List<String> strings : List.of(List.of("needle"), List.of("needle", "stack"))) {
+            LineMatcher matcher = FixedStringMatcher.compile(strings, true);
+            try (MappedFile mappedFile = MappedFile.open(file, 8)) {
+                MappedFile.LineCursor cursor = mappedFile.lines();
+                for (String line : lines) {
+                    assertTrue(cursor.nextLine());
+                    assertEquals(matches(matcher, line), matcher.matches(cursor), line);
+                    assertEquals(line, cursor.getLine().toString());
+                }
+                assertFalse(cursor.nextLine());
+            }
+        }
+    }
+
+    /**
+     * Tests that a copy of a matcher matches the same lines as the original.
+     */
+    @Test
+    void copy_SingleAndSeveralStrings_MatchesSameLines() {
+        for (List<String> strings : List.of(List.of("needle"), List.of("needle", "hay"))) {
+            LineMatcher original = FixedStringMatcher.compile(strings, true);
+            LineMatcher copy = original.copy();
+
+            assertNotSame(original, copy);
+            assertTrue(matches(copy, "a NEEDLE"));
+            assertFalse(matches(copy, "a needl"));
+        }
+    }
+
+    /**
+     * Tests that strings too long in total for one automaton are not compiled.
+     */
+    @Test
+    void compile_TooManyStates_ReturnsNull() {
+        String longString = "a".repeat(FixedStringMatcher.MAX_STATES);
+
+        assertNull(FixedStringMatcher.compile(List.of(longString, "b"), false));
+        assertNotNull(FixedStringMatcher.compile(List.of(longString), false));
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(3)));
+        }
+        return builder.toString();
+    }
+}
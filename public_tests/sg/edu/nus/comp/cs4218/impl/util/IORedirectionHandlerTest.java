@@ -1,5 +1,7 @@
 package sg.edu.nus.comp.cs4218.impl.util;
 
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -133,7 +135,7 @@ class IORedirectionHandlerTest {
         outputStream = new ByteArrayOutputStream();
         createFile(INPUT_FILE_1, inputFileContent);
         ArgumentResolver argumentResolver = mock(ArgumentResolver.class);
-        when(argumentResolver.resolveOneArgument(INPUT_FILE_1)).thenReturn(Arrays.asList(INPUT_FILE_1));
+        when(argumentResolver.resolveOneArgument(eq(INPUT_FILE_1), any())).thenReturn(Arrays.asList(INPUT_FILE_1));
 
         IORedirectionHandler handler = new IORedirectionHandler(argsList, inputStream, outputStream, argumentResolver);
 
@@ -166,8 +168,8 @@ class IORedirectionHandlerTest {
 
         outputStream = new ByteArrayOutputStream();
         ArgumentResolver argumentResolver = mock(ArgumentResolver.class);
-        when(argumentResolver.resolveOneArgument(INPUT_FILE_2)).thenReturn(Arrays.asList(INPUT_FILE_2));
-        when(argumentResolver.resolveOneArgument(INPUT_FILE_3)).thenReturn(Arrays.asList(INPUT_FILE_3));
+        when(argumentResolver.resolveOneArgument(eq(INPUT_FILE_2), any())).thenReturn(Arrays.asList(INPUT_FILE_2));
+        when(argumentResolver.resolveOneArgument(eq(INPUT_FILE_3), any())).thenReturn(Arrays.asList(INPUT_FILE_3));
 
         // Create instance of IORedirectionHandler
         IORedirectionHandler handler = new IORedirectionHandler(argsList, inputStream, outputStream, argumentResolver);
@@ -201,7 +203,7 @@ class IORedirectionHandlerTest {
         createFile(OUTPUT_FILE, "");
         outputStream = new ByteArrayOutputStream();
         ArgumentResolver argumentResolver = mock(ArgumentResolver.class);
-        when(argumentResolver.resolveOneArgument(OUTPUT_FILE)).thenReturn(Arrays.asList(OUTPUT_FILE));
+        when(argumentResolver.resolveOneArgument(eq(OUTPUT_FILE), any())).thenReturn(Arrays.asList(OUTPUT_FILE));
 
         // Create instance of IORedirectionHandler
         IORedirectionHandler handler = new IORedirectionHandler(argsList, inputStream, outputStream, argumentResolver);
@@ -216,6 +218,8 @@ class IORedirectionHandlerTest {
         String outputContent = "content to be written to iohandler_output2.txt";
         try {
             handler.getOutputStream().write(outputContent.getBytes());
+            // redirected output is buffered until the stream is closed
+            handler.getOutputStream().close();
         } catch (IOException e) {
             fail("Failed to write to output stream: " + e.getMessage());
         }
@@ -232,6 +236,45 @@ class IORedirectionHandlerTest {
         assertEquals(inputStream, handler.getInputStream());
     }
 
+    /**
+     * Test case to verify that calling {@link IORedirectionHandler#extractRedirOptions()} with append redirection
+     * should keep the existing contents of the file and write after them.
+     */
+    @Test
+    public void testExtractRedirOptions_withAppendRedir_ShouldAppendToFile() throws IOException, AbstractApplicationException, ShellException {
+        List<String> argsList = Arrays.asList(CMD, ">>", OUTPUT_FILE);
+        createFile(OUTPUT_FILE, "existing\n");
+        ArgumentResolver argumentResolver = mock(ArgumentResolver.class);
+        when(argumentResolver.resolveOneArgument(eq(OUTPUT_FILE), any())).thenReturn(Arrays.asList(OUTPUT_FILE));
+
+        IORedirectionHandler handler = new IORedirectionHandler(argsList, System.in, new ByteArrayOutputStream(), argumentResolver);
+        handler.extractRedirOptions();
+        handler.getOutputStream().write("appended\n".getBytes());
+        handler.getOutputStream().close();
+
+        Path filePath = Paths.get(Environment.currentDirectory).resolve(OUTPUT_FILE);
+        assertEquals("existing\nappended\n", Files.readString(filePath));
+        assertEquals(List.of(CMD), handler.getNoRedirArgsList());
+    }
+
+    /**
+     * Test case to verify that calling {@link IORedirectionHandler#extractRedirOptions()} with a here-string
+     * should change the input stream to the resolved words followed by a newline.
+     */
+    @Test
+    public void testExtractRedirOptions_withHereString_ShouldReadWordsAsInput() throws IOException, AbstractApplicationException, ShellException {
+        List<String> argsList = Arrays.asList(CMD, "<<<", "words");
+        ArgumentResolver argumentResolver = mock(ArgumentResolver.class);
+        when(argumentResolver.resolveOneArgument(eq("words"), any())).thenReturn(Arrays.asList("hello", "world"));
+
+        IORedirectionHandler handler = new IORedirectionHandler(argsList, new ByteArrayInputStream(new byte[0]),
+                new ByteArrayOutputStream(), argumentResolver);
+        handler.extractRedirOptions();
+
+        assertEquals("hello world" + System.lineSeparator(), new String(handler.getInputStream().readAllBytes()));
+        assertEquals(List.of(CMD), handler.getNoRedirArgsList());
+    }
+
     // test arglist is null
     @Test
     public void testExtractRedirOptions_nullArgsList_shouldThrowException() {
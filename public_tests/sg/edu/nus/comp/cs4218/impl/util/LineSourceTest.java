@@ -0,0 +1,118 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LineSourceTest {
+    private static LineSource sourceOf(String text, int bufferSize) {
+        return new LineSource(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)), bufferSize);
+    }
+
+    private static List<String> readAll(LineSource lineSource) throws IOException {
+        List<String> lines = new ArrayList<>();
+        String line;
+        while ((line = lineSource.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Tests that lines ending in a line feed, a carriage return, both, or the end of the stream are all split
+     * the same way as BufferedReader.readLine().
+     *
+     * @throws IOException If reading fails
+     */
+    @Test
+    void readLine_MixedTerminators_SplitsLikeBufferedReader() throws IOException {
+        List<String> lines = readAll(sourceOf("a\nb\r\nc\rd\n\ne", 8192));
+
+        assertEquals(List.of("a", "b", "c", "d", "", "e"), lines);
+    }
+
+    /**
+     * Tests that a carriage return and line feed split across two reads of the buffer count as one terminator,
+     * and that lines longer than the buffer are read whole.
+     *
+     * @throws IOException If reading fails
+     */
+    @Test
+    void readLine_TinyBuffer_HandlesBoundaries() throws IOException {
+        List<String> lines = readAll(sourceOf("abc\r\ndefghij\r\n\r\nk", 2));
+
+        assertEquals(List.of("abc", "defghij", "", "k"), lines);
+    }
+
+    /**
+     * Tests that an empty stream has no lines and a trailing newline does not add an empty line.
+     *
+     * @throws IOException If reading fails
+     */
+    @Test
+    void readLine_EmptyAndTrailingNewline_NoExtraLines() throws IOException {
+        assertEquals(List.of(), readAll(sourceOf("", 4)));
+        assertEquals(List.of("only"), readAll(sourceOf("only\n", 4)));
+    }
+
+    /**
+     * Tests that the raw bytes of each line are available, including multi-byte characters, and whether the line
+     * was terminated.
+     *
+     * @throws IOException If reading fails
+     */
+    @Test
+    void nextLine_MultiByteCharacters_ExposesRawBytes() throws IOException {
+        LineSource lineSource = sourceOf("héllo\nwörld", 3);
+
+        assertTrue(lineSource.nextLine());
+        assertArrayEquals("héllo".getBytes(StandardCharsets.UTF_8),
+                Arrays.copyOf(lineSource.getBytes(), lineSource.getLength()));
+        assertTrue(lineSource.isLineTerminated());
+        assertTrue(lineSource.nextLine());
+        assertEquals("wörld", lineSource.getLine());
+        assertFalse(lineSource.isLineTerminated());
+        assertFalse(lineSource.nextLine());
+    }
+
+    /**
+     * Tests that the lines can be iterated over with a for-each loop.
+     */
+    @Test
+    void iterator_ForEach_ReturnsAllLines() {
+        List<String> lines = new ArrayList<>();
+        for (String line : sourceOf("x\ny\nz\n", 8192)) {
+            lines.add(line);
+        }
+
+        assertEquals(List.of("x", "y", "z"), lines);
+    }
+
+    /**
+     * Tests that closing the line source closes the underlying stream.
+     *
+     * @throws IOException If closing fails
+     */
+    @Test
+    void close_Called_ClosesStream() throws IOException {
+        boolean[] isClosed = {false};
+        InputStream input = new ByteArrayInputStream(new byte[0]) {
+            @Override
+            public void close() {
+                isClosed[0] = true;
+            }
+        };
+
+        new LineSource(input).close();
+
+        assertTrue(isClosed[0]);
+    }
+}
@@ -0,0 +1,206 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.comp.cs4218.impl.app.CatApplication;
+import sg.edu.nus.comp.cs4218.impl.app.WcApplication;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedFileTest {
+    @TempDir
+    Path tempDir;
+
+    private Path fileOf(String text) throws IOException {
+        Path path = tempDir.resolve("mapped.txt");
+        Files.write(path, text.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private Path largeFileOf(String block) throws IOException {
+        byte[] bytes = block.getBytes(StandardCharsets.UTF_8);
+        Path path = tempDir.resolve("large.txt");
+        try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+            for (long size = 0; size < MappedFile.MAPPING_THRESHOLD; size += bytes.length) {
+                file.write(bytes);
+            }
+        }
+        return path;
+    }
+
+    private static List<String> readAll(MappedFile mappedFile) throws IOException {
+        List<String> lines = new ArrayList<>();
+        MappedFile.LineCursor cursor = mappedFile.lines();
+        while (cursor.nextLine()) {
+            lines.add(cursor.getLine().toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Tests that lines are split at the same terminators as by LineSource.
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    @Test
+    void nextLine_MixedTerminators_SplitsLikeLineSource() throws IOException {
+        try (MappedFile mappedFile = MappedFile.open(fileOf("a\nb\r\nc\rd\n\ne"))) {
+            assertEquals(List.of("a", "b", "c", "d", "", "e"), readAll(mappedFile));
+        }
+    }
+
+    /**
+     * Tests that lines and carriage return, line feed pairs spanning chunk boundaries are read whole.
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    @Test
+    void nextLine_TinyChunks_HandlesBoundaries() throws IOException {
+        String text = "abc\r\ndefghij\r\n\r\nk";
+        for (int chunkSize = 1; chunkSize <= text.length(); chunkSize++) {
+            try (MappedFile mappedFile = MappedFile.open(fileOf(text), chunkSize)) {
+                assertEquals(List.of("abc", "defghij", "", "k"), readAll(mappedFile), "chunk size " + chunkSize);
+            }
+        }
+    }
+
+    /**
+     * Tests that non-ASCII lines are decoded as UTF-8, including when split across chunks.
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    @Test
+    void getLine_NonAscii_DecodesUtf8() throws IOException {
+        try (MappedFile mappedFile = MappedFile.open(fileOf("héllo\nwörld\n"), 2)) {
+            assertEquals(List.of("héllo", "wörld"), readAll(mappedFile));
+        }
+    }
+
+    /**
+     * Tests that the byte view of a line holds exactly its bytes, without the terminator.
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    @Test
+    void getBytes_Line_ReturnsBytesWithoutTerminator() throws IOException {
+        try (MappedFile mappedFile = MappedFile.open(fileOf("first\nsecond\n"))) {
+            MappedFile.LineCursor cursor = mappedFile.lines();
+            assertTrue(cursor.nextLine());
+            ByteBuffer bytes = cursor.getBytes();
+            byte[] copy = new byte[bytes.remaining()];
+            bytes.get(copy);
+
+            assertArrayEquals("first".getBytes(StandardCharsets.UTF_8), copy);
+        }
+    }
+
+    /**
+     * Tests that an empty file has no chunks and no lines.
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    @Test
+    void lines_EmptyFile_HasNoLines() throws IOException {
+        try (MappedFile mappedFile = MappedFile.open(fileOf(""))) {
+            assertEquals(0, mappedFile.getChunkCount());
+            assertFalse(mappedFile.lines().nextLine());
+        }
+    }
+
+    /**
+     * Tests that chunks cover the whole file without overlapping.
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    @Test
+    void getChunk_SmallChunks_CoverWholeFile() throws IOException {
+        try (MappedFile mappedFile = MappedFile.open(fileOf("0123456789"), 4)) {
+            assertEquals(3, mappedFile.getChunkCount());
+            assertEquals(4, mappedFile.getChunk(0).remaining());
+            assertEquals(2, mappedFile.getChunk(2).remaining());
+            assertEquals('8', mappedFile.getChunk(2).get(0));
+        }
+    }
+
+    /**
+     * Tests that splitting a file into ranges at every offset, with every chunk size, yields the
+     * same lines as reading it whole, including carriage return, line feed pairs at the split.
+     *
+     * @throws IOException If the file cannot be mapped
+     */
+    @Test
+    void lines_RangesFromNextLineStart_SameLinesAsWholeFile() throws IOException {
+        String text = "abc\r\ndefghij\r\n\r\nk\rl\n\nmn";
+        List<String> expected = List.of("abc", "defghij", "", "k", "l", "", "mn");
+        for (int chunkSize = 1; chunkSize <= text.length(); chunkSize++) {
+            try (MappedFile mappedFile = MappedFile.open(fileOf(text), chunkSize)) {
+                for (int offset = 0; offset <= text.length(); offset++) {
+                    long split = mappedFile.nextLineStart(offset);
+                    List<String> lines = new ArrayList<>();
+                    for (long[] range : new long[][]{{0, split}, {split, mappedFile.size()}}) {
+                        MappedFile.LineCursor cursor = mappedFile.lines(range[0], range[1]);
+                        while (cursor.nextLine()) {
+                            lines.add(cursor.getLine().toString());
+                        }
+                    }
+
+                    assertTrue(split >= offset);
+                    assertEquals(expected, lines, "chunk size " + chunkSize + ", offset " + offset);
+                }
+            }
+        }
+    }
+
+    /**
+     * Tests that wc counts a file above the mapping threshold the same as the stream it was written from.
+     *
+     * @throws Exception If the file cannot be written or counted
+     */
+    @Test
+    void countFromFiles_AboveThreshold_MatchesStreamCount() throws Exception {
+        byte[] block = "one two\r\nthree\n\n  four  ".getBytes(StandardCharsets.UTF_8);
+        Path path = largeFileOf(new String(block, StandardCharsets.UTF_8));
+        long size = Files.size(path);
+        assertTrue(MappedFile.isWorthMapping(path));
+
+        WcApplication wcApplication = new WcApplication();
+        long[] expected = new long[3];
+        long repeats = size / block.length;
+        long[] perBlock = wcApplication.getCountReport(new ByteArrayInputStream(block));
+        expected[0] = perBlock[0] * repeats;
+        expected[1] = perBlock[1] * repeats;
+        expected[2] = size;
+
+        String output = wcApplication.countFromFiles(true, true, true, path.toString());
+        assertEquals(String.format("\t%d\t%d\t%d %s", expected[0], expected[1], expected[2], path), output);
+    }
+
+    /**
+     * Tests that cat writes a file above the mapping threshold the same as when reading it from stdin,
+     * with every line terminator written as a newline.
+     *
+     * @throws Exception If the file cannot be written or read
+     */
+    @Test
+    void run_CatAboveThreshold_MatchesStdinOutput() throws Exception {
+        Path path = largeFileOf("alpha\r\nbeta\rgamma\n\ndelta");
+        ByteArrayOutputStream fromFile = new ByteArrayOutputStream();
+        ByteArrayOutputStream fromStdin = new ByteArrayOutputStream();
+
+        new CatApplication().run(new String[]{path.toString()}, null, fromFile);
+        new CatApplication().run(new String[0], Files.newInputStream(path), fromStdin);
+
+        assertArrayEquals(fromStdin.toByteArray(), fromFile.toByteArray());
+    }
+}
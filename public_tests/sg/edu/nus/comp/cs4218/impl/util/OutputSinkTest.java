@@ -0,0 +1,96 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutputSinkTest {
+
+    /**
+     * Tests that text is encoded the same way as String.getBytes with UTF-8, including characters
+     * that take two, three and four bytes.
+     */
+    @Test
+    void write_MixedText_EncodesAsUtf8() throws IOException {
+        String text = "plain é 中文 😀 end";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(output, 4)) {
+            sink.writeLine(text);
+        }
+
+        assertArrayEquals((text + "\n").getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    /**
+     * Tests that an unpaired surrogate is replaced with '?' as String.getBytes does.
+     */
+    @Test
+    void write_UnpairedSurrogate_WritesQuestionMark() throws IOException {
+        String text = "a\uD83Db";
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(output)) {
+            sink.write(text);
+        }
+
+        assertArrayEquals(text.getBytes(StandardCharsets.UTF_8), output.toByteArray());
+    }
+
+    /**
+     * Tests that numbers are written as their decimal digits, including the extremes of long.
+     */
+    @Test
+    void writeNumber_VariousNumbers_WritesDigits() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(output, 8)) {
+            for (long number : new long[]{0, 7, -42, 1_000_000, Long.MAX_VALUE, Long.MIN_VALUE}) {
+                sink.writeNumber(number);
+                sink.write(' ');
+            }
+        }
+
+        assertEquals("0 7 -42 1000000 " + Long.MAX_VALUE + " " + Long.MIN_VALUE + " ",
+                output.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that bytes are passed on once the buffer fills up, before the sink is flushed.
+     */
+    @Test
+    void write_MoreThanCapacity_WritesIncrementally() throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(output, 16);
+        sink.write("0123456789");
+        assertEquals(0, output.size());
+
+        sink.write("0123456789");
+        assertTrue(output.size() > 0);
+
+        sink.write(new byte[64]);
+        sink.flush();
+        assertEquals(84, output.size());
+    }
+
+    /**
+     * Tests that closing the sink flushes it without closing the underlying stream.
+     */
+    @Test
+    void close_UnderlyingStream_StaysOpen() throws IOException {
+        boolean[] isClosed = new boolean[1];
+        ByteArrayOutputStream output = new ByteArrayOutputStream() {
+            @Override
+            public void close() {
+                isClosed[0] = true;
+            }
+        };
+        OutputSink sink = new OutputSink(output);
+        sink.write("abc");
+        sink.close();
+
+        assertEquals("abc", output.toString(StandardCharsets.UTF_8));
+        assertFalse(isClosed[0]);
+    }
+}
@@ -0,0 +1,90 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatternCacheTest {
+
+    /**
+     * Tests that compiling an expression for the first time counts as a miss, and compiling it again
+     * returns the same pattern and counts as a hit.
+     */
+    @Test
+    void compile_SameExpressionTwice_ReturnsCachedPattern() {
+        PatternCache cache = new PatternCache();
+        Pattern first = cache.compile("a+b", 0);
+        Pattern second = cache.compile("a+b", 0);
+
+        assertSame(first, second);
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate());
+    }
+
+    /**
+     * Tests that the same expression with different flags is cached separately.
+     */
+    @Test
+    void compile_DifferentFlags_CompilesSeparately() {
+        PatternCache cache = new PatternCache();
+        Pattern caseSensitive = cache.compile("abc", 0);
+        Pattern caseInsensitive = cache.compile("abc", Pattern.CASE_INSENSITIVE);
+
+        assertNotSame(caseSensitive, caseInsensitive);
+        assertTrue(caseInsensitive.matcher("ABC").find());
+        assertFalse(caseSensitive.matcher("ABC").find());
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Tests that once the cache is full, the least recently used pattern is evicted.
+     */
+    @Test
+    void compile_CapacityExceeded_EvictsLeastRecentlyUsed() {
+        PatternCache cache = new PatternCache(2);
+        Pattern first = cache.compile("a", 0);
+        cache.compile("b", 0);
+        cache.compile("a", 0);
+        cache.compile("c", 0);
+
+        assertEquals(2, cache.size());
+        assertSame(first, cache.compile("a", 0));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    /**
+     * Tests that an invalid expression is reported and not cached.
+     */
+    @Test
+    void compile_InvalidExpression_ThrowsException() {
+        PatternCache cache = new PatternCache();
+
+        assertThrows(PatternSyntaxException.class, () -> cache.compile("a(", 0));
+        assertEquals(0, cache.size());
+    }
+
+    /**
+     * Tests that the metrics report states the lookups, compilations and hit rate.
+     */
+    @Test
+    void getMetricsReport_AfterLookups_ReportsHitRate() {
+        PatternCache cache = new PatternCache();
+        for (int i = 0; i < 4; i++) {
+            cache.compile("x", 0);
+        }
+
+        assertEquals("4 pattern lookups, 1 compiled, 75.0% hit rate", cache.getMetricsReport());
+    }
+
+    /**
+     * Tests that a non-positive capacity is rejected.
+     */
+    @Test
+    void constructor_ZeroCapacity_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new PatternCache(0));
+    }
+}
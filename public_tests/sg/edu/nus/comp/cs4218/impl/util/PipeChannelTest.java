@@ -0,0 +1,217 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import sg.edu.nus.comp.cs4218.exception.BrokenPipeException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PipeChannelTest {
+
+    /**
+     * Tests that bytes written to the sink can be read back from the source, followed by
+     * end-of-stream once the sink is closed.
+     */
+    @Test
+    void read_WrittenThenClosed_ReturnsBytesThenEndOfStream() throws IOException {
+        PipeChannel channel = new PipeChannel();
+        OutputStream sink = channel.getSink();
+        sink.write("hello".getBytes());
+        sink.close();
+
+        InputStream source = channel.getSource();
+        assertArrayEquals("hello".getBytes(), source.readAllBytes());
+        assertEquals(-1, source.read());
+    }
+
+    /**
+     * Tests that a writer producing far more data than the channel capacity is throttled by the
+     * reader on another thread, and that no bytes are lost or reordered.
+     */
+    @Test
+    void write_MoreThanCapacity_DeliveredInOrder() throws Exception {
+        PipeChannel channel = new PipeChannel(16);
+        byte[] data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+
+        Thread writer = new Thread(() -> {
+            try (OutputStream sink = channel.getSink()) {
+                sink.write(data);
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        writer.start();
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        channel.getSource().transferTo(received);
+        writer.join();
+
+        assertArrayEquals(data, received.toByteArray());
+    }
+
+    /**
+     * Tests that once the reader has closed its end, writes fail with a broken pipe instead of
+     * blocking forever, and the channel reports itself as broken.
+     */
+    @Test
+    void write_ReaderClosed_ThrowsBrokenPipeException() throws Exception {
+        PipeChannel channel = new PipeChannel(4);
+        channel.getSource().close();
+
+        byte[] data = new byte[64];
+        Arrays.fill(data, (byte) 'a');
+
+        assertThrows(BrokenPipeException.class, () -> channel.getSink().write(data));
+        assertTrue(channel.isReaderClosed());
+        assertTrue(channel.isBroken());
+    }
+
+    /**
+     * Tests that a writer blocked on a full channel is released with a broken pipe when the
+     * reader closes its end.
+     */
+    @Test
+    void write_BlockedWhenReaderCloses_ThrowsBrokenPipeException() throws Exception {
+        PipeChannel channel = new PipeChannel(4);
+        Thread reader = new Thread(() -> {
+            try {
+                channel.awaitFirstWrite();
+                channel.getSource().close();
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        reader.start();
+
+        assertThrows(BrokenPipeException.class, () -> channel.getSink().write(new byte[64]));
+        reader.join();
+    }
+
+    /**
+     * Tests that closing the reader after the writer has finished is not treated as a broken pipe.
+     */
+    @Test
+    void isBroken_ReaderClosedAfterWriter_ReturnsFalse() throws IOException {
+        PipeChannel channel = new PipeChannel();
+        channel.getSink().write('a');
+        channel.getSink().close();
+        channel.getSource().close();
+
+        assertFalse(channel.isBroken());
+    }
+
+    /**
+     * Tests that writing after the sink has been closed is rejected.
+     */
+    @Test
+    void write_WriterClosed_ThrowsIOException() throws IOException {
+        PipeChannel channel = new PipeChannel();
+        OutputStream sink = channel.getSink();
+        sink.close();
+
+        assertThrows(IOException.class, () -> sink.write('a'));
+    }
+
+    /**
+     * Tests that a non-positive capacity is rejected.
+     */
+    @Test
+    void constructor_ZeroCapacity_ThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new PipeChannel(0));
+    }
+
+    /**
+     * Tests that a channel grows its buffer up to the memory budget before a writer has to wait,
+     * and records the memory it holds.
+     */
+    @Test
+    void write_WithinMemoryBudget_DoesNotBlock() throws IOException {
+        PipeStatistics statistics = new PipeStatistics();
+        PipeChannel channel = new PipeChannel(PipeChannel.DEFAULT_CAPACITY * 4, 0, statistics);
+        byte[] data = new byte[PipeChannel.DEFAULT_CAPACITY * 3];
+        Arrays.fill(data, (byte) 'a');
+        channel.getSink().write(data);
+        channel.getSink().close();
+
+        assertArrayEquals(data, channel.getSource().readAllBytes());
+        assertEquals(PipeChannel.DEFAULT_CAPACITY * 4, statistics.getPeakMemory());
+        assertEquals(0, statistics.getSpilledBytes());
+    }
+
+    /**
+     * Tests that bytes beyond the memory budget are spilled to disk instead of blocking the writer,
+     * and are read back after the bytes held in memory, in order.
+     */
+    @Test
+    void write_BeyondMemoryBudget_SpillsInOrder() throws IOException {
+        PipeStatistics statistics = new PipeStatistics();
+        PipeChannel channel = new PipeChannel(16, 1024 * 1024, statistics);
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        OutputStream sink = channel.getSink();
+        sink.write(data, 0, 10);
+        sink.write(data, 10, data.length - 10);
+        sink.close();
+
+        InputStream source = channel.getSource();
+        assertEquals(data.length, source.available());
+        assertArrayEquals(data, source.readAllBytes());
+        assertEquals(16, statistics.getPeakMemory());
+        assertEquals(data.length - 16, statistics.getSpilledBytes());
+    }
+
+    /**
+     * Tests that a writer waits for the reader once both the memory budget and the spill limit are
+     * used up, and that writing to memory resumes once the spilled bytes have been read.
+     */
+    @Test
+    void write_BeyondSpillLimit_DeliveredInOrder() throws Exception {
+        PipeStatistics statistics = new PipeStatistics();
+        PipeChannel channel = new PipeChannel(8, 32, statistics);
+        byte[] data = new byte[10_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i * 7);
+        }
+
+        Thread writer = new Thread(() -> {
+            try (OutputStream sink = channel.getSink()) {
+                for (int i = 0; i < data.length; i += 100) {
+                    sink.write(data, i, 100);
+                }
+            } catch (IOException e) {
+                fail(e);
+            }
+        });
+        writer.start();
+
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        channel.getSource().transferTo(received);
+        writer.join();
+
+        assertArrayEquals(data, received.toByteArray());
+        assertTrue(statistics.getSpilledBytes() > 0);
+    }
+
+    /**
+     * Tests that closing the reader while bytes are spilled releases them and breaks the pipe.
+     */
+    @Test
+    void close_ReaderWithSpilledBytes_BreaksPipe() throws IOException {
+        PipeChannel channel = new PipeChannel(4, 1024, new PipeStatistics());
+        channel.getSink().write(new byte[100]);
+        channel.getSource().close();
+
+        assertTrue(channel.isBroken());
+        assertThrows(BrokenPipeException.class, () -> channel.getSink().write('a'));
+    }
+}
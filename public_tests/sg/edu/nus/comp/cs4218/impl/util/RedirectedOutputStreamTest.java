@@ -0,0 +1,257 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.impl.ShellImpl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+class RedirectedOutputStreamTest {
+    @TempDir
+    Path tempDir;
+
+    private long countFiles() throws IOException {
+        try (Stream<Path> files = Files.list(tempDir)) {
+            return files.count();
+        }
+    }
+
+    /**
+     * Tests that the file is emptied as soon as it is opened, as a shell empties it before running
+     * the command.
+     */
+    @Test
+    void open_ExistingFile_TruncatesOnOpen() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        try (RedirectedOutputStream output = RedirectedOutputStream.open(file, false)) {
+            assertEquals("", Files.readString(file));
+            output.write("new".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("new", Files.readString(file));
+    }
+
+    /**
+     * Tests commands that stream from the file they redirect to. Verifies that they read an empty
+     * file, whatever the size of the file and of the buffer, and that in atomic mode they read the
+     * whole file before it is replaced.
+     *
+     * @throws Exception If a command fails
+     */
+    @Test
+    void open_CommandStreamsFromOutputFile_ReadsEmptyFileUnlessAtomic() throws Exception {
+        StringBuilder lines = new StringBuilder();
+        for (int i = 0; i < 50_000; i++) {
+            lines.append(i).append(STRING_NEWLINE);
+        }
+        String contents = lines.toString();
+        ShellContext context = new ShellContext(tempDir.toString());
+        ShellImpl shell = new ShellImpl(context);
+        Path file = tempDir.resolve("f.txt");
+        for (String command : new String[]{"cat f.txt > f.txt", "grep 1 f.txt > f.txt", "uniq f.txt > f.txt",
+            "cut -b 1-3 f.txt > f.txt"}) {
+            Files.writeString(file, "");
+            shell.parseAndEvaluate(command, new ByteArrayOutputStream());
+            String outputOfEmptyFile = Files.readString(file);
+            Files.writeString(file, contents);
+            shell.parseAndEvaluate(command, new ByteArrayOutputStream());
+            assertEquals(outputOfEmptyFile, Files.readString(file), command);
+        }
+
+        context.setAtomicRedirection(true);
+        Files.writeString(file, contents);
+        shell.parseAndEvaluate("cat f.txt > f.txt", new ByteArrayOutputStream());
+        assertEquals(contents, Files.readString(file));
+    }
+
+    /**
+     * Tests that closing the stream without writing anything leaves the file empty.
+     */
+    @Test
+    void close_NothingWritten_TruncatesFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        RedirectedOutputStream.open(file, false).close();
+
+        assertEquals("", Files.readString(file));
+    }
+
+    /**
+     * Tests that output larger than the buffer, written in small and large pieces, reaches the file
+     * whole and in order.
+     */
+    @Test
+    void write_MoreThanBuffer_WritesEverything() throws IOException {
+        Path file = tempDir.resolve("file.txt");
+        byte[] large = new byte[RedirectedOutputStream.BUFFER_SIZE * 2];
+        Arrays.fill(large, (byte) 'x');
+        try (RedirectedOutputStream output = RedirectedOutputStream.open(file, false)) {
+            output.write('a');
+            output.write(large);
+            output.write('b');
+        }
+
+        byte[] contents = Files.readAllBytes(file);
+        assertEquals(large.length + 2, contents.length);
+        assertEquals('a', contents[0]);
+        assertEquals('b', contents[contents.length - 1]);
+    }
+
+    /**
+     * Tests that bytes written through the channel follow the bytes buffered before it was taken.
+     */
+    @Test
+    void getChannel_AfterBufferedWrite_KeepsOrder() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        try (RedirectedOutputStream output = RedirectedOutputStream.open(file, false)) {
+            output.write("first ".getBytes(StandardCharsets.UTF_8));
+            output.getChannel().write(ByteBuffer.wrap("second ".getBytes(StandardCharsets.UTF_8)));
+            output.write("third".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertEquals("first second third", Files.readString(file));
+    }
+
+    /**
+     * Tests that in atomic mode the file is only replaced once the stream is closed, and that no
+     * temporary file is left behind.
+     */
+    @Test
+    void close_Atomic_ReplacesFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        try (RedirectedOutputStream output = RedirectedOutputStream.open(file, true)) {
+            output.write("new".getBytes(StandardCharsets.UTF_8));
+            output.flush();
+            assertEquals("old contents", Files.readString(file));
+        }
+
+        assertEquals("new", Files.readString(file));
+        assertEquals(1, countFiles());
+    }
+
+    /**
+     * Tests that in atomic mode the replaced file keeps its permissions, and that a new file gets
+     * the permissions any new file gets rather than those of a private temporary file.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void close_AtomicOverFileWithPermissions_KeepsPermissions() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-r-----");
+        Files.setPosixFilePermissions(file, permissions);
+        Path created = tempDir.resolve("created.txt");
+        Path probe = Files.createFile(tempDir.resolve("probe.txt"));
+
+        try (RedirectedOutputStream output = RedirectedOutputStream.open(file, true)) {
+            output.write("new".getBytes(StandardCharsets.UTF_8));
+        }
+        RedirectedOutputStream.open(created, true).close();
+
+        assertEquals(permissions, Files.getPosixFilePermissions(file));
+        assertEquals(Files.getPosixFilePermissions(probe), Files.getPosixFilePermissions(created));
+    }
+
+    /**
+     * Tests that in atomic mode a symbolic link is written through, replacing the file it points to
+     * and keeping the link, even when that file does not exist yet.
+     */
+    @Test
+    @DisabledOnOs(OS.WINDOWS)
+    void close_AtomicThroughSymbolicLink_ReplacesLinkedFile() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        Path link = Files.createSymbolicLink(tempDir.resolve("link.txt"), file.getFileName());
+        Path danglingLink = Files.createSymbolicLink(tempDir.resolve("dangling.txt"), Path.of("missing.txt"));
+
+        try (RedirectedOutputStream output = RedirectedOutputStream.open(link, true)) {
+            output.write("new".getBytes(StandardCharsets.UTF_8));
+        }
+        try (RedirectedOutputStream output = RedirectedOutputStream.open(danglingLink, true)) {
+            output.write("created".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertTrue(Files.isSymbolicLink(link));
+        assertEquals("new", Files.readString(file));
+        assertTrue(Files.isSymbolicLink(danglingLink));
+        assertEquals("created", Files.readString(tempDir.resolve("missing.txt")));
+    }
+
+    /**
+     * Tests that discarding an atomic stream leaves the file untouched and removes the temporary file.
+     */
+    @Test
+    void discard_Atomic_LeavesFileUnchanged() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        RedirectedOutputStream output = RedirectedOutputStream.open(file, true);
+        output.write("partial".getBytes(StandardCharsets.UTF_8));
+        output.discard();
+        output.close();
+
+        assertEquals("old contents", Files.readString(file));
+        assertEquals(1, countFiles());
+    }
+
+    /**
+     * Tests that discarding a stream that is not atomic keeps the output written so far.
+     */
+    @Test
+    void discard_NotAtomic_KeepsOutput() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old contents");
+        RedirectedOutputStream output = RedirectedOutputStream.open(file, false);
+        output.write("partial".getBytes(StandardCharsets.UTF_8));
+        output.discard();
+
+        assertEquals("partial", Files.readString(file));
+    }
+
+    /**
+     * Tests that a file opened for appending keeps its contents, also when the channel is used.
+     */
+    @Test
+    void openForAppend_ExistingFile_AppendsOutput() throws IOException {
+        Path file = Files.writeString(tempDir.resolve("file.txt"), "old ");
+        try (RedirectedOutputStream output = RedirectedOutputStream.openForAppend(file)) {
+            output.write("new ".getBytes(StandardCharsets.UTF_8));
+            output.getChannel().write(ByteBuffer.wrap("channel".getBytes(StandardCharsets.UTF_8)));
+        }
+
+        assertEquals("old new channel", Files.readString(file));
+    }
+
+    /**
+     * Tests that a file that cannot be created is reported when the stream is opened.
+     */
+    @Test
+    void open_MissingDirectory_ThrowsFileNotFoundException() {
+        Path file = tempDir.resolve("missing").resolve("file.txt");
+
+        assertThrows(FileNotFoundException.class, () -> RedirectedOutputStream.open(file, false));
+        assertThrows(FileNotFoundException.class, () -> RedirectedOutputStream.open(file, true));
+    }
+
+    /**
+     * Tests that writing after the stream is closed fails.
+     */
+    @Test
+    void write_AfterClose_ThrowsIOException() throws IOException {
+        RedirectedOutputStream output = RedirectedOutputStream.open(tempDir.resolve("file.txt"), false);
+        output.close();
+
+        assertThrows(IOException.class, () -> output.write('a'));
+    }
+}
@@ -12,4 +12,14 @@ public interface Application {
      */
     void run(String[] args, InputStream stdin, OutputStream stdout)
             throws AbstractApplicationException;
+
+    /**
+     * Runs application in the given shell session, which is the current context while it runs.
+     */
+    default void run(ShellContext context, String[] args, InputStream stdin, OutputStream stdout)
+            throws AbstractApplicationException {
+        try (ShellContext.Scope scope = context.activate()) { //NOPMD - suppressed UnusedLocalVariable - The scope only restores the previous context when closed
+            run(args, stdin, stdout);
+        }
+    }
 }
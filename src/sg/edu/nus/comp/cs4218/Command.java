@@ -15,6 +15,16 @@ public interface Command {
     void evaluate(InputStream stdin, OutputStream stdout)
             throws AbstractApplicationException, ShellException, FileNotFoundException;
 
+    /**
+     * Evaluates command in the given shell session, which is the current context while it runs.
+     */
+    default void evaluate(ShellContext context, InputStream stdin, OutputStream stdout)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
+        try (ShellContext.Scope scope = context.activate()) { //NOPMD - suppressed UnusedLocalVariable - The scope only restores the previous context when closed
+            evaluate(stdin, stdout);
+        }
+    }
+
     /**
      * Terminates current execution of the command.
      */
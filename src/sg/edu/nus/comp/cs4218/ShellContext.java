@@ -0,0 +1,146 @@
+package sg.edu.nus.comp.cs4218;
+
+import sg.edu.nus.comp.cs4218.impl.util.PatternCache;
+
+/**
+ * The state of one shell session, such as its current directory.
+ * <p>
+ * A context is passed to {@link Command#evaluate(ShellContext, java.io.InputStream, java.io.OutputStream)}
+ * and {@link Application#run(ShellContext, String[], java.io.InputStream, java.io.OutputStream)}, which make
+ * it the current context of the running thread, so that code resolving paths can find it through
+ * {@link #current()}. Sessions with separate contexts can therefore run commands at the same time.
+ * <p>
+ * Code that runs outside of any session uses the global context, which is backed by
+ * {@link Environment#currentDirectory}.
+ */
+public class ShellContext {
+    public static final int DEFAULT_PIPE_MEMORY_BUDGET = 64 * 1024;
+
+    private static final ThreadLocal<ShellContext> ACTIVE_CONTEXT = new ThreadLocal<>();
+    private static final ShellContext GLOBAL_CONTEXT = new GlobalContext();
+
+    private volatile String currentDirectory;
+    private volatile boolean isAtomicRedirection;
+    private volatile int pipeMemoryBudget = DEFAULT_PIPE_MEMORY_BUDGET;
+    private volatile long pipeSpillLimit;
+    private final PatternCache patternCache = new PatternCache();
+
+    public ShellContext(String currentDirectory) {
+        this.currentDirectory = currentDirectory;
+    }
+
+    /**
+     * Returns the context backed by {@link Environment#currentDirectory}.
+     */
+    public static ShellContext global() {
+        return GLOBAL_CONTEXT;
+    }
+
+    /**
+     * Returns the context of the session running on the calling thread, or the global context if
+     * there is none.
+     */
+    public static ShellContext current() {
+        ShellContext context = ACTIVE_CONTEXT.get();
+        return context == null ? GLOBAL_CONTEXT : context;
+    }
+
+    public String getCurrentDirectory() {
+        return currentDirectory;
+    }
+
+    public void setCurrentDirectory(String currentDirectory) {
+        this.currentDirectory = currentDirectory;
+    }
+
+    public boolean isAtomicRedirection() {
+        return isAtomicRedirection;
+    }
+
+    /**
+     * Sets whether output redirected to a file with {@code >} replaces the file only once the
+     * command has succeeded, so that a failed command leaves the file untouched. The shell turns
+     * this on for its sessions when started with {@code -a}.
+     */
+    public void setAtomicRedirection(boolean isAtomicRedirection) {
+        this.isAtomicRedirection = isAtomicRedirection;
+    }
+
+    public int getPipeMemoryBudget() {
+        return pipeMemoryBudget;
+    }
+
+    /**
+     * Sets the number of bytes each channel between two stages of a pipeline may hold in memory.
+     */
+    public void setPipeMemoryBudget(int pipeMemoryBudget) {
+        if (pipeMemoryBudget <= 0) {
+            throw new IllegalArgumentException("Pipe memory budget must be positive");
+        }
+        this.pipeMemoryBudget = pipeMemoryBudget;
+    }
+
+    public long getPipeSpillLimit() {
+        return pipeSpillLimit;
+    }
+
+    /**
+     * Sets the number of bytes each channel of a pipeline may write to temporary files once its
+     * share of the memory budget is used up, before the stage writing to it has to wait. With the
+     * default of 0, nothing is spilled to disk.
+     */
+    public void setPipeSpillLimit(long pipeSpillLimit) {
+        if (pipeSpillLimit < 0) {
+            throw new IllegalArgumentException("Pipe spill limit must not be negative");
+        }
+        this.pipeSpillLimit = pipeSpillLimit;
+    }
+
+    /**
+     * Returns the cache of compiled patterns shared by the commands of this session, e.g. to
+     * inspect its hit rate.
+     */
+    public PatternCache getPatternCache() {
+        return patternCache;
+    }
+
+    /**
+     * Makes this the current context of the calling thread until the returned scope is closed, at
+     * which point the previous context is restored.
+     */
+    public Scope activate() {
+        ShellContext previous = ACTIVE_CONTEXT.get();
+        ACTIVE_CONTEXT.set(this);
+        return () -> {
+            if (previous == null) {
+                ACTIVE_CONTEXT.remove();
+            } else {
+                ACTIVE_CONTEXT.set(previous);
+            }
+        };
+    }
+
+    /**
+     * The period during which a context is the current context of a thread.
+     */
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static final class GlobalContext extends ShellContext {
+        GlobalContext() {
+            super(null);
+        }
+
+        @Override
+        public String getCurrentDirectory() {
+            return Environment.currentDirectory;
+        }
+
+        @Override
+        public void setCurrentDirectory(String currentDirectory) {
+            Environment.currentDirectory = currentDirectory;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package sg.edu.nus.comp.cs4218.exception;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an application writes to a pipe whose reading stage has already stopped reading.
+ * Applications may treat it as a signal to stop producing output.
+ */
+public class BrokenPipeException extends IOException {
+    private static final long serialVersionUID = 3618064591279832187L;
+
+    public BrokenPipeException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,144 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ExitException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.app.GrepApplication;
+import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
+import sg.edu.nus.comp.cs4218.impl.util.CommandBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static sg.edu.nus.comp.cs4218.impl.CommandResult.*;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Runs command lines asynchronously on a bounded pool of threads, for embedding the shell in
+ * other Java programs. It is safe to submit commands from any number of threads.
+ * <p>
+ * At most {@code maxConcurrentCommands} commands run at the same time and at most
+ * {@code maxQueuedCommands} more wait for a thread. Commands submitted beyond that fail with a
+ * {@link RejectedExecutionException}. Cancelling the future of a command terminates it.
+ * <p>
+ * The limits count commands, not threads. Each stage of a pipeline but the last runs on a thread of
+ * its own, which is not bounded, as the stages of a pipeline must run at once. Greps of several
+ * files or of large inputs share a fixed pool of {@link GrepApplication#WORKER_COUNT} threads
+ * instead.
+ */
+public class AsyncShell implements Closeable {
+    public static final int DEFAULT_MAX_QUEUED_COMMANDS = 1024;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a shell running as many commands at once as there are processors.
+     */
+    public AsyncShell() {
+        this(Runtime.getRuntime().availableProcessors(), DEFAULT_MAX_QUEUED_COMMANDS);
+    }
+
+    /**
+     * Creates a shell with the given concurrency limits.
+     *
+     * @param maxConcurrentCommands Number of commands that may run at the same time.
+     * @param maxQueuedCommands     Number of commands that may wait for a free thread.
+     */
+    public AsyncShell(int maxConcurrentCommands, int maxQueuedCommands) {
+        if (maxConcurrentCommands <= 0 || maxQueuedCommands <= 0) {
+            throw new IllegalArgumentException("Concurrency limits must be positive");
+        }
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(maxConcurrentCommands, maxConcurrentCommands, 0L,
+                TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxQueuedCommands), runnable -> {
+                    Thread thread = new Thread(runnable, "async-shell-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * Runs a command line in a new session starting in the global working directory, with empty stdin.
+     */
+    public CompletableFuture<CommandResult> submit(String commandString) {
+        return submit(commandString, new ShellContext(Environment.currentDirectory), InputStream.nullInputStream());
+    }
+
+    /**
+     * Runs a command line in the given session.
+     *
+     * @param commandString Command line to run.
+     * @param context       ShellContext of the session to run the command in. A change of directory
+     *                      by the command is kept in the context.
+     * @param stdin         InputStream the command reads its input from.
+     * @return Future completed with the result of the command, or exceptionally if the command
+     * could not be queued or failed unexpectedly, including with an {@link Error}.
+     */
+    public CompletableFuture<CommandResult> submit(String commandString, ShellContext context, InputStream stdin) {
+        CompletableFuture<CommandResult> future = new CompletableFuture<>();
+        try {
+            executor.execute(() -> {
+                if (!future.isDone()) {
+                    run(commandString, context, stdin, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    /**
+     * Stops accepting commands and waits for the running and queued ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run(String commandString, ShellContext context, InputStream stdin,
+                     CompletableFuture<CommandResult> future) {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        String errorMessage = null;
+        int exitStatus = STATUS_SUCCESS;
+        long startTime = System.nanoTime();
+        try {
+            Command command = CommandBuilder.parseCommand(commandString, new ApplicationRunner());
+            future.whenComplete((result, throwable) -> {
+                if (future.isCancelled()) {
+                    command.terminate();
+                }
+            });
+            command.evaluate(context, stdin, stdout);
+        } catch (ExitException e) {
+            exitStatus = STATUS_EXIT;
+        } catch (AbstractApplicationException | ShellException | FileNotFoundException e) {
+            errorMessage = e.getMessage() + STRING_NEWLINE;
+            exitStatus = STATUS_ERROR;
+        } catch (Throwable e) { //NOPMD - suppressed AvoidCatchingThrowable - An error such as a stack overflow must still complete the future, or its caller waits forever
+            future.completeExceptionally(e);
+            return;
+        }
+        long elapsedNanos = System.nanoTime() - startTime;
+        byte[] stderr = errorMessage == null ? new byte[0] : errorMessage.getBytes(StandardCharsets.UTF_8);
+        future.complete(new CommandResult(exitStatus, stdout.toByteArray(), stderr, elapsedNanos));
+    }
+}
@@ -0,0 +1,59 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The outcome of a command run through {@link AsyncShell}.
+ */
+public class CommandResult {
+    // also the statuses sent by ShellServer in its status frames
+    public static final int STATUS_SUCCESS = 0;
+    public static final int STATUS_ERROR = 1;
+    public static final int STATUS_EXIT = 2;
+
+    private final int exitStatus;
+    private final byte[] stdout;
+    private final byte[] stderr;
+    private final long elapsedNanos;
+
+    public CommandResult(int exitStatus, byte[] stdout, byte[] stderr, long elapsedNanos) {
+        this.exitStatus = exitStatus;
+        this.stdout = stdout;
+        this.stderr = stderr;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * Returns 0 if the command succeeded, 1 if it failed and 2 if it was the exit command.
+     */
+    public int getExitStatus() {
+        return exitStatus;
+    }
+
+    public byte[] getStdout() {
+        return stdout.clone();
+    }
+
+    public String getStdoutAsString() {
+        return new String(stdout, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the error message of a failed command. Errors of the commands inside a sequence are
+     * written to stdout instead, in place of their output.
+     */
+    public byte[] getStderr() {
+        return stderr.clone();
+    }
+
+    public String getStderrAsString() {
+        return new String(stderr, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the time taken to parse and evaluate the command, excluding time spent queued.
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+}
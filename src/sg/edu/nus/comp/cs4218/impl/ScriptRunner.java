@@ -0,0 +1,126 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ExitException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * Runs a script of commands, one command per line, without printing a prompt.
+ * <p>
+ * Blank lines and lines starting with '#' are skipped. The output of the commands is buffered and
+ * only written out once each command has finished. A failing command has its error message
+ * written to the output, and the script carries on with the next line; the exit command stops it.
+ */
+public class ScriptRunner {
+    public static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final String COMMENT_PREFIX = "#";
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final ShellImpl shell;
+    private long lineCount;
+    private long commandCount;
+    private long elapsedNanos;
+
+    public ScriptRunner(ShellImpl shell) {
+        this.shell = shell;
+    }
+
+    /**
+     * Runs every command of the script.
+     *
+     * @param script BufferedReader to read the commands from.
+     * @param stdin  InputStream the commands read their input from.
+     * @param stdout OutputStream the commands write their output to. It is flushed but not closed.
+     * @throws ExitException If the script runs the exit command.
+     * @throws IOException   If the script cannot be read or the output cannot be written.
+     */
+    public void run(BufferedReader script, InputStream stdin, OutputStream stdout)
+            throws ExitException, IOException {
+        CommandBoundaryOutputStream output = new CommandBoundaryOutputStream(stdout);
+        long startTime = System.nanoTime();
+        try {
+            String commandString;
+            while ((commandString = script.readLine()) != null) {
+                lineCount++;
+                if (StringUtils.isBlank(commandString) || commandString.trim().startsWith(COMMENT_PREFIX)) {
+                    continue;
+                }
+                commandCount++;
+                runCommand(commandString, stdin, output);
+            }
+        } finally {
+            elapsedNanos = System.nanoTime() - startTime;
+            output.flushCommand();
+        }
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    public long getCommandCount() {
+        return commandCount;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * Returns a one-line summary of how many commands and lines were run, and how fast.
+     */
+    public String getThroughputReport() {
+        double seconds = Math.max(elapsedNanos, 1) / NANOS_PER_SECOND;
+        return String.format(Locale.ROOT, "%d commands, %d lines in %.3f s (%.1f commands/s, %.1f lines/s)",
+                commandCount, lineCount, seconds, commandCount / seconds, lineCount / seconds);
+    }
+
+    private void runCommand(String commandString, InputStream stdin, CommandBoundaryOutputStream output)
+            throws ExitException, IOException {
+        try {
+            shell.parseAndEvaluate(commandString, stdin, output);
+        } catch (ExitException e) {
+            throw e;
+        } catch (AbstractApplicationException | ShellException | FileNotFoundException e) {
+            output.write((e.getMessage() + STRING_NEWLINE).getBytes(StandardCharsets.UTF_8));
+        } finally {
+            output.flushCommand();
+        }
+    }
+
+    /**
+     * Buffers output across the flushes made by the applications, and only writes it out when a
+     * command has finished.
+     */
+    private static final class CommandBoundaryOutputStream extends BufferedOutputStream {
+        CommandBoundaryOutputStream(OutputStream out) {
+            super(out, OUTPUT_BUFFER_SIZE);
+        }
+
+        @Override
+        public void flush() {
+            // deferred until the command finishes
+        }
+
+        @Override
+        public void close() {
+            // the underlying stream belongs to the caller
+        }
+
+        void flushCommand() throws IOException {
+            super.flush();
+        }
+    }
+}
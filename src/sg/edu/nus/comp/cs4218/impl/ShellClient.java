@@ -0,0 +1,126 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static sg.edu.nus.comp.cs4218.impl.CommandResult.STATUS_ERROR;
+import static sg.edu.nus.comp.cs4218.impl.CommandResult.STATUS_EXIT;
+import static sg.edu.nus.comp.cs4218.impl.CommandResult.STATUS_SUCCESS;
+import static sg.edu.nus.comp.cs4218.impl.ShellServer.*;
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_INVALID_PORT;
+
+/**
+ * A thin client that sends command lines to a running {@link ShellServer} and writes their output.
+ */
+public class ShellClient implements Closeable {
+    public static final String FLAG_PORT = "-p";
+
+    private final Socket socket;
+    private final DataInputStream input;
+    private final DataOutputStream output;
+
+    /**
+     * Connects to the server on the given loopback port, starting a session in the given directory.
+     * The server is sent the token it wrote to its token file, which only its user can read.
+     *
+     * @param port             Port the server listens on.
+     * @param workingDirectory Working directory of the new session.
+     * @throws IOException If the server cannot be reached or its token file cannot be read.
+     */
+    public ShellClient(int port, String workingDirectory) throws IOException {
+        byte[] token = Files.readAllBytes(getTokenFile(port));
+        this.socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        this.socket.setTcpNoDelay(true);
+        this.input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        writeFrame(output, FRAME_TOKEN, token, token.length);
+        byte[] directory = workingDirectory.getBytes(StandardCharsets.UTF_8);
+        writeFrame(output, FRAME_DIRECTORY, directory, directory.length);
+    }
+
+    /**
+     * Runs a command line on the server.
+     *
+     * @param commandString Command line to run.
+     * @param stdout        OutputStream to write the output of the command to.
+     * @return 0 if the command succeeded, 1 if it failed and 2 if it was the exit command.
+     * @throws IOException If the command line is longer than a frame or the connection fails.
+     */
+    public int run(String commandString, OutputStream stdout) throws IOException {
+        byte[] command = commandString.getBytes(StandardCharsets.UTF_8);
+        if (command.length > MAX_FRAME_LENGTH) {
+            throw new IOException("Command line too long: " + command.length + " bytes");
+        }
+        writeFrame(output, FRAME_COMMAND, command, command.length);
+        output.flush();
+
+        while (true) {
+            byte type = input.readByte();
+            if (type == FRAME_STATUS) {
+                stdout.flush();
+                return input.readInt();
+            }
+            stdout.write(readPayload(input));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+
+    /**
+     * Runs the command line given as arguments, or else every line of stdin, on the server.
+     *
+     * @param args Optionally -p and the port of the server, followed by the command line.
+     */
+    public static void main(String... args) {
+        int port = DEFAULT_PORT;
+        int firstCommandArg = 0;
+        if (args.length >= 2 && FLAG_PORT.equals(args[0])) {
+            port = parsePort(args[1]);
+            if (port < 0) {
+                System.out.println(new ShellException(args[1] + ": " + ERR_INVALID_PORT).getMessage());
+                System.exit(STATUS_ERROR);
+                return;
+            }
+            firstCommandArg = 2;
+        }
+
+        int status = STATUS_SUCCESS;
+        try (ShellClient client = new ShellClient(port, Environment.currentDirectory)) {
+            if (firstCommandArg < args.length) {
+                String commandString = String.join(" ", Arrays.copyOfRange(args, firstCommandArg, args.length));
+                status = client.run(commandString, System.out);
+            } else {
+                BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                String commandString;
+                while (status != STATUS_EXIT && (commandString = reader.readLine()) != null) {
+                    if (!StringUtils.isBlank(commandString)) {
+                        status = client.run(commandString, System.out);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("IOException: " + e.getMessage());
+            status = STATUS_ERROR;
+        }
+        System.exit(status == STATUS_EXIT ? STATUS_SUCCESS : status);
+    }
+}
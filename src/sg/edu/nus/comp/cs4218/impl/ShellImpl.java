@@ -1,39 +1,132 @@
 package sg.edu.nus.comp.cs4218.impl;
 
 import sg.edu.nus.comp.cs4218.Command;
-import sg.edu.nus.comp.cs4218.Environment;
 import sg.edu.nus.comp.cs4218.Shell;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ExitException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.cmd.SequenceCommand;
 import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
 import sg.edu.nus.comp.cs4218.impl.util.CommandBuilder;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
+import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.PipeStatistics;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.BufferedReader;
+import java.io.FileDescriptor;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_FILE_NOT_FOUND;
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_INVALID_PORT;
 
 public class ShellImpl implements Shell {
+    public static final String FLAG_SCRIPT = "-f";
+    public static final String FLAG_DAEMON = "-d";
+    public static final String FLAG_ATOMIC = "-a";
+    public static final String ENV_METRICS = "CS4218_SHELL_METRICS";
+
+    private static final Path STDIN_LINK = Paths.get("/proc/self/fd/0");
+
+    private final ShellContext context;
+
+    /**
+     * Creates a shell that runs its commands in the global context.
+     */
+    public ShellImpl() {
+        this(ShellContext.global());
+    }
+
+    /**
+     * Creates a shell that runs its commands in the given session.
+     *
+     * @param context ShellContext of the session.
+     */
+    public ShellImpl(ShellContext context) {
+        this.context = context;
+    }
 
     /**
      * Main method for the Shell Interpreter program.
+     * <p>
+     * With {@code -f <script>}, the commands of the script are run without a prompt. The same
+     * happens with the commands read from stdin when it is not a terminal. Otherwise, the shell
+     * prompts for commands interactively.
+     * <p>
+     * With {@code -d [port]}, the shell runs as a {@link ShellServer} for {@link ShellClient}s.
+     * <p>
+     * A leading {@code -a} turns on atomic redirection for every mode: output redirected with
+     * {@code >} replaces the file only once the command has succeeded.
+     * <p>
+     * When the {@value #ENV_METRICS} environment variable is set, a script run ends by printing
+     * its throughput and the metrics of the caches and pipes on stderr.
      *
-     * @param args List of strings arguments, unused.
+     * @param options Optionally -a, then either no arguments, -f followed by the path of a script,
+     *                or -d optionally followed by a port.
      */
-    public static void main(String... args) {
+    public static void main(String... options) {
+        String[] args = options;
+        if (args.length >= 1 && FLAG_ATOMIC.equals(args[0])) {
+            ShellContext.global().setAtomicRedirection(true);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length >= 1 && args.length <= 2 && FLAG_DAEMON.equals(args[0])) {
+            runDaemon(args.length == 2 ? args[1] : String.valueOf(ShellServer.DEFAULT_PORT));
+        } else if (args.length == 2 && FLAG_SCRIPT.equals(args[0])) {
+            runScriptFile(args[1]);
+        } else if (args.length == 0 && !isStdinTerminal()) {
+            runScript(new BufferedReader(new InputStreamReader(System.in)), InputStream.nullInputStream());
+        } else {
+            runInteractive();
+        }
+    }
+
+    /**
+     * Returns true if stdin is a terminal, whatever stdout is. {@link System#console()} cannot tell,
+     * as it is null as soon as either of them is redirected. Where /proc is missing, the shell is
+     * asked instead, and only without a shell does this fall back to {@link System#console()}.
+     */
+    private static boolean isStdinTerminal() {
+        try {
+            String target = Files.readSymbolicLink(STDIN_LINK).toString();
+            return target.startsWith("/dev/pts/") || target.startsWith("/dev/tty");
+        } catch (IOException | UnsupportedOperationException e) {
+            // no /proc, as on macOS
+        }
+        try {
+            Process test = new ProcessBuilder("sh", "-c", "test -t 0")
+                    .redirectInput(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            return test.waitFor() == 0;
+        } catch (IOException e) {
+            return System.console() != null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return System.console() != null;
+        }
+    }
+
+    private static void runInteractive() {
         BufferedReader reader = new BufferedReader(new InputStreamReader(System.in));
-        Shell shell = new ShellImpl();
+        ShellImpl shell = new ShellImpl();
         String currentDirectory;
         String commandString;
         boolean exitSuccess = true;
 
         try {
             do {
-                currentDirectory = Environment.currentDirectory;
+                currentDirectory = shell.getContext().getCurrentDirectory();
 
                 System.out.print(currentDirectory + "> ");
 
@@ -70,10 +163,85 @@ public class ShellImpl implements Shell {
         }
     }
 
+    private static void runDaemon(String portArg) {
+        int port = ShellServer.parsePort(portArg);
+        if (port < 0) {
+            System.out.println(new ShellException(portArg + ": " + ERR_INVALID_PORT).getMessage());
+            System.exit(1); // To indicate execution error in Exit Status
+            return;
+        }
+        try (ShellServer server = new ShellServer(port)) {
+            System.err.println("Listening on port " + server.getPort());
+            server.serve();
+        } catch (IOException exception) {
+            System.out.println("IOException: " + exception.getMessage());
+            System.exit(1); // To indicate execution error in Exit Status
+        }
+    }
+
+    private static void runScriptFile(String scriptPath) {
+        BufferedReader reader;
+        try {
+            reader = Files.newBufferedReader(IOUtils.resolveFilePath(scriptPath));
+        } catch (IOException | InvalidPathException exception) {
+            System.out.println(new ShellException(scriptPath + ": " + ERR_FILE_NOT_FOUND).getMessage());
+            System.exit(1); // To indicate execution error in Exit Status
+            return;
+        }
+        runScript(reader, System.in);
+    }
+
+    /**
+     * Runs the commands read from the reader as a script, then reports the throughput and metrics
+     * on stderr if {@value #ENV_METRICS} is set.
+     */
+    private static void runScript(BufferedReader reader, InputStream stdin) {
+        ScriptRunner scriptRunner = new ScriptRunner(new ShellImpl());
+        int exitStatus = 0;
+
+        try {
+            scriptRunner.run(reader, stdin, new FileOutputStream(FileDescriptor.out));
+        } catch (IOException exception) {
+            System.out.println("IOException: " + exception.getMessage());
+            exitStatus = 1;
+        } catch (ExitException exception) {
+            System.out.println("ExitException: " + exception.getMessage());
+            if (!exception.getMessage().endsWith("success")) {
+                exitStatus = 1;
+            }
+        } finally {
+            if (System.getenv(ENV_METRICS) != null) {
+                System.err.println(scriptRunner.getThroughputReport());
+                System.err.println(FileAttributeCache.getMetricsReport());
+                System.err.println(PipeStatistics.getMetricsReport());
+                System.err.println(ShellContext.global().getPatternCache().getMetricsReport());
+            }
+            try {
+                reader.close();
+            } catch (IOException exception) {
+                System.out.println("IOException: " + exception.getMessage());
+                exitStatus = 1;
+            }
+        }
+        System.exit(exitStatus);
+    }
+
     @Override
     public void parseAndEvaluate(String commandString, OutputStream stdout)
             throws AbstractApplicationException, ShellException, FileNotFoundException {
+        parseAndEvaluate(commandString, System.in, stdout);
+    }
+
+    /**
+     * Parses and evaluates the command line, reading any input of the command from stdin.
+     */
+    public void parseAndEvaluate(String commandString, InputStream stdin, OutputStream stdout)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
         Command command = CommandBuilder.parseCommand(commandString, new ApplicationRunner());
-        command.evaluate(System.in, stdout);
+        command.evaluate(context, stdin, stdout);
+    }
+
+    public ShellContext getContext() {
+        return context;
     }
 }
@@ -0,0 +1,333 @@
+package sg.edu.nus.comp.cs4218.impl;
+
+import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
+import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
+import sg.edu.nus.comp.cs4218.exception.ExitException;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static sg.edu.nus.comp.cs4218.impl.CommandResult.STATUS_ERROR;
+import static sg.edu.nus.comp.cs4218.impl.CommandResult.STATUS_EXIT;
+import static sg.edu.nus.comp.cs4218.impl.CommandResult.STATUS_SUCCESS;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
+
+/**
+ * A long-running shell that accepts command lines from {@link ShellClient}s over a loopback socket,
+ * so that commands do not pay for JVM startup and class loading.
+ * <p>
+ * Only clients of the user running the server are served: on startup the server writes a random
+ * token to a file only that user can read, see {@link #getTokenFile(int)}, and a connection whose
+ * first frame does not carry the token is closed.
+ * <p>
+ * Each connection is a separate session with its own working directory, starting at the
+ * directory sent by the client. Commands read from an empty stdin and their output is sent back
+ * to the client. The exit command ends the session, not the server. Sessions run their commands
+ * in parallel, each in its own {@link ShellContext}.
+ * <p>
+ * Every message is a frame of a one-byte type followed by an int length and that many bytes,
+ * except for the status frame, which is followed by the int status only. Frames longer than
+ * {@link #MAX_FRAME_LENGTH} are refused.
+ */
+public class ShellServer implements Closeable {
+    public static final int DEFAULT_PORT = 4218;
+
+    public static final int MAX_FRAME_LENGTH = 1024 * 1024;
+    public static final int MAX_PORT = 65_535;
+
+    static final byte FRAME_TOKEN = 'T';
+    static final byte FRAME_DIRECTORY = 'D';
+    static final byte FRAME_COMMAND = 'C';
+    static final byte FRAME_OUTPUT = 'O';
+    static final byte FRAME_STATUS = 'S';
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+    private static final int TOKEN_LENGTH = 32;
+    private static final int HANDSHAKE_TIMEOUT_MILLIS = 10_000;
+
+    private final ServerSocket serverSocket;
+    private final Path tokenFile;
+    private final byte[] token;
+    private final ExecutorService sessionExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "shell-session");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * Binds the server to the given port of the loopback address and writes the token clients must
+     * send to the token file of that port.
+     *
+     * @param port Port to listen on, or 0 to pick a free port.
+     * @throws IOException If the port cannot be bound or the token file cannot be written.
+     */
+    public ShellServer(int port) throws IOException {
+        this.serverSocket = new ServerSocket(port, 0, InetAddress.getLoopbackAddress());
+        byte[] random = new byte[TOKEN_LENGTH];
+        new SecureRandom().nextBytes(random);
+        this.token = Base64.getUrlEncoder().encodeToString(random).getBytes(StandardCharsets.US_ASCII);
+        this.tokenFile = getTokenFile(getPort());
+        try {
+            writeTokenFile(tokenFile, token);
+        } catch (IOException e) {
+            serverSocket.close();
+            throw e;
+        }
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Returns the port given as an argument, or -1 if it is not a number from 0 to 65535.
+     *
+     * @param port Port as given on the command line.
+     */
+    static int parsePort(String port) {
+        try {
+            int value = Integer.parseInt(port);
+            return value >= 0 && value <= MAX_PORT ? value : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Returns the file holding the token of the server listening on the given port, in a directory
+     * of the home directory of the user.
+     *
+     * @param port Port the server listens on.
+     */
+    public static Path getTokenFile(int port) {
+        return Paths.get(System.getProperty("user.home"), ".cs4218-shell", port + ".token");
+    }
+
+    /**
+     * Writes the token to a new file that only the user can read, replacing any file left behind
+     * by an earlier server, so that the permissions it was created with are the ones it has.
+     */
+    private static void writeTokenFile(Path file, byte[] token) throws IOException {
+        boolean isPosix = FileSystems.getDefault().supportedFileAttributeViews().contains("posix");
+        Path directory = file.getParent();
+        if (isPosix) {
+            if (!Files.isDirectory(directory)) {
+                Files.createDirectories(directory,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            }
+            Files.deleteIfExists(file);
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createDirectories(directory);
+            Files.deleteIfExists(file);
+            Files.createFile(file);
+        }
+        Files.write(file, token);
+    }
+
+    /**
+     * Accepts connections until the server is closed, serving each one on its own thread.
+     *
+     * @throws IOException If accepting a connection fails for a reason other than the server closing.
+     */
+    public void serve() throws IOException {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (SocketException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            sessionExecutor.execute(new Session(socket));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+        sessionExecutor.shutdownNow();
+        Files.deleteIfExists(tokenFile);
+    }
+
+    static void writeFrame(DataOutputStream output, byte type, byte[] bytes, int len) throws IOException {
+        output.writeByte(type);
+        output.writeInt(len);
+        output.write(bytes, 0, len);
+    }
+
+    /**
+     * Reads the length and bytes of a frame whose type has been read, refusing lengths that are
+     * negative or above {@link #MAX_FRAME_LENGTH} before allocating anything for them.
+     */
+    static byte[] readPayload(DataInputStream input) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > MAX_FRAME_LENGTH) {
+            throw new IOException("Invalid frame length: " + length);
+        }
+        byte[] bytes = new byte[length];
+        input.readFully(bytes);
+        return bytes;
+    }
+
+    /**
+     * Serves the commands of one connection.
+     */
+    private class Session implements Runnable {
+        private final Socket socket;
+        private final ShellContext context = new ShellContext(Environment.currentDirectory);
+        private final ShellImpl shell = new ShellImpl(context);
+
+        Session(Socket socket) {
+            this.socket = socket;
+            // sessions follow the options the server was started with
+            context.setAtomicRedirection(ShellContext.global().isAtomicRedirection());
+        }
+
+        @Override
+        public void run() {
+            try (socket;
+                 DataInputStream input = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                 DataOutputStream output = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()))) {
+                if (!isAuthenticated(input)) {
+                    return;
+                }
+                boolean isExited = false;
+                while (!isExited) {
+                    byte type = input.readByte();
+                    String payload = new String(readPayload(input), StandardCharsets.UTF_8);
+                    if (type == FRAME_DIRECTORY) {
+                        if (!Files.isDirectory(Paths.get(payload))) {
+                            return;
+                        }
+                        context.setCurrentDirectory(payload);
+                    } else if (type == FRAME_COMMAND) {
+                        int status = runCommand(payload, output);
+                        output.writeByte(FRAME_STATUS);
+                        output.writeInt(status);
+                        output.flush();
+                        isExited = status == STATUS_EXIT;
+                    } else {
+                        return;
+                    }
+                }
+            } catch (EOFException e) {
+                // the client has disconnected
+            } catch (IOException e) {
+                // the connection is broken, so there is no one left to report to
+            }
+        }
+
+        /**
+         * Returns true if the first frame is the token of the server. A client has a limited time
+         * to send it, so that connections that never do are not kept open.
+         */
+        private boolean isAuthenticated(DataInputStream input) throws IOException {
+            socket.setSoTimeout(HANDSHAKE_TIMEOUT_MILLIS);
+            try {
+                if (input.readByte() != FRAME_TOKEN) {
+                    return false;
+                }
+                boolean isValid = MessageDigest.isEqual(token, readPayload(input));
+                socket.setSoTimeout(0);
+                return isValid;
+            } catch (SocketTimeoutException e) {
+                return false;
+            }
+        }
+
+        private int runCommand(String commandString, DataOutputStream output) throws IOException {
+            FrameOutputStream stdout = new FrameOutputStream(output);
+            int status = STATUS_SUCCESS;
+            try {
+                shell.parseAndEvaluate(commandString, InputStream.nullInputStream(), stdout);
+            } catch (ExitException e) {
+                status = STATUS_EXIT;
+            } catch (AbstractApplicationException | ShellException | FileNotFoundException | RuntimeException e) {
+                // like the interactive shell, a bug in one command must not end the session
+                stdout.write((e.getMessage() + STRING_NEWLINE).getBytes(StandardCharsets.UTF_8));
+                status = STATUS_ERROR;
+            }
+            stdout.flushFrame();
+            return status;
+        }
+    }
+
+    /**
+     * Buffers the output of a command and sends it to the client as output frames.
+     */
+    private static final class FrameOutputStream extends OutputStream {
+        private final DataOutputStream output;
+        private final byte[] buffer = new byte[OUTPUT_BUFFER_SIZE];
+        private int count;
+
+        FrameOutputStream(DataOutputStream output) {
+            super();
+            this.output = output;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            if (count == buffer.length) {
+                flushFrame();
+            }
+            buffer[count++] = (byte) value;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            int offset = off;
+            int remaining = len;
+            while (remaining > 0) {
+                if (count == buffer.length) {
+                    flushFrame();
+                }
+                int chunk = Math.min(remaining, buffer.length - count);
+                System.arraycopy(bytes, offset, buffer, count, chunk);
+                count += chunk;
+                offset += chunk;
+                remaining -= chunk;
+            }
+        }
+
+        @Override
+        public void close() {
+            // the connection outlives the command
+        }
+
+        void flushFrame() throws IOException {
+            if (count > 0) {
+                writeFrame(output, FRAME_OUTPUT, buffer, count);
+                count = 0;
+            }
+        }
+    }
+}
@@ -5,14 +5,21 @@ import sg.edu.nus.comp.cs4218.exception.CatException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.parser.CatArgsParser;
 import sg.edu.nus.comp.cs4218.impl.util.ErrorConstants;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
+import sg.edu.nus.comp.cs4218.impl.util.FileReadAhead;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.LineSource;
+import sg.edu.nus.comp.cs4218.impl.util.MappedFile;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.List;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_FILE_NOT_FOUND;
@@ -22,6 +29,9 @@ import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_NO_PERM;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
 
 public class CatApplication implements CatInterface {
+    private static final byte[] NEWLINE_BYTES = STRING_NEWLINE.getBytes(StandardCharsets.UTF_8);
+    private static final long TRANSFER_THRESHOLD = 64 * 1024;
+
     /**
      * Executes the Cat application with the given arguments, input stream, and output stream.
      *
@@ -44,17 +54,29 @@ public class CatApplication implements CatInterface {
             String[] files = parser.getFiles().toArray(new String[0]);
             List<String> fileList = parser.getFiles();
 
-            String result;
+            // lines are streamed to stdout as they are read, except when mixing files with stdin
+            OutputSink output = new OutputSink(stdout);
             if (fileList.isEmpty() || (fileList.size() == 1 && "-".equals(fileList.get(0)))) {
-                result = catStdin(isLineNumber, stdin);
+                if (stdin == null) {
+                    throw new CatException(ErrorConstants.ERR_NO_OSTREAM);
+                }
+                if (writeLines(isLineNumber, 1, stdin, output) == 1) {
+                    output.write(NEWLINE_BYTES);
+                }
             } else if (parser.getFiles().contains("-")) {
-                result = catFileAndStdin(isLineNumber, stdin, files);
+                output.write(catFileAndStdin(isLineNumber, stdin, files).getBytes(StandardCharsets.UTF_8));
+                output.write(NEWLINE_BYTES);
             } else {
-                result = catFiles(isLineNumber, files);
+                // without line numbers, files are copied straight into a redirected output file
+                FileChannel target = isLineNumber ? null : IOUtils.getFileChannel(stdout);
+                boolean hasLines = target == null
+                        ? writeFiles(isLineNumber, output, files) > 1
+                        : transferFiles(target, output, files);
+                if (!hasLines) {
+                    output.write(NEWLINE_BYTES);
+                }
             }
-            
-            stdout.write(result.getBytes(StandardCharsets.UTF_8));
-            stdout.write(STRING_NEWLINE.getBytes());
+            output.flush();
         } catch (Exception e) {
             throw new CatException(ErrorConstants.ERR_GENERAL + ": " + e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
 
@@ -70,57 +92,16 @@ public class CatApplication implements CatInterface {
      * @throws Exception
      */
     @Override
-    public String catFiles(Boolean isLineNumber, String... fileName) throws CatException { //NOPMD - suppressed ExcessiveMethodLength - the method doesn't seem long at all to me, it is very readable
-        StringBuilder output = new StringBuilder();
-        int lineNumber = 1;
-
-        List<String> lines = new ArrayList<>();
-        for (String file : fileName) {
-            if ("-".equals(file)) {
-                continue;
-            }
-            File node = IOUtils.resolveFilePath(file).toFile();
-            if (!node.exists()) {
-                throw new CatException(ERR_FILE_NOT_FOUND);
-            }
-            if (node.isDirectory()) {
-                throw new CatException(ERR_IS_DIR);
-            }
-            if (!node.canRead()) {
-                throw new CatException(ERR_NO_PERM);
-            }
-            InputStream input = null; //NOPMD - suppressed CloseResource - it is being closed below (using IOUtils.closeInputStream(input);)
-
-            try {
-                input = IOUtils.openInputStream(file);
-            } catch (ShellException e) { //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-
-                throw new CatException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-            }
-            try {
-                lines.addAll(IOUtils.getLinesFromInputStream(input)); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-            } catch (IOException e) {
-                throw new CatException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-            }
-            try {
-                IOUtils.closeInputStream(input); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-            } catch (ShellException e) {
-                throw new CatException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-            }
-        }
-        
-        for (int i = 0; i < lines.size(); i++) {
-            if (isLineNumber) {
-                output.append(lineNumber++).append(' ').append(lines.get(i));
-            } else {
-                output.append(lines.get(i));
-            }
-            if (i < lines.size() - 1) {
-                output.append(STRING_NEWLINE);
-            }
+    public String catFiles(Boolean isLineNumber, String... fileName) throws CatException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        OutputSink sink = new OutputSink(output);
+        writeFiles(isLineNumber, sink, fileName);
+        try {
+            sink.flush();
+        } catch (IOException e) {
+            throw new CatException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
-
-        return output.toString();
+        return withoutTrailingNewline(output);
     }
 
     /**
@@ -137,26 +118,14 @@ public class CatApplication implements CatInterface {
             throw new CatException(ErrorConstants.ERR_NO_OSTREAM);
         }
 
-        StringBuilder output = new StringBuilder();
-        try {
-            List<String> lines = IOUtils.getLinesFromInputStream(stdin);
-            for (int i = 0; i < lines.size(); i++) {
-                if (isLineNumber) {
-                    output.append(i + 1).append(' ').append(lines.get(i)).append(STRING_NEWLINE);
-                } else {
-                    output.append(lines.get(i)).append(STRING_NEWLINE);
-                }
-            } //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(output)) {
+            writeLines(isLineNumber, 1, stdin, sink);
         } catch (IOException e) {
             throw new CatException("cat: Error reading input"); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
 
-        if (output.length() > 0) {
-            String lineSeparator = STRING_NEWLINE;
-            output.delete(output.length() - lineSeparator.length(), output.length());
-        }
-
-        return output.toString();
+        return withoutTrailingNewline(output);
     }
 
     /**
@@ -197,4 +166,262 @@ public class CatApplication implements CatInterface {
         
         return output.toString();
     }
+
+    /**
+     * Writes every line of the given files to the output, each followed by a newline. All files
+     * are checked before any of them is read, so nothing is written if one of them is missing.
+     *
+     * @param isLineNumber Prefix lines with their corresponding line number starting from 1
+     * @param output       OutputSink to write the lines to
+     * @param fileName     Array of String of file names ("-" entries are skipped)
+     * @return The line number following the last line written
+     * @throws CatException If a file is missing, is a directory, cannot be read or cannot be written out
+     */
+    private int writeFiles(boolean isLineNumber, OutputSink output, String... fileName) throws CatException {
+        checkFiles(fileName);
+
+        int lineNumber = 1;
+        try (FileReadAhead readAhead = IOUtils.readAhead(fileName)) {
+            for (String file : fileName) {
+                if ("-".equals(file)) {
+                    continue;
+                }
+                lineNumber = writeFile(isLineNumber, lineNumber, file, readAhead, output);
+            }
+        }
+        return lineNumber;
+    }
+
+    /**
+     * Copies the given files into the output file without line numbers. Files of at least
+     * {@link #TRANSFER_THRESHOLD} bytes are copied by the kernel with {@link FileChannel#transferTo},
+     * rewriting only carriage returns; smaller files are written through the output stream.
+     *
+     * @param target   FileChannel of the output file
+     * @param output   OutputSink writing to the same output file
+     * @param fileName Array of String of file names ("-" entries are skipped)
+     * @return true if any line was written
+     * @throws CatException If a file is missing, is a directory, cannot be read or cannot be written out
+     */
+    private boolean transferFiles(FileChannel target, OutputSink output, String... fileName) throws CatException {
+        checkFiles(fileName);
+
+        boolean hasLines = false;
+        try (FileReadAhead readAhead = IOUtils.readAhead(fileName)) {
+            for (String file : fileName) {
+                if ("-".equals(file)) {
+                    continue;
+                }
+                Path node = IOUtils.resolveFilePath(file);
+                if (FileAttributeCache.current().size(node) < TRANSFER_THRESHOLD) {
+                    hasLines |= writeFile(false, 1, file, readAhead, output) > 1;
+                    continue;
+                }
+                try (MappedFile mappedFile = MappedFile.open(node)) {
+                    output.flush();
+                    hasLines |= transferLines(mappedFile, target);
+                } catch (IOException e) {
+                    throw new CatException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+                }
+            }
+        }
+        return hasLines;
+    }
+
+    private void checkFiles(String... fileName) throws CatException {
+        for (String file : fileName) {
+            if ("-".equals(file)) {
+                continue;
+            }
+            Path node = IOUtils.resolveFilePath(file);
+            FileAttributeCache attributes = FileAttributeCache.current();
+            if (!attributes.exists(node)) {
+                throw new CatException(ERR_FILE_NOT_FOUND);
+            }
+            if (attributes.isDirectory(node)) {
+                throw new CatException(ERR_IS_DIR);
+            }
+            if (!attributes.canRead(node)) {
+                throw new CatException(ERR_NO_PERM);
+            }
+        }
+    }
+
+    private int writeFile(boolean isLineNumber, int firstLineNumber, String file, FileReadAhead readAhead,
+                          OutputSink output) throws CatException {
+        Path node = IOUtils.resolveFilePath(file);
+        if (MappedFile.isWorthMapping(node)) {
+            try (MappedFile mappedFile = MappedFile.open(node)) {
+                return writeMappedLines(isLineNumber, firstLineNumber, mappedFile, output);
+            } catch (IOException e) {
+                throw new CatException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+            }
+        }
+        InputStream input; //NOPMD - suppressed CloseResource - it is being closed below (using IOUtils.closeInputStream(input);)
+        try {
+            input = IOUtils.openInputStream(readAhead, file);
+        } catch (ShellException e) {
+            throw new CatException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        }
+        try {
+            return writeLines(isLineNumber, firstLineNumber, input, output);
+        } catch (IOException e) {
+            throw new CatException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        } finally {
+            try {
+                IOUtils.closeInputStream(input);
+            } catch (ShellException e) {
+                throw new CatException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+            }
+        }
+    }
+
+    /**
+     * Writes every line of the input to the output as it is read, each followed by a newline.
+     *
+     * @param isLineNumber    Prefix lines with their corresponding line number
+     * @param firstLineNumber Line number of the first line read
+     * @param input           InputStream to read the lines from
+     * @param output          OutputSink to write the lines to
+     * @return The line number following the last line written
+     * @throws IOException If the input cannot be read or the output cannot be written
+     */
+    private int writeLines(boolean isLineNumber, int firstLineNumber, InputStream input, OutputSink output)
+            throws IOException {
+        LineSource lineSource = new LineSource(input);
+        int lineNumber = firstLineNumber;
+        while (lineSource.nextLine()) {
+            if (isLineNumber) {
+                output.writeNumber(lineNumber);
+                output.write(' ');
+            }
+            output.write(lineSource.getBytes(), 0, lineSource.getLength());
+            output.write(NEWLINE_BYTES);
+            lineNumber++;
+        }
+        return lineNumber;
+    }
+
+    /**
+     * Writes every line of a memory-mapped file to the output, each followed by a newline. Without
+     * line numbers the mapping is copied out in blocks, only rewriting line terminators to newlines.
+     *
+     * @param isLineNumber    Prefix lines with their corresponding line number
+     * @param firstLineNumber Line number of the first line read
+     * @param mappedFile      MappedFile to read the lines from
+     * @param output          OutputSink to write the lines to
+     * @return The line number following the last line written
+     * @throws IOException If the file cannot be mapped or the output cannot be written
+     */
+    private int writeMappedLines(boolean isLineNumber, int firstLineNumber, MappedFile mappedFile,
+                                 OutputSink output) throws IOException {
+        byte[] block = new byte[8192];
+        int lineNumber = firstLineNumber;
+        if (isLineNumber) {
+            MappedFile.LineCursor cursor = mappedFile.lines();
+            while (cursor.nextLine()) {
+                output.writeNumber(lineNumber);
+                output.write(' ');
+                for (int offset = 0; offset < cursor.getLength(); offset += block.length) {
+                    int length = Math.min(block.length, cursor.getLength() - offset);
+                    cursor.getBytes(offset, block, 0, length);
+                    output.write(block, 0, length);
+                }
+                output.write(NEWLINE_BYTES);
+                lineNumber++;
+            }
+            return lineNumber;
+        }
+
+        boolean isCarriageReturn = false;
+        boolean isLineOpen = false;
+        for (int i = 0; i < mappedFile.getChunkCount(); i++) {
+            ByteBuffer chunk = mappedFile.getChunk(i);
+            while (chunk.hasRemaining()) {
+                int length = Math.min(block.length, chunk.remaining());
+                chunk.get(block, 0, length);
+                int kept = 0;
+                for (int j = 0; j < length; j++) {
+                    byte value = block[j];
+                    if (value == '\n' && isCarriageReturn) {
+                        isCarriageReturn = false;
+                        continue;
+                    }
+                    isCarriageReturn = value == '\r';
+                    if (isCarriageReturn || value == '\n') {
+                        block[kept++] = '\n';
+                        lineNumber++;
+                        isLineOpen = false;
+                    } else {
+                        block[kept++] = value;
+                        isLineOpen = true;
+                    }
+                }
+                output.write(block, 0, kept);
+            }
+        }
+        if (isLineOpen) {
+            output.write(NEWLINE_BYTES);
+            lineNumber++;
+        }
+        return lineNumber;
+    }
+
+    /**
+     * Copies a file into the target channel with {@link FileChannel#transferTo}. The file is scanned
+     * for carriage returns, and only the runs of bytes between them are copied, so that every line
+     * still ends with a single newline. A missing newline at the end of the file is added.
+     *
+     * @param mappedFile MappedFile of the file to copy
+     * @param target     FileChannel of the output file
+     * @return true if the file has any line
+     * @throws IOException If the file cannot be read or the output cannot be written
+     */
+    private boolean transferLines(MappedFile mappedFile, FileChannel target) throws IOException {
+        FileChannel source = mappedFile.getChannel();
+        byte[] block = new byte[64 * 1024];
+        long runStart = 0;
+        long offset = 0;
+        byte last = '\n';
+        for (int i = 0; i < mappedFile.getChunkCount(); i++) {
+            ByteBuffer chunk = mappedFile.getChunk(i);
+            while (chunk.hasRemaining()) {
+                int length = Math.min(block.length, chunk.remaining());
+                chunk.get(block, 0, length);
+                for (int j = 0; j < length; j++) {
+                    if (block[j] == '\r') {
+                        // a carriage return ends the line on its own or together with a line feed
+                        transferRange(source, runStart, offset + j, target);
+                        target.write(ByteBuffer.wrap(NEWLINE_BYTES));
+                        runStart = offset + j + 1;
+                    } else if (block[j] == '\n' && last == '\r') {
+                        runStart = offset + j + 1;
+                    }
+                    last = block[j];
+                }
+                offset += length;
+            }
+        }
+        transferRange(source, runStart, offset, target);
+        if (last != '\n' && last != '\r') {
+            target.write(ByteBuffer.wrap(NEWLINE_BYTES));
+        }
+        return offset > 0;
+    }
+
+    private void transferRange(FileChannel source, long start, long end, FileChannel target) throws IOException {
+        long position = start;
+        while (position < end) {
+            long count = source.transferTo(position, end - position, target);
+            if (count == 0) {
+                throw new IOException(ERR_IO_EXCEPTION);
+            }
+            position += count;
+        }
+    }
+
+    private String withoutTrailingNewline(ByteArrayOutputStream output) {
+        String result = output.toString(StandardCharsets.UTF_8);
+        return result.endsWith(STRING_NEWLINE) ? result.substring(0, result.length() - STRING_NEWLINE.length()) : result;
+    }
 }
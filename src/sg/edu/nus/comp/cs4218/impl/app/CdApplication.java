@@ -1,9 +1,10 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.app.CdInterface;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.CdException;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
@@ -11,7 +12,6 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.attribute.PosixFilePermission;
@@ -24,7 +24,7 @@ public class CdApplication implements CdInterface {
     @Override
     public void changeToDirectory(String path) throws AbstractApplicationException {
         if (!path.isEmpty()) {
-            Environment.currentDirectory = getNormalizedAbsolutePath(path);
+            ShellContext.current().setCurrentDirectory(getNormalizedAbsolutePath(path));
         }
     }
 
@@ -61,14 +61,15 @@ public class CdApplication implements CdInterface {
         }
         Path path = new File(pathStr).toPath();
         if (!path.isAbsolute()) {
-            path = Paths.get(Environment.currentDirectory, pathStr);
+            path = Paths.get(ShellContext.current().getCurrentDirectory(), pathStr);
         }
 
-        if (!Files.exists(path)) {
+        FileAttributeCache attributes = FileAttributeCache.current();
+        if (!attributes.exists(path)) {
             throw new CdException(String.format(ERR_FILE_NOT_FOUND, pathStr));
         }
 
-        if (!Files.isDirectory(path)) {
+        if (!attributes.isDirectory(path)) {
             throw new CdException(String.format(ERR_IS_NOT_DIR, pathStr));
         }
 
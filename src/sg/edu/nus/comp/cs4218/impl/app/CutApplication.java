@@ -7,10 +7,15 @@ import sg.edu.nus.comp.cs4218.exception.CutException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.parser.CutArgsParser;
 import sg.edu.nus.comp.cs4218.impl.util.ErrorConstants;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
+import sg.edu.nus.comp.cs4218.impl.util.FileReadAhead;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.LineSource;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -22,6 +27,8 @@ import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_NO_PERM;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
 
 public class CutApplication implements CutInterface { //NOPMD - suppressed GodClass - class is not overly complex - it follows single responsibility principle and implements correct functionality in a modular fashion
+    private static final byte[] NEWLINE_BYTES = STRING_NEWLINE.getBytes(StandardCharsets.UTF_8);
+
     /**
      * Executes the Cut application with the given arguments, input stream, and output stream.
      *
@@ -58,15 +65,16 @@ public class CutApplication implements CutInterface { //NOPMD - suppressed GodCl
             throw new CutException(ErrorConstants.ERR_INVALID_FLAG);
         }
 
-        String result;
+        // lines are cut and written to stdout as they are read
+        OutputSink output = new OutputSink(stdout);
         if (fileNames.isEmpty() || (fileNames.size() == 1 && "-".equals(fileNames.get(0)))) {
-            result = cutFromStdin(isCharPo, isBytePo, ranges, stdin);
+            writeCutFromStdin(isCharPo, isBytePo, ranges, stdin, output);
         } else {
-            result = cutFromFiles(isCharPo, isBytePo, ranges, fileNames.toArray(new String[0]));
+            writeCutFromFiles(isCharPo, isBytePo, ranges, output, fileNames.toArray(new String[0]));
         }
 
         try {
-            stdout.write(result.getBytes(StandardCharsets.UTF_8));
+            output.flush();
         } catch (Exception e) {
             throw new CutException(ErrorConstants.ERR_WRITE_STREAM + ": " + e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
@@ -85,112 +93,160 @@ public class CutApplication implements CutInterface { //NOPMD - suppressed GodCl
      */
     @Override
     public String cutFromFiles(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, String... fileNames) throws CutException {
-        StringBuilder result = new StringBuilder();
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeCutFromFiles(isCharPo, isBytePo, ranges, output, fileNames);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Cuts out selected portions of each line
+     *
+     * @param isCharPo Boolean option to cut by character position
+     * @param isBytePo Boolean option to cut by byte position
+     * @param ranges   List of 2-element arrays containing the start and end indices for cut.
+     *                 For instance, cutting on the first column would be represented using a [1,1] array.
+     * @param stdin    InputStream containing arguments from Stdin
+     * @return
+     * @throws Exception
+     */
+    @Override
+    public String cutFromStdin(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, InputStream stdin) throws AbstractApplicationException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeCutFromStdin(isCharPo, isBytePo, ranges, stdin, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
 
-        List<String> lines = new ArrayList<>();
+    /**
+     * Cuts the lines of the given files and writes them to the output as they are read. All files
+     * are checked before any of them is read, so nothing is written if one of them is missing.
+     */
+    private void writeCutFromFiles(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, OutputStream output,
+                                   String... fileNames) throws CutException {
         for (String file : fileNames) {
             if ("-".equals(file)) {
                 continue;
             }
-            File node = IOUtils.resolveFilePath(file).toFile();
-            if (!node.exists()) {
+            Path node = IOUtils.resolveFilePath(file);
+            FileAttributeCache attributes = FileAttributeCache.current();
+            if (!attributes.exists(node)) {
                 throw new CutException(ERR_FILE_NOT_FOUND);
             }
-            if (node.isDirectory()) {
+            if (attributes.isDirectory(node)) {
                 throw new CutException(ERR_IS_DIR);
             }
-            if (!node.canRead()) {
+            if (!attributes.canRead(node)) {
                 throw new CutException(ERR_NO_PERM);
             }
-            InputStream input = null; //NOPMD - suppressed CloseResource - it is being closed below (using IOUtils.closeInputStream(input);)
+        }
 
-            try {
-                input = IOUtils.openInputStream(file);
-            } catch (ShellException e) {
-                throw new CutException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-            }
-            try {
-                lines.addAll(IOUtils.getLinesFromInputStream(input));
-            } catch (IOException e) {
-                throw new CutException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        try (FileReadAhead readAhead = IOUtils.readAhead(fileNames)) {
+            for (String file : fileNames) {
+                if ("-".equals(file)) {
+                    continue;
+                }
+                cutFile(isCharPo, isBytePo, ranges, readAhead, file, output);
             }
+        }
+    }
+
+    private void cutFile(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, FileReadAhead readAhead,
+                         String file, OutputStream output) throws CutException {
+        InputStream input; //NOPMD - suppressed CloseResource - it is being closed below (using IOUtils.closeInputStream(input);)
+        try {
+            input = IOUtils.openInputStream(readAhead, file);
+        } catch (ShellException e) {
+            throw new CutException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        }
+        try {
+            cutLines(isCharPo, isBytePo, ranges, new LineSource(input), output);
+        } catch (UncheckedIOException e) {
+            throw new CutException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        } catch (IOException e) {
+            throw new CutException(ErrorConstants.ERR_WRITE_STREAM + ": " + e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        } finally {
             try {
                 IOUtils.closeInputStream(input);
             } catch (ShellException e) {
                 throw new CutException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
             }
         }
-
-        result.append(cutFromStream(isCharPo, isBytePo, ranges, lines));
-        
-        return result.toString();
     }
 
     /**
-     * Cuts out selected portions of each line
-     *
-     * @param isCharPo Boolean option to cut by character position
-     * @param isBytePo Boolean option to cut by byte position
-     * @param ranges   List of 2-element arrays containing the start and end indices for cut.
-     *                 For instance, cutting on the first column would be represented using a [1,1] array.
-     * @param stdin    InputStream containing arguments from Stdin
-     * @return
-     * @throws Exception
+     * Cuts the lines of stdin and writes them to the output as they are read.
      */
-    @Override
-    public String cutFromStdin(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, InputStream stdin) throws AbstractApplicationException {
+    private void writeCutFromStdin(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, InputStream stdin,
+                                   OutputStream output) throws CutException {
         try {
             validateRanges(ranges);
         } catch (IllegalArgumentException e) {
             throw new CutException("Invalid range provided."); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
 
-        List<String> lines = null;
-        try {
-            lines = IOUtils.getLinesFromInputStream(stdin);
-        } catch (Exception e) {
-            throw new CutException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        if (stdin == null) {
+            throw new CutException(ERR_IO_EXCEPTION);
         }
-
         try {
-            return cutFromStream(isCharPo, isBytePo, ranges, lines);
-        } catch (Exception e) {
+            cutLines(isCharPo, isBytePo, ranges, new LineSource(stdin), output);
+        } catch (UncheckedIOException e) {
+            throw new CutException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        } catch (IOException e) {
+            throw new CutException(ErrorConstants.ERR_WRITE_STREAM + ": " + e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        } catch (RuntimeException e) {
             throw new CutException(ErrorConstants.ERR_READING_FILE + ": stdin"); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
     }
 
     /**
-     * Reads input from a stream or file and performs cuts based on the specified ranges.
+     * Cuts each line and writes it to the output, followed by a newline. Byte positions are cut
+     * straight from the bytes of the line; only character positions need the line decoded.
      *
      * @param isCharPo   a boolean indicating whether the ranges are character positions
      * @param isBytePo   a boolean indicating whether the ranges are byte positions
      * @param ranges     a list of integer arrays representing the start and end positions for each cut
-     * @param lines      list of lines (string type)
-     * @return a string containing the cuts made from the input
+     * @param lines      lines to cut, read one at a time
+     * @param output     OutputStream to write the cut lines to
+     * @throws IOException If the output cannot be written
      */
-    private String cutFromStream(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, List<String> lines) {
-        StringBuilder output = new StringBuilder();
+    private void cutLines(Boolean isCharPo, Boolean isBytePo, List<int[]> ranges, LineSource lines,
+                          OutputStream output) throws IOException {
+        StringBuilder lineOutput = new StringBuilder();
+        while (nextLine(lines)) {
+            byte[] lineBytes = lines.getBytes();
+            int length = lines.getLength();
+            if (isBytePo) {
+                for (int[] range : ranges) {
+                    int start = Math.max(0, range[0] - 1);
+                    if (start < length) {
+                        output.write(lineBytes, start, Math.min(length, range[1]) - start);
+                    }
+                }
+                output.write(NEWLINE_BYTES);
+                continue;
+            }
 
-        for (int i = 0; i < lines.size(); i++) {
-            StringBuilder lineOutput = new StringBuilder();
+            String line = new String(lineBytes, 0, length, StandardCharsets.UTF_8);
+            lineOutput.setLength(0);
             for (int[] range : ranges) {
                 int start = Math.max(0, range[0] - 1);
-                int end = range[1];
-                if (isCharPo && start < lines.get(i).length()) {
-                    end = Math.min(lines.get(i).length(), end);
-                    lineOutput.append(lines.get(i), start, end);
-                } else if (isBytePo) {
-                    byte[] lineBytes = lines.get(i).getBytes(StandardCharsets.UTF_8);
-                    if (start < lineBytes.length) {
-                        end = Math.min(lineBytes.length, end);
-                        lineOutput.append(new String(lineBytes, start, end - start, StandardCharsets.UTF_8));
-                    }
+                if (isCharPo && start < line.length()) {
+                    lineOutput.append(line, start, Math.min(line.length(), range[1]));
                 }
             }
-            output.append(lineOutput).append(STRING_NEWLINE);
+            output.write(lineOutput.append(STRING_NEWLINE).toString().getBytes(StandardCharsets.UTF_8));
         }
+    }
 
-        return output.toString();
+    /**
+     * Advances to the next line, reporting a failure to read as an UncheckedIOException so that
+     * it can be told apart from a failure to write.
+     */
+    private boolean nextLine(LineSource lines) {
+        try {
+            return lines.nextLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     /**
@@ -1,17 +1,39 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.app.GrepInterface;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.GrepException;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
+import sg.edu.nus.comp.cs4218.impl.util.FileReadAhead;
+import sg.edu.nus.comp.cs4218.impl.util.DfaLineMatcher;
+import sg.edu.nus.comp.cs4218.impl.util.FixedStringMatcher;
+import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.LineMatcher;
+import sg.edu.nus.comp.cs4218.impl.util.LineSource;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
+import sg.edu.nus.comp.cs4218.impl.util.MappedFile;
+import sg.edu.nus.comp.cs4218.impl.util.RegexLineMatcher;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Deque;
 import java.util.List;
-import java.util.StringJoiner;
-import java.util.regex.Matcher;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 import java.util.stream.Collectors;
@@ -28,16 +50,93 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
     public static final String NULL_POINTER = "Null Pointer Exception";
     public static final String STD_IN = "(standard input):";
 
-    private static final int NUM_ARGUMENTS = 3;
+    private static final byte[] NEWLINE_BYTES = STRING_NEWLINE.getBytes(StandardCharsets.UTF_8);
+    private static final int NUM_ARGUMENTS = 5;
     private static final char CASE_INSEN_IDENT = 'i';
     private static final char COUNT_IDENT = 'c';
     private static final char PREFIX_FN = 'H';
+    private static final char FIXED_IDENT = 'F';
+    private static final char DFA_IDENT = 'D';
+    private static final char PATTERN_IDENT = 'e';
+    private static final char PATTERN_FILE_IDENT = 'f';
     private static final int CASE_INSEN_IDX = 0;
     private static final int COUNT_INDEX = 1;
     private static final int PREFIX_FN_IDX = 2;
+    private static final int FIXED_IDX = 3;
+    private static final int DFA_IDX = 4;
+
+    /**
+     * The number of grep worker threads shared by every grep, however many run at once. Matching
+     * is bound by the processors, so more threads would not finish the work sooner. Workers never
+     * wait for one another, so tasks queued behind a busy pool always get to run.
+     */
+    public static final int WORKER_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private static final ExecutorService GREP_EXECUTOR = createExecutor();
+
+    /**
+     * The number of files grepped at once by default. On a single processor files are grepped one
+     * after another, as handing them to other threads would only add to the work.
+     */
+    public static final int DEFAULT_PARALLELISM = Runtime.getRuntime().availableProcessors();
+
+    private static ExecutorService createExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(WORKER_COUNT, WORKER_COUNT, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "grep-worker");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        // idle workers stop, as the threads of a cached pool do
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * The number of bytes of a large file or of stdin matched as one unit when grepping in parallel.
+     */
+    public static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+    private final int parallelism;
+
+    public GrepApplication() {
+        this(DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * @param parallelism the number of files to grep at once when given several files
+     */
+    public GrepApplication(int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Parallelism must be positive");
+        }
+        this.parallelism = parallelism;
+    }
 
     @Override
     public String grepFromFiles(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, Boolean isPrefixFileName, String... fileNames) throws AbstractApplicationException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeGrepFromFiles(pattern, isCaseInsensitive, isCountLines, isPrefixFileName, null, output, fileNames);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Greps the given files and writes the matching lines, or the count of matching lines of each
+     * file, to the output as they are found. Lines are read and written as bytes. Several files are
+     * grepped at once if the parallelism allows it, with the same output.
+     *
+     * @param pattern           supplied by user
+     * @param isCaseInsensitive supplied by user
+     * @param isCountLines      supplied by user
+     * @param isPrefixFileName  supplied by user
+     * @param compiled          the matcher of the patterns if it is already compiled, or null to
+     *                          compile the pattern once the first file is found
+     * @param output            an OutputStream to write the results to
+     * @param fileNames         a String Array of file names supplied by user
+     */
+    private void writeGrepFromFiles(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, //NOPMD - suppressed ExcessiveMethodLength - Method needs to be long to abide by the method requirements
+                                    Boolean isPrefixFileName, LineMatcher compiled, OutputStream output,
+                                    String... fileNames) throws AbstractApplicationException {
         if (fileNames == null || pattern == null) {
             throw new GrepException(NULL_POINTER);
         }
@@ -48,97 +147,443 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
             throw new GrepException(ERR_NO_INPUT);
         }
 
-        StringJoiner lineResults = new StringJoiner(STRING_NEWLINE);
-        StringJoiner countResults = new StringJoiner(STRING_NEWLINE);
+        boolean isSingleFile = (fileNames.length == 1);
+        List<Path> files = new ArrayList<>();
+        for (String f : fileNames) {
+            files.add(Paths.get(convertToAbsolutePath(f)));
+        }
+        if (parallelism > 1 && !isSingleFile) {
+            writeGrepInParallel(pattern, isCaseInsensitive, isCountLines, compiled, output, files, fileNames);
+            return;
+        }
+        LineMatcher matcher = compiled;
+        try (FileReadAhead readAhead = new FileReadAhead(files, FileReadAhead.DEFAULT_DEPTH)) {
+            for (int i = 0; i < fileNames.length; i++) {
+                String linePrefix = isSingleFile && !isPrefixFileName ? "" : fileNames[i] + ":";
+                matcher = grepFile(pattern, isCaseInsensitive, isCountLines, fileNames[i], files.get(i), linePrefix,
+                        matcher, readAhead, output);
+            }
+        }
+    }
 
-        grepResultsFromFiles(pattern, isCaseInsensitive, isPrefixFileName, lineResults, countResults, fileNames);
+    /**
+     * Greps several files at once on the grep worker threads and writes their results in the order
+     * the files were given, so the output is the same as grepping them one after another.
+     * <p>
+     * The results of each file are buffered until the files before it are written out. At most
+     * twice as many files as there are workers are grepped or buffered at a time. If grepping a
+     * file fails, the results before it are written out and its exception is thrown.
+     *
+     * @param compiled  the matcher of the patterns if it is already compiled, or null to compile
+     *                  the pattern once the first file is found
+     * @param output    an OutputStream to write the results to
+     * @param files     the absolute paths of the files
+     * @param fileNames the file names supplied by user
+     */
+    private void writeGrepInParallel(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, //NOPMD - suppressed ExcessiveParameterList - Parameters mirror writeGrepFromFiles
+                                     LineMatcher compiled, OutputStream output, List<Path> files,
+                                     String... fileNames) throws AbstractApplicationException {
+        ShellContext context = ShellContext.current();
+        FileAttributeCache attributes = FileAttributeCache.current();
+        ChunkQueue results = new ChunkQueue(output);
+        try {
+            for (int i = 0; i < fileNames.length; i++) {
+                String fileName = fileNames[i];
+                Path file = files.get(i);
+                results.submit(() -> {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    try (ShellContext.Scope session = context.activate();
+                         ShellContext.Scope scope = attributes.activate()) {
+                        // matchers keep state between lines, so every file is matched with one of its own.
+                        // The workers deliberately do without a FileReadAhead: it hands files out in order
+                        // to one thread and discards those skipped, whereas the workers open their files
+                        // out of order and already overlap one file's opening with the others' matching.
+                        // Passing none also keeps a worker from splitting its file into tasks of its own,
+                        // which would only queue behind the other files on the same bounded pool.
+                        grepFile(pattern, isCaseInsensitive, isCountLines, fileName, file, fileName + ":",
+                                compiled == null ? null : compiled.copy(), null, buffer);
+                    }
+                    return new ChunkResult(0, buffer);
+                });
+            }
+            results.finish();
+        } catch (IOException e) {
+            throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        } finally {
+            results.cancel();
+        }
+    }
 
-        String results = "";
-        if (isCountLines) {
-            results = countResults.toString() + STRING_NEWLINE;
-        } else {
-            if (!lineResults.toString().isEmpty()) {
-                results = lineResults.toString() + STRING_NEWLINE;
+    private static ChunkResult awaitResult(Future<ChunkResult> future) throws AbstractApplicationException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof AbstractApplicationException) {
+                throw (AbstractApplicationException) cause;
             }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
         }
-        return results;
     }
 
     /**
-     * Extract the lines and count number of lines for grep from files and insert them into
-     * lineResults and countResults respectively.
+     * Greps one file and writes its matching lines, or its count of matching lines, to the output.
+     * A file that does not exist or is a directory is reported on a line of its own instead.
      *
-     * @param pattern           supplied by user
-     * @param isCaseInsensitive supplied by user
-     * @param lineResults       a StringJoiner of the grep line results
-     * @param countResults      a StringJoiner of the grep line count results
-     * @param fileNames         a String Array of file names supplied by user
+     * @param fileName   the file name supplied by user
+     * @param file       the absolute path of the file
+     * @param linePrefix the prefix of each line written for the file
+     * @param matcher    the matcher of the patterns, or null to compile the pattern if the file is found
+     * @param readAhead  the files being read ahead, or null to open the file directly and grep it
+     *                   on the calling thread only
+     * @param output     an OutputStream to write the results to
+     * @return the matcher the file was grepped with, or the given matcher if it was not grepped
      */
-    private void grepResultsFromFiles(String pattern, Boolean isCaseInsensitive, //NOPMD - suppressed ExcessiveMethodLength - Method needs to be long to abide by the method requirements
-                                      Boolean isPrefixFileName, StringJoiner lineResults, StringJoiner countResults, String... fileNames) throws AbstractApplicationException {
-        int count;
-        boolean isSingleFile = (fileNames.length == 1);
-        for (String f : fileNames) {
-            BufferedReader reader = null;
-            try {
-                String path = convertToAbsolutePath(f);
-                File file = new File(path);
-                if (!file.exists()) {
-                    lineResults.add(f + ": " + ERR_FILE_NOT_FOUND);
-                    countResults.add(f + ": " + ERR_FILE_NOT_FOUND);
-                    continue;
+    private LineMatcher grepFile(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, //NOPMD - suppressed ExcessiveParameterList - Parameters mirror writeGrepFromFiles
+                                 String fileName, Path file, String linePrefix, LineMatcher matcher,
+                                 FileReadAhead readAhead, OutputStream output) throws AbstractApplicationException {
+        FileAttributeCache attributes = FileAttributeCache.current();
+        try {
+            if (!attributes.exists(file)) {
+                writeLine(output, fileName + ": " + ERR_FILE_NOT_FOUND);
+                return matcher;
+            }
+            if (attributes.isDirectory(file)) { // ignore if it's a directory
+                writeLine(output, fileName + ": " + IS_DIRECTORY);
+                return matcher;
+            }
+            LineMatcher fileMatcher = matcher == null
+                    ? new RegexLineMatcher(compilePattern(pattern, isCaseInsensitive)) : matcher;
+            byte[] prefix = isCountLines ? null : linePrefix.getBytes(StandardCharsets.UTF_8);
+            long count;
+            if (MappedFile.isWorthMapping(file)) {
+                try (MappedFile mappedFile = MappedFile.open(file)) {
+                    if (parallelism > 1 && readAhead != null) {
+                        count = grepMappedRanges(mappedFile, fileMatcher, prefix, output);
+                    } else {
+                        count = grepMappedLines(mappedFile.lines(), fileMatcher, prefix, output);
+                    }
                 }
-                if (file.isDirectory()) { // ignore if it's a directory
-                    lineResults.add(f + ": " + IS_DIRECTORY);
-                    countResults.add(f + ": " + IS_DIRECTORY);
-                    continue;
+            } else {
+                try (InputStream input = readAhead == null ? new FileInputStream(file.toFile()) : readAhead.open(file)) {
+                    count = grepLines(new LineSource(input), fileMatcher, prefix, output);
                 }
-                reader = new BufferedReader(new FileReader(path));
-                String line;
-                Pattern compiledPattern;
-                if (isCaseInsensitive) {
-                    compiledPattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-                } else {
-                    compiledPattern = Pattern.compile(pattern);
+            }
+            if (isCountLines) {
+                writeLine(output, linePrefix + count);
+            }
+            return fileMatcher;
+        } catch (PatternSyntaxException pse) {
+            throw new IllegalArgumentException(pse);
+        } catch (FileNotFoundException e) {
+            throw new GrepException(ERR_FILE_NOT_FOUND); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        } catch (IOException e) {
+            throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        }
+    }
+
+    /**
+     * Greps a large file in ranges of about {@link #CHUNK_SIZE} bytes that start and end at line
+     * boundaries, matching the ranges at once on the grep worker threads and writing their results
+     * in order.
+     *
+     * @param mappedFile the file to grep
+     * @param matcher    the matcher of the patterns supplied by user
+     * @param prefix     the prefix of each matching line, or null to only count the matching lines
+     * @param output     an OutputStream to write the matching lines to
+     * @return the number of matching lines
+     */
+    private long grepMappedRanges(MappedFile mappedFile, LineMatcher matcher, byte[] prefix, OutputStream output)
+            throws IOException, AbstractApplicationException {
+        ChunkQueue results = new ChunkQueue(output);
+        try {
+            long start = 0;
+            while (start < mappedFile.size()) {
+                long rangeStart = start;
+                long rangeEnd = mappedFile.nextLineStart(start + CHUNK_SIZE);
+                results.submit(() -> {
+                    ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                    long count = grepMappedLines(mappedFile.lines(rangeStart, rangeEnd), matcher.copy(), prefix, buffer);
+                    return new ChunkResult(count, buffer);
+                });
+                start = rangeEnd;
+            }
+            return results.finish();
+        } finally {
+            results.cancel();
+        }
+    }
+
+    /**
+     * Greps stdin in blocks of about {@link #CHUNK_SIZE} bytes that end at line boundaries, matching
+     * the blocks at once on the grep worker threads and writing their results in order.
+     * <p>
+     * A block is only handed to a worker once it is full. Whenever stdin has no more bytes ready,
+     * the blocks handed over so far are written out and the complete lines read since are matched
+     * in place on the calling thread, so that lines written slowly into a pipe are still passed on
+     * as they come. Stdin then limits the pace, not matching, so nothing is lost by not waiting for
+     * a full block. A new block is allocated only when one is handed over, however short the reads.
+     *
+     * @param stdin   an InputStream to read the lines from
+     * @param matcher the matcher of the patterns supplied by user
+     * @param prefix  the prefix of each matching line, or null to only count the matching lines
+     * @param output  an OutputStream to write the matching lines to
+     * @return the number of matching lines
+     */
+    private long grepBlocks(InputStream stdin, LineMatcher matcher, byte[] prefix, OutputStream output)
+            throws IOException, AbstractApplicationException {
+        ChunkQueue results = new ChunkQueue(output);
+        long count = 0;
+        byte[] block = new byte[CHUNK_SIZE];
+        int length = 0;
+        byte[] heldBlock = null; // the last full block, submitted once it is known not to be the only one
+        int heldLength = 0;
+        try {
+            while (true) {
+                int read = stdin.read(block, length, block.length - length);
+                if (read > 0) {
+                    length += read;
                 }
-                count = 0;
-                while ((line = reader.readLine()) != null) {
-                    Matcher matcher = compiledPattern.matcher(line);
-                    if (matcher.find()) { // match
-                        if (isSingleFile && !isPrefixFileName) {
-                            lineResults.add(line);
-                        } else {
-                            lineResults.add(f + ":" + line);
-                        }
-                        count++;
+                boolean isEnd = read < 0;
+                boolean isReady = !isEnd && stdin.available() > 0;
+                if (length == block.length) {
+                    int cut = findLineEnd(block, length);
+                    if (cut == 0) {
+                        block = Arrays.copyOf(block, block.length * 2); // a line longer than a block
+                        continue;
                     }
+                    if (heldBlock != null) {
+                        byte[] lines = heldBlock;
+                        int linesLength = heldLength;
+                        results.submit(() -> grepBlock(lines, linesLength, matcher.copy(), prefix));
+                    }
+                    heldBlock = block;
+                    heldLength = cut;
+                    // the incomplete last line moves to a new block, with room left to read into
+                    block = new byte[Math.max(CHUNK_SIZE, (length - cut) * 2)];
+                    System.arraycopy(heldBlock, cut, block, 0, length - cut);
+                    length -= cut;
                 }
-                if (isSingleFile && !isPrefixFileName) {
-                    countResults.add("" + count);
-                } else {
-                    countResults.add(f + ":" + count);
+                if (!isReady) {
+                    // stdin is slower than matching, or finished, so the lines read so far are written out now
+                    count += results.finish();
+                    if (heldBlock != null) {
+                        count += grepLines(heldBlock, heldLength, matcher, prefix, output);
+                        heldBlock = null;
+                    }
+                    int cut = isEnd ? length : findLineEnd(block, length);
+                    count += grepLines(block, cut, matcher, prefix, output);
+                    System.arraycopy(block, cut, block, 0, length - cut);
+                    length -= cut;
+                }
+                if (isEnd) {
+                    return count;
+                }
+            }
+        } finally {
+            results.cancel();
+        }
+    }
+
+    /**
+     * Returns the length of the leading complete lines of a block, or 0 if it holds no complete
+     * line. A carriage return at the very end is not a complete line yet, as a line feed may follow.
+     */
+    private static int findLineEnd(byte[] block, int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (block[i] == '\n' || block[i] == '\r' && i < length - 1) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private ChunkResult grepBlock(byte[] lines, int length, LineMatcher matcher, byte[] prefix) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        long count = grepLines(lines, length, matcher, prefix, buffer);
+        return new ChunkResult(count, buffer);
+    }
+
+    /**
+     * Matches the lines at the start of a block in place, splitting them as {@link LineSource} does:
+     * at a line feed, a carriage return or a carriage return followed by a line feed.
+     *
+     * @param lines   the block holding the lines
+     * @param length  the number of bytes of the block to match
+     * @param matcher the matcher of the patterns supplied by user
+     * @param prefix  the prefix of each matching line, or null to only count the matching lines
+     * @param output  an OutputStream to write the matching lines to
+     * @return the number of matching lines
+     * @throws IOException if the lines cannot be written
+     */
+    private long grepLines(byte[] lines, int length, LineMatcher matcher, byte[] prefix, OutputStream output)
+            throws IOException {
+        long count = 0;
+        int start = 0;
+        for (int i = 0; i <= length; i++) {
+            boolean isLineEnd = i == length ? start < length : lines[i] == '\n' || lines[i] == '\r';
+            if (!isLineEnd) {
+                continue;
+            }
+            if (matcher.matches(lines, start, i - start)) { // match
+                if (prefix != null) {
+                    output.write(prefix);
+                    output.write(lines, start, i - start);
+                    output.write(NEWLINE_BYTES);
+                }
+                count++;
+            }
+            if (i + 1 < length && lines[i] == '\r' && lines[i + 1] == '\n') {
+                i++;
+            }
+            start = i + 1;
+        }
+        return count;
+    }
+
+    /**
+     * Matches each line against the patterns and writes the matching lines to the output unchanged.
+     *
+     * @param lines   the lines to match, read one at a time
+     * @param matcher the matcher of the patterns supplied by user
+     * @param prefix  the prefix of each matching line, or null to only count the matching lines
+     * @param output  an OutputStream to write the matching lines to
+     * @return the number of matching lines
+     * @throws IOException if the lines cannot be read or written
+     */
+    private long grepLines(LineSource lines, LineMatcher matcher, byte[] prefix, OutputStream output) throws IOException {
+        long count = 0;
+        while (lines.nextLine()) {
+            byte[] bytes = lines.getBytes();
+            int length = lines.getLength();
+            if (matcher.matches(bytes, 0, length)) { // match
+                if (prefix != null) {
+                    output.write(prefix);
+                    output.write(bytes, 0, length);
+                    output.write(NEWLINE_BYTES);
                 }
-                reader.close();
-            } catch (PatternSyntaxException pse) {
-                throw new IllegalArgumentException(pse);
-            } catch (FileNotFoundException e) {
-                throw new GrepException(ERR_FILE_NOT_FOUND); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
-            } catch (IOException e) {
-                throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
-            } finally {
-                if (reader != null) {
-                    try {
-                        reader.close();
-                    } catch (IOException e) {
-                        throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Matches the lines of a large file read through a memory mapping, so that ASCII lines are
+     * matched in place without being copied out of the mapping first.
+     *
+     * @param cursor  the lines of the file
+     * @param matcher the matcher of the patterns supplied by user
+     * @param prefix  the prefix of each matching line, or null to only count the matching lines
+     * @param output  an OutputStream to write the matching lines to
+     * @return the number of matching lines
+     * @throws IOException if the file cannot be mapped or the lines cannot be written
+     */
+    private long grepMappedLines(MappedFile.LineCursor cursor, LineMatcher matcher, byte[] prefix, OutputStream output)
+            throws IOException {
+        byte[] block = new byte[8192];
+        long count = 0;
+        while (cursor.nextLine()) {
+            if (matcher.matches(cursor)) { // match
+                if (prefix != null) {
+                    output.write(prefix);
+                    for (int offset = 0; offset < cursor.getLength(); offset += block.length) {
+                        int length = Math.min(block.length, cursor.getLength() - offset);
+                        cursor.getBytes(offset, block, 0, length);
+                        output.write(block, 0, length);
                     }
+                    output.write(NEWLINE_BYTES);
                 }
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private Pattern compilePattern(String pattern, Boolean isCaseInsensitive) {
+        return ShellContext.current().getPatternCache().compile(pattern, isCaseInsensitive ? Pattern.CASE_INSENSITIVE : 0);
+    }
+
+    /**
+     * Compiles the pattern for grepping stdin, reporting an invalid pattern as such.
+     */
+    private LineMatcher compileMatcher(String pattern, Boolean isCaseInsensitive) throws GrepException {
+        try {
+            return new RegexLineMatcher(compilePattern(pattern, isCaseInsensitive));
+        } catch (PatternSyntaxException pse) {
+            throw (GrepException) new GrepException(INVALID_PATTERN).initCause(pse);
+        }
+    }
+
+    /**
+     * Compiles the pattern into a lazily built automaton, which matches in time linear in the length
+     * of each line, unless the pattern uses a construct the automaton does not support, such as a
+     * backreference or a bounded repetition.
+     */
+    private LineMatcher compileDfaMatcher(String pattern, Boolean isCaseInsensitive) throws GrepException {
+        try {
+            Pattern compiled = compilePattern(pattern, isCaseInsensitive);
+            LineMatcher matcher = DfaLineMatcher.compile(compiled);
+            return matcher == null ? new RegexLineMatcher(compiled) : matcher;
+        } catch (PatternSyntaxException pse) {
+            throw (GrepException) new GrepException(INVALID_PATTERN).initCause(pse);
+        }
+    }
+
+    /**
+     * Compiles a matcher for lines matching any of the patterns. Fixed strings are searched for
+     * byte by byte, without a regular expression, unless there are too many of them for one
+     * automaton; several regular expressions are combined into one alternation.
+     *
+     * @param patterns          the patterns supplied by user, none of them empty
+     * @param isCaseInsensitive supplied by user
+     * @param isFixedStrings    whether the patterns are literal strings rather than regular expressions
+     * @param isDfa             whether to match regular expressions with an automaton rather than by backtracking
+     */
+    private LineMatcher compileMatcher(List<String> patterns, Boolean isCaseInsensitive, Boolean isFixedStrings,
+                                       Boolean isDfa) throws GrepException {
+        if (isFixedStrings) {
+            LineMatcher matcher = FixedStringMatcher.compile(patterns, isCaseInsensitive);
+            if (matcher != null) {
+                return matcher;
             }
         }
+        StringBuilder regex = new StringBuilder();
+        for (String pattern : patterns) {
+            if (regex.length() > 0) {
+                regex.append('|');
+            }
+            regex.append("(?:").append(isFixedStrings ? Pattern.quote(pattern) : pattern).append(')');
+        }
+        String combined = patterns.size() == 1 ? patterns.get(0) : regex.toString();
+        return isDfa ? compileDfaMatcher(combined, isCaseInsensitive) : compileMatcher(combined, isCaseInsensitive);
+    }
+
+    private void writeLine(OutputStream output, String line) throws IOException {
+        output.write(line.getBytes(StandardCharsets.UTF_8));
+        output.write(NEWLINE_BYTES);
     }
 
     @Override
     public String grepFromFileAndStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, Boolean isPrefixFileName, InputStream stdin, String... fileNames) throws AbstractApplicationException {
+        return grepFromFileAndStdin(pattern, isCaseInsensitive, isCountLines, isPrefixFileName, stdin, null, fileNames);
+    }
+
+    /**
+     * Greps stdin, given as "-", together with the given files.
+     *
+     * @param compiled the matcher of the patterns if it is already compiled, or null to compile
+     *                 the pattern
+     */
+    private String grepFromFileAndStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, //NOPMD - suppressed ExcessiveParameterList - Parameters mirror the interface method
+                                        Boolean isPrefixFileName, InputStream stdin, LineMatcher compiled,
+                                        String... fileNames) throws AbstractApplicationException {
         if (fileNames == null || pattern == null) {
             throw new GrepException(NULL_POINTER);
         }
@@ -150,14 +595,17 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
         }
 
         boolean isSingleFile = (fileNames.length == 1);
+        // the pattern is compiled once and shared by stdin and every file
+        LineMatcher matcher = compiled == null ? compileMatcher(pattern, isCaseInsensitive) : compiled;
         StringBuilder stringBuilder = new StringBuilder();
         for (String f : fileNames) {
-            String result;
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
             if ("-".equals(f)) {
-                result = grepFromStdin(pattern, isCaseInsensitive, isCountLines, isPrefixFileName, stdin);
+                writeGrepFromStdin(pattern, isCaseInsensitive, isCountLines, isPrefixFileName, stdin, matcher, output);
             } else {
-                result = grepFromFiles(pattern, isCaseInsensitive, isCountLines, isPrefixFileName, f);
+                writeGrepFromFiles(pattern, isCaseInsensitive, isCountLines, isPrefixFileName, matcher, output, f);
             }
+            String result = output.toString(StandardCharsets.UTF_8);
             if (isSingleFile || isPrefixFileName) {
                 stringBuilder.append(result);
             } else {
@@ -183,7 +631,7 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
      */
     private String convertToAbsolutePath(String fileName) {
         String home = System.getProperty("user.home").trim();
-        String currentDir = Environment.currentDirectory.trim();
+        String currentDir = ShellContext.current().getCurrentDirectory().trim();
         String convertedPath = convertPathToSystemPath(fileName);
 
         String newPath;
@@ -215,7 +663,28 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
     }
 
     @Override
-    public String grepFromStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, Boolean isPrefixFileName, InputStream stdin) throws AbstractApplicationException {  //NOPMD - suppressed ExcessiveMethodLength - Method needs to be long to abide by the method requirements
+    public String grepFromStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines, Boolean isPrefixFileName, InputStream stdin) throws AbstractApplicationException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        writeGrepFromStdin(pattern, isCaseInsensitive, isCountLines, isPrefixFileName, stdin, null, output);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Greps stdin and writes the matching lines, or the count of matching lines, to the output as
+     * they are found. Lines are read and written as bytes.
+     *
+     * @param pattern           supplied by user
+     * @param isCaseInsensitive supplied by user
+     * @param isCountLines      supplied by user
+     * @param isPrefixFileName  supplied by user
+     * @param stdin             an InputStream to read the lines from
+     * @param compiled          the matcher of the patterns if it is already compiled, or null to compile
+     *                          the pattern
+     * @param output            an OutputStream to write the results to
+     */
+    private void writeGrepFromStdin(String pattern, Boolean isCaseInsensitive, Boolean isCountLines,
+                                    Boolean isPrefixFileName, InputStream stdin, LineMatcher compiled,
+                                    OutputStream output) throws AbstractApplicationException {
         if (pattern == null) {
             throw new GrepException(NULL_POINTER);
         }
@@ -226,82 +695,60 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
             throw new GrepException(ERR_NO_INPUT);
         }
 
-        int count = 0;
-        StringJoiner stringJoiner = new StringJoiner(STRING_NEWLINE);
+        LineMatcher matcher = compiled == null ? compileMatcher(pattern, isCaseInsensitive) : compiled;
 
+        // add 'standard input' prefix if -H flag is set
+        String linePrefix = isPrefixFileName ? STD_IN : "";
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(stdin));
-            String line;
-            Pattern compiledPattern;
-            if (isCaseInsensitive) {
-                compiledPattern = Pattern.compile(pattern, Pattern.CASE_INSENSITIVE);
-            } else {
-                compiledPattern = Pattern.compile(pattern);
+            byte[] prefix = isCountLines ? null : linePrefix.getBytes(StandardCharsets.UTF_8);
+            long count = parallelism > 1 ? grepBlocks(stdin, matcher, prefix, output)
+                    : grepLines(new LineSource(stdin), matcher, prefix, output);
+            if (isCountLines) {
+                writeLine(output, linePrefix + count);
             }
-            while ((line = reader.readLine()) != null) {
-                Matcher matcher = compiledPattern.matcher(line);
-                if (matcher.find()) { // match
-                    // add 'standard input' prefix if -H flag is set
-                    if (isPrefixFileName) {
-                        stringJoiner.add(STD_IN + line);
-                    } else {
-                        stringJoiner.add(line);
-                    }
-                    count++;
-                }
-            }
-            reader.close();
-        } catch (PatternSyntaxException pse) {
-            throw (GrepException)new GrepException(INVALID_PATTERN).initCause(pse);
-        } catch (NullPointerException npe) {
-            throw new GrepException(ERR_FILE_NOT_FOUND); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
         } catch (IOException e) {
             throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
         }
-
-        String results = "";
-        if (isCountLines) {
-            if (isPrefixFileName) {
-                results = STD_IN + count + STRING_NEWLINE;
-            } else {
-                results = count + STRING_NEWLINE;
-            }
-        } else {
-            if (!stringJoiner.toString().isEmpty()) {
-                results = stringJoiner.toString() + STRING_NEWLINE;
-            }
-        }
-        return results;
     }
 
     @Override
     public void run(String[] args, InputStream stdin, OutputStream stdout) throws AbstractApplicationException {
         try {
             boolean[] grepFlags = new boolean[NUM_ARGUMENTS];
+            List<String> patterns = new ArrayList<>();
             ArrayList<String> inputFiles = new ArrayList<>();
-            String pattern = getGrepArguments(args, grepFlags, inputFiles);
+            getGrepArguments(args, grepFlags, patterns, inputFiles);
             String result = "";
+            OutputSink output = new OutputSink(stdout);
 
             if (stdin == null && inputFiles.isEmpty()) {
                 throw new Exception(ERR_NO_INPUT);
             }
-            if (pattern == null) {
+            if (patterns.isEmpty()) {
                 throw new Exception(ERR_SYNTAX);
             }
 
-            if (pattern.isEmpty()) {
+            if (patterns.contains("")) {
                 throw new Exception(EMPTY_PATTERN);
             } else {
+                String pattern = patterns.get(0);
+                // a single regular expression keeps being compiled only once there is input to match
+                LineMatcher matcher = null;
+                if (grepFlags[FIXED_IDX] || grepFlags[DFA_IDX] || patterns.size() > 1) {
+                    matcher = compileMatcher(patterns, grepFlags[CASE_INSEN_IDX], grepFlags[FIXED_IDX],
+                            grepFlags[DFA_IDX]);
+                }
+                // matching lines are streamed to stdout as they are found, except when mixing files with stdin
                 if (inputFiles.isEmpty()) {
-                    result = grepFromStdin(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], grepFlags[PREFIX_FN_IDX], stdin);
+                    writeGrepFromStdin(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], grepFlags[PREFIX_FN_IDX], stdin, matcher, output);
                 } else {
                     String[] inputFilesArray = new String[inputFiles.size()];
                     inputFilesArray = inputFiles.toArray(inputFilesArray);
 
                     if (inputFiles.contains("-")) {
-                        result = grepFromFileAndStdin(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], grepFlags[PREFIX_FN_IDX], stdin, inputFilesArray);
+                        result = grepFromFileAndStdin(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], grepFlags[PREFIX_FN_IDX], stdin, matcher, inputFilesArray);
                     } else {
-                        result = grepFromFiles(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], grepFlags[PREFIX_FN_IDX], inputFilesArray);
+                        writeGrepFromFiles(pattern, grepFlags[CASE_INSEN_IDX], grepFlags[COUNT_INDEX], grepFlags[PREFIX_FN_IDX], matcher, output, inputFilesArray);
                     }
                 }
             }
@@ -309,7 +756,8 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
             if (!result.isEmpty() && !result.endsWith(STRING_NEWLINE)) {
                 result += STRING_NEWLINE;
             }
-            stdout.write(result.getBytes());
+            output.write(result.getBytes(StandardCharsets.UTF_8));
+            output.flush();
         } catch (GrepException grepException) {
             throw grepException;
         } catch (Exception e) {
@@ -318,45 +766,154 @@ public class GrepApplication implements GrepInterface { //NOPMD - suppressed God
     }
 
     /**
-     * Separates the arguments provided by user into the flags, pattern and input files.
+     * Separates the arguments provided by user into the flags, patterns and input files. Patterns
+     * given with -e, or read one per line from a file given with -f, may be repeated; the first
+     * argument that is not a flag is then a file rather than the pattern.
      *
      * @param args       supplied by user
      * @param grepFlags  a bool array of possible flags in grep
+     * @param patterns   a List<String> to add the patterns supplied by user to
      * @param inputFiles a ArrayList<String> of file names supplied by user
-     * @return regex pattern supplied by user. An empty String if not supplied.
      */
-    private String getGrepArguments(String[] args, boolean[] grepFlags, ArrayList<String> inputFiles) throws AbstractApplicationException {
-        String pattern = null;
+    private void getGrepArguments(String[] args, boolean[] grepFlags, List<String> patterns, //NOPMD - suppressed ExcessiveMethodLength - Method needs to be long to parse every flag
+                                  ArrayList<String> inputFiles) throws AbstractApplicationException {
         boolean isFile = false; // files can only appear after pattern
+        boolean hasPatternFlag = false;
 
-        for (String s : args) {
-            char[] arg = s.toCharArray();
+        for (int i = 0; i < args.length; i++) {
+            String s = args[i];
             if (isFile) {
                 inputFiles.add(s);
-            } else {
-                if (!s.isEmpty() && arg[0] == CHAR_FLAG_PREFIX) {
-                    arg = Arrays.copyOfRange(arg, 1, arg.length);
-                    for (char c : arg) {
-                        switch (c) {
-                            case CASE_INSEN_IDENT:
-                                grepFlags[CASE_INSEN_IDX] = true;
-                                break;
-                            case COUNT_IDENT:
-                                grepFlags[COUNT_INDEX] = true;
-                                break;
-                            case PREFIX_FN:
-                                grepFlags[PREFIX_FN_IDX] = true;
-                                break;
-                            default:
-                                throw new GrepException(ERR_SYNTAX);
+            } else if (!s.isEmpty() && s.charAt(0) == CHAR_FLAG_PREFIX && !(hasPatternFlag && s.length() == 1)) {
+                for (int j = 1; j < s.length(); j++) {
+                    char c = s.charAt(j);
+                    if (c == PATTERN_IDENT || c == PATTERN_FILE_IDENT) {
+                        // the rest of the argument, or else the next argument, is the pattern or its file
+                        String value;
+                        if (j + 1 < s.length()) {
+                            value = s.substring(j + 1);
+                        } else if (i + 1 < args.length) {
+                            value = args[++i];
+                        } else {
+                            throw new GrepException(ERR_SYNTAX);
+                        }
+                        if (c == PATTERN_IDENT) {
+                            patterns.add(value);
+                        } else {
+                            patterns.addAll(readPatternFile(value));
                         }
+                        hasPatternFlag = true;
+                        break;
                     }
-                } else { // pattern must come before file names
-                    pattern = s;
-                    isFile = true; // next arg onwards will be file
+                    switch (c) {
+                        case CASE_INSEN_IDENT:
+                            grepFlags[CASE_INSEN_IDX] = true;
+                            break;
+                        case COUNT_IDENT:
+                            grepFlags[COUNT_INDEX] = true;
+                            break;
+                        case PREFIX_FN:
+                            grepFlags[PREFIX_FN_IDX] = true;
+                            break;
+                        case FIXED_IDENT:
+                            grepFlags[FIXED_IDX] = true;
+                            break;
+                        case DFA_IDENT:
+                            grepFlags[DFA_IDX] = true;
+                            break;
+                        default:
+                            throw new GrepException(ERR_SYNTAX);
+                    }
+                }
+            } else { // pattern must come before file names
+                if (!hasPatternFlag) {
+                    patterns.add(s);
+                } else {
+                    inputFiles.add(s);
                 }
+                isFile = true; // next arg onwards will be file
+            }
+        }
+    }
+
+    /**
+     * Reads the patterns of a pattern file given with -f, one per line.
+     *
+     * @param fileName supplied by user
+     * @return the lines of the file
+     */
+    private List<String> readPatternFile(String fileName) throws GrepException {
+        try {
+            return Files.readAllLines(IOUtils.resolveFilePath(fileName), StandardCharsets.UTF_8);
+        } catch (NoSuchFileException e) {
+            throw new GrepException(fileName + ": " + ERR_FILE_NOT_FOUND); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        } catch (IOException e) {
+            throw new GrepException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        }
+    }
+
+    /**
+     * The matching lines and the number of matching lines of one file, range or block.
+     */
+    private static final class ChunkResult {
+        private final long count;
+        private final ByteArrayOutputStream lines;
+
+        ChunkResult(long count, ByteArrayOutputStream lines) {
+            this.count = count;
+            this.lines = lines;
+        }
+    }
+
+    /**
+     * Runs chunks of a grep on the grep worker threads and writes their results in the order they
+     * were submitted. At most twice as many chunks as the parallelism are run or buffered at a time;
+     * submitting another waits for the oldest one to be written out first.
+     */
+    private final class ChunkQueue {
+        private final Deque<Future<ChunkResult>> pending = new ArrayDeque<>();
+        private final OutputStream output;
+        private long count;
+
+        ChunkQueue(OutputStream output) {
+            this.output = output;
+        }
+
+        void submit(Callable<ChunkResult> chunk) throws IOException, AbstractApplicationException {
+            while (pending.size() >= parallelism * 2) {
+                writeNext();
             }
+            pending.addLast(GREP_EXECUTOR.submit(chunk));
+        }
+
+        /**
+         * Writes out the results of every chunk submitted so far, and returns the number of matching
+         * lines counted since the last call. If a chunk failed, the results before it are written
+         * out and its exception is thrown.
+         */
+        long finish() throws IOException, AbstractApplicationException {
+            while (!pending.isEmpty()) {
+                writeNext();
+            }
+            long total = count;
+            count = 0;
+            return total;
+        }
+
+        /**
+         * Cancels the chunks that were not written out, e.g. after one of them failed.
+         */
+        void cancel() {
+            for (Future<ChunkResult> future : pending) {
+                future.cancel(true);
+            }
+            pending.clear();
+        }
+
+        private void writeNext() throws IOException, AbstractApplicationException {
+            ChunkResult result = awaitResult(pending.removeFirst());
+            result.lines.writeTo(output);
+            count += result.count;
         }
-        return pattern;
     }
 }
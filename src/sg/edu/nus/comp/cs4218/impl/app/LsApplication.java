@@ -1,21 +1,28 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.app.LsInterface;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.InvalidArgsException;
 import sg.edu.nus.comp.cs4218.exception.LsException;
 import sg.edu.nus.comp.cs4218.impl.parser.LsArgsParser;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
 import sg.edu.nus.comp.cs4218.impl.util.StringUtils;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.*;
@@ -33,8 +40,24 @@ public class LsApplication implements LsInterface {
     @Override
     public String listFolderContent(Boolean isRecursive, Boolean isSortByExt,
                                     String... folderName) throws AbstractApplicationException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(output)) {
+            writeFolderContent(isRecursive, isSortByExt, sink, folderName);
+        } catch (IOException e) {
+            throw new LsException(ERR_WRITE_STREAM); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        }
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes the listing of the given folders to the output as each directory is listed, rather
+     * than once the whole listing is built.
+     */
+    private void writeFolderContent(Boolean isRecursive, Boolean isSortByExt, OutputSink output,
+                                    String... folderName) throws AbstractApplicationException, IOException {
         if (folderName.length == 0 && !isRecursive) { // no args no recursive, just list cwd
-            return listCwdContent(isSortByExt);
+            output.write(listCwdContent(isSortByExt));
+            return;
         }
 
         List<Path> paths;
@@ -43,12 +66,12 @@ public class LsApplication implements LsInterface {
 //            directories[0] = Environment.currentDirectory;
 //            paths = resolvePaths(directories);
             paths = new ArrayList<>();
-            paths.add(Paths.get(Environment.currentDirectory));
+            paths.add(Paths.get(ShellContext.current().getCurrentDirectory()));
         } else {
             paths = resolvePaths(folderName);
         }
 
-        return buildResult(paths, isRecursive, isSortByExt);
+        buildResult(paths, isRecursive, isSortByExt, new TrimmedOutput(output));
     }
 
     @Override
@@ -73,12 +96,13 @@ public class LsApplication implements LsInterface {
         Boolean sortByExt = parser.isSortByExt();
         String[] directories = parser.getDirectories()
                 .toArray(new String[parser.getDirectories().size()]);
-        String result = listFolderContent(recursive, sortByExt, directories);
 
         try {
-            stdout.write(result.getBytes());
-            stdout.write(StringUtils.STRING_NEWLINE.getBytes());
-        } catch (Exception e) {
+            OutputSink output = new OutputSink(stdout);
+            writeFolderContent(recursive, sortByExt, output, directories);
+            output.write(StringUtils.STRING_NEWLINE);
+            output.flush();
+        } catch (IOException e) {
             throw new LsException(ERR_WRITE_STREAM); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
         }
     }
@@ -91,7 +115,7 @@ public class LsApplication implements LsInterface {
      * @return
      */
     private String listCwdContent(Boolean isSortByExt) throws AbstractApplicationException {
-        String cwd = Environment.currentDirectory;
+        String cwd = ShellContext.current().getCurrentDirectory();
         try {
             return formatContents(getContents(Paths.get(cwd)), isSortByExt);
         } catch (InvalidDirectoryException e) {
@@ -100,20 +124,23 @@ public class LsApplication implements LsInterface {
     }
 
     /**
-     * Builds the resulting string to be written into the output stream.
+     * Writes the listing of the given paths into the output stream, trimmed of leading and
+     * trailing whitespace.
      * <p>
      * NOTE: This is recursively called if user wants recursive mode.
      *
      * @param paths       - list of java.nio.Path objects to list
      * @param isRecursive - recursive mode, repeatedly ls the child directories
      * @param isSortByExt - sorts folder contents alphabetically by file extension (characters after the last ‘.’ (without quotes)). Files with no extension are sorted first.
-     * @return String to be written to output stream.
+     * @param result      - output the listing is written to
      */
-    private String buildResult(List<Path> paths, Boolean isRecursive, Boolean isSortByExt) { //NOPMD - suppressed ExcessiveMethodLength - Method needs to be long to abide by the method requirements
-        StringBuilder result = new StringBuilder();
+    private void buildResult(List<Path> paths, Boolean isRecursive, Boolean isSortByExt, TrimmedOutput result) //NOPMD - suppressed ExcessiveMethodLength - Method needs to be long to abide by the method requirements
+            throws IOException {
+        result.begin();
         for (Path path : paths) {
             // if file exists and file not directory, we append to result
-            if (Files.exists(path) && !Files.isDirectory(path)) {
+            FileAttributeCache attributes = FileAttributeCache.current();
+            if (attributes.exists(path) && !attributes.isDirectory(path)) {
                 result.append(path.getFileName().toString());
                 result.append(StringUtils.STRING_NEWLINE);
             } else {
@@ -135,8 +162,8 @@ public class LsApplication implements LsInterface {
                     // RECURSE!
                     if (isRecursive) {
                         // filter for directories in contents
-                        contents.removeIf(p -> !Files.isDirectory(p));
-                        result.append(buildResult(contents, isRecursive, isSortByExt));
+                        contents.removeIf(p -> !attributes.isDirectory(p));
+                        buildResult(contents, isRecursive, isSortByExt, result);
                         // if buildResult returns empty, we don't want to append an additional new line
                         if (!contents.isEmpty()) {
                             result.append(StringUtils.STRING_NEWLINE + StringUtils.STRING_NEWLINE);
@@ -159,7 +186,7 @@ public class LsApplication implements LsInterface {
 
         }
 
-        return result.toString().trim();
+        result.end();
     }
 
     /**
@@ -203,11 +230,12 @@ public class LsApplication implements LsInterface {
      */
     private List<Path> getContents(Path directory)
             throws InvalidDirectoryException {
-        if (!Files.exists(directory)) {
+        FileAttributeCache attributes = FileAttributeCache.current();
+        if (!attributes.exists(directory)) {
             throw new InvalidDirectoryException(getRelativeToCwd(directory).toString());
         }
 
-        if (!Files.isDirectory(directory)) {
+        if (!attributes.isDirectory(directory)) {
             throw new InvalidDirectoryException(getRelativeToCwd(directory).toString());
         }
 
@@ -256,7 +284,7 @@ public class LsApplication implements LsInterface {
             return Paths.get(directory).normalize();
         }
 
-        return Paths.get(Environment.currentDirectory, directory).normalize();
+        return Paths.get(ShellContext.current().getCurrentDirectory(), directory).normalize();
     }
 
     /**
@@ -266,7 +294,62 @@ public class LsApplication implements LsInterface {
      * @return
      */
     private Path getRelativeToCwd(Path path) {
-        return Paths.get(Environment.currentDirectory).relativize(path);
+        return Paths.get(ShellContext.current().getCurrentDirectory()).relativize(path);
+    }
+
+    /**
+     * Writes text to an OutputSink as {@link String#trim} would leave it, for each nested segment of
+     * the output. Leading whitespace of a segment is dropped, and whitespace is held back until
+     * something other than whitespace follows it within the segment.
+     */
+    private static class TrimmedOutput {
+        private final OutputSink output;
+        private final StringBuilder pendingWhitespace = new StringBuilder();
+        private final Deque<Boolean> hasWrittenStack = new ArrayDeque<>();
+        private boolean hasWritten;
+
+        TrimmedOutput(OutputSink output) {
+            this.output = output;
+        }
+
+        void begin() {
+            hasWrittenStack.push(hasWritten);
+            hasWritten = false;
+        }
+
+        void end() {
+            if (hasWritten) {
+                pendingWhitespace.setLength(0);
+            }
+            hasWritten = hasWrittenStack.pop() || hasWritten;
+        }
+
+        TrimmedOutput append(String text) throws IOException {
+            int start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                char chr = text.charAt(i);
+                if (chr > ' ') {
+                    continue;
+                }
+                writeText(text, start, i);
+                if (hasWritten) {
+                    pendingWhitespace.append(chr);
+                }
+                start = i + 1;
+            }
+            writeText(text, start, text.length());
+            return this;
+        }
+
+        private void writeText(String text, int start, int end) throws IOException {
+            if (start == end) {
+                return;
+            }
+            output.write(pendingWhitespace);
+            pendingWhitespace.setLength(0);
+            output.write(text.subSequence(start, end));
+            hasWritten = true;
+        }
     }
 
     private class InvalidDirectoryException extends Exception {
@@ -1,11 +1,12 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.app.MkdirInterface;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.InvalidArgsException;
 import sg.edu.nus.comp.cs4218.exception.MkdirException;
 import sg.edu.nus.comp.cs4218.impl.parser.MkdirArgsParser;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
 
 import java.io.File;
 import java.io.InputStream;
@@ -55,6 +56,7 @@ public class MkdirApplication implements MkdirInterface {
             throw new MkdirException(ERR_NO_ARGS);
         }
         MkdirException err = null;
+        FileAttributeCache attributes = FileAttributeCache.current();
         for (String folderName : folderNames) {
             if (folderName == null) {
                 throw new MkdirException(ERR_NULL_ARGS);
@@ -63,9 +65,9 @@ public class MkdirApplication implements MkdirInterface {
                 throw new MkdirException(ERR_NO_ARGS);
             }
 
-            String cwd = Environment.currentDirectory;
+            String cwd = ShellContext.current().getCurrentDirectory();
             File folder = new File(cwd, folderName);
-            if (folder.exists() && err == null) {
+            if (attributes.exists(folder.toPath()) && err == null) {
                 err = new MkdirException(ERR_FOLDER_EXISTS);
             }
             boolean folderCreated;
@@ -74,6 +76,7 @@ public class MkdirApplication implements MkdirInterface {
             } else {
                 folderCreated = folder.mkdir();
             }
+            attributes.invalidate(folder.toPath());
 
             if (folderCreated) {
 //                System.out.println("Folder created successfully.");
@@ -6,6 +6,7 @@ import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.app.MvInterface;
 import sg.edu.nus.comp.cs4218.exception.MvException;
 import sg.edu.nus.comp.cs4218.impl.parser.MvArgsParser;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 
 import java.io.File;
@@ -66,22 +67,23 @@ public class MvApplication implements MvInterface {
     @Override
     public String mvSrcFileToDestFile(Boolean isOverwrite, String srcFile, String destFile)
             throws AbstractApplicationException {
+        FileAttributeCache attributes = FileAttributeCache.current();
+        Path srcFullPath = IOUtils.resolveFilePath(srcFile);
+        Path destFullPath = IOUtils.resolveFilePath(destFile);
         try {
-            Path srcFullPath = IOUtils.resolveFilePath(srcFile);
-            Path destFullPath = IOUtils.resolveFilePath(destFile);
             Path destFilePath = destFullPath.resolve(srcFullPath.getFileName());
             if (srcFullPath.equals(destFullPath)) {
                 throw new MvException("rename " + destFilePath.getFileName() + " to " + destFilePath.getFileName()
                         + ": Invalid argument");
             }
 
-            if (Files.isDirectory(destFullPath)) {
-                if (Files.exists(destFilePath) && !isOverwrite) {
+            if (attributes.isDirectory(destFullPath)) {
+                if (attributes.exists(destFilePath) && !isOverwrite) {
                     throw new MvException("Destination file already exists and overwrite is not allowed.");
                 }
                 Files.move(srcFullPath, destFilePath, StandardCopyOption.REPLACE_EXISTING);
             } else {
-                if (!Files.exists(destFullPath)) { // NOPMD - suppressed ConfusingTenarary - Ternary operator is not
+                if (!attributes.exists(destFullPath)) { // NOPMD - suppressed ConfusingTenarary - Ternary operator is not
                                                    // confusing
                     try {
                         Files.move(srcFullPath, destFullPath);
@@ -99,7 +101,7 @@ public class MvApplication implements MvInterface {
                     } else if (!destOwnerWritable) {
                         throw new MvException(String.format(ERR_NO_PERM, destFullPath.toString()));
                     }
-                    if (!isOverwrite && Files.exists(destFullPath)) {
+                    if (!isOverwrite && attributes.exists(destFullPath)) {
 
                         return EMPTY_STRING;
                     } else {
@@ -112,6 +114,9 @@ public class MvApplication implements MvInterface {
         } catch (IOException e) {
             throw new MvException(e.getMessage()); // NOPMD - suppressed PreserveStackTrace - Stack trace not preserved
                                                    // as exception is thrown
+        } finally {
+            attributes.invalidate(srcFullPath);
+            attributes.invalidate(destFullPath);
         }
         return EMPTY_STRING;
     }
@@ -119,9 +124,9 @@ public class MvApplication implements MvInterface {
     @Override
     public String mvFilesToFolder(Boolean isOverwrite, String destFolder, String... fileNames)
             throws AbstractApplicationException {
+        FileAttributeCache attributes = FileAttributeCache.current();
         Path dstFullPath = IOUtils.resolveFilePath(destFolder);
-        File destinationFolder = new File(dstFullPath.toString());
-        if (!destinationFolder.exists() || !destinationFolder.isDirectory()) {
+        if (!attributes.exists(dstFullPath) || !attributes.isDirectory(dstFullPath)) {
             throw new MvException("Destination folder does not exist: " + destFolder); // NOPMD - suppressed
                                                                                        // PreserveStackTrace - Stack
                                                                                        // trace not preserved as
@@ -134,13 +139,13 @@ public class MvApplication implements MvInterface {
             File destinationFile = new File(destFolder, sourceFile.getName());
             Path destFullPath = IOUtils.resolveFilePath(destinationFile.toString());
 
-            if (!sourceFile.exists()) {
+            if (!attributes.exists(srcFullPath)) {
                 throw new MvException("Source file does not exist: " + fileName); // NOPMD - suppressed
                                                                                   // PreserveStackTrace - Stack trace
                                                                                   // not preserved as exception is
                                                                                   // thrown
             }
-            if (Files.exists(destFullPath) && isOverwrite) {
+            if (attributes.exists(destFullPath) && isOverwrite) {
                 continue;
             }
 
@@ -149,6 +154,9 @@ public class MvApplication implements MvInterface {
             } catch (IOException e) {
                 throw new MvException(e.getMessage()); // NOPMD - suppressed PreserveStackTrace - Stack trace not
                                                        // preserved as exception is thrown
+            } finally {
+                attributes.invalidate(srcFullPath);
+                attributes.invalidate(dstFullPath.resolve(sourceFile.getName()));
             }
         }
 
@@ -3,6 +3,7 @@ package sg.edu.nus.comp.cs4218.impl.app;
 import sg.edu.nus.comp.cs4218.app.PasteInterface;
 import sg.edu.nus.comp.cs4218.exception.PasteException;
 import sg.edu.nus.comp.cs4218.impl.parser.PasteArgsParser;
+import sg.edu.nus.comp.cs4218.impl.util.FileReadAhead;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 
 import java.io.*;
@@ -111,18 +112,20 @@ public class PasteApplication implements PasteInterface { //NOPMD - suppressed G
 
     private String mergeFilesSerially(String... fileNames) throws PasteException {
         StringBuilder output = new StringBuilder();
-        for (String fileName : fileNames) {
-            if (fileName == null) {
-                continue;
-            }
-            List<String> lines = readFileLines(fileName);
-            for (String line : lines) {
-                output.append(line).append('\t');
-            }
-            if (!lines.isEmpty()) {
-                output.setLength(output.length() - 1); // Remove last tab
+        try (FileReadAhead readAhead = IOUtils.readAhead(fileNames)) {
+            for (String fileName : fileNames) {
+                if (fileName == null) {
+                    continue;
+                }
+                List<String> lines = readFileLines(readAhead, fileName);
+                for (String line : lines) {
+                    output.append(line).append('\t');
+                }
+                if (!lines.isEmpty()) {
+                    output.setLength(output.length() - 1); // Remove last tab
+                }
+                output.append(System.lineSeparator());
             }
-            output.append(System.lineSeparator());
         }
         return output.toString().trim(); // Remove last newline
     }
@@ -132,13 +135,15 @@ public class PasteApplication implements PasteInterface { //NOPMD - suppressed G
         List<List<String>> allLines = new ArrayList<>();
         int maxLines = 0;
 
-        for (String fileName : fileNames) {
-            if (fileName == null) {
-                continue;
+        try (FileReadAhead readAhead = IOUtils.readAhead(fileNames)) {
+            for (String fileName : fileNames) {
+                if (fileName == null) {
+                    continue;
+                }
+                List<String> lines = readFileLines(readAhead, fileName);
+                maxLines = Math.max(maxLines, lines.size());
+                allLines.add(lines);
             }
-            List<String> lines = readFileLines(fileName);
-            maxLines = Math.max(maxLines, lines.size());
-            allLines.add(lines);
         }
 
         for (int i = 0; i < maxLines; i++) {
@@ -156,9 +161,9 @@ public class PasteApplication implements PasteInterface { //NOPMD - suppressed G
         return output.toString().trim(); // Remove last newline
     }
 
-    private List<String> readFileLines(String fileName) throws PasteException {
+    private List<String> readFileLines(FileReadAhead readAhead, String fileName) throws PasteException {
         try {
-            InputStream inputStream = IOUtils.openInputStream(fileName); //NOPMD - suppressed CloseResource - Already closed below
+            InputStream inputStream = IOUtils.openInputStream(readAhead, fileName); //NOPMD - suppressed CloseResource - Already closed below
             List<String> lines = IOUtils.getLinesFromInputStream(inputStream);
             IOUtils.closeInputStream(inputStream);
             return lines;
@@ -261,9 +266,10 @@ public class PasteApplication implements PasteInterface { //NOPMD - suppressed G
 
 
 
-        for (String fileName : fileNames) {
-            List<String> lines = readLinesFromFile(fileName, stdinLines);
-            allLines.add(lines);
+        try (FileReadAhead readAhead = IOUtils.readAhead(fileNames)) {
+            for (String fileName : fileNames) {
+                List<String> lines = readLinesFromFile(readAhead, fileName, stdinLines);
+                allLines.add(lines);
 
 
 
@@ -275,11 +281,13 @@ public class PasteApplication implements PasteInterface { //NOPMD - suppressed G
 
 
 
+            }
         }
         return allLines;
     }
 
-    private List<String> readLinesFromFile(String fileName, List<String> stdinLines) throws PasteException {
+    private List<String> readLinesFromFile(FileReadAhead readAhead, String fileName, List<String> stdinLines)
+            throws PasteException {
 
 
 
@@ -302,7 +310,7 @@ public class PasteApplication implements PasteInterface { //NOPMD - suppressed G
             return new ArrayList<>(stdinLines);
         } else if (fileName != null) {
             try {
-                InputStream inputStream = IOUtils.openInputStream(fileName); //NOPMD - suppressed CloseResource - Already closed below
+                InputStream inputStream = IOUtils.openInputStream(readAhead, fileName); //NOPMD - suppressed CloseResource - Already closed below
                 List<String> lines = IOUtils.getLinesFromInputStream(inputStream);
                 IOUtils.closeInputStream(inputStream);
                 return lines;
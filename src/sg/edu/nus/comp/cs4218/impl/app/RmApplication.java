@@ -20,6 +20,7 @@ import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.MvException;
 import sg.edu.nus.comp.cs4218.exception.RmException;
 import sg.edu.nus.comp.cs4218.impl.parser.RmArgsParser;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 
 public class RmApplication implements RmInterface {
@@ -86,12 +87,13 @@ public class RmApplication implements RmInterface {
             throws AbstractApplicationException {
         List<File> validFiles = new ArrayList<>();
         List<String> invalidFiles = new ArrayList<>();
+        FileAttributeCache attributes = FileAttributeCache.current();
 
         // First, iterate over all files to check their existence
         for (String fileName : fileNames) {
             Path srcFullPath = IOUtils.resolveFilePath(fileName);
             File file = new File(srcFullPath.toString());
-            if (file.exists()) {
+            if (attributes.exists(srcFullPath)) {
                 validFiles.add(file); // Add valid files to the list
             } else {
                 invalidFiles.add(fileName); // Add invalid file names to the list
@@ -101,7 +103,7 @@ public class RmApplication implements RmInterface {
         // Now, iterate over the valid files and perform the deletion operation
         for (File file : validFiles) {
             try {
-                if (file.isDirectory()) {
+                if (attributes.isDirectory(file.toPath())) {
                     File[] files = file.listFiles();
                     if (files == null || files.length == 0) {
                         if (!isEmptyFolder) { //NOPMD - suppressed ConfusingTenarary - Ternary operator is not confusing
@@ -140,6 +142,8 @@ public class RmApplication implements RmInterface {
                 }
             } catch (RmException e) {
                 throw new RmException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+            } finally {
+                attributes.invalidate(file.toPath());
             }
         }
         // If there are invalid files, throw an exception
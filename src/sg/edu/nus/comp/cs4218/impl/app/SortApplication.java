@@ -3,12 +3,14 @@ package sg.edu.nus.comp.cs4218.impl.app;
 import sg.edu.nus.comp.cs4218.app.SortInterface;
 import sg.edu.nus.comp.cs4218.exception.*;
 import sg.edu.nus.comp.cs4218.impl.parser.SortArgsParser;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.Path;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Collections;
@@ -42,21 +44,26 @@ public class SortApplication implements SortInterface {
         } catch (InvalidArgsException e) {
             throw new SortException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
-        StringBuilder output = new StringBuilder();
+        List<String> lines;
         try {
             if (sortArgsParser.getFileNames().isEmpty()) {
-                output.append(sortFromStdin(sortArgsParser.isFirstWordNumber(), sortArgsParser.isReverseOrder(), sortArgsParser.isCaseIndependent(), stdin));
+                lines = sortLinesFromStdin(sortArgsParser.isFirstWordNumber(), sortArgsParser.isReverseOrder(), sortArgsParser.isCaseIndependent(), stdin);
             } else {
-                output.append(sortFromFiles(sortArgsParser.isFirstWordNumber(), sortArgsParser.isReverseOrder(), sortArgsParser.isCaseIndependent(), sortArgsParser.getFileNames().toArray(new String[0])));
+                lines = sortLinesFromFiles(sortArgsParser.isFirstWordNumber(), sortArgsParser.isReverseOrder(), sortArgsParser.isCaseIndependent(), sortArgsParser.getFileNames().toArray(new String[0]));
             }
         } catch (Exception e) {
             throw new SortException(e.getMessage());//NOPMD
         }
+        // nothing is written if the lines joined together would be empty
+        if (lines.isEmpty() || lines.size() == 1 && lines.get(0).isEmpty()) {
+            return;
+        }
         try {
-            if (!output.toString().isEmpty()) {
-                stdout.write(output.toString().getBytes());
-                stdout.write(STRING_NEWLINE.getBytes());
+            OutputSink output = new OutputSink(stdout);
+            for (String line : lines) {
+                output.writeLine(line);
             }
+            output.flush();
         } catch (IOException e) {
             throw new SortException(ERR_WRITE_STREAM);//NOPMD
         }
@@ -74,19 +81,45 @@ public class SortApplication implements SortInterface {
     @Override
     public String sortFromFiles(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
                                 String... fileNames) throws SortException {
+        return String.join(STRING_NEWLINE, sortLinesFromFiles(isFirstWordNumber, isReverseOrder, isCaseIndependent,
+                fileNames));
+    }
+
+    /**
+     * Returns string containing the orders of the lines from the standard input
+     *
+     * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
+     * @param isReverseOrder    Boolean option to sort in reverse order
+     * @param isCaseIndependent Boolean option to perform case-independent sorting
+     * @param stdin             InputStream containing arguments from Stdin
+     * @throws Exception
+     */
+    @Override
+    public String sortFromStdin(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
+                                InputStream stdin) throws SortException {
+        return String.join(STRING_NEWLINE, sortLinesFromStdin(isFirstWordNumber, isReverseOrder, isCaseIndependent,
+                stdin));
+    }
+
+    /**
+     * Returns the lines of the specified files in sorted order.
+     */
+    private List<String> sortLinesFromFiles(Boolean isFirstWordNumber, Boolean isReverseOrder,
+                                            Boolean isCaseIndependent, String... fileNames) throws SortException {
         if (fileNames == null) {
             throw new SortException(ERR_NULL_ARGS);
         }
         List<String> lines = new ArrayList<>();
         for (String file : fileNames) {
-            File node = IOUtils.resolveFilePath(file).toFile();
-            if (!node.exists()) {
+            Path node = IOUtils.resolveFilePath(file);
+            FileAttributeCache attributes = FileAttributeCache.current();
+            if (!attributes.exists(node)) {
                 throw new SortException(ERR_FILE_NOT_FOUND);
             }
-            if (node.isDirectory()) {
+            if (attributes.isDirectory(node)) {
                 throw new SortException(ERR_IS_DIR);
             }
-            if (!node.canRead()) {
+            if (!attributes.canRead(node)) {
                 throw new SortException(ERR_NO_PERM);
             }
             InputStream input = null; //NOPMD - suppressed CloseResource - it is being closed below (using IOUtils.closeInputStream(input);)
@@ -109,21 +142,14 @@ public class SortApplication implements SortInterface {
 
         }
         sortInputString(isFirstWordNumber, isReverseOrder, isCaseIndependent, lines);
-        return String.join(STRING_NEWLINE, lines);
+        return lines;
     }
 
     /**
-     * Returns string containing the orders of the lines from the standard input
-     *
-     * @param isFirstWordNumber Boolean option to treat the first word of a line as a number
-     * @param isReverseOrder    Boolean option to sort in reverse order
-     * @param isCaseIndependent Boolean option to perform case-independent sorting
-     * @param stdin             InputStream containing arguments from Stdin
-     * @throws Exception
+     * Returns the lines of the standard input in sorted order.
      */
-    @Override
-    public String sortFromStdin(Boolean isFirstWordNumber, Boolean isReverseOrder, Boolean isCaseIndependent,
-                                InputStream stdin) throws SortException {
+    private List<String> sortLinesFromStdin(Boolean isFirstWordNumber, Boolean isReverseOrder,
+                                            Boolean isCaseIndependent, InputStream stdin) throws SortException {
         if (stdin == null) {
             throw new SortException(ERR_NULL_STREAMS);
         }
@@ -134,7 +160,7 @@ public class SortApplication implements SortInterface {
             throw new SortException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
         sortInputString(isFirstWordNumber, isReverseOrder, isCaseIndependent, lines);
-        return String.join(STRING_NEWLINE, lines);
+        return lines;
     }
 
     /**
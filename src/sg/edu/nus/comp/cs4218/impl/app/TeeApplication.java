@@ -1,15 +1,19 @@
 package sg.edu.nus.comp.cs4218.impl.app;
 
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.app.TeeInterface;
 import sg.edu.nus.comp.cs4218.exception.TeeException;
 import sg.edu.nus.comp.cs4218.impl.parser.TeeArgsParser;
 import sg.edu.nus.comp.cs4218.impl.util.ErrorConstants;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
+import sg.edu.nus.comp.cs4218.impl.util.LineSource;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
 
 import java.io.*;
 import java.nio.charset.StandardCharsets;
 
 public class TeeApplication implements TeeInterface {
+    private static final byte[] NEWLINE_BYTES = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
 
     /**
      * Executes the Tee command with the given arguments, input stream, and output stream.
@@ -35,14 +39,13 @@ public class TeeApplication implements TeeInterface {
             throw new TeeException("Error parsing arguments: " + e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Following implementation of existing exceptions
         }
 
-        String result;
-
         boolean isAppend = parser.isAppend();
         String[] fileNames = parser.getFiles().toArray(new String[0]);
 
         try {
-            result = teeFromStdin(isAppend, stdin, fileNames) + System.lineSeparator();
-            stdout.write(result.getBytes(StandardCharsets.UTF_8));
+            OutputSink output = new OutputSink(stdout);
+            teeLines(isAppend, stdin, output, fileNames);
+            output.flush();
         } catch (Exception e) {
             throw new TeeException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Following implementation of existing exceptions
         }
@@ -63,20 +66,44 @@ public class TeeApplication implements TeeInterface {
             throw new TeeException(ErrorConstants.ERR_NO_ISTREAM);
         }
 
-        StringBuilder output = new StringBuilder();
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stdin))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                output.append(line).append(System.lineSeparator());
-            }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        teeLines(isAppend, stdin, output, fileName);
+        String result = output.toString(StandardCharsets.UTF_8);
+        String lineSeparator = System.lineSeparator();
+        return result.endsWith(lineSeparator) ? result.substring(0, result.length() - lineSeparator.length()) : result;
+    }
 
-            String lineSeparator = System.lineSeparator();
-            output.delete(output.length() - lineSeparator.length(), output.length());
-            writeToFiles(output.toString(), isAppend, fileName);
+    /**
+     * Reads the lines of stdin and copies them to the given files and then to the output. Lines are
+     * copied as bytes, without being decoded. In the files the lines are separated by newlines,
+     * while on the output each line ends with a newline.
+     *
+     * @param isAppend  Specifies whether the lines should be appended to the existing file content.
+     * @param stdin     InputStream to read the lines from.
+     * @param output    OutputStream to copy the lines to.
+     * @param fileNames The names of the files to copy the lines to.
+     * @throws TeeException If stdin cannot be read, or the output or a file cannot be written.
+     */
+    private void teeLines(Boolean isAppend, InputStream stdin, OutputStream output, String... fileNames)
+            throws TeeException {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        try {
+            LineSource lines = new LineSource(stdin);
+            boolean isFirstLine = true;
+            while (lines.nextLine()) {
+                if (!isFirstLine) {
+                    content.write(NEWLINE_BYTES);
+                }
+                content.write(lines.getBytes(), 0, lines.getLength());
+                isFirstLine = false;
+            }
+            byte[] contentBytes = content.toByteArray();
+            writeToFiles(contentBytes, isAppend, fileNames);
+            output.write(contentBytes);
+            output.write(NEWLINE_BYTES);
         } catch (IOException e) {
             throw new TeeException("Failed to read from stdin or write to file: " + e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Following implementation of existing exceptions
         }
-        return output.toString();
     }
 
     /**
@@ -87,25 +114,28 @@ public class TeeApplication implements TeeInterface {
      * @param fileNames The names of the files to write the content to.
      * @throws IOException If an I/O error occurs while writing to the files.
      */
-    private void writeToFiles(String content, Boolean isAppend, String... fileNames) throws IOException {
+    private void writeToFiles(byte[] content, Boolean isAppend, String... fileNames) throws IOException {
+        FileAttributeCache attributes = FileAttributeCache.current();
         for (String fileName : fileNames) {
             File file = new File(fileName);
 
             if (!file.isAbsolute()) {
-                file = new File(Environment.currentDirectory, fileName);
+                file = new File(ShellContext.current().getCurrentDirectory(), fileName);
             }
 
             boolean shouldPrependLine = false;
 
-            if (isAppend && file.exists() && file.length() > 0) {
+            if (isAppend && attributes.size(file.toPath()) > 0) {
                 shouldPrependLine = !endsWithNewLine(file);
             }
 
-            try (FileWriter fileWriter = new FileWriter(file, isAppend)) {
+            try (OutputStream fileOutput = new FileOutputStream(file, isAppend)) {
                 if (shouldPrependLine) {
-                    fileWriter.write(System.lineSeparator());
+                    fileOutput.write(NEWLINE_BYTES);
                 }
-                fileWriter.write(content);
+                fileOutput.write(content);
+            } finally {
+                attributes.invalidate(file.toPath());
             }
         }
     }
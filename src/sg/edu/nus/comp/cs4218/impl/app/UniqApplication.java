@@ -7,17 +7,22 @@ import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.exception.UniqException;
 import sg.edu.nus.comp.cs4218.impl.parser.UniqArgsParser;
 import sg.edu.nus.comp.cs4218.impl.util.ErrorConstants;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.LineSource;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
 
-import java.io.File;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_FILE_NOT_FOUND;
@@ -28,6 +33,7 @@ import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_NULL_STREAMS;
 
 public class UniqApplication implements UniqInterface { //NOPMD - suppressed GodClass - class is not overly complex - it follows single responsibility principle and implements correct functionality in a modular fashion
     private static final String EMPTY_STRING = "";
+    private static final byte[] NEWLINE_BYTES = System.lineSeparator().getBytes(StandardCharsets.UTF_8);
     @Override
     public void run(String[] args, InputStream stdin, OutputStream stdout) throws UniqException {
         if (stdout == null) {
@@ -41,31 +47,45 @@ public class UniqApplication implements UniqInterface { //NOPMD - suppressed God
             throw new UniqException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
 
-        StringBuilder output = new StringBuilder();
+        String inputFileName = uniqArgsParser.getInputFileName();
+        boolean isFromFile = inputFileName != null && !"-".equals(inputFileName);
+        InputStream input; //NOPMD - suppressed CloseResource - it is being closed below (using IOUtils.closeInputStream(input);)
         try {
-            if ((uniqArgsParser.getInputFileName() != null) && (!uniqArgsParser.getInputFileName().equals("-"))) {
-                output.append(uniqFromFile(uniqArgsParser.isCountFlag(), uniqArgsParser.isDuplicateFlag(), uniqArgsParser.isAllDuplicateFlag(), uniqArgsParser.getInputFileName(), uniqArgsParser.getOutputFileName()));
-            } else {
-                output.append(uniqFromStdin(uniqArgsParser.isCountFlag(), uniqArgsParser.isDuplicateFlag(), uniqArgsParser.isAllDuplicateFlag(), stdin, uniqArgsParser.getOutputFileName()));
+            input = isFromFile ? openInputFile(inputFileName) : stdin;
+            if (input == null) {
+                throw new UniqException(ERR_NULL_STREAMS);
             }
         } catch (Exception e) {
             throw new UniqException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
-        
-        String result = output.toString();
 
-        if (uniqArgsParser.getOutputFileName() != null && !uniqArgsParser.getOutputFileName().isEmpty()) {
+        // groups of lines are written out as soon as they end, rather than once all input is read
+        String outputFileName = uniqArgsParser.getOutputFileName();
+        boolean isToFile = outputFileName != null && !outputFileName.isEmpty();
+        try {
+            OutputStream target = isToFile ? Files.newOutputStream(Paths.get(outputFileName)) : stdout;
+            OutputSink output = new OutputSink(target);
             try {
-                Files.write(Paths.get(uniqArgsParser.getOutputFileName()), result.getBytes(StandardCharsets.UTF_8));
+                writeUniqLines(uniqArgsParser.isCountFlag(), uniqArgsParser.isDuplicateFlag(),
+                        uniqArgsParser.isAllDuplicateFlag(), new LineSource(input), output);
+            } finally {
+                if (isToFile) {
+                    try (target) {
+                        output.flush();
+                    }
+                    FileAttributeCache.current().invalidate(Paths.get(outputFileName));
+                } else {
+                    output.flush();
+                }
+            }
+            if (isToFile) {
                 stdout.write(System.lineSeparator().getBytes());
-            } catch (Exception e) {
-                throw new UniqException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
             }
-        } else {
-            try {
-                stdout.write(result.getBytes(StandardCharsets.UTF_8));
-            } catch (Exception e) {
-                throw new UniqException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        } catch (IOException e) {
+            throw new UniqException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        } finally {
+            if (isFromFile) {
+                closeInputFile(input);
             }
         }
     }
@@ -85,37 +105,12 @@ public class UniqApplication implements UniqInterface { //NOPMD - suppressed God
             throw new UniqException("Input file name cannot be null or empty.");
         }
 
-        List<String> lines = new ArrayList<>();
-
-        File node = IOUtils.resolveFilePath(inputFileName).toFile();
-        if (!node.exists()) {
-            throw new UniqException(ERR_FILE_NOT_FOUND);
-        }
-        if (node.isDirectory()) {
-            throw new UniqException(ERR_IS_DIR);
-        }
-        if (!node.canRead()) {
-            throw new UniqException(ERR_NO_PERM);
-        }
-        InputStream input = null; //NOPMD - suppressed CloseResource - it is being closed below (using IOUtils.closeInputStream(input);)
-
-        try {
-            input = IOUtils.openInputStream(inputFileName);
-        } catch (ShellException e) {
-            throw new UniqException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-        }
+        InputStream input = openInputFile(inputFileName); //NOPMD - suppressed CloseResource - it is being closed below (using closeInputFile(input);)
         try {
-            lines.addAll(IOUtils.getLinesFromInputStream(input));
-        } catch (IOException e) {
-            throw new UniqException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+            return uniqLineSource(isCount, isRepeated, isAllRepeated, new LineSource(input));
+        } finally {
+            closeInputFile(input);
         }
-        try {
-            IOUtils.closeInputStream(input);
-        } catch (ShellException e) {
-            throw new UniqException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
-        }
-
-        return uniqInputString(isCount, isRepeated, isAllRepeated, lines);
     }
 
     /**
@@ -132,67 +127,128 @@ public class UniqApplication implements UniqInterface { //NOPMD - suppressed God
         if (stdin == null) {
             throw new UniqException(ERR_NULL_STREAMS);
         }
-        List<String> lines = null;
-        try {
-            lines = IOUtils.getLinesFromInputStream(stdin);
-        } catch (Exception e) {
-            throw new UniqException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        return uniqLineSource(isCount, isRepeated, isAllRepeated, new LineSource(stdin));
+    }
+
+    public String uniqInputString(Boolean isCount, Boolean isRepeated, Boolean isAllRepeated, List<String> lines) {
+        ByteArrayOutputStream input = new ByteArrayOutputStream();
+        for (String line : lines) {
+            input.writeBytes(line.getBytes(StandardCharsets.UTF_8));
+            input.write('\n');
+        }
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(output)) {
+            writeUniqLines(isCount, isRepeated, isAllRepeated,
+                    new LineSource(new ByteArrayInputStream(input.toByteArray())), sink);
+        } catch (IOException e) {
+            // reading from and writing to a byte array does not fail
+            throw new UncheckedIOException(e);
         }
-        
-        return uniqInputString(isCount, isRepeated, isAllRepeated, lines);
+        return output.toString(StandardCharsets.UTF_8);
     }
 
-    private void appendLine(StringBuilder output, Boolean isCount, Boolean isRepeated, Boolean isAllRepeated, String line, int count) {
-        if (isAllRepeated) {
-            if (count > 1) {
-                for (int i = 0; i < count; i++) {
-                    if (isCount) {
-                        output.append(count).append(' ').append(line).append(System.lineSeparator());
-                    } else {
-                        output.append(line).append(System.lineSeparator());
-                    }
-                }
-            }
-        } else if (isRepeated) {
-            if (count > 1) {
-                if (isCount) {
-                    output.append(count).append(' ').append(line).append(System.lineSeparator());
-                } else {
-                    output.append(line).append(System.lineSeparator());
-                }
-            }
-        } else if (isCount) {
-            output.append(count).append(' ').append(line).append(System.lineSeparator());
-        } else {
-            output.append(line).append(System.lineSeparator());
+    private String uniqLineSource(Boolean isCount, Boolean isRepeated, Boolean isAllRepeated, LineSource lines)
+            throws UniqException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (OutputSink sink = new OutputSink(output)) {
+            writeUniqLines(isCount, isRepeated, isAllRepeated, lines, sink);
+        } catch (IOException e) {
+            throw new UniqException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
+        return output.toString(StandardCharsets.UTF_8);
     }
 
-    public String uniqInputString(Boolean isCount, Boolean isRepeated, Boolean isAllRepeated, List<String> lines) {
-        StringBuilder output = new StringBuilder();
-        String previousLine = null;
+    /**
+     * Filters adjacent matching lines, writing each group of lines to the output once it ends.
+     * Lines are compared and written as bytes, without being decoded.
+     *
+     * @param isCount       Boolean option to prefix lines by the number of occurrences of adjacent duplicate lines
+     * @param isRepeated    Boolean option to print only duplicate lines, one for each group
+     * @param isAllRepeated Boolean option to print all duplicate lines (takes precedence if isRepeated is set to true)
+     * @param lines         lines to filter, read one at a time
+     * @param output        OutputSink to write the filtered lines to
+     * @throws IOException If the input cannot be read or the output cannot be written
+     */
+    private void writeUniqLines(Boolean isCount, Boolean isRepeated, Boolean isAllRepeated, LineSource lines,
+                                OutputSink output) throws IOException {
+        byte[] previousLine = new byte[0];
+        int previousLength = -1;
         int count = 0;
-        
-        if (lines.isEmpty()) {
-            return System.lineSeparator();
-        }
 
-        for (String currentLine : lines) {
-            if (currentLine.equals(previousLine)) {
+        while (lines.nextLine()) {
+            byte[] currentLine = lines.getBytes();
+            int currentLength = lines.getLength();
+            boolean isSameLine = previousLength >= 0
+                    && Arrays.equals(currentLine, 0, currentLength, previousLine, 0, previousLength);
+            if (isSameLine) {
                 count++;
             } else {
-                if (previousLine != null) {
-                    appendLine(output, isCount, isRepeated, isAllRepeated, previousLine, count);
+                if (previousLength >= 0) {
+                    writeGroup(output, isCount, isRepeated, isAllRepeated, previousLine, previousLength, count);
+                }
+                if (previousLine.length < currentLength) {
+                    previousLine = new byte[Math.max(currentLength, previousLine.length * 2)];
                 }
-                previousLine = currentLine;
+                System.arraycopy(currentLine, 0, previousLine, 0, currentLength);
+                previousLength = currentLength;
                 count = 1;
             }
         }
 
-        if (previousLine != null) {
-            appendLine(output, isCount, isRepeated, isAllRepeated, previousLine, count);
+        if (previousLength < 0) {
+            output.write(NEWLINE_BYTES);
+        } else {
+            writeGroup(output, isCount, isRepeated, isAllRepeated, previousLine, previousLength, count);
+        }
+    }
+
+    private void writeGroup(OutputSink output, Boolean isCount, Boolean isRepeated, Boolean isAllRepeated,
+                            byte[] line, int length, int count) throws IOException {
+        int times;
+        if (isAllRepeated) {
+            times = count > 1 ? count : 0;
+        } else if (isRepeated) {
+            times = count > 1 ? 1 : 0;
+        } else {
+            times = 1;
+        }
+        for (int i = 0; i < times; i++) {
+            if (isCount) {
+                output.writeNumber(count);
+                output.write(' ');
+            }
+            output.write(line, 0, length);
+            output.write(NEWLINE_BYTES);
+        }
+    }
+
+    private InputStream openInputFile(String inputFileName) throws UniqException {
+        if (inputFileName == null || inputFileName.isEmpty()) {
+            throw new UniqException("Input file name cannot be null or empty.");
+        }
+        Path node = IOUtils.resolveFilePath(inputFileName);
+        FileAttributeCache attributes = FileAttributeCache.current();
+        if (!attributes.exists(node)) {
+            throw new UniqException(ERR_FILE_NOT_FOUND);
+        }
+        if (attributes.isDirectory(node)) {
+            throw new UniqException(ERR_IS_DIR);
+        }
+        if (!attributes.canRead(node)) {
+            throw new UniqException(ERR_NO_PERM);
+        }
+        try {
+            return IOUtils.openInputStream(inputFileName);
+        } catch (ShellException e) {
+            throw new UniqException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
+        }
+    }
+
+    private void closeInputFile(InputStream input) throws UniqException {
+        try {
+            IOUtils.closeInputStream(input);
+        } catch (ShellException e) {
+            throw new UniqException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - We are following the implementation of the existing exceptions, hence this warning is ignored.
         }
-        
-        return output.toString();
     }
-}
\ No newline at end of file
+}
@@ -3,10 +3,16 @@ package sg.edu.nus.comp.cs4218.impl.app;
 import sg.edu.nus.comp.cs4218.app.WcInterface;
 import sg.edu.nus.comp.cs4218.exception.*;
 import sg.edu.nus.comp.cs4218.impl.parser.WcArgsParser;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
+import sg.edu.nus.comp.cs4218.impl.util.FileReadAhead;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.MappedFile;
+import sg.edu.nus.comp.cs4218.impl.util.OutputSink;
 import sg.edu.nus.comp.cs4218.impl.util.WcResult;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -51,33 +57,29 @@ public class WcApplication implements WcInterface {
         } catch (InvalidArgsException e) {
             throw new WcException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
         }
-        String result;
-        StringBuilder resultSb = new StringBuilder();
+        List<String> records;
         try {
             if (wcArgsParser.getFileNames().isEmpty()) {
-                StringBuilder stringBuilder = new StringBuilder();
-                stringBuilder.append(countFromStdin(wcArgsParser.isByteCount(), wcArgsParser.isLineCount(),
+                records = List.of(countFromStdin(wcArgsParser.isByteCount(), wcArgsParser.isLineCount(),
                         wcArgsParser.isWordCount(), stdin));
-                result = stringBuilder.toString();
             } else if (!wcArgsParser.getFileNames().contains("-")) { //NOPMD - suppressed ConfusingTenarary - Ternary operator is not confusing
-                StringBuilder stringBuilder = new StringBuilder();
-                stringBuilder.append(countFromFiles(wcArgsParser.isByteCount(), wcArgsParser.isLineCount(),
-                        wcArgsParser.isWordCount(), wcArgsParser.getFileNames().toArray(new String[0])));
-                result = stringBuilder.toString();
+                records = countRecordsFromFiles(wcArgsParser.isByteCount(), wcArgsParser.isLineCount(),
+                        wcArgsParser.isWordCount(), wcArgsParser.getFileNames().toArray(new String[0]));
             } else {
-                StringBuilder stringBuilder = new StringBuilder();
-                stringBuilder.append(countFromFileAndStdin(wcArgsParser.isByteCount(), wcArgsParser.isLineCount(),
+                records = List.of(countFromFileAndStdin(wcArgsParser.isByteCount(), wcArgsParser.isLineCount(),
                         wcArgsParser.isWordCount(), stdin, wcArgsParser.getFileNames().toArray(new String[0])));
-                result = stringBuilder.toString();
             }
-            resultSb.append(result);
-            resultSb.append(STRING_NEWLINE);
         } catch (Exception e) {
             // Will never happen
             throw new WcException(ERR_GENERAL); // NOPMD
         }
+        // every file is counted before anything is written, so a failing file leaves no partial output
         try {
-            stdout.write(resultSb.toString().getBytes());
+            OutputSink output = new OutputSink(stdout);
+            for (String record : records) {
+                output.writeLine(record);
+            }
+            output.flush();
         } catch (IOException e) {
             throw new WcException(ERR_WRITE_STREAM);// NOPMD
         }
@@ -96,68 +98,85 @@ public class WcApplication implements WcInterface {
     @Override
     public String countFromFiles(Boolean isBytes, Boolean isLines, Boolean isWords, // NOPMD
             String... fileName) throws AbstractApplicationException {
+        return String.join(STRING_NEWLINE, countRecordsFromFiles(isBytes, isLines, isWords, fileName));
+    }
+
+    /**
+     * Returns the output line of each input file, followed by the total line if there is more
+     * than one file.
+     */
+    private List<String> countRecordsFromFiles(Boolean isBytes, Boolean isLines, Boolean isWords, // NOPMD
+            String... fileName) throws AbstractApplicationException {
         WcResult res = new WcResult();
         if (fileName == null) {
             throw new WcException(ERR_NULL_ARGS);
         }
         List<String> result = new ArrayList<>();
         long totalBytes = 0, totalLines = 0, totalWords = 0;
-        for (String file : fileName) {
-            File node = IOUtils.resolveFilePath(file).toFile();
-            if (!node.exists()) {
-                throw new WcException(ERR_FILE_NOT_FOUND);
-            }
-            if (node.isDirectory()) {
-                throw new WcException(ERR_IS_DIR);
-            }
-            if (!node.canRead()) {
-                throw new WcException(ERR_NO_PERM);
-            }
+        try (FileReadAhead readAhead = IOUtils.readAhead(fileName)) {
+            for (String file : fileName) {
+                Path node = IOUtils.resolveFilePath(file);
+                FileAttributeCache attributes = FileAttributeCache.current();
+                if (!attributes.exists(node)) {
+                    throw new WcException(ERR_FILE_NOT_FOUND);
+                }
+                if (attributes.isDirectory(node)) {
+                    throw new WcException(ERR_IS_DIR);
+                }
+                if (!attributes.canRead(node)) {
+                    throw new WcException(ERR_NO_PERM);
+                }
 
-            InputStream input = null; // NOPMD - Resource is closed in subsequent lines
-            try {
-                input = IOUtils.openInputStream(file);
-            } catch (ShellException e) {
-                throw new WcException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
-            }
-            long[] count = getCountReport(input); // lines words bytes
-            try {
-                IOUtils.closeInputStream(input);
-            } catch (ShellException e) {
-                throw new WcException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
-            }
+                long[] count; // lines words bytes
+                if (MappedFile.isWorthMapping(node)) {
+                    count = getMappedCountReport(node);
+                } else {
+                    InputStream input = null; // NOPMD - Resource is closed in subsequent lines
+                    try {
+                        input = IOUtils.openInputStream(readAhead, file);
+                    } catch (ShellException e) {
+                        throw new WcException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+                    }
+                    count = getCountReport(input);
+                    try {
+                        IOUtils.closeInputStream(input);
+                    } catch (ShellException e) {
+                        throw new WcException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+                    }
+                }
 
-            // Update total count
-            totalLines += count[0];
-            totalWords += count[1];
-            totalBytes += count[2];
+                // Update total count
+                totalLines += count[0];
+                totalWords += count[1];
+                totalBytes += count[2];
 
-            // Format all output: " %7d %7d %7d %s"
-            // Output in the following order: lines words bytes filename
-            StringBuilder sb = new StringBuilder(); // NOPMD
-            if (isLines) {
-                sb.append(String.format(NUMBER_FORMAT, count[0]));
-                res.setLines(count[LINES_INDEX]);
-            }
-            if (isWords) {
-                sb.append(String.format(NUMBER_FORMAT, count[1]));
-                res.setWords(count[WORDS_INDEX]);
-            }
-            if (isBytes) {
-                sb.append(String.format(NUMBER_FORMAT, count[2]));
-                res.setBytes(count[BYTES_INDEX]);
-            }
-            if (!isLines && !isWords && !isBytes) {
-                res.setLines(count[LINES_INDEX]);
-                res.setWords(count[WORDS_INDEX]);
-                res.setBytes(count[BYTES_INDEX]);
-                sb.append(String.format(NUMBER_FORMAT, count[0]));
-                sb.append(String.format(NUMBER_FORMAT, count[1]));
-                sb.append(String.format(NUMBER_FORMAT, count[2]));
+                // Format all output: " %7d %7d %7d %s"
+                // Output in the following order: lines words bytes filename
+                StringBuilder sb = new StringBuilder(); // NOPMD
+                if (isLines) {
+                    sb.append(String.format(NUMBER_FORMAT, count[0]));
+                    res.setLines(count[LINES_INDEX]);
+                }
+                if (isWords) {
+                    sb.append(String.format(NUMBER_FORMAT, count[1]));
+                    res.setWords(count[WORDS_INDEX]);
+                }
+                if (isBytes) {
+                    sb.append(String.format(NUMBER_FORMAT, count[2]));
+                    res.setBytes(count[BYTES_INDEX]);
+                }
+                if (!isLines && !isWords && !isBytes) {
+                    res.setLines(count[LINES_INDEX]);
+                    res.setWords(count[WORDS_INDEX]);
+                    res.setBytes(count[BYTES_INDEX]);
+                    sb.append(String.format(NUMBER_FORMAT, count[0]));
+                    sb.append(String.format(NUMBER_FORMAT, count[1]));
+                    sb.append(String.format(NUMBER_FORMAT, count[2]));
+                }
+                totalResults.add(res);
+                sb.append(String.format(" %s", file));
+                result.add(sb.toString());
             }
-            totalResults.add(res);
-            sb.append(String.format(" %s", file));
-            result.add(sb.toString());
         }
 
         if (fileName.length > 1) {
@@ -165,7 +184,7 @@ public class WcApplication implements WcInterface {
             sb.append(String.format(NUMBER_FORMAT, totalLines)).append(String.format(NUMBER_FORMAT, totalWords)).append(String.format(NUMBER_FORMAT, totalBytes)).append(" total");
             result.add(sb.toString());
         }
-        return String.join(STRING_NEWLINE, result);
+        return result;
     }
 
     /**
@@ -265,31 +284,13 @@ public class WcApplication implements WcInterface {
         }
         long[] result = new long[3]; // lines, words, bytes
 
-        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-        byte[] data = new byte[1024];
+        byte[] data = new byte[8192];
         int inRead = 0;
         boolean inWord = false;
         try {
             while ((inRead = input.read(data, 0, data.length)) != -1) {
-                for (int i = 0; i < inRead; ++i) {
-                    if (Character.isWhitespace(data[i])) {
-                        // Use <newline> character here. (Ref: UNIX)
-                        if (data[i] == '\n') {
-                            ++result[LINES_INDEX];
-                        }
-                        if (inWord) {
-                            ++result[WORDS_INDEX];
-                        }
-
-                        inWord = false;
-                    } else {
-                        inWord = true;
-                    }
-                }
-                result[BYTES_INDEX] += inRead;
-                buffer.write(data, 0, inRead);
+                inWord = countBytes(ByteBuffer.wrap(data, 0, inRead), inWord, result);
             }
-            buffer.flush();
             if (inWord) {
                 ++result[WORDS_INDEX]; // To handle last word
             }
@@ -299,4 +300,58 @@ public class WcApplication implements WcInterface {
 
         return result;
     }
+
+    /**
+     * Returns array containing the number of lines, words, and bytes of a large file, counted
+     * straight from a memory mapping of the file.
+     *
+     * @param file A regular file
+     * @throws WcException If the file cannot be mapped
+     */
+    private long[] getMappedCountReport(Path file) throws WcException {
+        long[] result = new long[3]; // lines, words, bytes
+        boolean inWord = false;
+        try (MappedFile mappedFile = MappedFile.open(file)) {
+            for (int i = 0; i < mappedFile.getChunkCount(); i++) {
+                inWord = countBytes(mappedFile.getChunk(i), inWord, result);
+            }
+        } catch (IOException e) {
+            throw new WcException(ERR_IO_EXCEPTION); //NOPMD - suppressed PreserveStackTrace - Stack trace not preserved as exception is thrown
+        }
+        if (inWord) {
+            ++result[WORDS_INDEX]; // To handle last word
+        }
+        return result;
+    }
+
+    /**
+     * Adds the lines, words and bytes of the remaining bytes of the buffer to the result.
+     *
+     * @param bytes  Bytes to count
+     * @param inWord Whether the bytes before this buffer ended inside a word
+     * @param result Array of lines, words and bytes counted so far
+     * @return Whether the buffer ends inside a word
+     */
+    private boolean countBytes(ByteBuffer bytes, boolean inWord, long... result) {
+        boolean isInWord = inWord;
+        int limit = bytes.limit();
+        for (int i = bytes.position(); i < limit; ++i) {
+            byte value = bytes.get(i);
+            if (Character.isWhitespace(value)) {
+                // Use <newline> character here. (Ref: UNIX)
+                if (value == '\n') {
+                    ++result[LINES_INDEX];
+                }
+                if (isInWord) {
+                    ++result[WORDS_INDEX];
+                }
+
+                isInWord = false;
+            } else {
+                isInWord = true;
+            }
+        }
+        result[BYTES_INDEX] += limit - bytes.position();
+        return isInWord;
+    }
 }
@@ -1,10 +1,12 @@
 package sg.edu.nus.comp.cs4218.impl.cmd;
 
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 import sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner;
 import sg.edu.nus.comp.cs4218.impl.util.ArgumentResolver;
+import sg.edu.nus.comp.cs4218.impl.util.FileAttributeCache;
 import sg.edu.nus.comp.cs4218.impl.util.IORedirectionHandler;
 import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
 
@@ -24,6 +26,9 @@ public class CallCommand implements Command {
     private final List<String> argsList;
     private final ApplicationRunner appRunner;
     private final ArgumentResolver argumentResolver;
+    private volatile boolean isTerminated;
+    private volatile InputStream activeInputStream;
+    private volatile OutputStream activeOutputStream;
 
     public CallCommand(List<String> argsList, ApplicationRunner appRunner, ArgumentResolver argumentResolver) {
         // Tokenized array of arguments
@@ -36,9 +41,30 @@ public class CallCommand implements Command {
     @Override
     public void evaluate(InputStream stdin, OutputStream stdout)
             throws AbstractApplicationException, ShellException, FileNotFoundException {
+        evaluate(ShellContext.current(), stdin, stdout);
+    }
+
+    /**
+     * Evaluates the command in the given shell session. Redirection, quoting, globbing and command
+     * substitution are resolved against the current directory of the session.
+     */
+    @Override
+    public void evaluate(ShellContext context, InputStream stdin, OutputStream stdout)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
+        try (ShellContext.Scope scope = context.activate(); //NOPMD - suppressed UnusedLocalVariable - The scope only restores the previous context when closed
+             ShellContext.Scope cacheScope = new FileAttributeCache().activate()) { //NOPMD - suppressed UnusedLocalVariable - The scope only restores the previous cache when closed
+            evaluateInContext(context, stdin, stdout);
+        }
+    }
+
+    private void evaluateInContext(ShellContext context, InputStream stdin, OutputStream stdout)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
         if (argsList == null || argsList.isEmpty()) {
             throw new ShellException(ERR_SYNTAX);
         }
+        if (isTerminated) {
+            return;
+        }
 
         // Handle IO redirection
 
@@ -62,6 +88,14 @@ public class CallCommand implements Command {
         InputStream inputStream = redirHandler.getInputStream(); //NOPMD - suppressed CloseResource - Stream is properly closed.
         OutputStream outputStream = redirHandler.getOutputStream(); //NOPMD - suppressed CloseResource - Stream is properly closed.
 
+        // remember the streams in use so that terminate() can release them from another thread
+        activeInputStream = inputStream;
+        activeOutputStream = outputStream;
+        if (isTerminated) {
+            discardStreams(inputStream, outputStream);
+            return;
+        }
+
         /*
          * In a traditional Unix-like shell, a command can only have one standard input stream and one standard output stream at a time.
          * If you try to set multiple input or output streams for a single command, it would typically result in an error or unexpected behavior.
@@ -70,23 +104,66 @@ public class CallCommand implements Command {
          */
 
         // Handle quoting + globing + command substitution
-        List<String> parsedArgsList = argumentResolver.parseArguments(noRedirArgsList);
-        if (!parsedArgsList.isEmpty()) {
-            String app = parsedArgsList.remove(0);
-            // First parameter is command name - identifier
-            // Second parameter is the list of arguments
-            // The 0 in new String[0] is the initial size of the array. However, toArray will return an array that is big enough to hold all the elements in the list, regardless of the size of the array passed as an argument. 
-            // So even though new String[0] creates an empty array, parsedArgsList.toArray(new String[0]) will return a String array with the same size as parsedArgsList.
-            appRunner.runApp(app, parsedArgsList.toArray(new String[0]), inputStream, outputStream);
+        boolean isSuccessful = false;
+        try {
+            List<String> parsedArgsList = argumentResolver.parseArguments(noRedirArgsList, stdin);
+            if (!parsedArgsList.isEmpty()) {
+                String app = parsedArgsList.remove(0);
+                // First parameter is command name - identifier
+                // Second parameter is the list of arguments
+                // The 0 in new String[0] is the initial size of the array. However, toArray will return an array that is big enough to hold all the elements in the list, regardless of the size of the array passed as an argument. 
+                // So even though new String[0] creates an empty array, parsedArgsList.toArray(new String[0]) will return a String array with the same size as parsedArgsList.
+                try {
+                    appRunner.runApp(context, app, parsedArgsList.toArray(new String[0]), inputStream, outputStream);
+                } catch (AbstractApplicationException | ShellException e) {
+                    // failures caused by the streams being closed under a terminated command are expected
+                    if (!isTerminated) {
+                        throw e;
+                    }
+                }
+            }
+            isSuccessful = !isTerminated;
+        } finally {
+            // a redirected output file is buffered, so it has to be closed for the output to reach it
+            if (isSuccessful) {
+                IOUtils.closeInputStream(inputStream);
+                IOUtils.closeOutputStream(outputStream);
+            } else if (isTerminated) {
+                discardStreams(inputStream, outputStream);
+            } else {
+                // the caller's own streams stay open after a failure, as the caller may still use them
+                discardStreams(inputStream == stdin ? null : inputStream, //NOPMD - suppressed CompareObjectsWithEquals - Looking for the redirected streams
+                        outputStream == stdout ? null : outputStream); //NOPMD - suppressed CompareObjectsWithEquals - Looking for the redirected streams
+            }
         }
+    }
 
-        IOUtils.closeInputStream(inputStream);
-        IOUtils.closeOutputStream(outputStream);
+    /**
+     * Releases the streams of a command that failed or was terminated, without replacing the
+     * original error with a failure to close them.
+     */
+    private static void discardStreams(InputStream inputStream, OutputStream outputStream) {
+        try {
+            IOUtils.closeInputStream(inputStream);
+            IOUtils.discardOutputStream(outputStream);
+        } catch (ShellException e) {
+            // the command has already failed, and that is the error worth reporting
+        }
     }
 
+    /**
+     * Stops this command by closing the streams it is reading from and writing to. A running
+     * application observes this as an IOException on its next read or write, and any exception it
+     * raises as a result is not reported. A command terminated before evaluation does not run.
+     */
     @Override
     public void terminate() {
-        // Unused for now
+        isTerminated = true;
+        discardStreams(activeInputStream, activeOutputStream);
+    }
+
+    public boolean isTerminated() {
+        return isTerminated;
     }
 
     public List<String> getArgsList() {
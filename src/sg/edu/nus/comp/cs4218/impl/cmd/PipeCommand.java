@@ -1,24 +1,50 @@
 package sg.edu.nus.comp.cs4218.impl.cmd;
 
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.util.IOUtils;
+import sg.edu.nus.comp.cs4218.impl.util.PipeChannel;
+import sg.edu.nus.comp.cs4218.impl.util.PipeStatistics;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * A Pipe Command is a sub-command consisting of two Call Commands separated with a pipe,
  * or a Pipe Command and a Call Command separated with a pipe.
  * <p>
+ * All stages run at the same time: every stage except the last runs on its own thread, and
+ * consecutive stages are connected by a bounded {@link PipeChannel}. A stage is started as soon
+ * as the stage before it writes its first bytes or finishes.
+ * <p>
+ * Each channel holds up to the pipe memory budget of the session in memory, and may spill to disk
+ * up to its pipe spill limit. The memory they used and the bytes they spilled are recorded in
+ * {@link PipeStatistics}.
+ * <p>
  * Command format: <Call> | <Call> or <Pipe> | <Call>
  */
 public class PipeCommand implements Command {
+    // not bounded: every stage of a pipeline must run at once, as a stage waiting for a thread would
+    // leave the stages before it blocked on a full channel
+    private static final ExecutorService STAGE_EXECUTOR = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "pipe-stage");
+        thread.setDaemon(true);
+        return thread;
+    });
+
     private final List<CallCommand> callCommands;
+    private volatile boolean isTerminated;
+    private volatile PipeStatistics statistics = new PipeStatistics();
 
     public PipeCommand(List<CallCommand> callCommands) {
         this.callCommands = callCommands;
@@ -27,54 +53,200 @@ public class PipeCommand implements Command {
     @Override
     public void evaluate(InputStream stdin, OutputStream stdout)
             throws AbstractApplicationException, ShellException, FileNotFoundException {
-        AbstractApplicationException absAppException = null;
-        ShellException shellException = null;
-
-        InputStream nextInputStream = stdin;
-        OutputStream nextOutputStream; //NOPMD - suppressed CloseResource - PMD doesn't detect stream close properly.
+        evaluate(ShellContext.current(), stdin, stdout);
+    }
 
+    /**
+     * Evaluates every stage of the pipeline in the given shell session, including the stages
+     * running on other threads.
+     */
+    @Override
+    public void evaluate(ShellContext context, InputStream stdin, OutputStream stdout)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
         if (callCommands.isEmpty()) {
             throw new ShellException("Pipe command cannot be empty");
         }
 
-        for (int i = 0; i < callCommands.size(); i++) {
+        int lastIndex = callCommands.size() - 1;
+        Exception[] stageExceptions = new Exception[callCommands.size()];
+        PipeChannel[] channels = new PipeChannel[lastIndex];
+        List<Future<?>> stageFutures = new ArrayList<>();
+        PipeStatistics pipeStatistics = new PipeStatistics();
+        statistics = pipeStatistics;
+
+        InputStream nextInputStream = stdin;
+        boolean isAborted = false;
+        for (int i = 0; i <= lastIndex; i++) {
             CallCommand callCommand = callCommands.get(i);
 
-            if (absAppException != null || shellException != null) {
+            // start a stage only once its upstream has produced output or finished, so that side
+            // effects of a stage that come before its first output are visible downstream
+            if (i > 0 && !isAborted && !awaitUpstream(channels[i - 1]) && stageExceptions[i - 1] != null) {
+                isAborted = true;
+            }
+            if (isTerminated) {
+                isAborted = true;
+            }
+            if (isAborted) {
                 callCommand.terminate();
                 continue;
             }
 
-            try {
-                nextOutputStream = new ByteArrayOutputStream();
-                if (i == callCommands.size() - 1) {
-                    nextOutputStream = stdout;
-                }
-                callCommand.evaluate(nextInputStream, nextOutputStream);
-                if (i != callCommands.size() - 1) {
-                    nextInputStream = new ByteArrayInputStream(((ByteArrayOutputStream) nextOutputStream).toByteArray()); //NOPMD - suppressed CloseResource - PMD doesn't detect stream close properly.
-                }
-            } catch (AbstractApplicationException e) {
-                absAppException = e;
-            } catch (ShellException e) {
-                shellException = e;
+            if (i == lastIndex) {
+                // the last stage writes to stdout and runs on the calling thread
+                new Stage(context, i, nextInputStream, stdout, channels, stageExceptions).run();
+            } else {
+                channels[i] = new PipeChannel(context.getPipeMemoryBudget(), context.getPipeSpillLimit(),
+                        pipeStatistics);
+                stageFutures.add(STAGE_EXECUTOR.submit(
+                        new Stage(context, i, nextInputStream, channels[i].getSink(), channels, stageExceptions)));
+                nextInputStream = channels[i].getSource();
             }
         }
 
-        if (absAppException != null) {
-            throw absAppException;
+        try {
+            for (Future<?> future : stageFutures) {
+                awaitStage(future);
+            }
+        } finally {
+            pipeStatistics.finish();
         }
-        if (shellException != null) {
-            throw shellException;
+
+        // like SIGPIPE, a stage whose reader stopped early fails silently
+        for (int i = 0; i < lastIndex; i++) {
+            if (channels[i] != null && channels[i].isBroken()) {
+                stageExceptions[i] = null;
+            }
         }
+
+        rethrowStageException(stageExceptions);
     }
 
+    /**
+     * Terminates every stage of the pipeline. Stages that have not started yet will not run.
+     */
     @Override
     public void terminate() {
-        // Unused for now
+        isTerminated = true;
+        for (CallCommand callCommand : callCommands) {
+            callCommand.terminate();
+        }
+    }
+
+    /**
+     * Returns the memory used and the bytes spilled by the channels of the latest evaluation.
+     */
+    public PipeStatistics getStatistics() {
+        return statistics;
     }
 
     public List<CallCommand> getCallCommands() {
         return callCommands;
     }
+
+    private boolean awaitUpstream(PipeChannel channel) throws ShellException {
+        try {
+            return channel.awaitFirstWrite();
+        } catch (InterruptedIOException e) {
+            throw new ShellException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not thrown in given implementation
+        }
+    }
+
+    private void awaitStage(Future<?> future) throws ShellException {
+        try {
+            future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ShellException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not thrown in given implementation
+        } catch (ExecutionException e) {
+            // stages keep their exceptions, so only errors reach here, and they are not the shell's to report
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new ShellException(e.getCause().toString()); //NOPMD - suppressed PreserveStackTrace - Stack trace not thrown in given implementation
+        }
+    }
+
+    /**
+     * Surfaces the exception of the earliest failing stage. Application exceptions take precedence
+     * over shell exceptions, as they did when the stages were evaluated one after another.
+     */
+    private void rethrowStageException(Exception... stageExceptions)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
+        for (Exception exception : stageExceptions) {
+            if (exception instanceof AbstractApplicationException) {
+                throw (AbstractApplicationException) exception;
+            }
+        }
+        for (Exception exception : stageExceptions) {
+            if (exception instanceof ShellException) {
+                throw (ShellException) exception;
+            }
+            if (exception instanceof FileNotFoundException) {
+                throw (FileNotFoundException) exception;
+            }
+            if (exception instanceof RuntimeException) {
+                throw (RuntimeException) exception;
+            }
+        }
+    }
+
+    /**
+     * Evaluates one call command of the pipeline and closes both of its pipe ends when done,
+     * so that neighbouring stages observe end-of-input or stop blocking on a full channel.
+     * If the stage stopped before reading all of its input, the upstream stages are terminated.
+     */
+    private class Stage implements Runnable {
+        private final ShellContext context;
+        private final int index;
+        private final InputStream input;
+        private final OutputStream output;
+        private final PipeChannel[] channels;
+        private final Exception[] stageExceptions;
+
+        Stage(ShellContext context, int index, InputStream input, OutputStream output, PipeChannel[] channels,
+              Exception... stageExceptions) {
+            this.context = context;
+            this.index = index;
+            this.input = input;
+            this.output = output;
+            this.channels = channels;
+            this.stageExceptions = stageExceptions;
+        }
+
+        @Override
+        public void run() {
+            try {
+                callCommands.get(index).evaluate(context, input, output);
+            } catch (AbstractApplicationException | ShellException | FileNotFoundException | RuntimeException e) {
+                stageExceptions[index] = e;
+            } finally {
+                closeQuietly();
+                if (index > 0 && channels[index - 1].isBroken()) {
+                    terminateUpstream();
+                }
+            }
+        }
+
+        private void terminateUpstream() {
+            for (int i = 0; i < index; i++) {
+                callCommands.get(i).terminate();
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                if (index > 0) {
+                    IOUtils.closeInputStream(input);
+                }
+                if (index < callCommands.size() - 1) {
+                    IOUtils.closeOutputStream(output);
+                }
+            } catch (ShellException e) {
+                if (stageExceptions[index] == null) {
+                    stageExceptions[index] = e;
+                }
+            }
+        }
+    }
 }
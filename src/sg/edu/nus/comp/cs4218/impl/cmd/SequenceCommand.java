@@ -1,16 +1,15 @@
 package sg.edu.nus.comp.cs4218.impl.cmd;
 
 import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.AbstractApplicationException;
 import sg.edu.nus.comp.cs4218.exception.ExitException;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.LinkedList;
 import java.util.List;
 
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
@@ -18,10 +17,17 @@ import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
 /**
  * A Sequence Command is a sub-command consisting of two Commands separated with a semicolon.
  * <p>
+ * The output of each command is written to stdout as it is produced. As in a shell, whatever a
+ * failing command wrote before it failed has therefore already been written, and is kept: its
+ * error message follows that output, on a line of its own, and the next command's output comes
+ * after it.
+ * <p>
  * Command format: <Command> ; <Command>
  */
 public class SequenceCommand implements Command {
     private final List<Command> commands;
+    private volatile boolean isTerminated;
+    private volatile Command activeCommand;
 
     public SequenceCommand(List<Command> commands) {
         this.commands = commands;
@@ -30,35 +36,34 @@ public class SequenceCommand implements Command {
     @Override
     public void evaluate(InputStream stdin, OutputStream stdout)
             throws AbstractApplicationException, ShellException, FileNotFoundException {
+        evaluate(ShellContext.current(), stdin, stdout);
+    }
+
+    /**
+     * Evaluates the commands one after another in the given shell session, so that a change of
+     * directory by one command is seen by the commands after it.
+     */
+    @Override
+    public void evaluate(ShellContext context, InputStream stdin, OutputStream stdout)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
         ExitException exitException = null;
-        List<String> outputLines = new LinkedList<>();
+        CommandOutputStream outputStream = new CommandOutputStream(stdout);
 
         for (Command command : commands) {
+            activeCommand = command;
+            if (isTerminated) {
+                break;
+            }
+            outputStream.reset();
             try {
-                OutputStream outputStream = new ByteArrayOutputStream();
-                command.evaluate(stdin, outputStream);
-
-                String outputLine = outputStream.toString();
-                if (!outputLine.isEmpty()) {
-                    outputLines.add(outputLine);
-                    // if newline not present, add it
-                    if (!outputLine.endsWith(STRING_NEWLINE)) {
-                        outputLines.add(STRING_NEWLINE);
-                    }
-                }
+                command.evaluate(context, stdin, outputStream);
             } catch (ExitException e) {
                 exitException = e;
             } catch (AbstractApplicationException | ShellException e) {
-                outputLines.add(e.getMessage() + STRING_NEWLINE);
-            }
-        }
-
-        for (String outputLine : outputLines) {
-            try {
-                stdout.write(outputLine.getBytes());
-            } catch (IOException e) {
-                throw new ShellException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not thrown in given implementation
+                writeLine(outputStream, "");
+                writeLine(outputStream, e.getMessage());
             }
+            writeLine(outputStream, "");
         }
 
         if (exitException != null) {
@@ -66,12 +71,99 @@ public class SequenceCommand implements Command {
         }
     }
 
+    /**
+     * Writes the given text, terminates the output of the current command with a newline if it
+     * does not already end with one, and flushes it to stdout.
+     */
+    private void writeLine(CommandOutputStream outputStream, String text) throws ShellException {
+        try {
+            outputStream.write(text.getBytes());
+            if (outputStream.hasOutput() && !outputStream.endsWithNewline()) {
+                outputStream.write(STRING_NEWLINE.getBytes());
+            }
+            outputStream.flush();
+        } catch (IOException e) {
+            throw new ShellException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - Stack trace not thrown in given implementation
+        }
+    }
+
+    /**
+     * Terminates the command currently being evaluated. Commands after it will not run.
+     */
     @Override
     public void terminate() {
-        // Unused for now
+        isTerminated = true;
+        Command command = activeCommand;
+        if (command != null) {
+            command.terminate();
+        }
     }
 
     public List<Command> getCommands() {
         return commands;
     }
+
+    /**
+     * Passes each command's output straight through to stdout, remembering whether the current
+     * command wrote anything and whether that output ends with a newline. Closing it does not
+     * close stdout, which remains in use by the following commands.
+     */
+    private static class CommandOutputStream extends OutputStream {
+        private static final byte[] NEWLINE_BYTES = STRING_NEWLINE.getBytes();
+
+        private final OutputStream stdout;
+        private final byte[] tail = new byte[NEWLINE_BYTES.length];
+        private long numBytes;
+
+        CommandOutputStream(OutputStream stdout) {
+            super();
+            this.stdout = stdout;
+        }
+
+        void reset() {
+            numBytes = 0;
+        }
+
+        boolean hasOutput() {
+            return numBytes > 0;
+        }
+
+        boolean endsWithNewline() {
+            if (numBytes < NEWLINE_BYTES.length) {
+                return false;
+            }
+            for (int i = 0; i < NEWLINE_BYTES.length; i++) {
+                if (tail[(int) ((numBytes + i) % tail.length)] != NEWLINE_BYTES[i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void write(int value) throws IOException {
+            stdout.write(value);
+            tail[(int) (numBytes % tail.length)] = (byte) value;
+            numBytes++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            stdout.write(bytes, off, len);
+            for (int i = Math.max(off, off + len - tail.length); i < off + len; i++) {
+                tail[(int) ((numBytes + i - off) % tail.length)] = bytes[i];
+            }
+            numBytes += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            stdout.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
 }
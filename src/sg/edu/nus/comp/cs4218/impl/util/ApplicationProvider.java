@@ -0,0 +1,19 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+/**
+ * A source of additional applications for the shell.
+ * <p>
+ * Implementations are discovered with {@link java.util.ServiceLoader} when the default
+ * {@link ApplicationRegistry} is first used, by listing them in
+ * {@code META-INF/services/sg.edu.nus.comp.cs4218.impl.util.ApplicationProvider}.
+ * Applications registered by a provider replace built-in applications of the same name.
+ */
+public interface ApplicationProvider {
+
+    /**
+     * Registers the applications of this provider.
+     *
+     * @param registry ApplicationRegistry to register the applications with.
+     */
+    void registerApplications(ApplicationRegistry registry);
+}
@@ -0,0 +1,136 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.Application;
+import sg.edu.nus.comp.cs4218.exception.ShellException;
+import sg.edu.nus.comp.cs4218.impl.app.*;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static sg.edu.nus.comp.cs4218.impl.util.ApplicationRunner.*;
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_INVALID_APP;
+
+/**
+ * Maps application names to the applications that run them.
+ * <p>
+ * Applications are registered as factories and only created when first looked up.
+ * A shared application is created once and reused by every command, so it must not keep state
+ * between runs. Any other application is created anew for every command.
+ */
+public class ApplicationRegistry {
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * Returns the registry of built-in applications, extended with the applications of every
+     * {@link ApplicationProvider} found on the class path.
+     */
+    public static ApplicationRegistry getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    /**
+     * Creates a registry of the built-in applications.
+     */
+    public static ApplicationRegistry withBuiltins() {
+        ApplicationRegistry registry = new ApplicationRegistry();
+        registry.registerShared(APP_LS, LsApplication::new);
+        registry.registerShared(APP_WC, WcApplication::new);
+        registry.registerShared(APP_MV, MvApplication::new);
+        registry.registerShared(APP_RM, RmApplication::new);
+        registry.registerShared(APP_ECHO, EchoApplication::new);
+        registry.registerShared(APP_EXIT, ExitApplication::new);
+        registry.registerShared(APP_GREP, GrepApplication::new);
+        registry.registerShared(APP_CD, CdApplication::new);
+        registry.registerShared(APP_CAT, CatApplication::new);
+        registry.registerShared(APP_SORT, SortApplication::new);
+        registry.registerShared(APP_TEE, TeeApplication::new);
+        registry.registerShared(APP_CUT, CutApplication::new);
+        // mkdir keeps its flags in a field between run and createFolder
+        registry.register(APP_MKDIR, MkdirApplication::new);
+        registry.registerShared(APP_PASTE, PasteApplication::new);
+        registry.registerShared(APP_UNIQ, UniqApplication::new);
+        return registry;
+    }
+
+    /**
+     * Registers an application that is created anew for every command.
+     *
+     * @param name    Name the application is run by.
+     * @param factory Supplier of new instances of the application.
+     */
+    public void register(String name, Supplier<? extends Application> factory) {
+        registrations.put(name, new Registration(factory, false));
+    }
+
+    /**
+     * Registers a stateless application whose single instance is shared by every command,
+     * including commands running at the same time.
+     *
+     * @param name    Name the application is run by.
+     * @param factory Supplier of the shared instance, called on the first lookup.
+     */
+    public void registerShared(String name, Supplier<? extends Application> factory) {
+        registrations.put(name, new Registration(factory, true));
+    }
+
+    public boolean contains(String name) {
+        return registrations.containsKey(name);
+    }
+
+    /**
+     * Returns the application to run for the given name.
+     *
+     * @param name Name of the application.
+     * @return Application to run.
+     * @throws ShellException If no application is registered under the name.
+     */
+    public Application getApplication(String name) throws ShellException {
+        Registration registration = name == null ? null : registrations.get(name);
+        if (registration == null) {
+            throw new ShellException(name + ": " + ERR_INVALID_APP);
+        }
+        return registration.getApplication();
+    }
+
+    private static final class Registration {
+        private final Supplier<? extends Application> factory;
+        private final boolean isShared;
+        private volatile Application instance;
+
+        Registration(Supplier<? extends Application> factory, boolean isShared) {
+            this.factory = factory;
+            this.isShared = isShared;
+        }
+
+        Application getApplication() {
+            if (!isShared) {
+                return factory.get();
+            }
+            Application application = instance;
+            if (application == null) {
+                synchronized (this) {
+                    application = instance;
+                    if (application == null) {
+                        application = factory.get();
+                        instance = application;
+                    }
+                }
+            }
+            return application;
+        }
+    }
+
+    private static final class DefaultHolder {
+        private static final ApplicationRegistry INSTANCE = createDefault();
+
+        private static ApplicationRegistry createDefault() {
+            ApplicationRegistry registry = withBuiltins();
+            for (ApplicationProvider provider : ServiceLoader.load(ApplicationProvider.class)) {
+                provider.registerApplications(registry);
+            }
+            return registry;
+        }
+    }
+}
@@ -6,6 +6,8 @@ import sg.edu.nus.comp.cs4218.exception.ShellException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
+import java.io.FilterInputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -30,20 +32,46 @@ public class ArgumentResolver {
     }
 
     /**
-     * Handle quoting + globing + command substitution for a list of arguments.
+     * Handle quoting + globing + command substitution for a list of arguments. Substituted
+     * commands read from an empty stdin.
      *
      * @param argsList The original list of arguments.
      * @return The list of parsed arguments.
      * @throws ShellException If any of the arguments have an invalid syntax.
      */
     public List<String> parseArguments(List<String> argsList) throws AbstractApplicationException, ShellException, FileNotFoundException {
+        return parseArguments(argsList, InputStream.nullInputStream());
+    }
+
+    /**
+     * Handle quoting + globing + command substitution for a list of arguments.
+     *
+     * @param argsList The original list of arguments.
+     * @param stdin    InputStream of the command the arguments belong to, which substituted commands
+     *                 read from. It is left open.
+     * @return The list of parsed arguments.
+     * @throws ShellException If any of the arguments have an invalid syntax.
+     */
+    public List<String> parseArguments(List<String> argsList, InputStream stdin)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
         List<String> parsedArgsList = new LinkedList<>();
         for (String arg : argsList) {
-            parsedArgsList.addAll(resolveOneArgument(arg));
+            parsedArgsList.addAll(resolveOneArgument(arg, stdin));
         }
         return parsedArgsList;
     }
 
+    /**
+     * Resolves one argument as {@link #resolveOneArgument(String, InputStream)} does, with
+     * substituted commands reading from an empty stdin.
+     *
+     * @param arg String containing one argument.
+     * @return A list containing one or more parsed args, depending on the outcome of the parsing.
+     */
+    public List<String> resolveOneArgument(String arg) throws AbstractApplicationException, ShellException, FileNotFoundException {
+        return resolveOneArgument(arg, InputStream.nullInputStream());
+    }
+
     /**
      * Unwraps single and double quotes from one argument.
      * Performs globing when there are unquoted asterisks.
@@ -52,10 +80,13 @@ public class ArgumentResolver {
      * Single quotes disable the interpretation of all special characters.
      * Double quotes disable the interpretation of all special characters, except for back quotes.
      *
-     * @param arg String containing one argument.
+     * @param arg   String containing one argument.
+     * @param stdin InputStream substituted commands read from, rather than the stdin of the JVM,
+     *              which belongs to whoever started it. It is left open.
      * @return A list containing one or more parsed args, depending on the outcome of the parsing.
      */
-    public List<String> resolveOneArgument(String arg) throws AbstractApplicationException, ShellException, FileNotFoundException {
+    public List<String> resolveOneArgument(String arg, InputStream stdin)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
         Stack<Character> unmatchedQuotes = new Stack<>();
         LinkedList<RegexArgument> parsedArgsSegment = new LinkedList<>();
         RegexArgument parsedArg = makeRegexArgument();
@@ -79,7 +110,7 @@ public class ArgumentResolver {
                     unmatchedQuotes.pop();
 
                     // evaluate subCommand and get the output
-                    String subCommandOutput = evaluateSubCommand(subCommand.toString());
+                    String subCommandOutput = evaluateSubCommand(subCommand.toString(), stdin);
                     subCommand.setLength(0); // Clear the previous subCommand registered
 
                     // check if back quotes are nested
@@ -167,14 +198,21 @@ public class ArgumentResolver {
         return new RegexArgument(str);
     }
 
-    private String evaluateSubCommand(String commandString) throws AbstractApplicationException, ShellException, FileNotFoundException {
+    private String evaluateSubCommand(String commandString, InputStream stdin)
+            throws AbstractApplicationException, ShellException, FileNotFoundException {
         if (StringUtils.isBlank(commandString)) {
             return "";
         }
 
         OutputStream outputStream = new ByteArrayOutputStream();
         Command command = CommandBuilder.parseCommand(commandString, getAppRunner());
-        command.evaluate(System.in, outputStream);
+        // the substituted command closes its stdin when done, but the stdin still belongs to the caller
+        command.evaluate(new FilterInputStream(stdin) {
+            @Override
+            public void close() {
+                // left open for the caller
+            }
+        }, outputStream);
 
         String result = outputStream.toString();
         if (result.endsWith(STRING_NEWLINE)) {
@@ -0,0 +1,89 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The characters of a run of ASCII bytes, read straight from the bytes instead of being decoded
+ * into a String first. Lets lines read as bytes be matched against a regular expression without
+ * a round trip through UTF-16.
+ */
+public final class AsciiSequence implements CharSequence {
+    private final ByteBuffer bytes;
+    private final int offset;
+    private final int length;
+
+    /**
+     * Creates a view of ASCII bytes in a buffer. The bytes are not copied, so the view only stays
+     * valid while the buffer is unchanged.
+     *
+     * @param bytes  Buffer holding the bytes, read by absolute index.
+     * @param offset Index of the first byte.
+     * @param length Number of bytes.
+     */
+    public AsciiSequence(ByteBuffer bytes, int offset, int length) {
+        this.bytes = bytes;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    /**
+     * Creates a view of ASCII bytes in an array, without copying them.
+     */
+    public static AsciiSequence of(byte[] bytes, int offset, int length) {
+        return new AsciiSequence(ByteBuffer.wrap(bytes), offset, length);
+    }
+
+    /**
+     * Returns the characters of UTF-8 bytes: a view of the bytes if they are all ASCII, or a
+     * decoded String otherwise.
+     */
+    public static CharSequence decode(byte[] bytes, int offset, int length) {
+        if (isAscii(bytes, offset, length)) {
+            return of(bytes, offset, length);
+        }
+        return new String(bytes, offset, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns true if none of the bytes has its high bit set.
+     */
+    public static boolean isAscii(byte[] bytes, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            if (bytes[i] < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= length) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return (char) bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > length || start > end) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new AsciiSequence(bytes, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] copy = new byte[length];
+        for (int i = 0; i < length; i++) {
+            copy[i] = bytes.get(offset + i);
+        }
+        return new String(copy, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -2,14 +2,10 @@ package sg.edu.nus.comp.cs4218.impl.util;
 
 import sg.edu.nus.comp.cs4218.Command;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
-import sg.edu.nus.comp.cs4218.impl.cmd.CallCommand;
-import sg.edu.nus.comp.cs4218.impl.cmd.PipeCommand;
-import sg.edu.nus.comp.cs4218.impl.cmd.SequenceCommand;
 
+import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SYNTAX;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.*;
@@ -17,19 +13,11 @@ import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.*;
 @SuppressWarnings({"PMD.ExcessiveMethodLength", "PMD.ClassNamingConventions"})
 public final class CommandBuilder {
     /**
-     * Regular expression for extracting valid arguments from the command string:
-     * (NO_QUOTE | SINGLE_QUOTE | NESTED_BACK_QUOTE | DOUBLE_QUOTE | BACK_QUOTE)+
-     * <p>
-     * The order matters because it affects the matching priority.
-     * <p>
-     * NO_QUOTE: [^'\"`|<>;\\s]+
-     * SINGLE_QUOTE: '[^']*'
-     * NESTED_BACK_QUOTE: \"([^\"`]*`.*?`[^\"`]*)+\"
-     * DOUBLE_QUOTE: \"[^\"]*\"
-     * BACK_QUOTE: `[^`]*`
+     * Characters that end an unquoted run of an argument, besides whitespace.
      */
-    private static final Pattern ARGUMENT_REGEX = Pattern
-            .compile("([^'\"`|<>;\\s]+|'[^']*'|\"([^\"`]*`.*?`[^\"`]*)+\"|\"[^\"]*\"|`[^`]*`)+");
+    private static final String SPECIAL_CHARS = "'\"`|<>;";
+
+    private static final CommandCache TEMPLATE_CACHE = new CommandCache();
 
     private CommandBuilder() {
     }
@@ -39,6 +27,9 @@ public final class CommandBuilder {
      * <p>
      * CallCommand takes in a list of tokens, PipeCommand takes in a list of CallCommands,
      * and SequenceCommand takes in a list of CallCommands / PipeCommands.
+     * <p>
+     * The parsed structure of each command string is cached, so parsing the same string again
+     * only builds a fresh command tree. Arguments are still resolved on every evaluation.
      *
      * @return Final command to be evaluated.
      * @throws ShellException If the provided command string has an invalid syntax.
@@ -49,39 +40,89 @@ public final class CommandBuilder {
             throw new ShellException(ERR_SYNTAX);
         }
 
-        ArgumentResolver argumentResolver = new ArgumentResolver();
-        List<Command> cmdsForSequence = new LinkedList<>();
-        List<CallCommand> callCmdsForPipe = new LinkedList<>();
-        List<String> tokens = new LinkedList<>();
+        CommandTemplate template = TEMPLATE_CACHE.get(commandString);
+        if (template == null) {
+            template = parseTemplate(commandString);
+            TEMPLATE_CACHE.put(commandString, template);
+        }
+        return template.instantiate(appRunner);
+    }
 
-        String commandSubstring = commandString;
-        while (!commandSubstring.isEmpty()) {
-            commandSubstring = commandSubstring.trim();
-            Matcher matcher = ARGUMENT_REGEX.matcher(commandSubstring);
+    /**
+     * Returns the cache of parsed command templates, e.g. to inspect its hit and miss counts.
+     */
+    public static CommandCache getCache() {
+        return TEMPLATE_CACHE;
+    }
 
-            // no valid arguments found
-            if (!matcher.find()) {
-                throw new ShellException(ERR_SYNTAX);
+    /**
+     * Tokenizes the provided command string into a sequence of pipelines of call command tokens.
+     * <p>
+     * The command string is scanned once from left to right. An argument is a sequence of
+     * (NO_QUOTE | SINGLE_QUOTE | DOUBLE_QUOTE | BACK_QUOTE)+ with no whitespace in between:
+     * <p>
+     * NO_QUOTE: characters other than whitespace and '"`|<>;
+     * SINGLE_QUOTE: '...' up to the next single quote
+     * DOUBLE_QUOTE: "..." up to the next double quote that is not inside a pair of back quotes
+     * BACK_QUOTE: `...` up to the next back quote
+     *
+     * @throws ShellException If the provided command string has an invalid syntax.
+     */
+    private static CommandTemplate parseTemplate(String commandString) throws ShellException {
+        List<List<List<String>>> cmdsForSequence = new LinkedList<>();
+        List<List<String>> callCmdsForPipe = new LinkedList<>();
+        List<String> tokens = new LinkedList<>();
+        int end = commandString.length();
+        while (end > 0 && commandString.charAt(end - 1) <= CHAR_SPACE) {
+            end--;
+        }
+        if (end == 0) {
+            throw new ShellException(ERR_SYNTAX);
+        }
+        Lexer lexer = new Lexer(commandString, end);
+        // an operator must be followed by at least one more argument
+        int lastArgumentStart = lexer.findLastArgumentStart();
+
+        int pos = 0;
+        while (pos < end) {
+            while (commandString.charAt(pos) <= CHAR_SPACE) {
+                pos++;
             }
 
-            // found a valid argument at the start of the command substring
-            if (matcher.start() == 0) {
-                tokens.add(matcher.group());
-                commandSubstring = commandSubstring.substring(matcher.end());
+            // found a valid argument at the current position
+            int tokenEnd = lexer.scanArgument(pos);
+            if (tokenEnd > pos) {
+                tokens.add(commandString.substring(pos, tokenEnd));
+                pos = tokenEnd;
                 continue;
             }
 
-            // found a valid argument but not at the start of the command substring
-            char firstChar = commandSubstring.charAt(0);
-            commandSubstring = commandSubstring.substring(1);
+            // no valid arguments found in the rest of the command string
+            if (pos > lastArgumentStart) {
+                throw new ShellException(ERR_SYNTAX);
+            }
+
+            // found a valid argument but not at the current position
+            char firstChar = commandString.charAt(pos);
+            pos++;
 
             switch (firstChar) {
                 case CHAR_REDIR_INPUT:
-                    tokens.add(String.valueOf(firstChar));
+                    if (commandString.startsWith(STRING_HERE_STRING, pos - 1)) {
+                        tokens.add(STRING_HERE_STRING);
+                        pos += STRING_HERE_STRING.length() - 1;
+                    } else {
+                        tokens.add(String.valueOf(firstChar));
+                    }
                     break;
                 case CHAR_REDIR_OUTPUT:
-                    // add as a separate token on its own
-                    tokens.add(String.valueOf(firstChar));
+                    // add as a separate token on its own, together with a second > for appending
+                    if (commandString.startsWith(STRING_REDIR_APPEND, pos - 1)) {
+                        tokens.add(STRING_REDIR_APPEND);
+                        pos += STRING_REDIR_APPEND.length() - 1;
+                    } else {
+                        tokens.add(String.valueOf(firstChar));
+                    }
                     break;
 
                 case CHAR_PIPE:
@@ -90,7 +131,7 @@ public final class CommandBuilder {
                         throw new ShellException(ERR_SYNTAX);
                     } else {
                         // add CallCommand as part of a PipeCommand
-                        callCmdsForPipe.add(new CallCommand(tokens, appRunner, argumentResolver));
+                        callCmdsForPipe.add(tokens);
                         tokens = new LinkedList<>();
                     }
                     break;
@@ -99,17 +140,10 @@ public final class CommandBuilder {
                     if (tokens.isEmpty()) {
                         // cannot start a new command with semicolon
                         throw new ShellException(ERR_SYNTAX);
-                    } else if (callCmdsForPipe.isEmpty()) {
-                        // add CallCommand as part of a SequenceCommand
-                        cmdsForSequence.add(new CallCommand(tokens, appRunner, argumentResolver));
-                        tokens = new LinkedList<>();
                     } else {
-                        // add CallCommand as part of ongoing PipeCommand
-                        callCmdsForPipe.add(new CallCommand(tokens, appRunner, argumentResolver));
-                        tokens = new LinkedList<>();
-
-                        // add PipeCommand as part of a SequenceCommand
-                        cmdsForSequence.add(new PipeCommand(callCmdsForPipe));
+                        // add CallCommand / PipeCommand as part of a SequenceCommand
+                        callCmdsForPipe.add(tokens);
+                        cmdsForSequence.add(callCmdsForPipe);
                         callCmdsForPipe = new LinkedList<>();
                     }
                     tokens = new LinkedList<>();
@@ -121,18 +155,171 @@ public final class CommandBuilder {
             }
         }
 
-        Command finalCommand = new CallCommand(tokens, appRunner, argumentResolver);
-        if (!callCmdsForPipe.isEmpty()) {
-            // add CallCommand as part of ongoing PipeCommand
-            callCmdsForPipe.add((CallCommand) finalCommand);
-            finalCommand = new PipeCommand(callCmdsForPipe);
+        // add final CallCommand / PipeCommand as part of the SequenceCommand
+        callCmdsForPipe.add(tokens);
+        cmdsForSequence.add(callCmdsForPipe);
+
+        return new CommandTemplate(cmdsForSequence);
+    }
+
+    /**
+     * Single-pass scanner over a command string, ending at {@code end}.
+     */
+    private static final class Lexer {
+        private static final int NO_MATCH = -1;
+
+        private final String commandString;
+        private final int end;
+        // positions of back quotes, and for each of them the closing double quote of a
+        // double-quoted segment whose back quotes are paired up starting from that back quote
+        private int[] backQuotes;
+        private int[] closingFromBackQuote;
+
+        Lexer(String commandString, int end) {
+            this.commandString = commandString;
+            this.end = end;
+        }
+
+        /**
+         * Scans one argument starting at the given position.
+         *
+         * @return Index just past the argument, or {@code start} if no argument starts there.
+         */
+        int scanArgument(int start) {
+            int pos = start;
+            while (pos < end) {
+                char chr = commandString.charAt(pos);
+                int next;
+                if (isUnquotedChar(chr)) {
+                    next = pos + 1;
+                    while (next < end && isUnquotedChar(commandString.charAt(next))) {
+                        next++;
+                    }
+                } else if (chr == CHAR_SINGLE_QUOTE || chr == CHAR_BACK_QUOTE) {
+                    next = commandString.indexOf(chr, pos + 1) + 1;
+                } else if (chr == CHAR_DOUBLE_QUOTE) {
+                    next = scanDoubleQuoted(pos) + 1;
+                } else {
+                    next = 0;
+                }
+
+                if (next <= 0) {
+                    break;
+                }
+                pos = next;
+            }
+            return pos;
         }
-        if (!cmdsForSequence.isEmpty()) {
-            // add CallCommand / PipeCommand as part of ongoing SequenceCommand
-            cmdsForSequence.add(finalCommand);
-            finalCommand = new SequenceCommand(cmdsForSequence);
+
+        /**
+         * Returns the index of the last position at which a valid argument starts, or -1 if there
+         * is none.
+         */
+        int findLastArgumentStart() {
+            boolean hasSingleQuoteAfter = false;
+            boolean hasDoubleQuoteAfter = false;
+            boolean hasBackQuoteAfter = false;
+            for (int i = end - 1; i >= 0; i--) {
+                char chr = commandString.charAt(i);
+                if (isUnquotedChar(chr)
+                        || chr == CHAR_SINGLE_QUOTE && hasSingleQuoteAfter
+                        || chr == CHAR_DOUBLE_QUOTE && hasDoubleQuoteAfter
+                        || chr == CHAR_BACK_QUOTE && hasBackQuoteAfter) {
+                    return i;
+                }
+                hasSingleQuoteAfter |= chr == CHAR_SINGLE_QUOTE;
+                hasDoubleQuoteAfter |= chr == CHAR_DOUBLE_QUOTE;
+                hasBackQuoteAfter |= chr == CHAR_BACK_QUOTE;
+            }
+            return NO_MATCH;
         }
 
-        return finalCommand;
+        /**
+         * Finds the closing double quote of the double-quoted segment starting at {@code start}.
+         * <p>
+         * If a back quote comes before the next double quote, the back quotes that follow are
+         * paired up, and a double quote between a pair of back quotes does not close the segment.
+         * Pairs are chosen so that the segment closes as early as possible when back quotes are
+         * paired in order, and otherwise by widening earlier pairs. If no such pairing exists,
+         * the segment ends at the next double quote.
+         *
+         * @return Index of the closing double quote, or -1 if there is none.
+         */
+        private int scanDoubleQuoted(int start) {
+            int nextDoubleQuote = commandString.indexOf(CHAR_DOUBLE_QUOTE, start + 1);
+            if (nextDoubleQuote < 0) {
+                return NO_MATCH;
+            }
+            // only look for a back quote up to the next double quote, so that scanning stays linear
+            int nextBackQuote = start + 1;
+            while (nextBackQuote < nextDoubleQuote && commandString.charAt(nextBackQuote) != CHAR_BACK_QUOTE) {
+                nextBackQuote++;
+            }
+            if (nextBackQuote == nextDoubleQuote) {
+                return nextDoubleQuote;
+            }
+
+            indexBackQuotes();
+            int openIdx = Arrays.binarySearch(backQuotes, nextBackQuote);
+            int closing = openIdx + 1 < backQuotes.length ? closingFromBackQuote[openIdx + 1] : NO_MATCH;
+            return closing == NO_MATCH ? nextDoubleQuote : closing;
+        }
+
+        /**
+         * Computes, in one pass from the right, where a double-quoted segment closes once a pair of
+         * back quotes has been opened and is closed at back quote {@code i} or any later one.
+         */
+        private void indexBackQuotes() {
+            if (backQuotes != null) {
+                return;
+            }
+            int numBackQuotes = 0;
+            for (int i = 0; i < end; i++) {
+                if (commandString.charAt(i) == CHAR_BACK_QUOTE) {
+                    numBackQuotes++;
+                }
+            }
+            backQuotes = new int[numBackQuotes];
+            int[] doubleQuoteAfter = new int[numBackQuotes];
+            int nextDoubleQuote = NO_MATCH;
+            for (int i = end - 1, idx = numBackQuotes; i >= 0; i--) {
+                char chr = commandString.charAt(i);
+                if (chr == CHAR_DOUBLE_QUOTE) {
+                    nextDoubleQuote = i;
+                } else if (chr == CHAR_BACK_QUOTE) {
+                    idx--;
+                    backQuotes[idx] = i;
+                    doubleQuoteAfter[idx] = nextDoubleQuote;
+                }
+            }
+
+            // closedAt: segment result if the open pair closes exactly at back quote i
+            // closingFromBackQuote: first success when the open pair closes at i, i + 1, ...
+            closingFromBackQuote = new int[numBackQuotes];
+            int[] closedAt = new int[numBackQuotes];
+            for (int i = numBackQuotes - 1; i >= 0; i--) {
+                int nextBackQuote = i + 1 < numBackQuotes ? backQuotes[i + 1] : end;
+                if (doubleQuoteAfter[i] != NO_MATCH && doubleQuoteAfter[i] < nextBackQuote) {
+                    closedAt[i] = doubleQuoteAfter[i];
+                } else if (i + 2 < numBackQuotes) {
+                    // back quote i + 1 opens another pair
+                    closedAt[i] = closingFromBackQuote[i + 2];
+                } else {
+                    closedAt[i] = NO_MATCH;
+                }
+                boolean hasLater = i + 1 < numBackQuotes;
+                closingFromBackQuote[i] = closedAt[i] == NO_MATCH && hasLater
+                        ? closingFromBackQuote[i + 1] : closedAt[i];
+            }
+        }
+
+        private static boolean isUnquotedChar(char chr) {
+            return SPECIAL_CHARS.indexOf(chr) < 0 && !isWhitespace(chr);
+        }
+
+        private static boolean isWhitespace(char chr) {
+            return chr == CHAR_SPACE || chr == CHAR_TAB || chr == '\n' || chr == '\u000B'
+                    || chr == '\f' || chr == '\r';
+        }
     }
 }
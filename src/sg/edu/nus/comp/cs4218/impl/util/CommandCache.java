@@ -0,0 +1,17 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+/**
+ * A bounded, thread-safe cache of parsed command templates keyed by the command string.
+ * The least recently used template is evicted once the cache is full.
+ */
+public class CommandCache extends LruCache<String, CommandTemplate> {
+    public static final int DEFAULT_CAPACITY = 256;
+
+    public CommandCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CommandCache(int capacity) {
+        super(capacity);
+    }
+}
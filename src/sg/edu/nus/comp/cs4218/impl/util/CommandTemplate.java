@@ -0,0 +1,68 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.Command;
+import sg.edu.nus.comp.cs4218.impl.cmd.CallCommand;
+import sg.edu.nus.comp.cs4218.impl.cmd.PipeCommand;
+import sg.edu.nus.comp.cs4218.impl.cmd.SequenceCommand;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * The parsed structure of a command string: a sequence of pipelines, each made up of the
+ * unresolved tokens of its call commands.
+ * <p>
+ * Quoting, globbing and command substitution are only resolved when a command is evaluated,
+ * so a template does not depend on the current directory or the file system and can be reused
+ * to build fresh commands for the same command string.
+ */
+public final class CommandTemplate {
+    private final List<List<List<String>>> sequence;
+
+    public CommandTemplate(List<List<List<String>>> sequence) {
+        List<List<List<String>>> pipelines = new ArrayList<>();
+        for (List<List<String>> pipeline : sequence) {
+            List<List<String>> callTokens = new ArrayList<>();
+            for (List<String> tokens : pipeline) {
+                callTokens.add(List.copyOf(tokens));
+            }
+            pipelines.add(Collections.unmodifiableList(callTokens));
+        }
+        this.sequence = Collections.unmodifiableList(pipelines);
+    }
+
+    /**
+     * Builds a new command tree from this template.
+     * <p>
+     * A pipeline with one call command becomes a CallCommand, otherwise a PipeCommand.
+     * A sequence with one pipeline becomes that command, otherwise a SequenceCommand.
+     *
+     * @param appRunner ApplicationRunner shared by the call commands of the tree.
+     * @return Final command to be evaluated.
+     */
+    public Command instantiate(ApplicationRunner appRunner) {
+        ArgumentResolver argumentResolver = new ArgumentResolver();
+        List<Command> cmdsForSequence = new LinkedList<>();
+        for (List<List<String>> pipeline : sequence) {
+            List<CallCommand> callCmdsForPipe = new LinkedList<>();
+            for (List<String> tokens : pipeline) {
+                callCmdsForPipe.add(new CallCommand(new LinkedList<>(tokens), appRunner, argumentResolver));
+            }
+            if (callCmdsForPipe.size() == 1) {
+                cmdsForSequence.add(callCmdsForPipe.get(0));
+            } else {
+                cmdsForSequence.add(new PipeCommand(callCmdsForPipe));
+            }
+        }
+        if (cmdsForSequence.size() == 1) {
+            return cmdsForSequence.get(0);
+        }
+        return new SequenceCommand(cmdsForSequence);
+    }
+
+    public List<List<List<String>>> getSequence() {
+        return sequence;
+    }
+}
@@ -0,0 +1,370 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Matches lines against a regular expression with a deterministic automaton over bytes that is
+ * built lazily, one transition at a time, from a {@link RegexProgram}. Each byte of a line is
+ * looked at once, so matching takes time linear in the length of the line whatever the pattern,
+ * unlike {@link java.util.regex.Matcher}, which backtracks and can take exponential time.
+ * <p>
+ * A state of the automaton is the set of states of the program that a match may be in after the
+ * bytes read so far. States and transitions are cached as they are first needed; once
+ * {@link #MAX_CACHED_STATES} states are cached, the cache is emptied and built up again, which
+ * bounds its memory at the cost of recomputing transitions.
+ * <p>
+ * Patterns outside of the supported syntax are not compiled, and lines that are not valid UTF-8
+ * are matched by the pattern itself, as the automaton assumes valid UTF-8.
+ */
+public final class DfaLineMatcher implements LineMatcher {
+    public static final int MAX_CACHED_STATES = 4096;
+
+    private static final int ALPHABET_SIZE = 256;
+    private static final int UNKNOWN = -1;
+
+    private final RegexProgram program;
+    private final Pattern pattern;
+    private final Map<StateSet, Integer> stateIds = new HashMap<>();
+    private int[][] states = new int[16][];
+    private int[][] transitions = new int[16][];
+    private boolean[] isMatches = new boolean[16];
+    // whether a line is decided once in the state: it matches, or no match is under way or can start
+    private boolean[] isFinal = new boolean[16];
+    private int[] endTransitions = new int[16];
+    private int stateCount;
+    private int startState;
+    private RegexLineMatcher fallback;
+    private byte[] scratch = new byte[128];
+
+    // scratch space for computing state sets
+    private final int[] stack;
+    private final boolean[] isVisited;
+    private final int[] members;
+    private int memberCount;
+
+    private DfaLineMatcher(RegexProgram program, Pattern pattern) {
+        this.program = program;
+        this.pattern = pattern;
+        // each state is expanded once, leaving at most one more entry on the stack than it took off
+        this.stack = new int[program.size() + 1];
+        this.isVisited = new boolean[program.size()];
+        this.members = new int[program.size()];
+        resetCache();
+    }
+
+    /**
+     * Returns a matcher for the pattern, or null if the pattern uses a construct or a flag that is
+     * not supported.
+     *
+     * @param pattern a compiled pattern, with no flags but {@link Pattern#CASE_INSENSITIVE}
+     */
+    public static DfaLineMatcher compile(Pattern pattern) {
+        if ((pattern.flags() & ~Pattern.CASE_INSENSITIVE) != 0) {
+            return null;
+        }
+        RegexProgram program = RegexProgram.compile(pattern.pattern(),
+                (pattern.flags() & Pattern.CASE_INSENSITIVE) != 0);
+        return program == null ? null : new DfaLineMatcher(program, pattern);
+    }
+
+    /**
+     * Returns the number of states currently cached, e.g. to see how large an automaton got.
+     */
+    public int getCachedStateCount() {
+        return stateCount;
+    }
+
+    @Override
+    public boolean matches(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        // $ also matches before a line terminator ending the line
+        int terminatorStart = end - finalTerminatorLength(bytes, offset, length);
+        boolean isValidated = false;
+        int state = startState;
+        if (terminatorStart == offset) {
+            state = endTransition(state, true);
+        }
+        if (isFinal[state]) {
+            return isMatches[state];
+        }
+        for (int i = offset; i < end; i++) {
+            int value = bytes[i] & 0xFF;
+            if (value >= 0x80 && !isValidated) {
+                if (!isValidUtf8(bytes, i, end)) {
+                    return getFallback().matches(bytes, offset, length);
+                }
+                isValidated = true;
+            }
+            int next = transitions[state][value];
+            state = next == UNKNOWN ? step(state, value) : next;
+            if (i + 1 == terminatorStart) {
+                state = endTransition(state, false);
+            }
+            if (isFinal[state]) {
+                return isMatches[state];
+            }
+        }
+        // endTransition may grow the tables, so the state is looked up only once it returns
+        int last = endTransition(state, length == 0);
+        return isMatches[last];
+    }
+
+    @Override
+    public boolean matches(MappedFile.LineCursor line) {
+        int length = line.getLength();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        line.getBytes(0, scratch, 0, length);
+        return matches(scratch, 0, length);
+    }
+
+    @Override
+    public LineMatcher copy() {
+        return new DfaLineMatcher(program, pattern);
+    }
+
+    /**
+     * Returns the state after reading a byte in the given state, and caches the transition.
+     */
+    private int step(int state, int value) {
+        memberCount = 0;
+        Arrays.fill(isVisited, false);
+        for (int member : states[state]) {
+            if (program.types[member] == RegexProgram.SET && program.accepts(member, value)) {
+                addClosure(program.outs[member], false, false);
+            }
+        }
+        // a match may start after any byte
+        addClosure(program.start, false, false);
+        int[] next = collectMembers();
+        if (stateCount >= MAX_CACHED_STATES) {
+            resetCache();
+            return intern(next);
+        }
+        int nextState = intern(next);
+        transitions[state][value] = nextState;
+        return nextState;
+    }
+
+    /**
+     * Returns the state after the $ anchors of the given state are taken, as they are at the end of
+     * the line or before its final terminator.
+     */
+    private int endTransition(int state, boolean isAtStart) {
+        if (!isAtStart && endTransitions[state] != UNKNOWN) {
+            return endTransitions[state];
+        }
+        memberCount = 0;
+        Arrays.fill(isVisited, false);
+        for (int member : states[state]) {
+            addClosure(member, isAtStart, true);
+        }
+        int[] next = collectMembers();
+        if (stateCount >= MAX_CACHED_STATES) {
+            resetCache();
+            return intern(next);
+        }
+        int nextState = intern(next);
+        if (!isAtStart) {
+            endTransitions[state] = nextState;
+        }
+        return nextState;
+    }
+
+    /**
+     * Adds the states reachable from a state without reading a byte. Only the states that read a
+     * byte, wait for the end of the line or match are kept, as the others do not tell states apart.
+     */
+    private void addClosure(int from, boolean isAtStart, boolean isAtEnd) {
+        int top = 0;
+        stack[top++] = from;
+        while (top > 0) {
+            int state = stack[--top];
+            if (isVisited[state]) {
+                continue;
+            }
+            isVisited[state] = true;
+            switch (program.types[state]) {
+                case RegexProgram.SPLIT:
+                    stack[top++] = program.alternatives[state];
+                    stack[top++] = program.outs[state];
+                    break;
+                case RegexProgram.EMPTY:
+                    stack[top++] = program.outs[state];
+                    break;
+                case RegexProgram.BEGIN:
+                    if (isAtStart) {
+                        stack[top++] = program.outs[state];
+                    }
+                    break;
+                case RegexProgram.END:
+                    if (isAtEnd) {
+                        stack[top++] = program.outs[state];
+                    } else {
+                        members[memberCount++] = state;
+                    }
+                    break;
+                default:
+                    members[memberCount++] = state;
+                    break;
+            }
+        }
+    }
+
+    private int[] collectMembers() {
+        int[] set = Arrays.copyOf(members, memberCount);
+        Arrays.sort(set);
+        return set;
+    }
+
+    /**
+     * Returns the state for a sorted set of program states, adding it to the cache if it is new.
+     */
+    private int intern(int[] set) {
+        StateSet key = new StateSet(set);
+        Integer id = stateIds.get(key);
+        if (id != null) {
+            return id;
+        }
+        int state = stateCount++;
+        if (state == states.length) {
+            states = Arrays.copyOf(states, state * 2);
+            transitions = Arrays.copyOf(transitions, state * 2);
+            isMatches = Arrays.copyOf(isMatches, state * 2);
+            isFinal = Arrays.copyOf(isFinal, state * 2);
+            endTransitions = Arrays.copyOf(endTransitions, state * 2);
+        }
+        states[state] = set;
+        if (transitions[state] == null) {
+            transitions[state] = new int[ALPHABET_SIZE];
+        }
+        Arrays.fill(transitions[state], UNKNOWN);
+        boolean isMatch = false;
+        for (int member : set) {
+            isMatch |= program.types[member] == RegexProgram.MATCH;
+        }
+        isMatches[state] = isMatch;
+        // a state with no program states is only reached once the pattern can no longer start, after ^
+        isFinal[state] = isMatch || set.length == 0;
+        endTransitions[state] = UNKNOWN;
+        stateIds.put(key, state);
+        return state;
+    }
+
+    /**
+     * Empties the cache but for the state a line starts in. The transition rows are kept to be
+     * reused by the states cached next.
+     */
+    private void resetCache() {
+        stateIds.clear();
+        stateCount = 0;
+        memberCount = 0;
+        Arrays.fill(isVisited, false);
+        addClosure(program.start, true, false);
+        startState = intern(collectMembers());
+    }
+
+    private RegexLineMatcher getFallback() {
+        if (fallback == null) {
+            fallback = new RegexLineMatcher(pattern);
+        }
+        return fallback;
+    }
+
+    /**
+     * Returns the length of the line terminator ending the line, or 0 if there is none. As in
+     * {@link java.util.regex.Pattern}, these are \n, \r, \r\n, U+0085, U+2028 and U+2029.
+     */
+    private static int finalTerminatorLength(byte[] bytes, int offset, int length) {
+        int end = offset + length;
+        if (length == 0) {
+            return 0;
+        }
+        if (bytes[end - 1] == '\n') {
+            return length >= 2 && bytes[end - 2] == '\r' ? 2 : 1;
+        }
+        if (bytes[end - 1] == '\r') {
+            return 1;
+        }
+        if (length >= 2 && bytes[end - 2] == (byte) 0xC2 && bytes[end - 1] == (byte) 0x85) {
+            return 2;
+        }
+        if (length >= 3 && bytes[end - 3] == (byte) 0xE2 && bytes[end - 2] == (byte) 0x80
+                && (bytes[end - 1] == (byte) 0xA8 || bytes[end - 1] == (byte) 0xA9)) {
+            return 3;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns true if the bytes are well-formed UTF-8, as accepted by the UTF-8 decoder: no
+     * overlong forms, surrogates or code points above U+10FFFF.
+     */
+    static boolean isValidUtf8(byte[] bytes, int from, int to) {
+        int i = from;
+        while (i < to) {
+            int lead = bytes[i] & 0xFF;
+            if (lead < 0x80) {
+                i++;
+                continue;
+            }
+            int length;
+            int min = 0x80;
+            int max = 0xBF;
+            if (lead >= 0xC2 && lead <= 0xDF) {
+                length = 2;
+            } else if (lead >= 0xE0 && lead <= 0xEF) {
+                length = 3;
+                min = lead == 0xE0 ? 0xA0 : 0x80;
+                max = lead == 0xED ? 0x9F : 0xBF;
+            } else if (lead >= 0xF0 && lead <= 0xF4) {
+                length = 4;
+                min = lead == 0xF0 ? 0x90 : 0x80;
+                max = lead == 0xF4 ? 0x8F : 0xBF;
+            } else {
+                return false;
+            }
+            if (i + length > to) {
+                return false;
+            }
+            int second = bytes[i + 1] & 0xFF;
+            if (second < min || second > max) {
+                return false;
+            }
+            for (int j = i + 2; j < i + length; j++) {
+                if ((bytes[j] & 0xC0) != 0x80) {
+                    return false;
+                }
+            }
+            i += length;
+        }
+        return true;
+    }
+
+    /**
+     * A set of program states, as the key of the state it is in the automaton.
+     */
+    private static final class StateSet {
+        private final int[] members;
+        private final int hash;
+
+        StateSet(int[] members) {
+            this.members = members;
+            this.hash = Arrays.hashCode(members);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof StateSet && Arrays.equals(members, ((StateSet) other).members);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
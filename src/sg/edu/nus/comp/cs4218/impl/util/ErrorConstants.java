@@ -13,6 +13,7 @@ public class ErrorConstants {
     public static final String ERR_NO_ISTREAM = "InputStream not provided";
     public static final String ERR_NO_INPUT = "No InputStream and no filenames";
     public static final String ERR_NO_FILE_ARGS = "No files provided";
+    public static final String ERR_BROKEN_PIPE = "Broken pipe";
 
     // Arguments related
     public static final String ERR_MISSING_ARG = "Missing Argument";
@@ -62,5 +63,6 @@ public class ErrorConstants {
     public static final String ERR_SYNTAX = "Invalid syntax";
     public static final String ERR_GENERAL = "Exception Caught";
     public static final String ERR_IO_EXCEPTION = "IOException";
+    public static final String ERR_INVALID_PORT = "Invalid port, expected a number from 0 to 65535";
 
 }
@@ -0,0 +1,183 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.ShellContext;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Looks up the attributes of files with a single {@link Files#readAttributes} call per file, instead
+ * of one system call for each of exists, is-directory, size and so on.
+ * <p>
+ * Each call command activates a cache of its own while it runs, so the applications and globbing of
+ * one command share the attributes they look up. Code that changes a file invalidates its entry.
+ * Outside of a command, every lookup reads the attributes afresh.
+ */
+public final class FileAttributeCache {
+    private static final FileAttributeCache UNCACHED = new FileAttributeCache(false);
+    private static final ThreadLocal<FileAttributeCache> ACTIVE_CACHE = new ThreadLocal<>();
+    private static final AtomicLong TOTAL_LOOKUPS = new AtomicLong();
+    private static final AtomicLong TOTAL_STAT_CALLS = new AtomicLong();
+
+    private final Map<Path, FileStatus> statuses = new ConcurrentHashMap<>();
+    private final boolean isCaching;
+
+    public FileAttributeCache() {
+        this(true);
+    }
+
+    private FileAttributeCache(boolean isCaching) {
+        this.isCaching = isCaching;
+    }
+
+    /**
+     * Returns the cache of the command running on the calling thread, or a cache that does not keep
+     * any attributes if there is none.
+     */
+    public static FileAttributeCache current() {
+        FileAttributeCache cache = ACTIVE_CACHE.get();
+        return cache == null ? UNCACHED : cache;
+    }
+
+    /**
+     * Makes this the current cache of the calling thread until the returned scope is closed, at
+     * which point the previous cache is restored.
+     */
+    public ShellContext.Scope activate() {
+        FileAttributeCache previous = ACTIVE_CACHE.get();
+        ACTIVE_CACHE.set(this);
+        return () -> {
+            if (previous == null) {
+                ACTIVE_CACHE.remove();
+            } else {
+                ACTIVE_CACHE.set(previous);
+            }
+        };
+    }
+
+    public boolean exists(Path path) {
+        return lookup(path).exists();
+    }
+
+    public boolean isDirectory(Path path) {
+        return lookup(path).isDirectory();
+    }
+
+    public boolean isRegularFile(Path path) {
+        return lookup(path).isRegularFile();
+    }
+
+    /**
+     * Returns the size of the file in bytes, or 0 if it does not exist.
+     */
+    public long size(Path path) {
+        return lookup(path).size();
+    }
+
+    public boolean canRead(Path path) {
+        TOTAL_LOOKUPS.incrementAndGet();
+        if (!isCaching) {
+            TOTAL_STAT_CALLS.incrementAndGet();
+            return Files.isReadable(path);
+        }
+        FileStatus status = cachedStatus(path);
+        if (status.readable == null) {
+            TOTAL_STAT_CALLS.incrementAndGet();
+            status.readable = status.exists() && Files.isReadable(path);
+        }
+        return status.readable;
+    }
+
+    /**
+     * Forgets the attributes of a file that was created, changed or deleted, along with those of
+     * any file below it.
+     */
+    public void invalidate(Path path) {
+        Path key = path.toAbsolutePath().normalize();
+        statuses.keySet().removeIf(cached -> cached.startsWith(key));
+    }
+
+    public void invalidateAll() {
+        statuses.clear();
+    }
+
+    /**
+     * Returns the number of attribute lookups made by all caches since the shell started.
+     */
+    public static long getLookupCount() {
+        return TOTAL_LOOKUPS.get();
+    }
+
+    /**
+     * Returns the number of attribute lookups that needed a system call.
+     */
+    public static long getStatCallCount() {
+        return TOTAL_STAT_CALLS.get();
+    }
+
+    /**
+     * Returns the number of system calls saved, compared to making one for every lookup.
+     */
+    public static long getSavedStatCallCount() {
+        return getLookupCount() - getStatCallCount();
+    }
+
+    public static String getMetricsReport() {
+        return String.format("%d file attribute lookups, %d stat calls, %d saved",
+                getLookupCount(), getStatCallCount(), getSavedStatCallCount());
+    }
+
+    private FileStatus lookup(Path path) {
+        TOTAL_LOOKUPS.incrementAndGet();
+        if (!isCaching) {
+            return readStatus(path);
+        }
+        return cachedStatus(path);
+    }
+
+    private FileStatus cachedStatus(Path path) {
+        return statuses.computeIfAbsent(path.toAbsolutePath().normalize(), this::readStatus);
+    }
+
+    private FileStatus readStatus(Path path) {
+        TOTAL_STAT_CALLS.incrementAndGet();
+        try {
+            return new FileStatus(Files.readAttributes(path, BasicFileAttributes.class));
+        } catch (IOException | SecurityException e) {
+            return new FileStatus(null);
+        }
+    }
+
+    /**
+     * The attributes of one file, or of a file that does not exist.
+     */
+    private static final class FileStatus {
+        private final BasicFileAttributes attributes;
+        private volatile Boolean readable;
+
+        FileStatus(BasicFileAttributes attributes) {
+            this.attributes = attributes;
+        }
+
+        boolean exists() {
+            return attributes != null;
+        }
+
+        boolean isDirectory() {
+            return attributes != null && attributes.isDirectory();
+        }
+
+        boolean isRegularFile() {
+            return attributes != null && attributes.isRegularFile();
+        }
+
+        long size() {
+            return attributes == null ? 0 : attributes.size();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Opens the files of a multi-file command ahead of time, so that the latency of opening a file and
+ * reading its first block overlaps with the processing of the files before it.
+ * <p>
+ * While one file is being read, up to {@code depth} of the files after it are opened on a small
+ * pool of I/O threads and their leading {@link #BLOCK_SIZE} bytes are read into memory. The files
+ * are still handed out one at a time, in the order the caller asks for them, so output order is
+ * unaffected. Files smaller than a block are read whole and closed straight away.
+ * <p>
+ * Files that the caller skips (for example because it maps large files instead) are closed once a
+ * later file is opened or the read-ahead is closed. If a file could not be prefetched, it is
+ * opened on the calling thread as usual, so errors are reported exactly as without read-ahead.
+ */
+public final class FileReadAhead implements Closeable {
+    /**
+     * On a single processor the I/O threads only take turns with the command itself, and handing
+     * files between threads costs more than it hides when the files are already cached, so files
+     * are then opened on the calling thread as before.
+     */
+    public static final int DEFAULT_DEPTH = Runtime.getRuntime().availableProcessors() > 1 ? 8 : 0;
+    public static final int BLOCK_SIZE = 64 * 1024;
+
+    private static final ExecutorService IO_EXECUTOR = Executors.newFixedThreadPool(2, runnable -> {
+        Thread thread = new Thread(runnable, "read-ahead");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final List<Path> files;
+    private final int depth;
+    private final Deque<Prefetch> pending = new ArrayDeque<>();
+    private int nextIndex;
+
+    /**
+     * @param files the files the caller will open, in order
+     * @param depth the number of files to keep prefetched ahead of the caller
+     */
+    public FileReadAhead(List<Path> files, int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("Depth must not be negative");
+        }
+        this.files = files;
+        // a single file has nothing to overlap with
+        this.depth = files.size() > 1 ? depth : 0;
+        fill();
+    }
+
+    /**
+     * Opens the given file, using its prefetched contents if it is one of the files being read
+     * ahead. Prefetched files before it that were never opened are discarded.
+     *
+     * @param file the absolute path of the file to open
+     * @return an InputStream over the whole file
+     * @throws FileNotFoundException If the file cannot be opened
+     */
+    public InputStream open(Path file) throws FileNotFoundException {
+        Prefetch match = null;
+        for (Prefetch prefetch : pending) {
+            if (prefetch.file.equals(file)) {
+                match = prefetch;
+                break;
+            }
+        }
+        if (match == null) {
+            return new FileInputStream(file.toFile());
+        }
+        Prefetch head = pending.removeFirst();
+        while (head != match) { //NOPMD - suppressed CompareObjectsWithEquals - Looking for this exact prefetch
+            head.discard();
+            head = pending.removeFirst();
+        }
+        fill();
+
+        Block block = match.await();
+        if (block == null) {
+            return new FileInputStream(file.toFile());
+        }
+        return block.toInputStream();
+    }
+
+    /**
+     * Closes every file that was prefetched but never opened.
+     */
+    @Override
+    public void close() {
+        Iterator<Prefetch> iterator = pending.iterator();
+        while (iterator.hasNext()) {
+            iterator.next().discard();
+            iterator.remove();
+        }
+        nextIndex = files.size();
+    }
+
+    /**
+     * Tops the pending files up to the full depth once half of them have been opened. The new files
+     * are read by a single task, one after another, so that the I/O threads are woken once per
+     * batch rather than once per file.
+     */
+    private void fill() {
+        if (pending.size() > depth / 2 || nextIndex >= files.size()) {
+            return;
+        }
+        List<Prefetch> batch = new ArrayList<>();
+        while (pending.size() < depth && nextIndex < files.size()) {
+            Prefetch prefetch = new Prefetch(files.get(nextIndex++));
+            pending.addLast(prefetch);
+            batch.add(prefetch);
+        }
+        IO_EXECUTOR.execute(() -> {
+            for (Prefetch prefetch : batch) {
+                try {
+                    prefetch.block.complete(Block.read(prefetch.file));
+                } catch (RuntimeException e) {
+                    prefetch.block.complete(null);
+                }
+            }
+        });
+    }
+
+    /**
+     * The leading block of a file, together with the stream positioned right after it, or no
+     * stream if the block holds the whole file.
+     */
+    private static final class Block {
+        private final byte[] bytes;
+        private final int length;
+        private final InputStream rest;
+
+        Block(byte[] bytes, int length, InputStream rest) {
+            this.bytes = bytes;
+            this.length = length;
+            this.rest = rest;
+        }
+
+        static Block read(Path file) {
+            FileInputStream input;
+            try {
+                input = new FileInputStream(file.toFile());
+            } catch (FileNotFoundException | SecurityException e) {
+                return null;
+            }
+            try {
+                // one byte more than the file size, so that reaching its end is seen without another read
+                int blockSize = (int) Math.min(BLOCK_SIZE, input.getChannel().size() + 1);
+                byte[] bytes = new byte[blockSize];
+                int length = input.readNBytes(bytes, 0, blockSize);
+                if (length < blockSize) {
+                    input.close();
+                    return new Block(bytes, length, null);
+                }
+                return new Block(bytes, length, input);
+            } catch (IOException e) {
+                closeQuietly(input);
+                return null;
+            }
+        }
+
+        InputStream toInputStream() {
+            InputStream head = new ByteArrayInputStream(bytes, 0, length);
+            return rest == null ? head : new SequenceInputStream(head, rest);
+        }
+
+        void close() {
+            if (rest != null) {
+                closeQuietly(rest);
+            }
+        }
+
+        private static void closeQuietly(InputStream input) {
+            try {
+                input.close();
+            } catch (IOException e) {
+                // the file was never handed out, so there is nobody to report this to
+            }
+        }
+    }
+
+    /**
+     * A file being read ahead on the I/O threads.
+     */
+    private static final class Prefetch {
+        private final Path file;
+        private final CompletableFuture<Block> block;
+
+        Prefetch(Path file) {
+            this.file = file;
+            this.block = new CompletableFuture<>();
+        }
+
+        /**
+         * Waits for the block to be read, returning null if the file could not be prefetched.
+         */
+        Block await() {
+            return block.join();
+        }
+
+        /**
+         * Closes the file once it has been prefetched, without waiting for it.
+         */
+        void discard() {
+            block.thenAccept(result -> {
+                if (result != null) {
+                    result.close();
+                }
+            });
+        }
+    }
+}
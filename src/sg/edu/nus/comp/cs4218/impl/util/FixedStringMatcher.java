@@ -0,0 +1,281 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Matches lines that contain any of a set of literal strings, comparing bytes directly instead of
+ * going through a regular expression.
+ * <p>
+ * A single string is searched for with Boyer-Moore-Horspool, which skips ahead by up to the length
+ * of the string after each mismatch. Several strings are searched for at once with an Aho-Corasick
+ * automaton, which reads each byte of the line exactly once however many strings there are.
+ * <p>
+ * Strings and lines are compared as UTF-8 bytes. The lines of a mapped file are searched where
+ * they lie in the mapping, without copying them out first. Case-insensitive matching folds ASCII letters
+ * only, as {@link java.util.regex.Pattern#CASE_INSENSITIVE} does.
+ * <p>
+ * The tables of a matcher never change once built, so {@link #copy()} shares them.
+ */
+public abstract class FixedStringMatcher implements LineMatcher {
+    /**
+     * The largest automaton built for several strings. Its transition table takes 1 KiB per state.
+     */
+    public static final int MAX_STATES = 1 << 16;
+
+    private static final int ALPHABET_SIZE = 256;
+    private static final byte[] IDENTITY = new byte[ALPHABET_SIZE];
+    private static final byte[] ASCII_LOWER_CASE = new byte[ALPHABET_SIZE];
+
+    static {
+        for (int i = 0; i < ALPHABET_SIZE; i++) {
+            IDENTITY[i] = (byte) i;
+            ASCII_LOWER_CASE[i] = (byte) (i >= 'A' && i <= 'Z' ? i + ('a' - 'A') : i);
+        }
+    }
+
+    /**
+     * The byte each byte of a line is compared as.
+     */
+    protected final byte[] fold;
+
+    protected FixedStringMatcher(boolean isCaseInsensitive) {
+        this(isCaseInsensitive ? ASCII_LOWER_CASE : IDENTITY);
+    }
+
+    /**
+     * Creates a matcher comparing each byte of a line as the given byte.
+     */
+    protected FixedStringMatcher(byte[] fold) {
+        this.fold = fold;
+    }
+
+    /**
+     * Returns a matcher for lines containing any of the strings, or null if they need a larger
+     * automaton than {@link #MAX_STATES}.
+     *
+     * @param strings           the literal strings to search for, none of them empty
+     * @param isCaseInsensitive whether to ignore the case of ASCII letters
+     */
+    public static FixedStringMatcher compile(List<String> strings, boolean isCaseInsensitive) {
+        if (strings.isEmpty()) {
+            throw new IllegalArgumentException("At least one string is required");
+        }
+        byte[][] needles = new byte[strings.size()][];
+        byte[] fold = isCaseInsensitive ? ASCII_LOWER_CASE : IDENTITY;
+        long totalLength = 0;
+        for (int i = 0; i < needles.length; i++) {
+            byte[] needle = strings.get(i).getBytes(StandardCharsets.UTF_8);
+            if (needle.length == 0) {
+                throw new IllegalArgumentException("Strings must not be empty");
+            }
+            for (int j = 0; j < needle.length; j++) {
+                needle[j] = fold[needle[j] & 0xFF];
+            }
+            needles[i] = needle;
+            totalLength += needle.length;
+        }
+        if (needles.length == 1) {
+            return new Horspool(needles[0], isCaseInsensitive);
+        }
+        if (totalLength >= MAX_STATES) {
+            return null;
+        }
+        return new AhoCorasick(needles, isCaseInsensitive);
+    }
+
+    @Override
+    public boolean matches(MappedFile.LineCursor line) {
+        return matches(line.getBuffer(), line.getOffset(), line.getLength());
+    }
+
+    /**
+     * Returns whether the bytes of the buffer from the offset contain any of the strings, reading
+     * them with absolute gets so that the position and limit of the buffer are left untouched.
+     */
+    protected abstract boolean matches(ByteBuffer bytes, int offset, int length);
+
+    /**
+     * Searches for one string, comparing its last byte first and skipping ahead by how far the
+     * byte under it is from the end of the string.
+     */
+    private static final class Horspool extends FixedStringMatcher {
+        private final byte[] needle;
+        private final int[] shifts;
+
+        Horspool(byte[] needle, boolean isCaseInsensitive) {
+            super(isCaseInsensitive);
+            this.needle = needle;
+            this.shifts = new int[ALPHABET_SIZE];
+            int last = needle.length - 1;
+            Arrays.fill(shifts, needle.length);
+            for (int i = 0; i < last; i++) {
+                shifts[needle[i] & 0xFF] = last - i;
+            }
+        }
+
+        private Horspool(Horspool original) {
+            super(original.fold);
+            this.needle = original.needle;
+            this.shifts = original.shifts;
+        }
+
+        @Override
+        public LineMatcher copy() {
+            return new Horspool(this);
+        }
+
+        @Override
+        public boolean matches(byte[] bytes, int offset, int length) {
+            int last = needle.length - 1;
+            byte lastByte = needle[last];
+            int end = offset + length - needle.length;
+            int start = offset;
+            while (start <= end) {
+                byte value = fold[bytes[start + last] & 0xFF];
+                if (value == lastByte) {
+                    int i = last - 1;
+                    while (i >= 0 && fold[bytes[start + i] & 0xFF] == needle[i]) {
+                        i--;
+                    }
+                    if (i < 0) {
+                        return true;
+                    }
+                }
+                start += shifts[value & 0xFF];
+            }
+            return false;
+        }
+
+        @Override
+        protected boolean matches(ByteBuffer bytes, int offset, int length) {
+            int last = needle.length - 1;
+            byte lastByte = needle[last];
+            int end = offset + length - needle.length;
+            int start = offset;
+            while (start <= end) {
+                byte value = fold[bytes.get(start + last) & 0xFF];
+                if (value == lastByte) {
+                    int i = last - 1;
+                    while (i >= 0 && fold[bytes.get(start + i) & 0xFF] == needle[i]) {
+                        i--;
+                    }
+                    if (i < 0) {
+                        return true;
+                    }
+                }
+                start += shifts[value & 0xFF];
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Searches for several strings at once with a deterministic automaton over bytes, whose states
+     * are the prefixes of the strings.
+     */
+    private static final class AhoCorasick extends FixedStringMatcher {
+        // transitions[state * 256 + byte] is the next state, with failure transitions already folded in
+        private final int[] transitions;
+        private final boolean[] isMatch;
+
+        AhoCorasick(byte[][] needles, boolean isCaseInsensitive) {
+            super(isCaseInsensitive);
+            int maxStates = 1;
+            for (byte[] needle : needles) {
+                maxStates += needle.length;
+            }
+            int[] trie = new int[maxStates * ALPHABET_SIZE];
+            Arrays.fill(trie, -1);
+            boolean[] accepting = new boolean[maxStates];
+            int stateCount = 1;
+            for (byte[] needle : needles) {
+                int state = 0;
+                for (byte value : needle) {
+                    int index = state * ALPHABET_SIZE + (value & 0xFF);
+                    if (trie[index] < 0) {
+                        trie[index] = stateCount++;
+                    }
+                    state = trie[index];
+                }
+                accepting[state] = true;
+            }
+
+            this.transitions = Arrays.copyOf(trie, stateCount * ALPHABET_SIZE);
+            this.isMatch = Arrays.copyOf(accepting, stateCount);
+            buildFailureTransitions(stateCount);
+        }
+
+        private AhoCorasick(AhoCorasick original) {
+            super(original.fold);
+            this.transitions = original.transitions;
+            this.isMatch = original.isMatch;
+        }
+
+        @Override
+        public LineMatcher copy() {
+            return new AhoCorasick(this);
+        }
+
+        /**
+         * Points every missing transition at the transition of the longest proper suffix that is
+         * also a prefix of some string, visiting states in order of depth.
+         */
+        private void buildFailureTransitions(int stateCount) {
+            int[] failure = new int[stateCount];
+            Deque<Integer> queue = new ArrayDeque<>();
+            for (int value = 0; value < ALPHABET_SIZE; value++) {
+                int next = transitions[value];
+                if (next < 0) {
+                    transitions[value] = 0;
+                } else {
+                    failure[next] = 0;
+                    queue.add(next);
+                }
+            }
+            while (!queue.isEmpty()) {
+                int state = queue.poll();
+                // a string ending inside a longer match counts as a match as well
+                isMatch[state] |= isMatch[failure[state]];
+                for (int value = 0; value < ALPHABET_SIZE; value++) {
+                    int index = state * ALPHABET_SIZE + value;
+                    int fallback = transitions[failure[state] * ALPHABET_SIZE + value];
+                    if (transitions[index] < 0) {
+                        transitions[index] = fallback;
+                    } else {
+                        failure[transitions[index]] = fallback;
+                        queue.add(transitions[index]);
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean matches(byte[] bytes, int offset, int length) {
+            int state = 0;
+            for (int i = offset; i < offset + length; i++) {
+                state = transitions[state * ALPHABET_SIZE + (fold[bytes[i] & 0xFF] & 0xFF)];
+                if (isMatch[state]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected boolean matches(ByteBuffer bytes, int offset, int length) {
+            int state = 0;
+            for (int i = offset; i < offset + length; i++) {
+                state = transitions[state * ALPHABET_SIZE + (fold[bytes.get(i) & 0xFF] & 0xFF)];
+                if (isMatch[state]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
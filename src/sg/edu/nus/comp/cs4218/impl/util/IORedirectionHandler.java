@@ -14,6 +14,9 @@ import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_MULTIPLE_STREA
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_SYNTAX;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_REDIR_INPUT;
 import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_REDIR_OUTPUT;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.CHAR_SPACE;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_HERE_STRING;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_REDIR_APPEND;
 
 public class IORedirectionHandler {
     private final List<String> argsList;
@@ -36,8 +39,9 @@ public class IORedirectionHandler {
 
     /*
      * It iterates over the list of arguments. 
-     * If an argument is a redirection operator (< for input redirection, > for output redirection), it treats the next argument as a filename 
+     * If an argument is a redirection operator (< for input redirection, > for output redirection, >> for appending output), it treats the next argument as a filename 
      * and opens an input or output stream for that file
+     * If an argument is <<< (here-string), the next argument itself becomes the input, followed by a newline
      * If a redirection operator is found but the next argument is also a redirection operator, it throws a ShellException with a syntax error message.
      * If a redirection operator is found and the next argument resolves to more than one file (due to globbing or command substitution), it throws a ShellException with a syntax error message.
      * If a redirection operator is found and an input or output stream has already been opened (not the original stream), it throws a ShellException with a multiple streams error message.
@@ -54,6 +58,8 @@ public class IORedirectionHandler {
         ListIterator<String> argsIterator = argsList.listIterator();
         String inputFile = null;
         String outputFile = null;
+        String hereString = null;
+        boolean isAppend = false;
         while (argsIterator.hasNext()) {
             String arg = argsIterator.next();
 
@@ -72,7 +78,13 @@ public class IORedirectionHandler {
             }
 
             // handle quoting + globing + command substitution in file arg
-            List<String> fileSegment = argumentResolver.resolveOneArgument(file);
+            List<String> fileSegment = argumentResolver.resolveOneArgument(file, origInputStream);
+            if (arg.equals(STRING_HERE_STRING)) {
+                // the word of a here-string is the input itself, so it is not split into files
+                hereString = String.join(String.valueOf(CHAR_SPACE), fileSegment);
+                inputFile = null;
+                continue;
+            }
             if (fileSegment.size() > 1) {
                 // ambiguous redirect if file resolves to more than one parsed arg
                 throw new ShellException(ERR_SYNTAX);
@@ -82,17 +94,24 @@ public class IORedirectionHandler {
 
             if (arg.equals(String.valueOf(CHAR_REDIR_INPUT))) {
                 inputFile = file;
+                hereString = null;
             } else if (arg.equals(String.valueOf(CHAR_REDIR_OUTPUT))) {
                 outputFile = file;
+                isAppend = false;
+            } else if (arg.equals(STRING_REDIR_APPEND)) {
+                outputFile = file;
+                isAppend = true;
             }
         }
         // if need to change streams, close existing streams, open new streams
-        if (inputFile != null) {
+        if (inputFile != null || hereString != null) {
             IOUtils.closeInputStream(inputStream);
             if (!inputStream.equals(origInputStream)) {
                 throw new ShellException(ERR_MULTIPLE_STREAMS);
             }
-            inputStream = IOUtils.openInputStream(inputFile);
+            inputStream = inputFile == null
+                    ? IOUtils.openHereString(hereString)
+                    : IOUtils.openInputStream(inputFile);
             origInputStream = inputStream;
         }
         if (outputFile != null) {
@@ -100,7 +119,9 @@ public class IORedirectionHandler {
             if (!outputStream.equals(origOutputStream)) {
                 throw new ShellException(ERR_MULTIPLE_STREAMS);
             }
-            outputStream = IOUtils.openOutputStream(outputFile);
+            outputStream = isAppend
+                    ? IOUtils.openAppendingOutputStream(outputFile)
+                    : IOUtils.openOutputStream(outputFile);
             origOutputStream = outputStream;
         }
     }
@@ -122,6 +143,7 @@ public class IORedirectionHandler {
     }
 
     private boolean isRedirOperator(String str) {
-        return str.equals(String.valueOf(CHAR_REDIR_INPUT)) || str.equals(String.valueOf(CHAR_REDIR_OUTPUT));
+        return str.equals(String.valueOf(CHAR_REDIR_INPUT)) || str.equals(String.valueOf(CHAR_REDIR_OUTPUT))
+                || str.equals(STRING_REDIR_APPEND) || str.equals(STRING_HERE_STRING);
     }
 }
@@ -1,9 +1,11 @@
 package sg.edu.nus.comp.cs4218.impl.util;
 
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 import sg.edu.nus.comp.cs4218.exception.ShellException;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -11,6 +13,7 @@ import java.util.List;
 
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_CLOSING_STREAMS;
 import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_FILE_NOT_FOUND;
+import static sg.edu.nus.comp.cs4218.impl.util.StringUtils.STRING_NEWLINE;
 
 @SuppressWarnings("PMD.PreserveStackTrace")
 public final class IOUtils {
@@ -38,20 +41,83 @@ public final class IOUtils {
     }
 
     /**
-     * Open an outputStream based on the file name.
+     * Open an inputStream based on the file name, using the contents prefetched by the given
+     * read-ahead if there are any.
+     *
+     * @param readAhead FileReadAhead over the files of the command.
+     * @param fileName  String containing file name.
+     * @return InputStream of file opened.
+     * @throws ShellException If file destination is inaccessible.
+     */
+    public static InputStream openInputStream(FileReadAhead readAhead, String fileName) throws ShellException {
+        try {
+            return readAhead.open(resolveFilePath(fileName));
+        } catch (FileNotFoundException e) {
+            throw new ShellException(ERR_FILE_NOT_FOUND);
+        }
+    }
+
+    /**
+     * Starts reading ahead the given files, which are then opened one after another with
+     * {@link #openInputStream(FileReadAhead, String)}. Null and "-" entries are ignored.
+     *
+     * @param fileNames Array of String of file names, in the order they will be opened.
+     * @return FileReadAhead to be closed once all files have been read.
+     */
+    public static FileReadAhead readAhead(String... fileNames) {
+        List<Path> files = new ArrayList<>();
+        for (String fileName : fileNames) {
+            if (fileName != null && !"-".equals(fileName)) {
+                files.add(resolveFilePath(fileName));
+            }
+        }
+        return new FileReadAhead(files, FileReadAhead.DEFAULT_DEPTH);
+    }
+
+    /**
+     * Open an outputStream based on the file name. The file is created if it does not exist and
+     * truncated if it does. If the current session uses atomic redirection, the file is instead
+     * left as it is until the stream is closed, and only then replaced.
      *
      * @param fileName String containing file name.
      * @return OutputStream of file opened.
      * @throws ShellException If file destination is inaccessible.
      */
     public static OutputStream openOutputStream(String fileName) throws ShellException, FileNotFoundException {
-        String resolvedFileName = resolveFilePath(fileName).toString();
+        Path resolvedFile = resolveFilePath(fileName);
+
+        RedirectedOutputStream outputStream = RedirectedOutputStream.open(resolvedFile,
+                ShellContext.current().isAtomicRedirection());
+        FileAttributeCache.current().invalidate(resolvedFile);
 
-        FileOutputStream fileOutputStream;
+        return outputStream;
+    }
+
+    /**
+     * Open an outputStream that appends to the file with the given name, creating it if it does not
+     * exist. The existing contents of the file are never read or rewritten.
+     *
+     * @param fileName String containing file name.
+     * @return OutputStream of file opened.
+     * @throws FileNotFoundException If file destination is inaccessible.
+     */
+    public static OutputStream openAppendingOutputStream(String fileName) throws FileNotFoundException {
+        Path resolvedFile = resolveFilePath(fileName);
 
-        fileOutputStream = new FileOutputStream(new File(resolvedFileName));
+        RedirectedOutputStream outputStream = RedirectedOutputStream.openForAppend(resolvedFile);
+        FileAttributeCache.current().invalidate(resolvedFile);
 
-        return fileOutputStream;
+        return outputStream;
+    }
+
+    /**
+     * Open an inputStream over the given text followed by a newline, as the input of a here-string.
+     *
+     * @param text String to be read.
+     * @return InputStream of the UTF-8 bytes of the text.
+     */
+    public static InputStream openHereString(String text) {
+        return new ByteArrayInputStream((text + STRING_NEWLINE).getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -90,28 +156,64 @@ public final class IOUtils {
         }
     }
 
+    /**
+     * Close an outputStream after the command writing to it failed. A redirected output file in
+     * atomic mode is left as it was before the command; any other outputStream is closed as usual.
+     *
+     * @param outputStream OutputStream to be discarded.
+     * @throws ShellException If outputStream cannot be closed successfully.
+     */
+    public static void discardOutputStream(OutputStream outputStream) throws ShellException {
+        if (!(outputStream instanceof RedirectedOutputStream)) {
+            closeOutputStream(outputStream);
+            return;
+        }
+
+        try {
+            ((RedirectedOutputStream) outputStream).discard();
+        } catch (IOException e) {
+            throw new ShellException(ERR_CLOSING_STREAMS);
+        }
+    }
+
+    /**
+     * Returns the channel of the file an outputStream writes to, so that file contents can be copied
+     * into it by the kernel instead of through the heap.
+     *
+     * @param outputStream OutputStream an application writes to.
+     * @return FileChannel of the file, or null if the outputStream does not write to a file.
+     */
+    public static FileChannel getFileChannel(OutputStream outputStream) throws IOException {
+        if (outputStream instanceof RedirectedOutputStream) {
+            return ((RedirectedOutputStream) outputStream).getChannel();
+        }
+        if (outputStream instanceof FileOutputStream) {
+            return ((FileOutputStream) outputStream).getChannel();
+        }
+        return null;
+    }
+
     public static Path resolveFilePath(String fileName) {
-        Path currentDirectory = Paths.get(Environment.currentDirectory);
+        Path currentDirectory = Paths.get(ShellContext.current().getCurrentDirectory());
         return currentDirectory.resolve(fileName);
     }
 
     /**
-     * Returns a list of lines based on the given InputStream.
+     * Returns a list of lines based on the given InputStream, then closes it. Prefer reading the
+     * lines one at a time through a {@link LineSource} where all of them are not needed at once.
      *
      * @param input InputStream containing arguments from System.in or FileInputStream
      * @throws IOException An IOException
      */
     public static List<String> getLinesFromInputStream(InputStream input) throws IOException {
         List<String> output = new ArrayList<>();
-        BufferedReader reader = new BufferedReader(new InputStreamReader(input));
-        String line;
-        // Reads a line of text. A line is considered to be terminated by any one of a line feed ('\n'), 
-        // a carriage return ('\r'), a carriage return followed immediately by a line feed, or by reaching the end-of-file (EOF).
-        // Code below will wait for end of file if no line is entered
-        while ((line = reader.readLine()) != null) {
-            output.add(line);
+        try (LineSource lineSource = new LineSource(input)) {
+            // Code below will wait for end of file if no line is entered
+            String line;
+            while ((line = lineSource.readLine()) != null) {
+                output.add(line);
+            }
         }
-        reader.close();
         return output;
     }
 }
@@ -0,0 +1,28 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+/**
+ * Decides whether a line, given as bytes, contains a match of the patterns a command searches for.
+ * <p>
+ * A matcher keeps state between lines to avoid allocating per line, so an instance must only be
+ * used by one thread at a time.
+ */
+public interface LineMatcher {
+    /**
+     * Returns true if the UTF-8 bytes of the line contain a match.
+     *
+     * @param bytes  Array holding the line.
+     * @param offset Index of the first byte of the line.
+     * @param length Number of bytes in the line, without its terminator.
+     */
+    boolean matches(byte[] bytes, int offset, int length);
+
+    /**
+     * Returns true if the current line of the cursor contains a match.
+     */
+    boolean matches(MappedFile.LineCursor line);
+
+    /**
+     * Returns a matcher for the same patterns with state of its own, for use on another thread.
+     */
+    LineMatcher copy();
+}
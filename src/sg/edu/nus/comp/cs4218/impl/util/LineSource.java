@@ -0,0 +1,179 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads an InputStream one line at a time without holding more than the current line in memory.
+ * <p>
+ * Like {@link java.io.BufferedReader#readLine()}, a line ends at a line feed ('\n'), a carriage
+ * return ('\r') or a carriage return followed by a line feed, and the terminator is not part of
+ * the line. Lines are decoded as UTF-8. The raw bytes of the current line are also available
+ * through {@link #getBytes()} and {@link #getLength()}; both the read buffer and the line buffer
+ * are reused from one line to the next.
+ */
+public class LineSource implements Iterable<String>, Closeable {
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private final InputStream input;
+    private final byte[] buffer;
+    private int position;
+    private int limit;
+    private byte[] line = new byte[128];
+    private int length;
+    private boolean isLineTerminated;
+    private boolean isLineFeedSkipped;
+    private boolean isEndOfStream;
+
+    public LineSource(InputStream input) {
+        this(input, DEFAULT_BUFFER_SIZE);
+    }
+
+    public LineSource(InputStream input, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.input = input;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Advances to the next line.
+     *
+     * @return false if the end of the stream has been reached and there are no more lines.
+     * @throws IOException If the stream cannot be read.
+     */
+    public boolean nextLine() throws IOException {
+        length = 0;
+        isLineTerminated = false;
+        while (true) {
+            if (position == limit && !fill()) {
+                return length > 0;
+            }
+            if (isLineFeedSkipped) {
+                isLineFeedSkipped = false;
+                if (buffer[position] == LINE_FEED) {
+                    position++;
+                    continue;
+                }
+            }
+            int start = position;
+            while (position < limit && buffer[position] != LINE_FEED && buffer[position] != CARRIAGE_RETURN) {
+                position++;
+            }
+            append(start, position - start);
+            if (position < limit) {
+                isLineFeedSkipped = buffer[position] == CARRIAGE_RETURN;
+                position++;
+                isLineTerminated = true;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Returns the next line, or null if the end of the stream has been reached.
+     *
+     * @throws IOException If the stream cannot be read.
+     */
+    public String readLine() throws IOException {
+        return nextLine() ? getLine() : null;
+    }
+
+    /**
+     * Returns the current line decoded as UTF-8.
+     */
+    public String getLine() {
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the buffer holding the bytes of the current line, which is overwritten by the next call to
+     * {@link #nextLine()}. Only the first {@link #getLength()} bytes belong to the line.
+     */
+    public byte[] getBytes() {
+        return line;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Returns true if the current line ended with a line terminator, rather than with the end of the stream.
+     */
+    public boolean isLineTerminated() {
+        return isLineTerminated;
+    }
+
+    /**
+     * Returns an iterator over the remaining lines. A failure to read the stream is thrown as an
+     * {@link UncheckedIOException}.
+     */
+    @Override
+    public Iterator<String> iterator() {
+        return new Iterator<>() {
+            private String next;
+
+            @Override
+            public boolean hasNext() {
+                if (next == null) {
+                    try {
+                        next = readLine();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return next != null;
+            }
+
+            @Override
+            public String next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                String current = next;
+                next = null;
+                return current;
+            }
+        };
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private boolean fill() throws IOException {
+        if (isEndOfStream) {
+            return false;
+        }
+        int numRead = input.read(buffer, 0, buffer.length);
+        while (numRead == 0) {
+            numRead = input.read(buffer, 0, buffer.length);
+        }
+        if (numRead < 0) {
+            isEndOfStream = true;
+            return false;
+        }
+        position = 0;
+        limit = numRead;
+        return true;
+    }
+
+    private void append(int start, int count) {
+        if (length + count > line.length) {
+            line = Arrays.copyOf(line, Math.max(line.length * 2, length + count));
+        }
+        System.arraycopy(buffer, start, line, length, count);
+        length += count;
+    }
+}
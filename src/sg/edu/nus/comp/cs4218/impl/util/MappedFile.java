@@ -0,0 +1,321 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * A read-only, memory-mapped view of a file, for reading large files straight from the page cache.
+ * <p>
+ * A single mapping cannot exceed 2 GB, so the file is mapped one chunk at a time. The bytes of a
+ * chunk are exposed through {@link #getChunk(int)}, and the lines of the file through a
+ * {@link LineCursor}. Neither copies the file contents, except for the rare line that spans two chunks.
+ * <p>
+ * A file can also be split into ranges that start and end at line boundaries, with
+ * {@link #nextLineStart(long)}, and the lines of each range read by a cursor of its own, so that
+ * the ranges can be read on different threads.
+ */
+public final class MappedFile implements Closeable {
+    /**
+     * Files at least this large are read through a mapping by the applications.
+     */
+    public static final long MAPPING_THRESHOLD = 16L * 1024 * 1024;
+    private static final long MAX_CHUNK_SIZE = 1L << 30;
+    private static final byte LINE_FEED = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final int SCAN_BUFFER_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long chunkSize;
+
+    private MappedFile(FileChannel channel, long chunkSize) throws IOException {
+        this.channel = channel;
+        this.size = channel.size();
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Opens the file for mapping.
+     *
+     * @param path Path of the file.
+     * @return MappedFile of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static MappedFile open(Path path) throws IOException {
+        return open(path, MAX_CHUNK_SIZE);
+    }
+
+    static MappedFile open(Path path, long chunkSize) throws IOException {
+        if (chunkSize <= 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Chunk size must be positive and below 2 GB");
+        }
+        return new MappedFile(FileChannel.open(path, StandardOpenOption.READ), chunkSize);
+    }
+
+    /**
+     * Returns true if the file is a regular file large enough to be worth mapping.
+     */
+    public static boolean isWorthMapping(Path path) {
+        FileAttributeCache attributes = FileAttributeCache.current();
+        return attributes.isRegularFile(path) && attributes.size(path) >= MAPPING_THRESHOLD;
+    }
+
+    /**
+     * Returns the channel the file is mapped from, for reading it without a mapping.
+     */
+    public FileChannel getChannel() {
+        return channel;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public int getChunkCount() {
+        return (int) ((size + chunkSize - 1) / chunkSize);
+    }
+
+    /**
+     * Maps a chunk of the file. The chunk stays mapped until the returned buffer is garbage collected.
+     *
+     * @param index Index of the chunk, from 0 to {@link #getChunkCount()} exclusive.
+     * @return Read-only buffer over the bytes of the chunk.
+     * @throws IOException If the chunk cannot be mapped.
+     */
+    public ByteBuffer getChunk(int index) throws IOException {
+        long start = index * chunkSize;
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(chunkSize, size - start));
+    }
+
+    /**
+     * Returns a cursor over the lines of the file, from the start.
+     */
+    public LineCursor lines() {
+        return new LineCursor(0, size);
+    }
+
+    /**
+     * Returns a cursor over the lines of a range of the file. The range should start and end at
+     * line boundaries, as returned by {@link #nextLineStart(long)}.
+     *
+     * @param start Offset of the first byte of the range.
+     * @param end   Offset just past the last byte of the range.
+     */
+    public LineCursor lines(long start, long end) {
+        if (start < 0 || start > end || end > size) {
+            throw new IndexOutOfBoundsException();
+        }
+        return new LineCursor(start, end);
+    }
+
+    /**
+     * Returns the offset of the first line that starts at or after the given offset, or the size of
+     * the file if there is none. A carriage return followed by a line feed ends a single line.
+     *
+     * @param offset Offset to look for a line start from.
+     * @throws IOException If the file cannot be read.
+     */
+    public long nextLineStart(long offset) throws IOException {
+        if (offset <= 0) {
+            return 0;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        // the line terminator may be just before the offset, so scanning starts from the byte before it
+        long position = offset - 1;
+        boolean isCarriageReturn = false;
+        while (position < size) {
+            buffer.clear();
+            int count = channel.read(buffer, position);
+            if (count <= 0) {
+                break;
+            }
+            for (int i = 0; i < count; i++) {
+                byte value = buffer.get(i);
+                if (isCarriageReturn) {
+                    return value == LINE_FEED ? position + i + 1 : position + i;
+                }
+                if (value == CARRIAGE_RETURN) {
+                    isCarriageReturn = true;
+                } else if (value == LINE_FEED) {
+                    return position + i + 1;
+                }
+            }
+            position += count;
+        }
+        return size;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Moves through the lines of the file one at a time. Lines are split the same way as by
+     * {@link LineSource}: at a line feed, a carriage return, or a carriage return followed by a line feed.
+     */
+    public final class LineCursor {
+        private final long end;
+        private long nextChunkStart;
+        private ByteBuffer chunk;
+        private ByteBuffer chunkView;
+        private int position;
+        private ByteBuffer lineBuffer;
+        private int lineStart;
+        private int lineEnd;
+        private boolean isAscii;
+        private boolean isLineFeedSkipped;
+        private byte[] spill = new byte[0];
+        private int spillLength;
+
+        private LineCursor(long start, long end) {
+            this.nextChunkStart = start;
+            this.end = end;
+        }
+
+        /**
+         * Advances to the next line.
+         *
+         * @return false if there are no more lines.
+         * @throws IOException If a chunk of the file cannot be mapped.
+         */
+        public boolean nextLine() throws IOException {
+            boolean isSpilled = false;
+            spillLength = 0;
+            isAscii = true;
+            while (true) {
+                if (chunk == null || position == chunk.limit()) {
+                    if (nextChunkStart >= end) {
+                        setLine(ByteBuffer.wrap(spill), 0, spillLength);
+                        return spillLength > 0;
+                    }
+                    long length = Math.min(chunkSize, end - nextChunkStart);
+                    chunk = channel.map(FileChannel.MapMode.READ_ONLY, nextChunkStart, length);
+                    nextChunkStart += length;
+                    chunkView = chunk.duplicate();
+                    position = 0;
+                }
+                if (isLineFeedSkipped) {
+                    isLineFeedSkipped = false;
+                    if (chunk.get(position) == LINE_FEED) {
+                        position++;
+                        continue;
+                    }
+                }
+
+                int start = position;
+                int limit = chunk.limit();
+                byte value = 0;
+                while (position < limit) {
+                    value = chunk.get(position);
+                    if (value == LINE_FEED || value == CARRIAGE_RETURN) {
+                        break;
+                    }
+                    isAscii &= value >= 0;
+                    position++;
+                }
+
+                if (position == limit) {
+                    // the line continues in the next chunk
+                    appendToSpill(start, limit);
+                    isSpilled = true;
+                    continue;
+                }
+                if (isSpilled) {
+                    appendToSpill(start, position);
+                    setLine(ByteBuffer.wrap(spill), 0, spillLength);
+                } else {
+                    setLine(chunkView, start, position);
+                }
+                isLineFeedSkipped = value == CARRIAGE_RETURN;
+                position++;
+                return true;
+            }
+        }
+
+        /**
+         * Returns the number of bytes in the current line, without its terminator.
+         */
+        public int getLength() {
+            return lineEnd - lineStart;
+        }
+
+        /**
+         * Returns a view of the bytes of the current line, without its terminator. The view is only
+         * valid until the next call to {@link #nextLine()}.
+         */
+        public ByteBuffer getBytes() {
+            return lineBuffer.duplicate().position(lineStart).limit(lineEnd).slice();
+        }
+
+        /**
+         * Returns the buffer holding the current line, which starts at {@link #getOffset()}, so that
+         * the line can be scanned in place. The buffer must only be read with absolute gets, and is
+         * only valid until the next call to {@link #nextLine()}.
+         */
+        public ByteBuffer getBuffer() {
+            return lineBuffer;
+        }
+
+        /**
+         * Returns the index in {@link #getBuffer()} of the first byte of the current line.
+         */
+        public int getOffset() {
+            return lineStart;
+        }
+
+        /**
+         * Copies bytes of the current line into an array, like {@link ByteBuffer#get(byte[], int, int)}
+         * but without allocating a view of the line.
+         *
+         * @param offset       Index of the first byte of the line to copy.
+         * @param target       Array to copy the bytes into.
+         * @param targetOffset Index in the array of the first byte copied.
+         * @param length       Number of bytes to copy.
+         */
+        public void getBytes(int offset, byte[] target, int targetOffset, int length) {
+            if (offset < 0 || length < 0 || offset + length > getLength()) {
+                throw new IndexOutOfBoundsException();
+            }
+            lineBuffer.limit(lineStart + offset + length).position(lineStart + offset);
+            lineBuffer.get(target, targetOffset, length);
+            lineBuffer.clear();
+        }
+
+        /**
+         * Returns the current line as characters. A line of ASCII characters is a view of the
+         * mapped bytes; any other line is decoded as UTF-8.
+         */
+        public CharSequence getLine() {
+            if (isAscii) {
+                return new AsciiSequence(lineBuffer, lineStart, getLength());
+            }
+            byte[] bytes = new byte[getLength()];
+            getBytes(0, bytes, 0, bytes.length);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void setLine(ByteBuffer buffer, int start, int end) {
+            lineBuffer = buffer;
+            lineStart = start;
+            lineEnd = end;
+        }
+
+        private void appendToSpill(int start, int end) {
+            int count = end - start;
+            if (spillLength + count > spill.length) {
+                spill = Arrays.copyOf(spill, Math.max(spill.length * 2, spillLength + count));
+            }
+            chunkView.limit(end).position(start);
+            chunkView.get(spill, spillLength, count);
+            chunkView.clear();
+            spillLength += count;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A buffered OutputStream that applications write their output to record by record, instead of
+ * building the whole output as a String first.
+ * <p>
+ * Text is encoded as UTF-8 straight into a reusable byte buffer: ASCII characters are copied one
+ * byte each, and only other characters go through the full encoding, without allocating a byte
+ * array per write. The buffer is written to the underlying stream whenever it fills up, so the
+ * memory used does not grow with the size of the output.
+ * <p>
+ * Closing the sink flushes it but leaves the underlying stream open, as that belongs to the caller.
+ */
+public class OutputSink extends OutputStream {
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    private static final byte NEWLINE = '\n';
+
+    private final OutputStream output;
+    private final byte[] buffer;
+    private int count;
+
+    public OutputSink(OutputStream output) {
+        this(output, DEFAULT_CAPACITY);
+    }
+
+    public OutputSink(OutputStream output, int capacity) {
+        if (capacity < 4) {
+            throw new IllegalArgumentException("Capacity must be at least 4 bytes");
+        }
+        this.output = output;
+        this.buffer = new byte[capacity];
+    }
+
+    @Override
+    public void write(int value) throws IOException {
+        if (count == buffer.length) {
+            drain();
+        }
+        buffer[count++] = (byte) value;
+    }
+
+    @Override
+    public void write(byte[] bytes, int off, int len) throws IOException {
+        if (len >= buffer.length) {
+            // larger than the buffer, so there is nothing to gain from copying it
+            drain();
+            output.write(bytes, off, len);
+            return;
+        }
+        if (len > buffer.length - count) {
+            drain();
+        }
+        System.arraycopy(bytes, off, buffer, count, len);
+        count += len;
+    }
+
+    /**
+     * Writes the characters of the text, encoded as UTF-8.
+     */
+    public void write(CharSequence text) throws IOException {
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char chr = text.charAt(i);
+            if (chr < 0x80) {
+                if (count == buffer.length) {
+                    drain();
+                }
+                buffer[count++] = (byte) chr;
+            } else if (Character.isHighSurrogate(chr) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                writeCodePoint(Character.toCodePoint(chr, text.charAt(i + 1)));
+                i++;
+            } else {
+                writeCodePoint(chr);
+            }
+        }
+    }
+
+    /**
+     * Writes the text followed by a newline.
+     */
+    public void writeLine(CharSequence text) throws IOException {
+        write(text);
+        write(NEWLINE);
+    }
+
+    public void newLine() throws IOException {
+        write(NEWLINE);
+    }
+
+    /**
+     * Writes the decimal digits of the number, without going through a String.
+     */
+    public void writeNumber(long number) throws IOException {
+        if (number == Long.MIN_VALUE) {
+            write(Long.toString(number));
+            return;
+        }
+        long remaining = number;
+        if (remaining < 0) {
+            write('-');
+            remaining = -remaining;
+        }
+        int digits = 1;
+        for (long limit = 10; digits < 19 && remaining >= limit; limit *= 10) {
+            digits++;
+        }
+        if (digits > buffer.length - count) {
+            drain();
+        }
+        if (digits > buffer.length) {
+            write(Long.toString(remaining));
+            return;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        count += digits;
+    }
+
+    /**
+     * Writes the buffered bytes and flushes the underlying stream.
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Writes the buffered bytes to the underlying stream, without flushing it.
+     */
+    private void drain() throws IOException {
+        if (count > 0) {
+            output.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Encodes a character outside of ASCII, replacing an unpaired surrogate with '?' as
+     * {@link String#getBytes} does.
+     */
+    private void writeCodePoint(int codePoint) throws IOException {
+        if (buffer.length - count < 4) {
+            drain();
+        }
+        if (codePoint < 0x800) {
+            buffer[count++] = (byte) (0xC0 | codePoint >> 6);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+        } else if (Character.isSurrogate((char) codePoint) && codePoint < 0x10000) {
+            buffer[count++] = '?';
+        } else if (codePoint < 0x10000) {
+            buffer[count++] = (byte) (0xE0 | codePoint >> 12);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+        } else {
+            buffer[count++] = (byte) (0xF0 | codePoint >> 18);
+            buffer[count++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+            buffer[count++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+            buffer[count++] = (byte) (0x80 | codePoint & 0x3F);
+        }
+    }
+}
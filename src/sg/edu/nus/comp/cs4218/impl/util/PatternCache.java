@@ -0,0 +1,45 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * A bounded, thread-safe cache of compiled regular expressions keyed by the expression and its
+ * flags, so that commands run repeatedly with the same pattern skip compiling it.
+ * The least recently used pattern is evicted once the cache is full.
+ */
+public class PatternCache extends LruCache<String, Pattern> {
+    public static final int DEFAULT_CAPACITY = 128;
+
+    public PatternCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PatternCache(int capacity) {
+        super(capacity);
+    }
+
+    /**
+     * Returns the compiled pattern for the expression and flags, compiling and caching it if it is
+     * not cached yet.
+     *
+     * @param regex the regular expression to compile
+     * @param flags the match flags, as for {@link Pattern#compile(String, int)}
+     * @throws java.util.regex.PatternSyntaxException If the expression is invalid
+     */
+    public Pattern compile(String regex, int flags) {
+        String key = flags + ":" + regex;
+        Pattern pattern = get(key);
+        if (pattern == null) {
+            // compiled outside of the lock, as a long expression should not hold up other lookups
+            pattern = Pattern.compile(regex, flags);
+            put(key, pattern);
+        }
+        return pattern;
+    }
+
+    public synchronized String getMetricsReport() {
+        return String.format(Locale.ROOT, "%d pattern lookups, %d compiled, %.1f%% hit rate",
+                getHitCount() + getMissCount(), getMissCount(), getHitRate() * 100);
+    }
+}
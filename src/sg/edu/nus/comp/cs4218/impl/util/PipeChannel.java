@@ -0,0 +1,288 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import sg.edu.nus.comp.cs4218.exception.BrokenPipeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_BROKEN_PIPE;
+import static sg.edu.nus.comp.cs4218.impl.util.ErrorConstants.ERR_STREAM_CLOSED;
+
+/**
+ * A bounded byte channel connecting two pipeline stages that run on separate threads.
+ * <p>
+ * The writing stage blocks when the buffer is full and the reading stage blocks when it is empty,
+ * so no more than {@code capacity} bytes are ever held between two stages.
+ * Once the reading end is closed, further writes fail with a {@link BrokenPipeException} so that
+ * the writing stage can stop producing output nobody will read.
+ * <p>
+ * The capacity is a memory budget: the buffer starts at no more than {@link #DEFAULT_CAPACITY} bytes
+ * and grows up to the budget when it is full. A channel can also be given a spill limit, in which
+ * case up to that many more bytes are written to a {@link SpillChain} of temporary files once the
+ * budget is used up, before the writing stage blocks.
+ */
+public class PipeChannel {
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    private final int memoryBudget;
+    private final long spillLimit;
+    private final PipeStatistics statistics;
+    private final InputStream source;
+    private final OutputStream sink;
+    private byte[] buffer;
+    private SpillChain spillChain;
+    private int readPos;
+    private int count;
+    private boolean writerClosed;
+    private boolean readerClosed;
+    private boolean hasWritten;
+    private boolean isBroken;
+
+    public PipeChannel() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public PipeChannel(int capacity) {
+        this(capacity, 0, new PipeStatistics());
+    }
+
+    /**
+     * @param memoryBudget the number of bytes the channel may hold in memory
+     * @param spillLimit   the number of bytes the channel may hold on disk once its memory is full
+     * @param statistics   PipeStatistics of the pipeline the channel belongs to
+     */
+    public PipeChannel(int memoryBudget, long spillLimit, PipeStatistics statistics) {
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        if (spillLimit < 0) {
+            throw new IllegalArgumentException("Spill limit must not be negative");
+        }
+        this.memoryBudget = memoryBudget;
+        this.spillLimit = spillLimit;
+        this.statistics = statistics;
+        // the buffer grows as needed, as most pipelines carry little data
+        this.buffer = new byte[Math.min(memoryBudget, DEFAULT_CAPACITY)];
+        statistics.allocate(buffer.length);
+        this.source = new ChannelInputStream();
+        this.sink = new ChannelOutputStream();
+    }
+
+    /**
+     * Returns the reading end of the channel, to be used as the stdin of the downstream stage.
+     */
+    public InputStream getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the writing end of the channel, to be used as the stdout of the upstream stage.
+     */
+    public OutputStream getSink() {
+        return sink;
+    }
+
+    public synchronized boolean isReaderClosed() {
+        return readerClosed;
+    }
+
+    /**
+     * Returns true if the reading end was closed while the writing end was still open, i.e. the
+     * reading stage stopped before consuming all of the writing stage's output.
+     */
+    public synchronized boolean isBroken() {
+        return isBroken;
+    }
+
+    /**
+     * Blocks until the writing stage has produced its first bytes or has closed its end.
+     *
+     * @return true if any bytes were written into the channel.
+     * @throws InterruptedIOException If the waiting thread is interrupted.
+     */
+    public synchronized boolean awaitFirstWrite() throws InterruptedIOException {
+        while (!hasWritten && !writerClosed && !readerClosed) {
+            awaitChange();
+        }
+        return hasWritten;
+    }
+
+    private synchronized void write(byte[] bytes, int off, int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            if (writerClosed) {
+                throw new IOException(ERR_STREAM_CLOSED);
+            }
+            while (isFull() && !readerClosed) {
+                awaitChange();
+            }
+            if (readerClosed) {
+                throw new BrokenPipeException(ERR_BROKEN_PIPE);
+            }
+            int chunk = hasSpilled() || count == buffer.length
+                    ? spill(bytes, offset, remaining)
+                    : buffer(bytes, offset, remaining);
+            hasWritten = true;
+            offset += chunk;
+            remaining -= chunk;
+            notifyAll();
+        }
+    }
+
+    private synchronized int read(byte[] bytes, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (count == 0 && !hasSpilled()) {
+            if (readerClosed) {
+                throw new IOException(ERR_STREAM_CLOSED);
+            }
+            if (writerClosed) {
+                return -1;
+            }
+            awaitChange();
+        }
+        if (count == 0) {
+            // everything held in memory has been read, so the oldest bytes are on disk
+            int numRead = spillChain.read(bytes, off, len);
+            notifyAll();
+            return numRead;
+        }
+        int chunk = Math.min(len, Math.min(count, buffer.length - readPos));
+        System.arraycopy(buffer, readPos, bytes, off, chunk);
+        readPos = (readPos + chunk) % buffer.length;
+        count -= chunk;
+        notifyAll();
+        return chunk;
+    }
+
+    private synchronized int available() {
+        long spilled = spillChain == null ? 0 : spillChain.getUnreadBytes();
+        return (int) Math.min(count + spilled, Integer.MAX_VALUE);
+    }
+
+    private synchronized void closeWriter() {
+        writerClosed = true;
+        notifyAll();
+    }
+
+    private synchronized void closeReader() throws IOException {
+        isBroken = isBroken || !writerClosed;
+        readerClosed = true;
+        count = 0;
+        statistics.release(buffer.length);
+        buffer = new byte[0];
+        notifyAll();
+        if (spillChain != null) {
+            spillChain.close();
+        }
+    }
+
+    /**
+     * Returns true if the writing stage has to wait for the reading stage before it can write more.
+     */
+    private boolean isFull() {
+        if (count < buffer.length && !hasSpilled() || buffer.length < memoryBudget) {
+            return false;
+        }
+        long spilled = spillChain == null ? 0 : spillChain.getUnreadBytes();
+        return spilled >= spillLimit;
+    }
+
+    private boolean hasSpilled() {
+        return spillChain != null && spillChain.getUnreadBytes() > 0;
+    }
+
+    /**
+     * Copies bytes into the buffer, first growing it if it is full but still within the budget.
+     */
+    private int buffer(byte[] bytes, int offset, int remaining) {
+        if (count == buffer.length) {
+            grow();
+        }
+        int writePos = (readPos + count) % buffer.length;
+        int chunk = Math.min(remaining, Math.min(buffer.length - count, buffer.length - writePos));
+        System.arraycopy(bytes, offset, buffer, writePos, chunk);
+        count += chunk;
+        return chunk;
+    }
+
+    /**
+     * Writes bytes to disk, after the bytes already held in memory and on disk.
+     */
+    private int spill(byte[] bytes, int offset, int remaining) throws IOException {
+        if (buffer.length < memoryBudget && !hasSpilled()) {
+            return buffer(bytes, offset, remaining);
+        }
+        if (spillChain == null) {
+            spillChain = new SpillChain();
+        }
+        int chunk = (int) Math.min(remaining, spillLimit - spillChain.getUnreadBytes());
+        spillChain.write(bytes, offset, chunk);
+        statistics.spill(chunk);
+        return chunk;
+    }
+
+    private void grow() {
+        byte[] grown = new byte[(int) Math.min((long) buffer.length * 2, memoryBudget)];
+        int firstPart = Math.min(count, buffer.length - readPos);
+        System.arraycopy(buffer, readPos, grown, 0, firstPart);
+        System.arraycopy(buffer, 0, grown, firstPart, count - firstPart);
+        statistics.allocate(grown.length - buffer.length);
+        buffer = grown;
+        readPos = 0;
+    }
+
+    private void awaitChange() throws InterruptedIOException {
+        try {
+            wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage()); //NOPMD - suppressed PreserveStackTrace - InterruptedIOException has no cause constructor
+        }
+    }
+
+    private class ChannelInputStream extends InputStream {
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int numRead = PipeChannel.this.read(single, 0, 1);
+            return numRead == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int off, int len) throws IOException {
+            return PipeChannel.this.read(bytes, off, len);
+        }
+
+        @Override
+        public int available() {
+            return PipeChannel.this.available();
+        }
+
+        @Override
+        public void close() throws IOException {
+            closeReader();
+        }
+    }
+
+    private class ChannelOutputStream extends OutputStream {
+        @Override
+        public void write(int value) throws IOException {
+            PipeChannel.this.write(new byte[]{(byte) value}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] bytes, int off, int len) throws IOException {
+            PipeChannel.this.write(bytes, off, len);
+        }
+
+        @Override
+        public void close() {
+            closeWriter();
+        }
+    }
+}
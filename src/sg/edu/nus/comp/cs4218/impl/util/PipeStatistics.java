@@ -0,0 +1,86 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the memory held by the {@link PipeChannel}s of one pipeline, and of the bytes they
+ * spilled to disk.
+ * <p>
+ * The totals over every finished pipeline are kept as well, to be reported when a script ends.
+ */
+public final class PipeStatistics {
+    private static final AtomicLong TOTAL_PIPELINES = new AtomicLong();
+    private static final AtomicLong MAX_PEAK_MEMORY = new AtomicLong();
+    private static final AtomicLong TOTAL_SPILLED_BYTES = new AtomicLong();
+
+    private final AtomicLong memory = new AtomicLong();
+    private final AtomicLong peakMemory = new AtomicLong();
+    private final AtomicLong spilledBytes = new AtomicLong();
+
+    /**
+     * Records that a channel allocated buffer memory.
+     */
+    void allocate(long bytes) {
+        long current = memory.addAndGet(bytes);
+        peakMemory.accumulateAndGet(current, Math::max);
+    }
+
+    /**
+     * Records that a channel released buffer memory.
+     */
+    void release(long bytes) {
+        memory.addAndGet(-bytes);
+    }
+
+    /**
+     * Records that a channel wrote bytes to disk because its memory budget was used up.
+     */
+    void spill(long bytes) {
+        spilledBytes.addAndGet(bytes);
+    }
+
+    /**
+     * Adds the statistics of this pipeline to the totals, once it has finished.
+     */
+    public void finish() {
+        TOTAL_PIPELINES.incrementAndGet();
+        MAX_PEAK_MEMORY.accumulateAndGet(getPeakMemory(), Math::max);
+        TOTAL_SPILLED_BYTES.addAndGet(getSpilledBytes());
+    }
+
+    /**
+     * Returns the largest number of bytes the channels of the pipeline held in memory at once.
+     */
+    public long getPeakMemory() {
+        return peakMemory.get();
+    }
+
+    public long getSpilledBytes() {
+        return spilledBytes.get();
+    }
+
+    public String getReport() {
+        return String.format("peak %d bytes in pipe buffers, %d bytes spilled to disk",
+                getPeakMemory(), getSpilledBytes());
+    }
+
+    public static long getPipelineCount() {
+        return TOTAL_PIPELINES.get();
+    }
+
+    /**
+     * Returns the highest peak memory of any finished pipeline.
+     */
+    public static long getMaxPeakMemory() {
+        return MAX_PEAK_MEMORY.get();
+    }
+
+    public static long getTotalSpilledBytes() {
+        return TOTAL_SPILLED_BYTES.get();
+    }
+
+    public static String getMetricsReport() {
+        return String.format("%d pipelines, peak %d bytes in pipe buffers, %d bytes spilled to disk",
+                getPipelineCount(), getMaxPeakMemory(), getTotalSpilledBytes());
+    }
+}
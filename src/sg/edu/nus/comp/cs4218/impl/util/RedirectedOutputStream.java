@@ -0,0 +1,285 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * The file a command's output is redirected to with {@code >}.
+ * <p>
+ * The file is opened and truncated as soon as the redirection is parsed, as a shell does, so that
+ * a missing directory or a missing permission is reported before the command runs. A command that
+ * reads the file it writes to, such as {@code cat f > f}, therefore reads an empty file. Output is
+ * collected in a large buffer and written to the file's channel in blocks.
+ * <p>
+ * In atomic mode the output is written to a temporary file next to the target instead, which is
+ * renamed over the target when the stream is closed, so {@code sort f > f} reads f whole before
+ * it is replaced. If the command fails, {@link #discard()}
+ * deletes the temporary file and leaves the target untouched. A target that is a symbolic link is
+ * followed, so the file it points to is replaced rather than the link, and the temporary file
+ * takes the permissions of the file it replaces, or the default permissions of a new file.
+ * <p>
+ * A file redirected to with {@code >>} is opened for appending instead and never truncated, so the
+ * cost of writing to it does not depend on how large it already is.
+ */
+public class RedirectedOutputStream extends OutputStream {
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final int MAX_SYMBOLIC_LINKS = 40;
+
+    private final Path target;
+    private final Path file; // the target with symbolic links followed, replaced in atomic mode
+    private final Path temporary;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean isClosed;
+
+    private RedirectedOutputStream(Path target, Path file, Path temporary, FileChannel channel) {
+        this.target = target;
+        this.file = file;
+        this.temporary = temporary;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens the file for output redirection, truncating it unless in atomic mode.
+     *
+     * @param target   Path of the file to write to
+     * @param isAtomic Whether to replace the file only once all output has been written
+     * @throws FileNotFoundException If the file cannot be opened for writing
+     */
+    public static RedirectedOutputStream open(Path target, boolean isAtomic) throws FileNotFoundException {
+        try {
+            if (!isAtomic) {
+                return new RedirectedOutputStream(target, target, null, FileChannel.open(target,
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING));
+            }
+            if (Files.isDirectory(target)) {
+                throw new FileNotFoundException(target + " (Is a directory)");
+            }
+            Path file = resolveLinks(target);
+            Path temporary = createTemporary(file);
+            return new RedirectedOutputStream(target, file, temporary,
+                    FileChannel.open(temporary, StandardOpenOption.WRITE));
+        } catch (FileNotFoundException e) {
+            throw e;
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            throw new FileNotFoundException(target + " (" + describe(e) + ")"); //NOPMD - suppressed PreserveStackTrace - FileNotFoundException has no cause constructor
+        }
+    }
+
+    /**
+     * Opens the file for appending output to it, creating it if it does not exist.
+     *
+     * @param target Path of the file to append to
+     * @throws FileNotFoundException If the file cannot be opened for writing
+     */
+    public static RedirectedOutputStream openForAppend(Path target) throws FileNotFoundException {
+        try {
+            return new RedirectedOutputStream(target, target, null, FileChannel.open(target,
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND));
+        } catch (IOException | UnsupportedOperationException | SecurityException e) {
+            throw new FileNotFoundException(target + " (" + describe(e) + ")"); //NOPMD - suppressed PreserveStackTrace - FileNotFoundException has no cause constructor
+        }
+    }
+
+    /**
+     * Returns the absolute path of the file a target refers to once symbolic links are followed,
+     * including a link to a file that does not exist yet.
+     */
+    private static Path resolveLinks(Path target) throws IOException {
+        if (Files.exists(target)) {
+            return target.toRealPath();
+        }
+        Path file = target.toAbsolutePath();
+        for (int i = 0; i < MAX_SYMBOLIC_LINKS && Files.isSymbolicLink(file); i++) {
+            file = file.resolveSibling(Files.readSymbolicLink(file)).normalize();
+        }
+        if (Files.isSymbolicLink(file)) {
+            throw new FileSystemException(target.toString(), null, "Too many levels of symbolic links");
+        }
+        return file;
+    }
+
+    /**
+     * Creates an empty temporary file next to the file it is to replace. Unlike
+     * {@link Files#createTempFile}, which only lets the owner read it, the file is created with the
+     * default permissions of a new file, and then given those of the file it replaces if there is one.
+     */
+    private static Path createTemporary(Path file) throws IOException {
+        Path temporary;
+        while (true) {
+            temporary = file.resolveSibling("." + file.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong()) + ".tmp");
+            try {
+                Files.createFile(temporary);
+                break;
+            } catch (FileAlreadyExistsException e) {
+                continue; // another temporary file took the name
+            }
+        }
+        PosixFileAttributeView view = Files.getFileAttributeView(temporary, PosixFileAttributeView.class);
+        if (view != null && Files.exists(file)) {
+            try {
+                view.setPermissions(Files.getPosixFilePermissions(file));
+            } catch (IOException e) {
+                Files.deleteIfExists(temporary);
+                throw e;
+            }
+        }
+        return temporary;
+    }
+
+    /**
+     * Describes why a file could not be opened in the same words as {@link java.io.FileOutputStream}.
+     */
+    private static String describe(Exception exception) {
+        if (exception instanceof NoSuchFileException) {
+            return "No such file or directory";
+        }
+        if (exception instanceof AccessDeniedException) {
+            return "Permission denied";
+        }
+        if (exception instanceof FileSystemException && ((FileSystemException) exception).getReason() != null) {
+            return ((FileSystemException) exception).getReason();
+        }
+        return exception.getMessage();
+    }
+
+    public boolean isAtomic() {
+        return temporary != null;
+    }
+
+    @Override
+    public synchronized void write(int value) throws IOException {
+        ensureOpen();
+        if (!buffer.hasRemaining()) {
+            drain();
+        }
+        buffer.put((byte) value);
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int off, int len) throws IOException {
+        ensureOpen();
+        if (len > buffer.remaining()) {
+            drain();
+        }
+        if (len >= buffer.capacity()) {
+            writeFully(ByteBuffer.wrap(bytes, off, len));
+            return;
+        }
+        buffer.put(bytes, off, len);
+    }
+
+    /**
+     * Writes the buffered bytes to the file.
+     */
+    @Override
+    public synchronized void flush() throws IOException {
+        if (!isClosed) {
+            drain();
+        }
+    }
+
+    /**
+     * Returns the channel of the file, with all buffered bytes written, so that file contents can
+     * be copied into it directly. Bytes written through the channel end up after the bytes already
+     * written to this stream.
+     */
+    public synchronized FileChannel getChannel() throws IOException {
+        ensureOpen();
+        drain();
+        return channel;
+    }
+
+    /**
+     * Writes the remaining output and closes the file. In atomic mode the temporary file then
+     * replaces the target.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        try {
+            drain();
+        } finally {
+            isClosed = true;
+            channel.close();
+        }
+        if (temporary != null) {
+            replaceTarget();
+        }
+        FileAttributeCache.current().invalidate(target);
+        if (!file.equals(target)) {
+            FileAttributeCache.current().invalidate(file);
+        }
+    }
+
+    /**
+     * Closes the file after the command writing to it failed. In atomic mode the output is thrown
+     * away and the target keeps its previous contents; otherwise the output written so far is kept,
+     * as it would have been without buffering.
+     */
+    public synchronized void discard() throws IOException {
+        if (temporary == null) {
+            close();
+            return;
+        }
+        if (isClosed) {
+            return;
+        }
+        isClosed = true;
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private void replaceTarget() throws IOException {
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (isClosed) {
+            throw new IOException(ErrorConstants.ERR_STREAM_CLOSED);
+        }
+    }
+
+    private void drain() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    private void writeFully(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -1,6 +1,6 @@
 package sg.edu.nus.comp.cs4218.impl.util;
 
-import sg.edu.nus.comp.cs4218.Environment;
+import sg.edu.nus.comp.cs4218.ShellContext;
 
 import java.io.File;
 import java.nio.file.Paths;
@@ -85,10 +85,13 @@ public final class RegexArgument {
             if (checkAbsolutePath) {
                 currentDir = Paths.get(dir).toFile();
             } else {
-                currentDir = Paths.get(Environment.currentDirectory + File.separator + dir).toFile();
+                currentDir = Paths.get(ShellContext.current().getCurrentDirectory() + File.separator + dir).toFile();
             }
 
-            for (String candidate : currentDir.list()) {
+            String[] candidates = FileAttributeCache.current().isDirectory(currentDir.toPath())
+                    ? currentDir.list()
+                    : null;
+            for (String candidate : candidates == null ? new String[0] : candidates) {
                 if (regexPattern.matcher(candidate).matches()) {
                     globbedFiles.add(dir + candidate);
                 }
@@ -126,7 +129,7 @@ public final class RegexArgument {
             File nextNode = new File(node, current);
             String match = isAbsolute
                     ? nextNode.getPath()
-                    : nextNode.getPath().substring(Environment.currentDirectory.length() + 1);
+                    : nextNode.getPath().substring(ShellContext.current().getCurrentDirectory().length() + 1);
             // TODO: Find a better way to handle this.
             if (onlyDirectories && nextNode.isDirectory()) {
                 match += File.separator;
@@ -0,0 +1,33 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Matches lines against a regular expression with {@link Matcher#find()}. ASCII lines are matched
+ * through a view of their bytes; only other lines are decoded, as UTF-8.
+ */
+public final class RegexLineMatcher implements LineMatcher {
+    private final Pattern pattern;
+    private final Matcher matcher;
+
+    public RegexLineMatcher(Pattern pattern) {
+        this.pattern = pattern;
+        this.matcher = pattern.matcher("");
+    }
+
+    @Override
+    public boolean matches(byte[] bytes, int offset, int length) {
+        return matcher.reset(AsciiSequence.decode(bytes, offset, length)).find();
+    }
+
+    @Override
+    public boolean matches(MappedFile.LineCursor line) {
+        return matcher.reset(line.getLine()).find();
+    }
+
+    @Override
+    public LineMatcher copy() {
+        return new RegexLineMatcher(pattern);
+    }
+}
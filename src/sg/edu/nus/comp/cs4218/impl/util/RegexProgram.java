@@ -0,0 +1,476 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A regular expression compiled to a nondeterministic automaton over UTF-8 bytes, for the part of
+ * the {@link java.util.regex.Pattern} syntax that needs no backtracking: literals, character
+ * classes, {@code .}, {@code *}, {@code +} and {@code ?} (greedy or reluctant), alternation,
+ * groups, and the {@code ^} and {@code $} anchors.
+ * <p>
+ * The automaton matches the same lines as the pattern, given that the lines are valid UTF-8:
+ * {@code .} and negated classes consume a whole character, not a single byte, and case-insensitive
+ * matching folds ASCII letters only. Every other construct, such as back references, lookaround
+ * or bounded repetition, is not supported, and {@link #compile} returns null for it.
+ */
+final class RegexProgram {
+    /**
+     * Consumes one byte of a set, then continues at {@code out}.
+     */
+    static final int SET = 0;
+    /**
+     * Continues at both {@code out} and {@code alternative}, without consuming a byte.
+     */
+    static final int SPLIT = 1;
+    /**
+     * Continues at {@code out} at the start of the line only.
+     */
+    static final int BEGIN = 2;
+    /**
+     * Continues at {@code out} at the end of the line, or before a line terminator ending it.
+     */
+    static final int END = 3;
+    /**
+     * Continues at {@code out} without consuming a byte.
+     */
+    static final int EMPTY = 4;
+    static final int MATCH = 5;
+
+    private static final long[] ANY_CONTINUATION = bytes(0x80, 0xBF);
+
+    final int[] types;
+    final int[] outs;
+    final int[] alternatives;
+    final long[][] sets;
+    final int start;
+
+    private RegexProgram(Builder builder, int start) {
+        this.types = Arrays.copyOf(builder.types, builder.size);
+        this.outs = Arrays.copyOf(builder.outs, builder.size);
+        this.alternatives = Arrays.copyOf(builder.alternatives, builder.size);
+        this.sets = Arrays.copyOf(builder.sets, builder.size);
+        this.start = start;
+    }
+
+    /**
+     * Compiles the expression, or returns null if it uses a construct that is not supported. The
+     * expression must already be known to be valid, e.g. by compiling it as a Pattern.
+     *
+     * @param regex             the regular expression, in {@link java.util.regex.Pattern} syntax
+     * @param isCaseInsensitive whether to ignore the case of ASCII letters
+     */
+    static RegexProgram compile(String regex, boolean isCaseInsensitive) {
+        Builder builder = new Builder(regex, isCaseInsensitive);
+        Fragment fragment = builder.parseAlternation();
+        if (fragment == null || builder.position < regex.length()) {
+            return null;
+        }
+        builder.patch(fragment, builder.add(MATCH, null));
+        return new RegexProgram(builder, fragment.start);
+    }
+
+    int size() {
+        return types.length;
+    }
+
+    /**
+     * Returns true if the byte is in the set of a {@link #SET} state.
+     */
+    boolean accepts(int state, int value) {
+        return contains(sets[state], value);
+    }
+
+    private static long[] bytes(int from, int to) {
+        long[] set = new long[4];
+        for (int value = from; value <= to; value++) {
+            set[value >>> 6] |= 1L << value;
+        }
+        return set;
+    }
+
+    private static boolean contains(long[] set, int value) {
+        return (set[value >>> 6] & 1L << value) != 0;
+    }
+
+    private static long[] union(long[] first, long[] second) {
+        long[] set = first.clone();
+        for (int i = 0; i < set.length; i++) {
+            set[i] |= second[i];
+        }
+        return set;
+    }
+
+    /**
+     * A part of the automaton under construction: its first state, and the transitions out of it
+     * that are still to be pointed at whatever follows.
+     */
+    private static final class Fragment {
+        private final int start;
+        private final List<Integer> exits;
+
+        Fragment(int start, List<Integer> exits) {
+            this.start = start;
+            this.exits = exits;
+        }
+    }
+
+    /**
+     * Parses the expression by recursive descent, adding the states of each part as it goes.
+     * The parse methods return null for anything outside of the supported syntax, and their callers
+     * pass it on, so that parsing stops there.
+     */
+    private static final class Builder {
+        private static final int UNSUPPORTED = -1;
+
+        private final String regex;
+        private final boolean isCaseInsensitive;
+        private int position;
+        private int size;
+        private int[] types = new int[16];
+        private int[] outs = new int[16];
+        private int[] alternatives = new int[16];
+        private long[][] sets = new long[16][];
+
+        Builder(String regex, boolean isCaseInsensitive) {
+            this.regex = regex;
+            this.isCaseInsensitive = isCaseInsensitive;
+        }
+
+        int add(int type, long[] set) {
+            if (size == types.length) {
+                types = Arrays.copyOf(types, size * 2);
+                outs = Arrays.copyOf(outs, size * 2);
+                alternatives = Arrays.copyOf(alternatives, size * 2);
+                sets = Arrays.copyOf(sets, size * 2);
+            }
+            types[size] = type;
+            outs[size] = -1;
+            alternatives[size] = -1;
+            sets[size] = set;
+            return size++;
+        }
+
+        /**
+         * Points the open exits of a fragment at a state. An exit is a state times two, plus one for
+         * its alternative.
+         */
+        void patch(Fragment fragment, int target) {
+            for (int exit : fragment.exits) {
+                if (exit % 2 == 0) {
+                    outs[exit / 2] = target;
+                } else {
+                    alternatives[exit / 2] = target;
+                }
+            }
+        }
+
+        private Fragment single(int type, long[] set) {
+            int state = add(type, set);
+            List<Integer> exits = new ArrayList<>();
+            exits.add(state * 2);
+            return new Fragment(state, exits);
+        }
+
+        private Fragment concat(Fragment first, Fragment second) {
+            if (first == null) {
+                return second;
+            }
+            patch(first, second.start);
+            return new Fragment(first.start, second.exits);
+        }
+
+        private Fragment alternate(Fragment first, Fragment second) {
+            int split = add(SPLIT, null);
+            outs[split] = first.start;
+            alternatives[split] = second.start;
+            List<Integer> exits = new ArrayList<>(first.exits);
+            exits.addAll(second.exits);
+            return new Fragment(split, exits);
+        }
+
+        private Fragment sequence(long[]... bytes) {
+            Fragment fragment = null;
+            for (long[] set : bytes) {
+                fragment = concat(fragment, single(SET, set));
+            }
+            return fragment;
+        }
+
+        Fragment parseAlternation() {
+            Fragment fragment = parseConcatenation();
+            while (fragment != null && position < regex.length() && regex.charAt(position) == '|') {
+                position++;
+                Fragment alternative = parseConcatenation();
+                fragment = alternative == null ? null : alternate(fragment, alternative);
+            }
+            return fragment;
+        }
+
+        private Fragment parseConcatenation() {
+            Fragment fragment = null;
+            while (position < regex.length() && regex.charAt(position) != '|' && regex.charAt(position) != ')') {
+                Fragment next = parseRepetition();
+                if (next == null) {
+                    return null;
+                }
+                fragment = concat(fragment, next);
+            }
+            return fragment == null ? single(EMPTY, null) : fragment;
+        }
+
+        private Fragment parseRepetition() {
+            char first = regex.charAt(position);
+            Fragment atom = parseAtom();
+            if (atom == null || position == regex.length() || "*+?".indexOf(regex.charAt(position)) < 0) {
+                return atom;
+            }
+            if (first == '^' || first == '$') {
+                return null;
+            }
+            char quantifier = regex.charAt(position++);
+            if (position < regex.length() && regex.charAt(position) == '?') {
+                position++; // a reluctant quantifier matches the same lines
+            }
+            if (position < regex.length() && "*+?{".indexOf(regex.charAt(position)) >= 0) {
+                return null; // possessive or stacked quantifiers
+            }
+
+            int split = add(SPLIT, null);
+            outs[split] = atom.start;
+            List<Integer> exits = new ArrayList<>();
+            exits.add(split * 2 + 1);
+            switch (quantifier) {
+                case '*':
+                    patch(atom, split);
+                    return new Fragment(split, exits);
+                case '+':
+                    patch(atom, split);
+                    return new Fragment(atom.start, exits);
+                default:
+                    exits.addAll(atom.exits);
+                    return new Fragment(split, exits);
+            }
+        }
+
+        private Fragment parseAtom() {
+            int codePoint = regex.codePointAt(position);
+            position += Character.charCount(codePoint);
+            switch (codePoint) {
+                case '(':
+                    return parseGroup();
+                case '[':
+                    return parseClass();
+                case '.':
+                    return anyCharacter();
+                case '^':
+                    return single(BEGIN, null);
+                case '$':
+                    return single(END, null);
+                case '\\':
+                    return parseEscape();
+                case ')':
+                case '*':
+                case '+':
+                case '?':
+                case '{':
+                case '}':
+                    return null;
+                default:
+                    return literal(codePoint);
+            }
+        }
+
+        private Fragment parseGroup() {
+            if (regex.startsWith("?:", position)) {
+                position += 2;
+            } else if (regex.startsWith("?", position)) {
+                return null; // lookaround, flags or named groups
+            }
+            Fragment fragment = parseAlternation();
+            if (fragment == null || position == regex.length() || regex.charAt(position) != ')') {
+                return null;
+            }
+            position++;
+            return fragment;
+        }
+
+        private Fragment parseEscape() {
+            if (position == regex.length()) {
+                return null;
+            }
+            char escaped = regex.charAt(position++);
+            long[] set = classEscape(escaped);
+            if (set != null) {
+                return set(set, false);
+            }
+            if (Character.isUpperCase(escaped) && classEscape(Character.toLowerCase(escaped)) != null) {
+                return set(classEscape(Character.toLowerCase(escaped)), true);
+            }
+            int codePoint = escapedLiteral(escaped);
+            return codePoint == UNSUPPORTED ? null : literal(codePoint);
+        }
+
+        /**
+         * Returns the ASCII set of \d, \w or \s, or null for any other escape.
+         */
+        private long[] classEscape(char escaped) {
+            switch (escaped) {
+                case 'd':
+                    return bytes('0', '9');
+                case 'w':
+                    return union(union(bytes('a', 'z'), bytes('A', 'Z')), union(bytes('0', '9'), bytes('_', '_')));
+                case 's':
+                    return union(bytes(' ', ' '), bytes('\t', '\r'));
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * Returns the character an escape stands for, for the escapes of a single character, or
+         * {@link #UNSUPPORTED} for any other escape.
+         */
+        private int escapedLiteral(char escaped) {
+            switch (escaped) {
+                case 't':
+                    return '\t';
+                case 'n':
+                    return '\n';
+                case 'r':
+                    return '\r';
+                case 'f':
+                    return '\f';
+                case 'a':
+                    return 0x07;
+                case 'e':
+                    return 0x1B;
+                default:
+                    if (escaped < 0x80 && !Character.isLetterOrDigit(escaped)) {
+                        return escaped;
+                    }
+                    return UNSUPPORTED; // back references, \b, \p and the like
+            }
+        }
+
+        private Fragment parseClass() {
+            boolean isNegated = position < regex.length() && regex.charAt(position) == '^';
+            if (isNegated) {
+                position++;
+            }
+            if (position < regex.length() && regex.charAt(position) == ']') {
+                return null;
+            }
+            long[] set = new long[4];
+            while (true) {
+                if (position == regex.length()) {
+                    return null;
+                }
+                char current = regex.charAt(position++);
+                if (current == ']') {
+                    return set(set, isNegated);
+                }
+                if (current == '[' || current == '&' && regex.startsWith("&", position)) {
+                    return null; // unions and intersections
+                }
+                int from;
+                if (current == '\\') {
+                    if (position == regex.length()) {
+                        return null;
+                    }
+                    long[] escapeSet = classEscape(regex.charAt(position));
+                    if (escapeSet != null) {
+                        position++;
+                        set = union(set, escapeSet);
+                        continue;
+                    }
+                    from = escapedLiteral(regex.charAt(position++));
+                } else {
+                    from = current;
+                }
+                int to = from;
+                if (regex.startsWith("-", position) && position + 1 < regex.length()
+                        && regex.charAt(position + 1) != ']') {
+                    position++;
+                    char upper = regex.charAt(position++);
+                    if (upper == '\\') {
+                        if (position == regex.length()) {
+                            return null;
+                        }
+                        to = escapedLiteral(regex.charAt(position++));
+                    } else if (upper == '[') {
+                        return null;
+                    } else {
+                        to = upper;
+                    }
+                }
+                if (from == UNSUPPORTED || to == UNSUPPORTED || from >= 0x80 || to >= 0x80 || from > to) {
+                    return null;
+                }
+                set = union(set, bytes(from, to));
+            }
+        }
+
+        /**
+         * Returns a fragment for a set of ASCII characters, or for every character outside of it.
+         */
+        private Fragment set(long[] ascii, boolean isNegated) {
+            long[] folded = ascii.clone();
+            if (isCaseInsensitive) {
+                for (int lower = 'a'; lower <= 'z'; lower++) {
+                    int upper = lower - 'a' + 'A';
+                    if (contains(ascii, lower) || contains(ascii, upper)) {
+                        folded = union(folded, union(bytes(lower, lower), bytes(upper, upper)));
+                    }
+                }
+            }
+            if (!isNegated) {
+                return single(SET, folded);
+            }
+            long[] complement = {~folded[0], ~folded[1], 0, 0};
+            return alternate(single(SET, complement), multiByteCharacter(false));
+        }
+
+        private Fragment anyCharacter() {
+            // . matches neither line terminators nor U+0085, U+2028 and U+2029
+            long[] ascii = union(bytes(0, '\n' - 1), union(bytes('\n' + 1, '\r' - 1), bytes('\r' + 1, 0x7F)));
+            return alternate(single(SET, ascii), multiByteCharacter(true));
+        }
+
+        /**
+         * Returns a fragment for any character of two to four bytes, except U+0085, U+2028 and U+2029
+         * if so asked. The lines are known to be valid UTF-8, so the lead byte decides the length.
+         */
+        private Fragment multiByteCharacter(boolean isExcludingTerminators) {
+            Fragment twoBytes;
+            Fragment threeBytes;
+            if (isExcludingTerminators) {
+                twoBytes = alternate(sequence(bytes(0xC3, 0xDF), ANY_CONTINUATION),
+                        sequence(bytes(0xC2, 0xC2), union(bytes(0x80, 0x84), bytes(0x86, 0xBF))));
+                threeBytes = alternate(sequence(union(bytes(0xE0, 0xE1), bytes(0xE3, 0xEF)), ANY_CONTINUATION,
+                        ANY_CONTINUATION), alternate(sequence(bytes(0xE2, 0xE2), bytes(0x81, 0xBF), ANY_CONTINUATION),
+                        sequence(bytes(0xE2, 0xE2), bytes(0x80, 0x80), union(bytes(0x80, 0xA7), bytes(0xAA, 0xBF)))));
+            } else {
+                twoBytes = sequence(bytes(0xC2, 0xDF), ANY_CONTINUATION);
+                threeBytes = sequence(bytes(0xE0, 0xEF), ANY_CONTINUATION, ANY_CONTINUATION);
+            }
+            Fragment fourBytes = sequence(bytes(0xF0, 0xF4), ANY_CONTINUATION, ANY_CONTINUATION, ANY_CONTINUATION);
+            return alternate(twoBytes, alternate(threeBytes, fourBytes));
+        }
+
+        private Fragment literal(int codePoint) {
+            if (codePoint < 0x80) {
+                long[] set = bytes(codePoint, codePoint);
+                return set(set, false);
+            }
+            byte[] encoded = new String(Character.toChars(codePoint)).getBytes(StandardCharsets.UTF_8);
+            long[][] bytes = new long[encoded.length][];
+            for (int i = 0; i < encoded.length; i++) {
+                bytes[i] = bytes(encoded[i] & 0xFF, encoded[i] & 0xFF);
+            }
+            return sequence(bytes);
+        }
+    }
+}
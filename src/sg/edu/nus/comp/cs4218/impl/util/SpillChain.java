@@ -0,0 +1,118 @@
+package sg.edu.nus.comp.cs4218.impl.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * A first-in, first-out queue of bytes kept in a chain of temporary files, for the part of a
+ * {@link PipeChannel}'s contents that does not fit in its memory budget.
+ * <p>
+ * Bytes are appended to the last segment and read from the first one with positional reads
+ * straight into the caller's array, without an intermediate buffer. A segment is deleted as soon as
+ * it has been read completely, so the disk space used shrinks as the reader catches up.
+ * <p>
+ * Not thread-safe; the owning channel serialises access to it.
+ */
+final class SpillChain implements Closeable {
+    static final long SEGMENT_SIZE = 16L * 1024 * 1024;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long unreadBytes;
+
+    /**
+     * Returns the number of bytes written but not read yet.
+     */
+    long getUnreadBytes() {
+        return unreadBytes;
+    }
+
+    void write(byte[] bytes, int off, int len) throws IOException {
+        int offset = off;
+        int remaining = len;
+        while (remaining > 0) {
+            Segment tail = segments.peekLast();
+            if (tail == null || tail.writePos == SEGMENT_SIZE) {
+                tail = Segment.create();
+                segments.addLast(tail);
+            }
+            int chunk = (int) Math.min(remaining, SEGMENT_SIZE - tail.writePos);
+            ByteBuffer source = ByteBuffer.wrap(bytes, offset, chunk);
+            while (source.hasRemaining()) {
+                tail.writePos += tail.channel.write(source, tail.writePos);
+            }
+            unreadBytes += chunk;
+            offset += chunk;
+            remaining -= chunk;
+        }
+    }
+
+    /**
+     * Reads up to {@code len} bytes from the oldest unread segment.
+     *
+     * @return the number of bytes read, or -1 if there are no unread bytes.
+     */
+    int read(byte[] bytes, int off, int len) throws IOException {
+        Segment head = segments.peekFirst();
+        if (head == null) {
+            return -1;
+        }
+        int chunk = (int) Math.min(len, head.writePos - head.readPos);
+        int numRead = head.channel.read(ByteBuffer.wrap(bytes, off, chunk), head.readPos);
+        if (numRead < 0) {
+            throw new IOException("Spill file ended early");
+        }
+        head.readPos += numRead;
+        unreadBytes -= numRead;
+        if (head.readPos == head.writePos) {
+            segments.removeFirst().channel.close();
+        }
+        return numRead;
+    }
+
+    /**
+     * Deletes every segment, whether it has been read or not.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        while (!segments.isEmpty()) {
+            try {
+                segments.removeFirst().channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        unreadBytes = 0;
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Segment {
+        private final FileChannel channel;
+        private long writePos;
+        private long readPos;
+
+        private Segment(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        static Segment create() throws IOException {
+            Path file = Files.createTempFile("pipe-spill", ".tmp");
+            try {
+                return new Segment(FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE));
+            } catch (IOException e) {
+                Files.deleteIfExists(file);
+                throw e;
+            }
+        }
+    }
+}
@@ -16,6 +16,8 @@ public final class StringUtils {
     public static final char CHAR_BACK_QUOTE = '`';
     public static final char CHAR_REDIR_INPUT = '<';
     public static final char CHAR_REDIR_OUTPUT = '>';
+    public static final String STRING_REDIR_APPEND = ">>";
+    public static final String STRING_HERE_STRING = "<<<";
     public static final char CHAR_PIPE = '|';
     public static final char CHAR_SEMICOLON = ';';
     public static final char CHAR_ASTERISK = '*';